@@ -16,10 +16,18 @@ import android.text.TextUtils;
 import com.hjq.bar.TitleBar;
 import com.lanqiDoctor.demo.R;
 import com.lanqiDoctor.demo.aop.Log;
+import com.lanqiDoctor.demo.database.DatabaseMaintenanceJobService;
 import com.lanqiDoctor.demo.http.glide.GlideApp;
+import com.lanqiDoctor.demo.http.model.ConditionalCache;
+import com.lanqiDoctor.demo.http.model.IConditionalApi;
 import com.lanqiDoctor.demo.http.model.RequestHandler;
 import com.lanqiDoctor.demo.http.model.RequestServer;
+import com.lanqiDoctor.demo.http.model.SharedHttpClient;
+import com.lanqiDoctor.demo.http.model.SyncCompressionInterceptor;
+import com.lanqiDoctor.demo.http.model.SyncMetricsInterceptor;
 import com.lanqiDoctor.demo.manager.ActivityManager;
+import com.lanqiDoctor.demo.manager.MarkdownRenderManager;
+import com.lanqiDoctor.demo.manager.OutboxManager;
 import com.lanqiDoctor.demo.manager.UserStateManager;
 import com.lanqiDoctor.demo.manager.TodayMedicationManager;
 import com.lanqiDoctor.demo.other.AppConfig;
@@ -59,6 +67,8 @@ public final class AppApplication extends Application {
         initUserState();
         // 初始化今日服药数据
         initTodayMedicationData();
+        // 注册数据库维护任务
+        DatabaseMaintenanceJobService.schedule(this);
     }
 
     @Override
@@ -71,6 +81,7 @@ public final class AppApplication extends Application {
         super.onLowMemory();
         // 清理所有图片内存缓存
         GlideApp.get(this).onLowMemory();
+        MarkdownRenderManager.clearCache();
     }
 
     @Override
@@ -78,6 +89,10 @@ public final class AppApplication extends Application {
         super.onTrimMemory(level);
         // 根据手机内存剩余情况清理图片内存缓存
         GlideApp.get(this).onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // Markdown 渲染结果随时可以重新生成
+            MarkdownRenderManager.clearCache();
+        }
     }
 
     /**
@@ -146,7 +161,12 @@ public final class AppApplication extends Application {
         MMKV.initialize(application);
 
         // 网络请求框架初始化
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
+        // 与大模型请求共用连接池和 DNS 缓存
+        OkHttpClient okHttpClient = SharedHttpClient.getInstance().newBuilder()
+                // 服务器支持时压缩同步请求体
+                .addInterceptor(new SyncCompressionInterceptor(application))
+                // 统计同步请求在网络上实际传输的字节数
+                .addNetworkInterceptor(new SyncMetricsInterceptor(application))
                 .build();
 
         EasyConfig.with(okHttpClient)
@@ -174,6 +194,10 @@ public final class AppApplication extends Application {
                     headers.put("versionName", AppConfig.getVersionName());
                     headers.put("versionCode", String.valueOf(AppConfig.getVersionCode()));
                     headers.put("Content-Type", "application/json");
+                    // 支持条件请求的接口带上上次响应的校验信息
+                    if (api instanceof IConditionalApi) {
+                        ConditionalCache.getInstance(application).applyValidators((IConditionalApi) api, params, headers);
+                    }
                     // 添加全局请求参数
                     // params.put("6666666", "6666666");
                 })
@@ -195,6 +219,21 @@ public final class AppApplication extends Application {
         ConnectivityManager connectivityManager = ContextCompat.getSystemService(application, ConnectivityManager.class);
         if (connectivityManager != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
             connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+
+                /** 上一次回调时的默认网络，注册时和网络未变化时也会回调 onAvailable */
+                private Network mDefaultNetwork;
+
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    // 默认网络确实切换后，旧连接和 DNS 结果才不再可靠，否则保留预连接建立的连接
+                    if (mDefaultNetwork != null && !mDefaultNetwork.equals(network)) {
+                        SharedHttpClient.getInstance().onNetworkChanged();
+                    }
+                    mDefaultNetwork = network;
+                    // 网络恢复后重放离线期间的修改请求
+                    OutboxManager.getInstance(application).drain();
+                }
+
                 @Override
                 public void onLost(@NonNull Network network) {
                     Activity topActivity = ActivityManager.getInstance().getTopActivity();
@@ -0,0 +1,78 @@
+package com.lanqiDoctor.demo.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.lanqiDoctor.demo.database.entity.Habit;
+
+import java.util.List;
+
+/**
+ * 习惯 Room 数据访问对象
+ * 查询在编译期校验，由 database.dao.HabitDao 调用
+ */
+@Dao
+public abstract class HabitRoomDao {
+
+    /**
+     * 插入习惯记录
+     */
+    @Insert
+    public abstract long insert(Habit habit);
+
+    @Insert
+    public abstract long[] insertRows(List<Habit> habits);
+
+    /**
+     * 批量插入习惯记录，全部在同一个事务中完成，并回填生成的ID
+     */
+    @Transaction
+    public int insertAll(List<Habit> habits) {
+        long[] ids = insertRows(habits);
+        for (int i = 0; i < ids.length; i++) {
+            habits.get(i).setId(ids[i]);
+        }
+        return ids.length;
+    }
+
+    /**
+     * 根据ID查询未删除的习惯记录
+     */
+    @Query("SELECT * FROM habits WHERE id = :id AND status > 0")
+    public abstract Habit findById(long id);
+
+    /**
+     * 查询用户所有未删除的习惯记录，按创建时间倒序
+     */
+    @Query("SELECT * FROM habits WHERE user_id = :userId AND status > 0 ORDER BY create_time DESC")
+    public abstract List<Habit> findByUserId(String userId);
+
+    /**
+     * 查询用户正常状态且已启用的习惯记录，按优先级、创建时间倒序
+     */
+    @Query("SELECT * FROM habits WHERE user_id = :userId AND status = 1 AND is_active = 1 " +
+            "ORDER BY priority DESC, create_time DESC")
+    public abstract List<Habit> findActiveByUserId(String userId);
+
+    /**
+     * 根据分类查询用户未删除的习惯记录，按创建时间倒序
+     */
+    @Query("SELECT * FROM habits WHERE user_id = :userId AND category = :category AND status > 0 " +
+            "ORDER BY create_time DESC")
+    public abstract List<Habit> findByCategory(String userId, String category);
+
+    /**
+     * 软删除习惯记录
+     */
+    @Query("UPDATE habits SET status = 0, update_time = :updateTime WHERE id = :id")
+    public abstract int softDelete(long id, long updateTime);
+
+    /**
+     * 更新习惯打卡信息
+     */
+    @Query("UPDATE habits SET completed_days = :completedDays, total_check_ins = :totalCheckIns, " +
+            "update_time = :updateTime WHERE id = :id")
+    public abstract int updateCheckIn(long id, int completedDays, int totalCheckIns, long updateTime);
+}
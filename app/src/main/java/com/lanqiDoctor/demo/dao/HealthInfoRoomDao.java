@@ -0,0 +1,65 @@
+package com.lanqiDoctor.demo.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.lanqiDoctor.demo.database.entity.HealthInfo;
+
+import java.util.List;
+
+/**
+ * 健康信息 Room 数据访问对象
+ * 查询在编译期校验，由 database.dao.HealthInfoDao 调用
+ */
+@Dao
+public interface HealthInfoRoomDao {
+
+    /**
+     * 插入健康信息
+     */
+    @Insert
+    long insert(HealthInfo healthInfo);
+
+    /**
+     * 根据ID查询健康信息
+     */
+    @Query("SELECT * FROM health_info WHERE id = :id")
+    HealthInfo findById(long id);
+
+    /**
+     * 查询所有健康信息，按时间倒序
+     */
+    @Query("SELECT * FROM health_info ORDER BY timestamp DESC")
+    List<HealthInfo> findAll();
+
+    /**
+     * 根据时间范围查询，按时间倒序
+     */
+    @Query("SELECT * FROM health_info WHERE timestamp BETWEEN :startTime AND :endTime ORDER BY timestamp DESC")
+    List<HealthInfo> findByTimeRange(long startTime, long endTime);
+
+    /**
+     * 查询最新录入的N条健康信息
+     */
+    @Query("SELECT * FROM health_info ORDER BY create_time DESC LIMIT :limit")
+    List<HealthInfo> findLatest(int limit);
+
+    /**
+     * 获取记录总数
+     */
+    @Query("SELECT COUNT(*) FROM health_info")
+    int count();
+
+    /**
+     * 根据ID删除健康信息
+     */
+    @Query("DELETE FROM health_info WHERE id = :id")
+    int deleteById(long id);
+
+    /**
+     * 清空所有记录
+     */
+    @Query("DELETE FROM health_info")
+    int deleteAll();
+}
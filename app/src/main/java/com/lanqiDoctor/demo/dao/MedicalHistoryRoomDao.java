@@ -0,0 +1,41 @@
+package com.lanqiDoctor.demo.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.lanqiDoctor.demo.database.entity.MedicalHistory;
+
+import java.util.List;
+
+/**
+ * 既往病史 Room 数据访问对象
+ * 查询在编译期校验，由 database.dao.MedicalHistoryDao 调用
+ */
+@Dao
+public interface MedicalHistoryRoomDao {
+
+    /**
+     * 插入既往病史记录
+     */
+    @Insert
+    long insert(MedicalHistory history);
+
+    /**
+     * 根据ID查询正常状态的既往病史记录
+     */
+    @Query("SELECT * FROM medical_history WHERE id = :id AND status = 1")
+    MedicalHistory findById(long id);
+
+    /**
+     * 查询用户所有正常状态的既往病史记录，按创建时间倒序
+     */
+    @Query("SELECT * FROM medical_history WHERE user_id = :userId AND status = 1 ORDER BY create_time DESC")
+    List<MedicalHistory> findByUserId(String userId);
+
+    /**
+     * 根据ID删除既往病史记录
+     */
+    @Query("DELETE FROM medical_history WHERE id = :id")
+    int deleteById(long id);
+}
@@ -0,0 +1,71 @@
+package com.lanqiDoctor.demo.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+
+import java.util.List;
+
+/**
+ * 服药记录 Room 数据访问对象
+ * 只读查询在编译期校验；写入需要同步维护服药日汇总，仍由 database.dao.MedicationIntakeRecordDao 完成
+ */
+@Dao
+public interface MedicationIntakeRecordRoomDao {
+
+    /**
+     * 根据用户、药物名称和计划时间查询服药记录
+     */
+    @Query("SELECT * FROM medication_intake_record " +
+            "WHERE user_id = :userId AND medication_name = :medicationName AND planned_time = :plannedTime")
+    MedicationIntakeRecord findByNameAndTime(String userId, String medicationName, long plannedTime);
+
+    /**
+     * 根据ID查询服药记录
+     */
+    @Query("SELECT * FROM medication_intake_record WHERE id = :id")
+    MedicationIntakeRecord findById(long id);
+
+    /**
+     * 根据药物名称查询用户所有服药记录，按计划时间倒序
+     */
+    @Query("SELECT * FROM medication_intake_record " +
+            "WHERE user_id = :userId AND medication_name = :medicationName ORDER BY planned_time DESC")
+    List<MedicationIntakeRecord> findByMedicationName(String userId, String medicationName);
+
+    /**
+     * 根据药物ID查询用户所有服药记录，按计划时间倒序
+     */
+    @Query("SELECT * FROM medication_intake_record " +
+            "WHERE user_id = :userId AND medication_id = :medicationId ORDER BY planned_time DESC")
+    List<MedicationIntakeRecord> findByMedicationId(String userId, long medicationId);
+
+    /**
+     * 根据时间范围查询用户服药记录（闭区间），按计划时间升序
+     */
+    @Query("SELECT * FROM medication_intake_record " +
+            "WHERE user_id = :userId AND planned_time >= :startTime AND planned_time <= :endTime " +
+            "ORDER BY planned_time ASC")
+    List<MedicationIntakeRecord> findByTimeRange(String userId, long startTime, long endTime);
+
+    /**
+     * 根据时间范围（左闭右开）和状态查询用户服药记录，按计划时间升序
+     */
+    @Query("SELECT * FROM medication_intake_record " +
+            "WHERE user_id = :userId AND planned_time >= :startTime AND planned_time < :endTime AND status = :status " +
+            "ORDER BY planned_time ASC")
+    List<MedicationIntakeRecord> findByTimeRangeAndStatus(String userId, long startTime, long endTime, int status);
+
+    /**
+     * 查询用户所有服药记录，按计划时间倒序
+     */
+    @Query("SELECT * FROM medication_intake_record WHERE user_id = :userId ORDER BY planned_time DESC")
+    List<MedicationIntakeRecord> findAll(String userId);
+
+    /**
+     * 获取记录总数
+     */
+    @Query("SELECT COUNT(*) FROM medication_intake_record")
+    int count();
+}
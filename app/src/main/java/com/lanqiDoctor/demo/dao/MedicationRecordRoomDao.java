@@ -0,0 +1,64 @@
+package com.lanqiDoctor.demo.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import com.lanqiDoctor.demo.database.entity.MedicationRecord;
+
+import java.util.List;
+
+/**
+ * 用药记录 Room 数据访问对象
+ * 只读查询在编译期校验；写入涉及云同步合并与服药日汇总，仍由 database.dao.MedicationRecordDao 完成
+ */
+@Dao
+public interface MedicationRecordRoomDao {
+
+    /**
+     * 根据药物名称查询用药记录
+     */
+    @Query("SELECT * FROM medication_record WHERE medication_name = :medicationName")
+    MedicationRecord findByName(String medicationName);
+
+    /**
+     * 根据ID查询用药记录
+     */
+    @Query("SELECT * FROM medication_record WHERE id = :id")
+    MedicationRecord findById(long id);
+
+    /**
+     * 检查药物名称是否已存在
+     */
+    @Query("SELECT COUNT(*) FROM medication_record WHERE medication_name = :medicationName")
+    int countByName(String medicationName);
+
+    /**
+     * 根据状态和用户ID查询用药记录，按创建时间倒序
+     */
+    @Query("SELECT * FROM medication_record WHERE status = :status AND user_id = :userId ORDER BY create_time DESC")
+    List<MedicationRecord> findByStatusAndUserId(int status, String userId);
+
+    /**
+     * 根据状态查询用药记录（不区分用户），按创建时间倒序
+     */
+    @Query("SELECT * FROM medication_record WHERE status = :status ORDER BY create_time DESC")
+    List<MedicationRecord> findByStatus(int status);
+
+    /**
+     * 查询所有用药记录，按创建时间倒序
+     */
+    @Query("SELECT * FROM medication_record ORDER BY create_time DESC")
+    List<MedicationRecord> findAll();
+
+    /**
+     * 根据药品名称模糊查询，按创建时间倒序
+     */
+    @Query("SELECT * FROM medication_record WHERE medication_name LIKE '%' || :name || '%' ORDER BY create_time DESC")
+    List<MedicationRecord> findByNameLike(String name);
+
+    /**
+     * 获取记录总数
+     */
+    @Query("SELECT COUNT(*) FROM medication_record")
+    int count();
+}
@@ -2,39 +2,96 @@ package com.lanqiDoctor.demo.database;
 
 import android.content.Context;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.lanqiDoctor.demo.dao.ChatSessionDao;
+import com.lanqiDoctor.demo.dao.HabitRoomDao;
+import com.lanqiDoctor.demo.dao.HealthInfoRoomDao;
+import com.lanqiDoctor.demo.dao.MedicalHistoryRoomDao;
+import com.lanqiDoctor.demo.dao.MedicationIntakeRecordRoomDao;
+import com.lanqiDoctor.demo.dao.MedicationRecordRoomDao;
 import com.lanqiDoctor.demo.dao.converter.ChatMessageListConverter;
+import com.lanqiDoctor.demo.database.entity.Habit;
+import com.lanqiDoctor.demo.database.entity.HealthInfo;
+import com.lanqiDoctor.demo.database.entity.IntakeChangeJournal;
+import com.lanqiDoctor.demo.database.entity.IntakeDailySummary;
+import com.lanqiDoctor.demo.database.entity.IntakeTombstone;
+import com.lanqiDoctor.demo.database.entity.MedicalHistory;
+import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+import com.lanqiDoctor.demo.database.entity.MedicationRecord;
+import com.lanqiDoctor.demo.database.entity.OutboxRequest;
 import com.lanqiDoctor.demo.entity.ChatSession;
 
 /**
  * Room 数据库主类
+ *
+ * 健康数据与聊天会话共用 lanqi_doctor.db 一个文件；版本号接着原 SQLiteOpenHelper 的 13 继续递增，
+ * 旧库的升级与数据复制见 LegacyMigrations，Room 接管之后的升级见 RoomMigrations
  */
 @Database(
-    entities = {ChatSession.class},
-    version = 1,
+    entities = {
+        ChatSession.class,
+        HealthInfo.class,
+        MedicationRecord.class,
+        MedicationIntakeRecord.class,
+        MedicalHistory.class,
+        Habit.class,
+        IntakeDailySummary.class,
+        IntakeChangeJournal.class,
+        IntakeTombstone.class,
+        OutboxRequest.class
+    },
+    version = AppDatabase.VERSION,
     exportSchema = false
 )
 @TypeConverters({ChatMessageListConverter.class})
 public abstract class AppDatabase extends RoomDatabase {
-    
+
+    static final String DATABASE_NAME = "lanqi_doctor.db";
+    static final int VERSION = 17;
+
     private static volatile AppDatabase INSTANCE;
-    
+
     public abstract ChatSessionDao chatSessionDao();
-    
+
+    public abstract HealthInfoRoomDao healthInfoDao();
+
+    public abstract MedicationRecordRoomDao medicationRecordDao();
+
+    public abstract MedicationIntakeRecordRoomDao medicationIntakeRecordDao();
+
+    public abstract MedicalHistoryRoomDao medicalHistoryDao();
+
+    public abstract HabitRoomDao habitDao();
+
     public static AppDatabase getInstance(Context context) {
         if (INSTANCE == null) {
             synchronized (AppDatabase.class) {
                 if (INSTANCE == null) {
+                    Context appContext = context.getApplicationContext();
                     INSTANCE = Room.databaseBuilder(
-                        context.getApplicationContext(),
+                        appContext,
                         AppDatabase.class,
-                        "lanqidoctor_database"
-                    ).build();
+                        DATABASE_NAME
+                    )
+                        .addMigrations(LegacyMigrations.all())
+                        .addMigrations(RoomMigrations.all())
+                        .addCallback(new Callback() {
+                            @Override
+                            public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                                LegacyMigrations.importLegacyChatSessions(appContext, db);
+                            }
+                        })
+                        // 原 DatabaseHelper 时期的 DAO 在部分页面的主线程中调用，保持原有行为
+                        .allowMainThreadQueries()
+                        // 读写互不阻塞，与原 DatabaseHelper 一致
+                        .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                        .build();
                 }
             }
         }
@@ -0,0 +1,235 @@
+package com.lanqiDoctor.demo.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.dao.IntakeDailySummaryDao;
+import com.lanqiDoctor.demo.database.dao.IntakeTombstoneDao;
+import com.lanqiDoctor.demo.database.dao.MedicationIntakeRecordDao;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库维护任务
+ *
+ * 1. 按保留期限分批删除旧的服药记录明细（日汇总已包含这些记录，统计不受影响），批与批之间让出写锁
+ * 2. 设备空闲且充电时回收空闲页、更新查询统计信息并截断 WAL 文件
+ *
+ * 由 DatabaseMaintenanceJobService 在后台调度执行，不要在主线程调用
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class DatabaseMaintenance {
+
+    private static final String TAG = "DatabaseMaintenance";
+
+    private static final String PREFS_NAME = "db_maintenance";
+    private static final String KEY_RETENTION_CUTOFF = "retention_cutoff";
+    private static final String KEY_LAST_RUN_TIME = "last_run_time";
+    private static final String KEY_LAST_DELETED_ROWS = "last_deleted_rows";
+    private static final String KEY_LAST_RECLAIMED_BYTES = "last_reclaimed_bytes";
+    private static final String KEY_LAST_DURATION_MS = "last_duration_ms";
+
+    /** 服药记录明细保留天数 */
+    private static final int RETENTION_DAYS = 365;
+    /** 每批删除的行数 */
+    private static final int CHUNK_SIZE = 500;
+    /** 批与批之间的停顿，让其他线程有机会拿到写锁 */
+    private static final long CHUNK_PAUSE_MS = 50;
+
+    /** auto_vacuum 取值 */
+    private static final long AUTO_VACUUM_NONE = 0;
+    private static final long AUTO_VACUUM_INCREMENTAL = 2;
+
+    /**
+     * 取消信号，在每批删除之间检查
+     */
+    public interface CancelSignal {
+        boolean isCancelled();
+    }
+
+    private DatabaseMaintenance() {
+    }
+
+    /**
+     * 获取保留期限：计划时间早于该值的服药记录已被清理，不应再写回本地
+     */
+    public static long getRetentionCutoff(Context context) {
+        return prefs(context).getLong(KEY_RETENTION_CUTOFF, 0L);
+    }
+
+    /**
+     * 执行一次维护
+     *
+     * @param optimize 是否执行空间回收、ANALYZE 与 WAL 检查点，仅在设备空闲且充电时传 true
+     */
+    public static Report run(Context context, boolean optimize, CancelSignal cancelSignal) {
+        long startTime = SystemClock.elapsedRealtime();
+        Report report = new Report();
+
+        SupportSQLiteDatabase db = DatabaseHelper.getInstance(context).getWritableDatabase();
+        report.bytesBefore = databaseBytes(db);
+
+        // 先记录保留期限，保证清理期间的云同步不会把旧记录写回来
+        long cutoff = IntakeDailySummaryDao.dayOf(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(RETENTION_DAYS));
+        SharedPreferences prefs = prefs(context);
+        if (cutoff > prefs.getLong(KEY_RETENTION_CUTOFF, 0L)) {
+            prefs.edit().putLong(KEY_RETENTION_CUTOFF, cutoff).apply();
+        }
+
+        MedicationIntakeRecordDao intakeDao = new MedicationIntakeRecordDao(context);
+        for (String userId : intakeDao.findUserIds()) {
+            while (!isCancelled(cancelSignal)) {
+                int deleted = intakeDao.deleteOldRecordsChunk(userId, cutoff, CHUNK_SIZE);
+                report.deletedRows += deleted;
+                if (deleted < CHUNK_SIZE) {
+                    break;
+                }
+                SystemClock.sleep(CHUNK_PAUSE_MS);
+            }
+        }
+        // 超出保留期限的记录云端下发时会被直接跳过，对应的墓碑不再需要
+        new IntakeTombstoneDao(context).purgeBefore(cutoff);
+
+        if (optimize && !isCancelled(cancelSignal)) {
+            try {
+                reclaimSpace(db, report);
+                db.execSQL("ANALYZE");
+                report.analyzed = true;
+                drainPragma(db, "PRAGMA wal_checkpoint(TRUNCATE)");
+                report.checkpointed = true;
+            } catch (Exception e) {
+                Log.e(TAG, "数据库优化失败", e);
+            }
+        }
+
+        report.cancelled = isCancelled(cancelSignal);
+        report.bytesAfter = databaseBytes(db);
+        report.durationMs = SystemClock.elapsedRealtime() - startTime;
+
+        prefs.edit()
+                .putLong(KEY_LAST_RUN_TIME, System.currentTimeMillis())
+                .putInt(KEY_LAST_DELETED_ROWS, report.deletedRows)
+                .putLong(KEY_LAST_RECLAIMED_BYTES, report.getReclaimedBytes())
+                .putLong(KEY_LAST_DURATION_MS, report.durationMs)
+                .apply();
+
+        Log.d(TAG, "数据库维护完成: " + report);
+        return report;
+    }
+
+    /**
+     * 回收空闲页：
+     * INCREMENTAL 模式直接 incremental_vacuum；
+     * NONE 模式切换为 INCREMENTAL 并整库 VACUUM 一次，之后都走增量回收；
+     * FULL 模式每次提交时已自动回收，无需处理
+     */
+    private static void reclaimSpace(SupportSQLiteDatabase db, Report report) {
+        long autoVacuum;
+        SupportSQLiteStatement statement = db.compileStatement("PRAGMA auto_vacuum");
+        try {
+            autoVacuum = statement.simpleQueryForLong();
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+        }
+        if (autoVacuum == AUTO_VACUUM_INCREMENTAL) {
+            drainPragma(db, "PRAGMA incremental_vacuum");
+            report.vacuumed = true;
+        } else if (autoVacuum == AUTO_VACUUM_NONE) {
+            Log.d(TAG, "切换 auto_vacuum 为 INCREMENTAL 并执行一次 VACUUM");
+            db.execSQL("PRAGMA auto_vacuum = INCREMENTAL");
+            db.execSQL("VACUUM");
+            report.vacuumed = true;
+        }
+    }
+
+    /**
+     * 执行会返回结果行的 PRAGMA，并读完全部结果使其真正执行完
+     */
+    private static void drainPragma(SupportSQLiteDatabase db, String sql) {
+        Cursor cursor = db.query(sql);
+        try {
+            while (cursor.moveToNext()) {
+                // 逐行读取即可
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 数据库文件与 WAL 文件的总字节数
+     */
+    private static long databaseBytes(SupportSQLiteDatabase db) {
+        String path = db.getPath();
+        return new File(path).length() + new File(path + "-wal").length();
+    }
+
+    private static boolean isCancelled(CancelSignal cancelSignal) {
+        return cancelSignal != null && cancelSignal.isCancelled();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 维护结果
+     */
+    public static final class Report {
+        private int deletedRows;
+        private long bytesBefore;
+        private long bytesAfter;
+        private long durationMs;
+        private boolean vacuumed;
+        private boolean analyzed;
+        private boolean checkpointed;
+        private boolean cancelled;
+
+        public int getDeletedRows() { return deletedRows; }
+
+        public long getBytesBefore() { return bytesBefore; }
+
+        public long getBytesAfter() { return bytesAfter; }
+
+        /**
+         * 回收的字节数（数据库文件 + WAL 文件）
+         */
+        public long getReclaimedBytes() { return Math.max(0, bytesBefore - bytesAfter); }
+
+        public long getDurationMs() { return durationMs; }
+
+        public boolean isVacuumed() { return vacuumed; }
+
+        public boolean isAnalyzed() { return analyzed; }
+
+        public boolean isCheckpointed() { return checkpointed; }
+
+        /**
+         * 是否被系统中途停止，未完成的部分下次继续
+         */
+        public boolean isCancelled() { return cancelled; }
+
+        @Override
+        public String toString() {
+            return "Report{" +
+                    "deletedRows=" + deletedRows +
+                    ", reclaimedBytes=" + getReclaimedBytes() +
+                    ", bytesAfter=" + bytesAfter +
+                    ", durationMs=" + durationMs +
+                    ", vacuumed=" + vacuumed +
+                    ", analyzed=" + analyzed +
+                    ", checkpointed=" + checkpointed +
+                    ", cancelled=" + cancelled +
+                    '}';
+        }
+    }
+}
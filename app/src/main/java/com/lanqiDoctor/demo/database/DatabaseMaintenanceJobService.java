@@ -0,0 +1,72 @@
+package com.lanqiDoctor.demo.database;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.util.Log;
+
+import com.lanqiDoctor.demo.manager.ThreadPoolManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库维护后台任务
+ *
+ * 每天最多执行一次，仅在设备空闲且充电时由系统调度，具体工作见 DatabaseMaintenance
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public class DatabaseMaintenanceJobService extends JobService {
+
+    private static final String TAG = "DbMaintenanceJob";
+
+    private static final int JOB_ID = 20001;
+
+    private volatile boolean stopped;
+
+    /**
+     * 注册维护任务，已注册时不重复注册
+     */
+    public static void schedule(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null || scheduler.getPendingJob(JOB_ID) != null) {
+            return;
+        }
+        JobInfo jobInfo = new JobInfo.Builder(JOB_ID,
+                new ComponentName(context, DatabaseMaintenanceJobService.class))
+                .setRequiresDeviceIdle(true)
+                .setRequiresCharging(true)
+                .setPeriodic(TimeUnit.DAYS.toMillis(1))
+                .build();
+        int result = scheduler.schedule(jobInfo);
+        Log.d(TAG, "注册数据库维护任务: " + (result == JobScheduler.RESULT_SUCCESS ? "成功" : "失败"));
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        stopped = false;
+        ThreadPoolManager.getInstance().execute(() -> {
+            boolean reschedule = false;
+            try {
+                DatabaseMaintenance.Report report =
+                        DatabaseMaintenance.run(getApplicationContext(), true, () -> stopped);
+                reschedule = report.isCancelled();
+            } catch (Exception e) {
+                Log.e(TAG, "数据库维护失败", e);
+            }
+            jobFinished(params, reschedule);
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // 条件不再满足（设备被使用或拔掉电源），当前批删除完成后停止，稍后重试
+        stopped = true;
+        return true;
+    }
+}
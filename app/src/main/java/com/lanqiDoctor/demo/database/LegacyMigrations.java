@@ -0,0 +1,562 @@
+package com.lanqiDoctor.demo.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.dao.IntakeDailySummaryDao;
+
+import java.io.File;
+
+/**
+ * 旧数据库迁移
+ *
+ * lanqi_doctor.db 原先由 SQLiteOpenHelper 管理（版本 1~13），现在由 Room 的 AppDatabase 接管：
+ * 1. 按原有升级步骤把旧库升级到版本 13
+ * 2. 把表结构调整为 Room 实体的结构：用药记录、服药记录两张表带有列级唯一约束和外键，
+ *    重建后复制数据；其余表的结构本就与实体一致，直接保留
+ * 3. 聊天会话原先在单独的 lanqidoctor_database 中，首次打开时复制过来并删除旧文件
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+final class LegacyMigrations {
+
+    private static final String TAG = "LegacyMigrations";
+
+    /** SQLiteOpenHelper 时期的最后一个版本 */
+    static final int LEGACY_VERSION = 13;
+
+    /** Room 接管时的版本，之后的结构变化由 RoomMigrations 在此基础上逐版本升级 */
+    static final int ROOM_BASE_VERSION = 14;
+
+    /** 原 Room 聊天数据库的文件名 */
+    private static final String LEGACY_CHAT_DATABASE_NAME = "lanqidoctor_database";
+
+    // ==================== SQLiteOpenHelper 时期的建表语句，仅供旧库升级步骤使用 ====================
+
+    // 创建用药记录表的SQL语句 - 药物名称作为主键
+    private static final String CREATE_MEDICATION_RECORD_TABLE = "CREATE TABLE " + DatabaseHelper.TABLE_MEDICATION_RECORD + " (" +
+            DatabaseHelper.COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + " TEXT UNIQUE NOT NULL, " + // 设置为唯一约束
+            DatabaseHelper.COLUMN_USER_ID + " TEXT NOT NULL, " + // 新增：用户ID字段
+            DatabaseHelper.COLUMN_DOSAGE + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_FREQUENCY + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_UNIT + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_START_DATE + " INTEGER, " +
+            DatabaseHelper.COLUMN_END_DATE + " INTEGER, " +
+            DatabaseHelper.COLUMN_REMINDER_TIMES + " TEXT, " +
+            DatabaseHelper.COLUMN_NOTES + " TEXT, " +
+            DatabaseHelper.COLUMN_STATUS + " INTEGER DEFAULT 1, " +
+            DatabaseHelper.COLUMN_CREATE_TIME + " INTEGER NOT NULL, " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " INTEGER NOT NULL" +
+            ")";
+
+    // 创建服药记录表的SQL语句 - 使用药物名称关联
+    private static final String CREATE_MEDICATION_INTAKE_TABLE = "CREATE TABLE " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " (" +
+            DatabaseHelper.COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            DatabaseHelper.COLUMN_USER_ID + " TEXT NOT NULL, " + // 修改：改为TEXT类型
+            DatabaseHelper.COLUMN_MEDICATION_ID + " INTEGER, " + // 保留但可选
+            DatabaseHelper.COLUMN_MEDICATION_NAME + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + " INTEGER NOT NULL, " +
+            DatabaseHelper.COLUMN_ACTUAL_TIME + " INTEGER, " +
+            DatabaseHelper.COLUMN_ACTUAL_DOSAGE + " TEXT, " +
+            DatabaseHelper.COLUMN_STATUS + " INTEGER DEFAULT 0, " +
+            DatabaseHelper.COLUMN_NOTES + " TEXT, " +
+            DatabaseHelper.COLUMN_CREATE_TIME + " INTEGER NOT NULL, " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " INTEGER NOT NULL, " +
+            "FOREIGN KEY(" + DatabaseHelper.COLUMN_MEDICATION_NAME + ") REFERENCES " + DatabaseHelper.TABLE_MEDICATION_RECORD + "(" + DatabaseHelper.COLUMN_MEDICATION_NAME + "), " +
+            // 🔥 修复：唯一约束必须包含 user_id
+            "UNIQUE(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_MEDICATION_NAME + ", " + DatabaseHelper.COLUMN_PLANNED_TIME + ")" +
+            ")";
+
+    // 创建既往病史表的SQL语句
+    private static final String CREATE_MEDICAL_HISTORY_TABLE = "CREATE TABLE " + DatabaseHelper.TABLE_MEDICAL_HISTORY + " (" +
+            DatabaseHelper.COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            DatabaseHelper.COLUMN_USER_ID + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_DISEASE_NAME + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_DIAGNOSIS_DATE + " TEXT, " +
+            DatabaseHelper.COLUMN_SEVERITY + " TEXT, " +
+            DatabaseHelper.COLUMN_TREATMENT_STATUS + " TEXT, " +
+            DatabaseHelper.COLUMN_HOSPITAL + " TEXT, " +
+            DatabaseHelper.COLUMN_DOCTOR + " TEXT, " +
+            DatabaseHelper.COLUMN_SYMPTOMS + " TEXT, " +
+            DatabaseHelper.COLUMN_TREATMENT + " TEXT, " +
+            DatabaseHelper.COLUMN_NOTES + " TEXT, " +
+            DatabaseHelper.COLUMN_STATUS + " INTEGER DEFAULT 1, " +
+            DatabaseHelper.COLUMN_CREATE_TIME + " INTEGER NOT NULL, " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " INTEGER NOT NULL" +
+            ")";
+
+    // 创建习惯表的SQL语句
+    private static final String CREATE_HABITS_TABLE = "CREATE TABLE " + DatabaseHelper.TABLE_HABITS + " (" +
+            DatabaseHelper.COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            DatabaseHelper.COLUMN_USER_ID + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_HABIT_NAME + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_DESCRIPTION + " TEXT, " +
+            DatabaseHelper.COLUMN_CATEGORY + " TEXT, " +
+            DatabaseHelper.COLUMN_FREQUENCY + " TEXT, " +
+            DatabaseHelper.COLUMN_FREQUENCY_VALUE + " INTEGER, " +
+            DatabaseHelper.COLUMN_FREQUENCY_UNIT + " TEXT, " +
+            DatabaseHelper.COLUMN_DURATION + " INTEGER, " +
+            DatabaseHelper.COLUMN_CYCLE_DAYS + " INTEGER, " +
+            DatabaseHelper.COLUMN_PRIORITY + " INTEGER, " +
+            DatabaseHelper.COLUMN_START_DATE + " TEXT, " +
+            DatabaseHelper.COLUMN_END_DATE + " TEXT, " +
+            DatabaseHelper.COLUMN_REMINDER_TIMES + " TEXT, " +
+            DatabaseHelper.COLUMN_BLOCK_TIMES + " TEXT, " +
+            DatabaseHelper.COLUMN_NOTES + " TEXT, " +
+            DatabaseHelper.COLUMN_IS_ACTIVE + " INTEGER DEFAULT 1, " +
+            DatabaseHelper.COLUMN_STATUS + " INTEGER DEFAULT 1, " +
+            DatabaseHelper.COLUMN_ENABLE_NOTIFICATION + " INTEGER DEFAULT 1, " +
+            DatabaseHelper.COLUMN_ENABLE_SYSTEM_ALARM + " INTEGER DEFAULT 0, " +
+            DatabaseHelper.COLUMN_COMPLETED_DAYS + " INTEGER DEFAULT 0, " +
+            DatabaseHelper.COLUMN_TOTAL_CHECK_INS + " INTEGER DEFAULT 0, " +
+            DatabaseHelper.COLUMN_CREATE_TIME + " INTEGER NOT NULL, " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " INTEGER NOT NULL" +
+            ")";
+
+    // 创建服药日汇总表的SQL语句 - 每个用户每天一行，由服药记录写入时增量维护
+    private static final String CREATE_INTAKE_DAILY_SUMMARY_TABLE = "CREATE TABLE IF NOT EXISTS " + DatabaseHelper.TABLE_INTAKE_DAILY_SUMMARY + " (" +
+            DatabaseHelper.COLUMN_USER_ID + " TEXT NOT NULL, " +
+            DatabaseHelper.COLUMN_DAY + " INTEGER NOT NULL, " +
+            DatabaseHelper.COLUMN_TOTAL_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+            DatabaseHelper.COLUMN_TAKEN_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+            DatabaseHelper.COLUMN_LATE_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+            DatabaseHelper.COLUMN_MISSED_COUNT + " INTEGER NOT NULL DEFAULT 0, " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " INTEGER NOT NULL DEFAULT 0, " +
+            "PRIMARY KEY (" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_DAY + ")" +
+            ")";
+
+    // 复合索引：按 DAO 的实际查询条件建立，避免全表扫描
+    private static final String[] CREATE_QUERY_INDEXES = {
+            // 服药记录：findByTimeRange / findByTimeRangeAndStatus / findTodayRecords / findRecentRecords
+            "CREATE INDEX IF NOT EXISTS idx_intake_user_time_status ON " + DatabaseHelper.TABLE_MEDICATION_INTAKE +
+                    "(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_PLANNED_TIME + ", " + DatabaseHelper.COLUMN_STATUS + ")",
+            // 服药记录：按 (planned_time, id) 的 keyset 分页，索引隐含 rowid，排序可直接走索引
+            "CREATE INDEX IF NOT EXISTS idx_intake_user_time_id ON " + DatabaseHelper.TABLE_MEDICATION_INTAKE +
+                    "(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_PLANNED_TIME + ")",
+            // 服药记录：findByMedicationId（按计划时间排序）
+            "CREATE INDEX IF NOT EXISTS idx_intake_user_medication_id ON " + DatabaseHelper.TABLE_MEDICATION_INTAKE +
+                    "(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_MEDICATION_ID + ", " + DatabaseHelper.COLUMN_PLANNED_TIME + ")",
+            // 健康信息：findByTimeRange / findAll 按时间排序
+            "CREATE INDEX IF NOT EXISTS idx_health_info_timestamp ON " + DatabaseHelper.TABLE_HEALTH_INFO +
+                    "(" + DatabaseHelper.COLUMN_TIMESTAMP + ")",
+            // 用药记录：findByStatusAndUserId
+            "CREATE INDEX IF NOT EXISTS idx_medication_user_status ON " + DatabaseHelper.TABLE_MEDICATION_RECORD +
+                    "(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_STATUS + ")",
+            // 习惯：按用户查询并按创建时间排序
+            "CREATE INDEX IF NOT EXISTS idx_habits_user_create_time ON " + DatabaseHelper.TABLE_HABITS +
+                    "(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_CREATE_TIME + ")",
+            // 既往病史：按用户查询并按创建时间排序
+            "CREATE INDEX IF NOT EXISTS idx_medical_history_user_create_time ON " + DatabaseHelper.TABLE_MEDICAL_HISTORY +
+                    "(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_CREATE_TIME + ")"
+    };
+
+
+    // ==================== 版本 14 的 Room 建表语句，须与当时实体注解生成的结构完全一致 ====================
+
+    private static final String ROOM_CREATE_HEALTH_INFO_TABLE = "CREATE TABLE IF NOT EXISTS `health_info` (" +
+            "`id` INTEGER PRIMARY KEY AUTOINCREMENT, `timestamp` INTEGER NOT NULL, `age` INTEGER, " +
+            "`height` REAL, `weight` REAL, `heart_rate` INTEGER, `systolic_pressure` REAL, " +
+            "`diastolic_pressure` REAL, `blood_sugar` REAL, `remarks` TEXT, `create_time` INTEGER NOT NULL, " +
+            "`update_time` INTEGER NOT NULL, `steps` INTEGER, `sleep_duration` REAL)";
+
+    private static final String ROOM_CREATE_MEDICATION_RECORD_TABLE = "CREATE TABLE IF NOT EXISTS `medication_record` (" +
+            "`user_id` TEXT NOT NULL, `id` INTEGER PRIMARY KEY AUTOINCREMENT, `medication_name` TEXT NOT NULL, " +
+            "`dosage` TEXT NOT NULL, `frequency` TEXT NOT NULL, `unit` TEXT NOT NULL, `start_date` INTEGER, " +
+            "`end_date` INTEGER, `reminder_times` TEXT, `notes` TEXT, `status` INTEGER DEFAULT 1, " +
+            "`create_time` INTEGER NOT NULL, `update_time` INTEGER NOT NULL)";
+
+    private static final String ROOM_CREATE_MEDICATION_INTAKE_TABLE = "CREATE TABLE IF NOT EXISTS `medication_intake_record` (" +
+            "`user_id` TEXT NOT NULL, `id` INTEGER PRIMARY KEY AUTOINCREMENT, `medication_id` INTEGER, " +
+            "`medication_name` TEXT NOT NULL, `planned_time` INTEGER NOT NULL, `actual_time` INTEGER, " +
+            "`actual_dosage` TEXT, `status` INTEGER DEFAULT 0, `notes` TEXT, `create_time` INTEGER NOT NULL, " +
+            "`update_time` INTEGER NOT NULL)";
+
+    private static final String ROOM_CREATE_MEDICAL_HISTORY_TABLE = "CREATE TABLE IF NOT EXISTS `medical_history` (" +
+            "`user_id` TEXT NOT NULL, `id` INTEGER PRIMARY KEY AUTOINCREMENT, `disease_name` TEXT NOT NULL, " +
+            "`diagnosis_date` TEXT, `severity` TEXT, `treatment_status` TEXT, `hospital` TEXT, `doctor` TEXT, " +
+            "`symptoms` TEXT, `treatment` TEXT, `notes` TEXT, `status` INTEGER DEFAULT 1, " +
+            "`create_time` INTEGER NOT NULL, `update_time` INTEGER NOT NULL)";
+
+    private static final String ROOM_CREATE_HABITS_TABLE = "CREATE TABLE IF NOT EXISTS `habits` (" +
+            "`id` INTEGER PRIMARY KEY AUTOINCREMENT, `user_id` TEXT NOT NULL, `habit_name` TEXT NOT NULL, " +
+            "`description` TEXT, `frequency` TEXT, `frequency_value` INTEGER, `frequency_unit` TEXT, " +
+            "`duration` INTEGER, `cycle_days` INTEGER, `reminder_times` TEXT, `block_times` TEXT, " +
+            "`is_active` INTEGER DEFAULT 1, `enable_notification` INTEGER DEFAULT 1, " +
+            "`enable_system_alarm` INTEGER DEFAULT 0, `completed_days` INTEGER DEFAULT 0, " +
+            "`total_check_ins` INTEGER DEFAULT 0, `start_date` TEXT, `end_date` TEXT, `category` TEXT, " +
+            "`priority` INTEGER, `notes` TEXT, `status` INTEGER DEFAULT 1, `create_time` INTEGER NOT NULL, " +
+            "`update_time` INTEGER NOT NULL)";
+
+    private static final String ROOM_CREATE_INTAKE_DAILY_SUMMARY_TABLE = "CREATE TABLE IF NOT EXISTS `intake_daily_summary` (" +
+            "`user_id` TEXT NOT NULL, `day` INTEGER NOT NULL, `total_count` INTEGER NOT NULL DEFAULT 0, " +
+            "`taken_count` INTEGER NOT NULL DEFAULT 0, `late_count` INTEGER NOT NULL DEFAULT 0, " +
+            "`missed_count` INTEGER NOT NULL DEFAULT 0, `update_time` INTEGER NOT NULL DEFAULT 0, " +
+            "PRIMARY KEY(`user_id`, `day`))";
+
+    private static final String ROOM_CREATE_CHAT_SESSION_TABLE = "CREATE TABLE IF NOT EXISTS `chat_session` (" +
+            "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `title` TEXT, `createTime` INTEGER NOT NULL, " +
+            "`updateTime` INTEGER NOT NULL, `messages` TEXT, `userId` TEXT)";
+
+    private static final String[] ROOM_CREATE_INDEXES = {
+            "CREATE UNIQUE INDEX IF NOT EXISTS `idx_medication_name` ON `medication_record` (`medication_name`)",
+            "CREATE INDEX IF NOT EXISTS `idx_medication_user_status` ON `medication_record` (`user_id`, `status`)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS `idx_intake_user_name_time` ON `medication_intake_record` " +
+                    "(`user_id`, `medication_name`, `planned_time`)",
+            "CREATE INDEX IF NOT EXISTS `idx_intake_user_time_status` ON `medication_intake_record` " +
+                    "(`user_id`, `planned_time`, `status`)",
+            "CREATE INDEX IF NOT EXISTS `idx_intake_user_time_id` ON `medication_intake_record` " +
+                    "(`user_id`, `planned_time`)",
+            "CREATE INDEX IF NOT EXISTS `idx_intake_user_medication_id` ON `medication_intake_record` " +
+                    "(`user_id`, `medication_id`, `planned_time`)",
+            "CREATE INDEX IF NOT EXISTS `idx_health_info_timestamp` ON `health_info` (`timestamp`)",
+            "CREATE INDEX IF NOT EXISTS `idx_habits_user_create_time` ON `habits` (`user_id`, `create_time`)",
+            "CREATE INDEX IF NOT EXISTS `idx_medical_history_user_create_time` ON `medical_history` " +
+                    "(`user_id`, `create_time`)"
+    };
+
+    private static final String MEDICATION_RECORD_COLUMNS = "id, user_id, medication_name, dosage, frequency, unit, " +
+            "start_date, end_date, reminder_times, notes, status, create_time, update_time";
+
+    private static final String MEDICATION_INTAKE_COLUMNS = "id, user_id, medication_id, medication_name, planned_time, " +
+            "actual_time, actual_dosage, status, notes, create_time, update_time";
+
+    private static final String CHAT_SESSION_COLUMNS = "id, title, createTime, updateTime, messages, userId";
+
+    private LegacyMigrations() {
+    }
+
+    /**
+     * 旧库任一版本直接迁移到 Room 接管时版本的迁移集合
+     */
+    static Migration[] all() {
+        Migration[] migrations = new Migration[LEGACY_VERSION];
+        for (int version = 1; version <= LEGACY_VERSION; version++) {
+            migrations[version - 1] = new LegacyMigration(version);
+        }
+        return migrations;
+    }
+
+    private static final class LegacyMigration extends Migration {
+
+        LegacyMigration(int startVersion) {
+            super(startVersion, ROOM_BASE_VERSION);
+        }
+
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            Log.d(TAG, "开始迁移旧数据库: " + startVersion + " -> " + endVersion);
+            upgradeLegacy(db, startVersion);
+            migrateToRoom(db);
+            Log.d(TAG, "旧数据库迁移完成");
+        }
+    }
+
+    /**
+     * 原 DatabaseHelper.onUpgrade 的升级步骤，把旧库升级到版本 13
+     */
+    private static void upgradeLegacy(SupportSQLiteDatabase db, int oldVersion) {
+        if (oldVersion < 2) {
+            // 升级到版本2，添加用药相关表
+            db.execSQL(CREATE_MEDICATION_RECORD_TABLE);
+            db.execSQL(CREATE_MEDICATION_INTAKE_TABLE);
+        }
+        if (oldVersion < 3) {
+            // 升级到版本3，修改表结构支持基于名称的CRUD
+            // 为药物名称添加唯一约束
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_medication_name ON " +
+                    DatabaseHelper.TABLE_MEDICATION_RECORD + "(" + DatabaseHelper.COLUMN_MEDICATION_NAME + ")");
+
+            // 为服药记录添加联合唯一约束
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_intake_name_time ON " +
+                    DatabaseHelper.TABLE_MEDICATION_INTAKE + "(" + DatabaseHelper.COLUMN_MEDICATION_NAME + ", " + DatabaseHelper.COLUMN_PLANNED_TIME + ")");
+        }
+            // 新增：升级到版本4，添加步数和睡眠时长字段
+        if (oldVersion < 4) {
+            db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_HEALTH_INFO + " ADD COLUMN " + DatabaseHelper.COLUMN_STEPS + " INTEGER");
+            db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_HEALTH_INFO + " ADD COLUMN " + DatabaseHelper.COLUMN_SLEEP_DURATION + " REAL");
+        }
+            // 新增：升级到版本5，添加 user_id 字段
+        if (oldVersion < 5) {
+            db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " ADD COLUMN user_id INTEGER NOT NULL DEFAULT 0");
+        }
+            // 新增：升级到版本6，添加 user_id 字段到 medication_record 表
+        if (oldVersion < 6) {
+            // 为 medication_record 表添加 user_id 字段
+            db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_MEDICATION_RECORD + " ADD COLUMN " + DatabaseHelper.COLUMN_USER_ID + " TEXT NOT NULL DEFAULT ''");
+            
+            // 更新 medication_intake_record 表的 user_id 字段类型（如果需要的话）
+            // 由于SQLite不支持直接修改字段类型，这里先跳过，使用默认值0表示老数据
+        }
+        // 🔥 新增：升级到版本7，修复唯一约束
+        if (oldVersion < 7) {
+            Log.d(TAG, "开始修复数据库唯一约束到版本7");
+            
+            try {
+                // 删除旧的索引
+                db.execSQL("DROP INDEX IF EXISTS idx_intake_name_time");
+                Log.d(TAG, "删除旧索引成功");
+                
+                // 创建新的包含user_id的唯一索引
+                db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS idx_intake_user_name_time ON " +
+                        DatabaseHelper.TABLE_MEDICATION_INTAKE + "(" + DatabaseHelper.COLUMN_USER_ID + ", " + 
+                        DatabaseHelper.COLUMN_MEDICATION_NAME + ", " + DatabaseHelper.COLUMN_PLANNED_TIME + ")");
+                
+                Log.d(TAG, "创建新的多用户唯一索引成功");
+                
+                // 🔥 重要：清理可能存在的重复数据
+                cleanDuplicateRecords(db);
+                
+            } 
+            catch (Exception e) {
+                Log.e(TAG, "升级数据库到版本7失败", e);
+            }
+        }
+        
+        // 升级到版本8，添加既往病史表
+        if (oldVersion < 8) {
+            Log.d(TAG, "开始升级数据库到版本8，添加既往病史表");
+            try {
+                db.execSQL(CREATE_MEDICAL_HISTORY_TABLE);
+                Log.d(TAG, "创建既往病史表成功");
+            } catch (Exception e) {
+                Log.e(TAG, "升级数据库到版本8失败", e);
+            }
+        }
+        
+        // 升级到版本9，添加习惯表
+        if (oldVersion < 9) {
+            Log.d(TAG, "开始升级数据库到版本9，添加习惯表");
+            try {
+                db.execSQL(CREATE_HABITS_TABLE);
+                Log.d(TAG, "创建习惯表成功");
+            } catch (Exception e) {
+                Log.e(TAG, "升级数据库到版本9失败", e);
+            }
+        }
+        
+        // 升级到版本10，修复习惯表缺失字段
+        if (oldVersion < 10) {
+            Log.d(TAG, "开始升级数据库到版本10，修复习惯表字段");
+            try {
+                // 删除旧的习惯表
+                db.execSQL("DROP TABLE IF EXISTS " + DatabaseHelper.TABLE_HABITS);
+                // 重新创建具有完整字段的习惯表
+                db.execSQL(CREATE_HABITS_TABLE);
+                Log.d(TAG, "重新创建习惯表成功，包含所有必需字段");
+            } catch (Exception e) {
+                Log.e(TAG, "升级数据库到版本10失败", e);
+            }
+        }
+
+        // 升级到版本11，为常用查询添加复合索引
+        if (oldVersion < 11) {
+            Log.d(TAG, "开始升级数据库到版本11，添加查询索引");
+            try {
+                createQueryIndexes(db);
+                Log.d(TAG, "创建查询索引成功");
+            } catch (Exception e) {
+                Log.e(TAG, "升级数据库到版本11失败", e);
+            }
+        }
+
+        // 升级到版本12，添加服药记录分页查询索引
+        if (oldVersion < 12) {
+            Log.d(TAG, "开始升级数据库到版本12，添加分页查询索引");
+            try {
+                createQueryIndexes(db);
+                Log.d(TAG, "创建分页查询索引成功");
+            } catch (Exception e) {
+                Log.e(TAG, "升级数据库到版本12失败", e);
+            }
+        }
+
+        // 升级到版本13，添加服药日汇总表并用现有服药记录回填
+        if (oldVersion < 13) {
+            Log.d(TAG, "开始升级数据库到版本13，添加服药日汇总表");
+            try {
+                db.execSQL(CREATE_INTAKE_DAILY_SUMMARY_TABLE);
+                IntakeDailySummaryDao.rebuild(db);
+                Log.d(TAG, "创建并回填服药日汇总表成功");
+            } catch (Exception e) {
+                Log.e(TAG, "升级数据库到版本13失败", e);
+            }
+        }
+    }
+
+    /**
+     * 创建查询索引
+     */
+    private static void createQueryIndexes(SupportSQLiteDatabase db) {
+        for (String sql : CREATE_QUERY_INDEXES) {
+            db.execSQL(sql);
+        }
+    }
+    /**
+     * 清理重复的服药记录数据
+     */
+    private static void cleanDuplicateRecords(SupportSQLiteDatabase db) {
+        try {
+            // 查找所有重复记录（相同药物名称和时间，但user_id不同或为空）
+            String findDuplicatesSql = "SELECT medication_name, planned_time, COUNT(*) as count " +
+                    "FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " " +
+                    "GROUP BY medication_name, planned_time " +
+                    "HAVING count > 1";
+            
+            Cursor cursor = db.query(findDuplicatesSql);
+            
+            if (cursor != null && cursor.moveToFirst()) {
+                Log.d(TAG, "发现重复数据，开始清理");
+                
+                do {
+                    String medicationName = cursor.getString(0);
+                    long plannedTime = cursor.getLong(1);
+                    int count = cursor.getInt(2);
+                    
+                    Log.d(TAG, "清理重复记录: " + medicationName + 
+                          " 时间: " + plannedTime + " 重复数: " + count);
+                    
+                    // 删除user_id为空或为'0'的重复记录
+                    int deletedRows = db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+                            DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
+                            DatabaseHelper.COLUMN_PLANNED_TIME + " = ? AND " +
+                            "(" + DatabaseHelper.COLUMN_USER_ID + " IS NULL OR " + 
+                            DatabaseHelper.COLUMN_USER_ID + " = '' OR " + 
+                            DatabaseHelper.COLUMN_USER_ID + " = '0')",
+                            new String[]{medicationName, String.valueOf(plannedTime)});
+                    
+                    Log.d(TAG, "删除了 " + deletedRows + " 条无效重复记录");
+                    
+                } while (cursor.moveToNext());
+            }
+            
+            if (cursor != null) {
+                cursor.close();
+            }
+            
+            Log.d(TAG, "重复数据清理完成");
+            
+        } catch (Exception e) {
+            Log.e(TAG, "清理重复数据失败", e);
+        }
+    }
+
+    /**
+     * 把版本 13 的表结构调整为 Room 实体的结构
+     */
+    private static void migrateToRoom(SupportSQLiteDatabase db) {
+        // 服药记录表带有引用用药记录表的外键，先重建它
+        rebuildTable(db, DatabaseHelper.TABLE_MEDICATION_INTAKE, ROOM_CREATE_MEDICATION_INTAKE_TABLE, MEDICATION_INTAKE_COLUMNS);
+        rebuildTable(db, DatabaseHelper.TABLE_MEDICATION_RECORD, ROOM_CREATE_MEDICATION_RECORD_TABLE, MEDICATION_RECORD_COLUMNS);
+
+        // 其余表结构与实体一致；旧升级步骤会吞掉建表异常，这里补建可能缺失的表
+        db.execSQL(ROOM_CREATE_HEALTH_INFO_TABLE);
+        db.execSQL(ROOM_CREATE_MEDICAL_HISTORY_TABLE);
+        db.execSQL(ROOM_CREATE_HABITS_TABLE);
+        db.execSQL(ROOM_CREATE_INTAKE_DAILY_SUMMARY_TABLE);
+        db.execSQL(ROOM_CREATE_CHAT_SESSION_TABLE);
+
+        for (String sql : ROOM_CREATE_INDEXES) {
+            db.execSQL(sql);
+        }
+    }
+
+    /**
+     * 按新结构重建表并复制原有数据，旧表的索引随旧表一起删除
+     */
+    private static void rebuildTable(SupportSQLiteDatabase db, String table, String createSql, String columns) {
+        if (!tableExists(db, table)) {
+            db.execSQL(createSql);
+            return;
+        }
+        String legacyTable = table + "_legacy";
+        db.execSQL("ALTER TABLE " + table + " RENAME TO " + legacyTable);
+        db.execSQL(createSql);
+        db.execSQL("INSERT OR IGNORE INTO " + table + " (" + columns + ") SELECT " + columns + " FROM " + legacyTable);
+        db.execSQL("DROP TABLE " + legacyTable);
+        Log.d(TAG, "重建表 " + table + " 完成");
+    }
+
+    private static boolean tableExists(SupportSQLiteDatabase db, String table) {
+        Cursor cursor = db.query("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?", new Object[]{table});
+        try {
+            return cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 把原 lanqidoctor_database 中的聊天会话复制到当前数据库，成功后删除旧文件
+     */
+    static void importLegacyChatSessions(Context context, SupportSQLiteDatabase db) {
+        File legacyFile = context.getDatabasePath(LEGACY_CHAT_DATABASE_NAME);
+        if (!legacyFile.exists()) {
+            return;
+        }
+
+        boolean success = false;
+        int copied = 0;
+        SQLiteDatabase legacyDb = null;
+        Cursor cursor = null;
+        SupportSQLiteStatement statement = null;
+        db.beginTransaction();
+        try {
+            legacyDb = SQLiteDatabase.openDatabase(legacyFile.getPath(), null, SQLiteDatabase.OPEN_READWRITE);
+            cursor = legacyDb.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'chat_session'", null);
+            boolean hasTable = cursor.moveToFirst();
+            cursor.close();
+            cursor = null;
+
+            if (hasTable) {
+                statement = db.compileStatement("INSERT OR IGNORE INTO chat_session (" + CHAT_SESSION_COLUMNS +
+                        ") VALUES (?, ?, ?, ?, ?, ?)");
+                cursor = legacyDb.rawQuery("SELECT " + CHAT_SESSION_COLUMNS + " FROM chat_session", null);
+                while (cursor.moveToNext()) {
+                    statement.clearBindings();
+                    statement.bindLong(1, cursor.getLong(0));
+                    bindNullableString(statement, 2, cursor, 1);
+                    statement.bindLong(3, cursor.getLong(2));
+                    statement.bindLong(4, cursor.getLong(3));
+                    bindNullableString(statement, 5, cursor, 4);
+                    bindNullableString(statement, 6, cursor, 5);
+                    statement.executeInsert();
+                    copied++;
+                }
+            }
+            db.setTransactionSuccessful();
+            success = true;
+        } catch (Exception e) {
+            Log.e(TAG, "复制旧聊天会话失败，下次打开时重试", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            DatabaseHelper.closeQuietly(statement);
+            if (legacyDb != null) {
+                legacyDb.close();
+            }
+            db.endTransaction();
+        }
+
+        if (success) {
+            context.deleteDatabase(LEGACY_CHAT_DATABASE_NAME);
+            Log.d(TAG, "已复制 " + copied + " 条旧聊天会话并删除旧数据库");
+        }
+    }
+
+    private static void bindNullableString(SupportSQLiteStatement statement, int index, Cursor cursor, int column) {
+        if (cursor.isNull(column)) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, cursor.getString(column));
+        }
+    }
+}
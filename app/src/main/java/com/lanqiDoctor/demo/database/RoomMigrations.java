@@ -0,0 +1,88 @@
+package com.lanqiDoctor.demo.database;
+
+import android.util.Log;
+
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Room 接管之后的数据库迁移
+ *
+ * 每个版本一个 Migration，建表语句须与对应版本实体注解生成的结构完全一致
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+final class RoomMigrations {
+
+    private static final String TAG = "RoomMigrations";
+
+    /** 升级前每次同步都会重新上传最近 30 天的服药记录 */
+    private static final int INTAKE_RESYNC_DAYS = 30;
+
+    private RoomMigrations() {
+    }
+
+    static Migration[] all() {
+        return new Migration[]{MIGRATION_14_15, MIGRATION_15_16, MIGRATION_16_17};
+    }
+
+    /**
+     * 14 -> 15：新增服药记录变更日志表
+     *
+     * 升级前上传依赖每次重新上传最近 30 天的记录，把这些记录登记一次，
+     * 保证升级后的第一次同步不会漏掉升级前未上传成功的修改
+     */
+    static final Migration MIGRATION_14_15 = new Migration(14, 15) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `intake_change_journal` (" +
+                    "`record_id` INTEGER NOT NULL, `seq` INTEGER NOT NULL, PRIMARY KEY(`record_id`))");
+
+            long since = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(INTAKE_RESYNC_DAYS);
+            db.execSQL("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_INTAKE_CHANGE_JOURNAL + " (" +
+                            DatabaseHelper.COLUMN_RECORD_ID + ", " + DatabaseHelper.COLUMN_SEQ + ") SELECT " +
+                            DatabaseHelper.COLUMN_ID + ", 1 FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE +
+                            " WHERE " + DatabaseHelper.COLUMN_PLANNED_TIME + " >= ?",
+                    new Object[]{since});
+            Log.d(TAG, "服药记录变更日志表创建完成");
+        }
+    };
+
+    /**
+     * 15 -> 16：用药记录、服药记录新增同步版本字段，新增服药记录删除墓碑表
+     *
+     * 已有记录的版本号为 0，冲突比较时以更新时间为准
+     */
+    static final Migration MIGRATION_15_16 = new Migration(15, 16) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `medication_record` ADD COLUMN `version` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `medication_record` ADD COLUMN `last_writer` TEXT");
+            db.execSQL("ALTER TABLE `medication_intake_record` ADD COLUMN `version` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `medication_intake_record` ADD COLUMN `last_writer` TEXT");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `intake_tombstone` (" +
+                    "`user_id` TEXT NOT NULL, `medication_name` TEXT NOT NULL, `planned_time` INTEGER NOT NULL, " +
+                    "`deleted_at` INTEGER NOT NULL, `version` INTEGER NOT NULL, `last_writer` TEXT, " +
+                    "`pending` INTEGER NOT NULL, PRIMARY KEY(`user_id`, `medication_name`, `planned_time`))");
+            Log.d(TAG, "同步版本字段与删除墓碑表创建完成");
+        }
+    };
+
+    /**
+     * 16 -> 17：新增待发送请求表
+     */
+    static final Migration MIGRATION_16_17 = new Migration(16, 17) {
+        @Override
+        public void migrate(SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `http_outbox` (" +
+                    "`id` INTEGER PRIMARY KEY AUTOINCREMENT, `user_id` TEXT NOT NULL, `kind` TEXT NOT NULL, " +
+                    "`collapse_key` TEXT, `payload` TEXT, `attempts` INTEGER NOT NULL DEFAULT 0, " +
+                    "`last_error` TEXT, `create_time` INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `idx_outbox_user_collapse` ON `http_outbox` (`user_id`, `collapse_key`)");
+            Log.d(TAG, "待发送请求表创建完成");
+        }
+    };
+}
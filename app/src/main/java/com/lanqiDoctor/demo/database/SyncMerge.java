@@ -0,0 +1,134 @@
+package com.lanqiDoctor.demo.database;
+
+/**
+ * 同步冲突合并规则
+ *
+ * 同一条记录（服药记录按 user_id + medication_name + planned_time）在本地和云端各有一个版本时，
+ * 按行整体取"最后写入者"（LWW），删除以墓碑的形式参与比较：
+ * 1. 更新时间大的胜出（删除墓碑以删除时间作为更新时间）
+ * 2. 更新时间相同，版本号大的胜出
+ * 3. 版本号也相同，按写入方标识的字典序，大的胜出（null 视为空串）
+ * 4. 以上都相同，删除墓碑胜出
+ *
+ * 这是一个全序，合并结果即两者中较大的一个，因此与到达顺序无关（交换律、结合律），
+ * 重复合并同一版本不产生变化（幂等）；四项都相同视为同一次写入，不覆盖本地
+ *
+ * 服药记录的状态、实际时间、实际剂量总是一起修改，按行比较即可，不单独为每个字段保存版本
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class SyncMerge {
+
+    /**
+     * 不含墓碑时与 remoteWins 等价的 SQL 条件，用于直接在 UPDATE 中跳过本地更新的行；
+     * 依次绑定云端的 更新时间、更新时间、版本号、版本号、写入方（null 绑定空串）
+     */
+    public static final String REMOTE_NEWER_WHERE = "(" +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " < ? OR (" +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " = ? AND (" +
+            DatabaseHelper.COLUMN_VERSION + " < ? OR (" +
+            DatabaseHelper.COLUMN_VERSION + " = ? AND COALESCE(" +
+            DatabaseHelper.COLUMN_LAST_WRITER + ", '') < ?))))";
+
+    private SyncMerge() {
+    }
+
+    /**
+     * 比较两个版本的先后，返回负数表示 a 早于 b
+     */
+    public static int compare(Version a, Version b) {
+        int result = Long.compare(a.updateTime, b.updateTime);
+        if (result != 0) {
+            return result;
+        }
+        result = Long.compare(a.version, b.version);
+        if (result != 0) {
+            return result;
+        }
+        result = a.writer().compareTo(b.writer());
+        if (result != 0) {
+            return result;
+        }
+        return Boolean.compare(a.deleted, b.deleted);
+    }
+
+    /**
+     * 合并两个版本，返回胜出的一个；任一为 null 时返回另一个
+     */
+    public static Version merge(Version a, Version b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return compare(a, b) >= 0 ? a : b;
+    }
+
+    /**
+     * 云端版本是否应覆盖本地：本地没有该记录，或云端版本严格更晚
+     */
+    public static boolean remoteWins(Version local, Version remote) {
+        return local == null || compare(remote, local) > 0;
+    }
+
+    /**
+     * 记录版本
+     */
+    public static final class Version {
+        private final long updateTime;
+        private final long version;
+        private final String writer;
+        private final boolean deleted;
+
+        public Version(Long updateTime, Long version, String writer, boolean deleted) {
+            this.updateTime = updateTime != null ? updateTime : 0L;
+            this.version = version != null ? version : 0L;
+            this.writer = writer;
+            this.deleted = deleted;
+        }
+
+        public long getUpdateTime() { return updateTime; }
+
+        public long getVersion() { return version; }
+
+        public String getWriter() { return writer; }
+
+        public boolean isDeleted() { return deleted; }
+
+        private String writer() {
+            return writer != null ? writer : "";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Version)) {
+                return false;
+            }
+            return compare(this, (Version) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(updateTime);
+            result = 31 * result + Long.hashCode(version);
+            result = 31 * result + writer().hashCode();
+            result = 31 * result + (deleted ? 1 : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Version{" +
+                    "updateTime=" + updateTime +
+                    ", version=" + version +
+                    ", writer='" + writer + '\'' +
+                    ", deleted=" + deleted +
+                    '}';
+        }
+    }
+}
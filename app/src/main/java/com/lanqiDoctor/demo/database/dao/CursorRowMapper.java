@@ -0,0 +1,82 @@
+package com.lanqiDoctor.demo.database.dao;
+
+import android.database.Cursor;
+
+import java.util.List;
+
+/**
+ * Cursor 行映射器
+ *
+ * 列索引按构造时声明的列顺序在每个 Cursor 上只解析一次，
+ * 之后逐行映射时直接按下标取值，不再对每行每列调用 getColumnIndex
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public abstract class CursorRowMapper<T> {
+
+    private final String[] columns;
+
+    protected CursorRowMapper(String... columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * 解析列索引，结果数组与构造时声明的列一一对应，查询结果中不存在的列为 -1
+     */
+    public final int[] resolve(Cursor cursor) {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            indexes[i] = cursor.getColumnIndex(columns[i]);
+        }
+        return indexes;
+    }
+
+    /**
+     * 将 Cursor 当前行映射为实体
+     */
+    public abstract T map(Cursor cursor, int[] indexes);
+
+    /**
+     * 映射第一行，没有数据时返回 null
+     */
+    public final T mapFirst(Cursor cursor) {
+        if (cursor == null || !cursor.moveToFirst()) {
+            return null;
+        }
+        return map(cursor, resolve(cursor));
+    }
+
+    /**
+     * 映射全部行并追加到 out 中，映射结果为 null 的行会被忽略
+     */
+    public final void mapAll(Cursor cursor, List<T> out) {
+        if (cursor == null) {
+            return;
+        }
+        int[] indexes = resolve(cursor);
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            T item = map(cursor, indexes);
+            if (item != null) {
+                out.add(item);
+            }
+        }
+    }
+
+    protected static String getString(Cursor cursor, int index) {
+        return index < 0 || cursor.isNull(index) ? null : cursor.getString(index);
+    }
+
+    protected static Long getLong(Cursor cursor, int index) {
+        return index < 0 || cursor.isNull(index) ? null : cursor.getLong(index);
+    }
+
+    protected static Integer getInteger(Cursor cursor, int index) {
+        return index < 0 || cursor.isNull(index) ? null : cursor.getInt(index);
+    }
+
+    protected static Double getDouble(Cursor cursor, int index) {
+        return index < 0 || cursor.isNull(index) ? null : cursor.getDouble(index);
+    }
+}
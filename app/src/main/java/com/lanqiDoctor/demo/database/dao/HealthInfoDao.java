@@ -5,6 +5,9 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.lanqiDoctor.demo.dao.HealthInfoRoomDao;
 import com.lanqiDoctor.demo.database.DatabaseHelper;
 import com.lanqiDoctor.demo.database.entity.HealthInfo;
 
@@ -19,25 +22,26 @@ import java.util.List;
  */
 public class HealthInfoDao {
 
+    private static final HealthInfoRowMapper ROW_MAPPER = new HealthInfoRowMapper();
+
     private DatabaseHelper dbHelper;
+    private HealthInfoRoomDao roomDao;
 
     public HealthInfoDao(Context context) {
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
+        this.roomDao = dbHelper.getAppDatabase().healthInfoDao();
     }
 
     /**
      * 插入健康信息
      */
     public long insert(HealthInfo healthInfo) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
         long id = -1;
         try {
-            ContentValues values = healthInfoToContentValues(healthInfo);
-            id = db.insert(DatabaseHelper.TABLE_HEALTH_INFO, null, values);
+            id = roomDao.insert(healthInfo);
+            healthInfo.setId(id);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return id;
     }
@@ -46,18 +50,16 @@ public class HealthInfoDao {
      * 更新健康信息
      */
     public int update(HealthInfo healthInfo) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
         int rows = 0;
         try {
             healthInfo.setUpdateTime(System.currentTimeMillis());
             ContentValues values = healthInfoToContentValues(healthInfo);
-            rows = db.update(DatabaseHelper.TABLE_HEALTH_INFO, values, 
+            rows = db.update(DatabaseHelper.TABLE_HEALTH_INFO, SQLiteDatabase.CONFLICT_NONE, values, 
                 DatabaseHelper.COLUMN_ID + " = ?", 
                 new String[]{String.valueOf(healthInfo.getId())});
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return rows;
     }
@@ -66,16 +68,11 @@ public class HealthInfoDao {
      * 删除健康信息
      */
     public int delete(long id) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
         int rows = 0;
         try {
-            rows = db.delete(DatabaseHelper.TABLE_HEALTH_INFO, 
-                DatabaseHelper.COLUMN_ID + " = ?", 
-                new String[]{String.valueOf(id)});
+            rows = roomDao.deleteById(id);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return rows;
     }
@@ -84,24 +81,11 @@ public class HealthInfoDao {
      * 根据ID查询健康信息
      */
     public HealthInfo findById(long id) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         HealthInfo healthInfo = null;
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_HEALTH_INFO, null,
-                DatabaseHelper.COLUMN_ID + " = ?",
-                new String[]{String.valueOf(id)}, null, null, null);
-            
-            if (cursor != null && cursor.moveToFirst()) {
-                healthInfo = cursorToHealthInfo(cursor);
-            }
+            healthInfo = roomDao.findById(id);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return healthInfo;
     }
@@ -110,34 +94,34 @@ public class HealthInfoDao {
      * 查询所有健康信息（按时间倒序）
      */
     public List<HealthInfo> findAll() {
-        return findAll(DatabaseHelper.COLUMN_TIMESTAMP + " DESC", -1);
+        List<HealthInfo> list = new ArrayList<>();
+        try {
+            list.addAll(roomDao.findAll());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return list;
     }
 
     /**
      * 分页查询健康信息
      */
     public List<HealthInfo> findAll(String orderBy, int limit) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
         List<HealthInfo> list = new ArrayList<>();
         Cursor cursor = null;
         try {
             String limitStr = limit > 0 ? String.valueOf(limit) : null;
-            cursor = db.query(DatabaseHelper.TABLE_HEALTH_INFO, null, null, null, 
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_HEALTH_INFO, null, null, null, 
                 null, null, orderBy, limitStr);
             
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    HealthInfo healthInfo = cursorToHealthInfo(cursor);
-                    list.add(healthInfo);
-                } while (cursor.moveToNext());
-            }
+            ROW_MAPPER.mapAll(cursor, list);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
         return list;
     }
@@ -146,28 +130,11 @@ public class HealthInfoDao {
      * 根据时间范围查询
      */
     public List<HealthInfo> findByTimeRange(long startTime, long endTime) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<HealthInfo> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_HEALTH_INFO, null,
-                DatabaseHelper.COLUMN_TIMESTAMP + " BETWEEN ? AND ?",
-                new String[]{String.valueOf(startTime), String.valueOf(endTime)},
-                null, null, DatabaseHelper.COLUMN_TIMESTAMP + " DESC");
-            
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    HealthInfo healthInfo = cursorToHealthInfo(cursor);
-                    list.add(healthInfo);
-                } while (cursor.moveToNext());
-            }
+            list.addAll(roomDao.findByTimeRange(startTime, endTime));
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return list;
     }
@@ -176,21 +143,11 @@ public class HealthInfoDao {
      * 获取记录总数
      */
     public int getCount() {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         int count = 0;
-        Cursor cursor = null;
         try {
-            cursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_HEALTH_INFO, null);
-            if (cursor != null && cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
+            count = roomDao.count();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return count;
     }
@@ -199,14 +156,11 @@ public class HealthInfoDao {
      * 清空所有记录
      */
     public int deleteAll() {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
         int rows = 0;
         try {
-            rows = db.delete(DatabaseHelper.TABLE_HEALTH_INFO, null, null);
+            rows = roomDao.deleteAll();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return rows;
     }
@@ -256,65 +210,61 @@ public class HealthInfoDao {
     }
 
     /**
-     * 将Cursor转换为HealthInfo对象
+     * 健康信息行映射器，列索引每个Cursor只解析一次
      */
-    private HealthInfo cursorToHealthInfo(Cursor cursor) {
-        HealthInfo healthInfo = new HealthInfo();
-        healthInfo.setId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID)));
-        healthInfo.setTimestamp(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TIMESTAMP)));
-        
-        // 处理可能为null的字段
-        int ageIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AGE);
-        if (!cursor.isNull(ageIndex)) {
-            healthInfo.setAge(cursor.getInt(ageIndex));
-        }
-        
-        int heightIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_HEIGHT);
-        if (!cursor.isNull(heightIndex)) {
-            healthInfo.setHeight(cursor.getDouble(heightIndex));
-        }
-        
-        int weightIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_WEIGHT);
-        if (!cursor.isNull(weightIndex)) {
-            healthInfo.setWeight(cursor.getDouble(weightIndex));
-        }
-        
-        int heartRateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_HEART_RATE);
-        if (!cursor.isNull(heartRateIndex)) {
-            healthInfo.setHeartRate(cursor.getInt(heartRateIndex));
-        }
-        
-        int systolicIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SYSTOLIC_PRESSURE);
-        if (!cursor.isNull(systolicIndex)) {
-            healthInfo.setSystolicPressure(cursor.getDouble(systolicIndex));
-        }
-        
-        int diastolicIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DIASTOLIC_PRESSURE);
-        if (!cursor.isNull(diastolicIndex)) {
-            healthInfo.setDiastolicPressure(cursor.getDouble(diastolicIndex));
-        }
-        
-        int bloodSugarIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_BLOOD_SUGAR);
-        if (!cursor.isNull(bloodSugarIndex)) {
-            healthInfo.setBloodSugar(cursor.getDouble(bloodSugarIndex));
-        }
-        
-        int remarksIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_REMARKS);
-        if (!cursor.isNull(remarksIndex)) {
-            healthInfo.setRemarks(cursor.getString(remarksIndex));
-        }
-        int stepsIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_STEPS);
-        if (!cursor.isNull(stepsIndex)) {
-            healthInfo.setSteps(cursor.getInt(stepsIndex));
+    private static final class HealthInfoRowMapper extends CursorRowMapper<HealthInfo> {
+
+        private static final int ID = 0;
+        private static final int TIMESTAMP = 1;
+        private static final int AGE = 2;
+        private static final int HEIGHT = 3;
+        private static final int WEIGHT = 4;
+        private static final int HEART_RATE = 5;
+        private static final int SYSTOLIC_PRESSURE = 6;
+        private static final int DIASTOLIC_PRESSURE = 7;
+        private static final int BLOOD_SUGAR = 8;
+        private static final int REMARKS = 9;
+        private static final int STEPS = 10;
+        private static final int SLEEP_DURATION = 11;
+        private static final int CREATE_TIME = 12;
+        private static final int UPDATE_TIME = 13;
+
+        HealthInfoRowMapper() {
+            super(DatabaseHelper.COLUMN_ID,
+                    DatabaseHelper.COLUMN_TIMESTAMP,
+                    DatabaseHelper.COLUMN_AGE,
+                    DatabaseHelper.COLUMN_HEIGHT,
+                    DatabaseHelper.COLUMN_WEIGHT,
+                    DatabaseHelper.COLUMN_HEART_RATE,
+                    DatabaseHelper.COLUMN_SYSTOLIC_PRESSURE,
+                    DatabaseHelper.COLUMN_DIASTOLIC_PRESSURE,
+                    DatabaseHelper.COLUMN_BLOOD_SUGAR,
+                    DatabaseHelper.COLUMN_REMARKS,
+                    DatabaseHelper.COLUMN_STEPS,
+                    DatabaseHelper.COLUMN_SLEEP_DURATION,
+                    DatabaseHelper.COLUMN_CREATE_TIME,
+                    DatabaseHelper.COLUMN_UPDATE_TIME);
         }
-        int sleepIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SLEEP_DURATION);
-        if (!cursor.isNull(sleepIndex)) {
-            healthInfo.setSleepDuration(cursor.getDouble(sleepIndex));
+
+        @Override
+        public HealthInfo map(Cursor cursor, int[] indexes) {
+            HealthInfo healthInfo = new HealthInfo();
+            healthInfo.setId(getLong(cursor, indexes[ID]));
+            healthInfo.setTimestamp(getLong(cursor, indexes[TIMESTAMP]));
+            healthInfo.setAge(getInteger(cursor, indexes[AGE]));
+            healthInfo.setHeight(getDouble(cursor, indexes[HEIGHT]));
+            healthInfo.setWeight(getDouble(cursor, indexes[WEIGHT]));
+            healthInfo.setHeartRate(getInteger(cursor, indexes[HEART_RATE]));
+            healthInfo.setSystolicPressure(getDouble(cursor, indexes[SYSTOLIC_PRESSURE]));
+            healthInfo.setDiastolicPressure(getDouble(cursor, indexes[DIASTOLIC_PRESSURE]));
+            healthInfo.setBloodSugar(getDouble(cursor, indexes[BLOOD_SUGAR]));
+            healthInfo.setRemarks(getString(cursor, indexes[REMARKS]));
+            healthInfo.setSteps(getInteger(cursor, indexes[STEPS]));
+            healthInfo.setSleepDuration(getDouble(cursor, indexes[SLEEP_DURATION]));
+            healthInfo.setCreateTime(getLong(cursor, indexes[CREATE_TIME]));
+            healthInfo.setUpdateTime(getLong(cursor, indexes[UPDATE_TIME]));
+            return healthInfo;
         }
-        healthInfo.setCreateTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME)));
-        healthInfo.setUpdateTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UPDATE_TIME)));
-        
-        return healthInfo;
     }
 
     /**
@@ -322,24 +272,11 @@ public class HealthInfoDao {
      */
     public List<HealthInfo> findLatest(int limit) {
         List<HealthInfo> healthInfos = new ArrayList<>();
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        
         try {
-            String sql = "SELECT * FROM " + DatabaseHelper.TABLE_HEALTH_INFO +
-                    " ORDER BY " + DatabaseHelper.COLUMN_CREATE_TIME + " DESC LIMIT ?";
-            Cursor cursor = db.rawQuery(sql, new String[]{String.valueOf(limit)});
-            
-            while (cursor.moveToNext()) {
-                HealthInfo healthInfo = cursorToHealthInfo(cursor);
-                healthInfos.add(healthInfo);
-            }
-            cursor.close();
+            healthInfos.addAll(roomDao.findLatest(limit));
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            db.close();
         }
-        
         return healthInfos;
     }
 }
\ No newline at end of file
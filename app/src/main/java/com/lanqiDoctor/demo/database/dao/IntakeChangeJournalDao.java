@@ -0,0 +1,289 @@
+package com.lanqiDoctor.demo.database.dao;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.DatabaseHelper;
+import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服药记录变更日志数据访问对象
+ *
+ * MedicationIntakeRecordDao 在本地新增或修改服药记录的同一事务中登记变更，
+ * 云同步只上传日志中的记录，服务器确认后再从日志中移除；
+ * 云端下发的记录不登记，避免回传给服务器
+ *
+ * 确认时按 (记录ID, 序号) 精确删除：上传期间记录又被修改时序号已变化，日志行会保留到下一次同步
+ *
+ * 登记本地修改的同时把记录的同步版本号加 1、写入方改为本机，供 SyncMerge 合并云端数据时比较
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public class IntakeChangeJournalDao {
+
+    private static final String TAG = "IntakeChangeJournalDao";
+
+    private static final String NEXT_SEQ_SQL = "SELECT COALESCE(MAX(" + DatabaseHelper.COLUMN_SEQ + "), 0) + 1 FROM " +
+            DatabaseHelper.TABLE_INTAKE_CHANGE_JOURNAL;
+
+    private static final String MARK_SELECT_SQL = "INSERT OR REPLACE INTO " + DatabaseHelper.TABLE_INTAKE_CHANGE_JOURNAL + " (" +
+            DatabaseHelper.COLUMN_RECORD_ID + ", " + DatabaseHelper.COLUMN_SEQ + ") SELECT " +
+            DatabaseHelper.COLUMN_ID + ", ? FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " WHERE ";
+
+    private static final String MARK_BY_KEY_SQL = MARK_SELECT_SQL +
+            DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + " = ?";
+
+    private static final String STAMP_SQL = "UPDATE " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " SET " +
+            DatabaseHelper.COLUMN_VERSION + " = " + DatabaseHelper.COLUMN_VERSION + " + 1, " +
+            DatabaseHelper.COLUMN_LAST_WRITER + " = ? WHERE ";
+
+    private static final String STAMP_BY_KEY_SQL = STAMP_SQL +
+            DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + " = ?";
+
+    private static final String ACKNOWLEDGE_SQL = "DELETE FROM " + DatabaseHelper.TABLE_INTAKE_CHANGE_JOURNAL + " WHERE " +
+            DatabaseHelper.COLUMN_RECORD_ID + " = ? AND " + DatabaseHelper.COLUMN_SEQ + " = ?";
+
+    /** 记录已被删除的日志行 */
+    private static final String PURGE_DELETED_SQL = "DELETE FROM " + DatabaseHelper.TABLE_INTAKE_CHANGE_JOURNAL +
+            " WHERE " + DatabaseHelper.COLUMN_RECORD_ID + " NOT IN (SELECT " + DatabaseHelper.COLUMN_ID +
+            " FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE + ")";
+
+    private DatabaseHelper dbHelper;
+
+    public IntakeChangeJournalDao(Context context) {
+        this.dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * 获取用户待上传的服药记录数
+     */
+    public int getPendingCount(String userId) {
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_INTAKE_CHANGE_JOURNAL + " j INNER JOIN " +
+                            DatabaseHelper.TABLE_MEDICATION_INTAKE + " r ON r." + DatabaseHelper.COLUMN_ID +
+                            " = j." + DatabaseHelper.COLUMN_RECORD_ID + " WHERE r." + DatabaseHelper.COLUMN_USER_ID + " = ?",
+                    new String[]{String.valueOf(userId)});
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } catch (Exception e) {
+            Log.e(TAG, "查询待上传服药记录数失败", e);
+            return 0;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * 服务器确认一页上传后移除对应的日志行，并顺带清理记录已被删除的日志行
+     *
+     * @return 移除的日志行数
+     */
+    public int acknowledge(List<Entry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            return 0;
+        }
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        int removed = 0;
+        SupportSQLiteStatement statement = null;
+        db.beginTransaction();
+        try {
+            statement = db.compileStatement(ACKNOWLEDGE_SQL);
+            for (Entry entry : entries) {
+                statement.clearBindings();
+                statement.bindLong(1, entry.recordId);
+                statement.bindLong(2, entry.seq);
+                removed += statement.executeUpdateDelete();
+            }
+            db.execSQL(PURGE_DELETED_SQL);
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "确认服药记录上传失败", e);
+            removed = 0;
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+            db.endTransaction();
+        }
+        Log.d(TAG, "服务器已确认 " + removed + "/" + entries.size() + " 条服药记录变更");
+        return removed;
+    }
+
+    /**
+     * 把用户的全部服药记录登记为待上传（重置同步状态后整体重传）
+     *
+     * @return 登记的记录数
+     */
+    public int markAllForUpload(String userId) {
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int marked = markMatching(db, DatabaseHelper.COLUMN_USER_ID + " = ?", new String[]{userId});
+            db.setTransactionSuccessful();
+            Log.d(TAG, "登记全部服药记录待上传: " + marked + " 条");
+            return marked;
+        } catch (Exception e) {
+            Log.e(TAG, "登记全部服药记录待上传失败", e);
+            return 0;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 登记满足条件的服药记录（调用方需在事务内）
+     *
+     * @return 登记的记录数
+     */
+    static int markMatching(SupportSQLiteDatabase db, String whereClause, String[] whereArgs) {
+        long seq = nextSeq(db);
+        SupportSQLiteStatement statement = db.compileStatement(MARK_SELECT_SQL + "(" + whereClause + ")");
+        try {
+            statement.bindLong(1, seq);
+            if (whereArgs != null) {
+                for (int i = 0; i < whereArgs.length; i++) {
+                    statement.bindString(i + 2, whereArgs[i]);
+                }
+            }
+            return statement.executeUpdateDelete();
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * 本地修改了满足条件的服药记录：版本号加 1、写入方改为本机，并登记待上传（调用方需在事务内）
+     *
+     * @return 登记的记录数
+     */
+    static int recordLocalChange(SupportSQLiteDatabase db, String writerId, String whereClause, String[] whereArgs) {
+        SupportSQLiteStatement statement = db.compileStatement(STAMP_SQL + "(" + whereClause + ")");
+        try {
+            statement.bindString(1, writerId);
+            if (whereArgs != null) {
+                for (int i = 0; i < whereArgs.length; i++) {
+                    statement.bindString(i + 2, whereArgs[i]);
+                }
+            }
+            statement.executeUpdateDelete();
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+        }
+        return markMatching(db, whereClause, whereArgs);
+    }
+
+    private static long nextSeq(SupportSQLiteDatabase db) {
+        SupportSQLiteStatement statement = db.compileStatement(NEXT_SEQ_SQL);
+        try {
+            return statement.simpleQueryForLong();
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * 变更登记器
+     *
+     * 按唯一键 (user_id, medication_name, planned_time) 登记本地修改的记录，同一事务内登记的记录共用一个序号；
+     * 必须与服药记录的写入处于同一事务，用完调用 close
+     */
+    static final class Marker {
+        private final long seq;
+        private final String writerId;
+        private final SupportSQLiteStatement stampStatement;
+        private final SupportSQLiteStatement statement;
+
+        Marker(SupportSQLiteDatabase db, String writerId) {
+            this.seq = nextSeq(db);
+            this.writerId = writerId;
+            this.stampStatement = db.compileStatement(STAMP_BY_KEY_SQL);
+            this.statement = db.compileStatement(MARK_BY_KEY_SQL);
+        }
+
+        void mark(String userId, String medicationName, Long plannedTime) {
+            if (userId == null || medicationName == null || plannedTime == null) {
+                return;
+            }
+            stampStatement.clearBindings();
+            stampStatement.bindString(1, writerId);
+            stampStatement.bindString(2, userId);
+            stampStatement.bindString(3, medicationName);
+            stampStatement.bindLong(4, plannedTime);
+            stampStatement.executeUpdateDelete();
+
+            statement.clearBindings();
+            statement.bindLong(1, seq);
+            statement.bindString(2, userId);
+            statement.bindString(3, medicationName);
+            statement.bindLong(4, plannedTime);
+            statement.executeUpdateDelete();
+        }
+
+        void mark(MedicationIntakeRecord record) {
+            mark(record.getUserId(), record.getMedicationName(), record.getPlannedTime());
+        }
+
+        void close() {
+            DatabaseHelper.closeQuietly(stampStatement);
+            DatabaseHelper.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * 日志行：记录ID与登记时的序号，同时作为分页游标
+     */
+    public static final class Entry {
+        private final long recordId;
+        private final long seq;
+
+        public Entry(long recordId, long seq) {
+            this.recordId = recordId;
+            this.seq = seq;
+        }
+
+        public long getRecordId() { return recordId; }
+
+        public long getSeq() { return seq; }
+    }
+
+    /**
+     * 一页待上传的变更：记录与日志行一一对应
+     */
+    public static final class ChangePage {
+        private final List<MedicationIntakeRecord> records = new ArrayList<>();
+        private final List<Entry> entries = new ArrayList<>();
+
+        void add(MedicationIntakeRecord record, Entry entry) {
+            records.add(record);
+            entries.add(entry);
+        }
+
+        public List<MedicationIntakeRecord> getRecords() { return records; }
+
+        public List<Entry> getEntries() { return entries; }
+
+        public int size() { return records.size(); }
+
+        public boolean isEmpty() { return records.isEmpty(); }
+
+        /**
+         * 本页最后一条日志行，用作下一页的游标
+         */
+        public Entry last() {
+            return entries.isEmpty() ? null : entries.get(entries.size() - 1);
+        }
+    }
+}
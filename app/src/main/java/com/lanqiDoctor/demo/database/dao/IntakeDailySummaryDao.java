@@ -0,0 +1,319 @@
+package com.lanqiDoctor.demo.database.dao;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.DatabaseHelper;
+import com.lanqiDoctor.demo.database.entity.IntakeDailySummary;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 服药日汇总数据访问对象
+ *
+ * 汇总表由 MedicationIntakeRecordDao 在写入服药记录的同一事务中增量维护，
+ * 统计界面按天读取汇总行，不再加载全部服药记录逐条计算
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public class IntakeDailySummaryDao {
+
+    private static final String TAG = "IntakeDailySummaryDao";
+
+    private static final SummaryRowMapper ROW_MAPPER = new SummaryRowMapper();
+
+    private static final String ENSURE_ROW_SQL = "INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_INTAKE_DAILY_SUMMARY + " (" +
+            DatabaseHelper.COLUMN_USER_ID + ", " +
+            DatabaseHelper.COLUMN_DAY + ", " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + ") VALUES (?, ?, ?)";
+
+    private static final String APPLY_DELTA_SQL = "UPDATE " + DatabaseHelper.TABLE_INTAKE_DAILY_SUMMARY + " SET " +
+            DatabaseHelper.COLUMN_TOTAL_COUNT + " = " + DatabaseHelper.COLUMN_TOTAL_COUNT + " + ?, " +
+            DatabaseHelper.COLUMN_TAKEN_COUNT + " = " + DatabaseHelper.COLUMN_TAKEN_COUNT + " + ?, " +
+            DatabaseHelper.COLUMN_LATE_COUNT + " = " + DatabaseHelper.COLUMN_LATE_COUNT + " + ?, " +
+            DatabaseHelper.COLUMN_MISSED_COUNT + " = " + DatabaseHelper.COLUMN_MISSED_COUNT + " + ?, " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " = ? WHERE " +
+            DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_DAY + " = ?";
+
+    private static final String DELETE_EMPTY_SQL = "DELETE FROM " + DatabaseHelper.TABLE_INTAKE_DAILY_SUMMARY + " WHERE " +
+            DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_DAY + " = ? AND " +
+            DatabaseHelper.COLUMN_TOTAL_COUNT + " <= 0";
+
+    private DatabaseHelper dbHelper;
+
+    public IntakeDailySummaryDao(Context context) {
+        this.dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * 查询某一天的汇总，当天没有服药计划时返回 null
+     *
+     * @param time 当天内任意时间戳
+     */
+    public IntakeDailySummary findByDay(String userId, long time) {
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_INTAKE_DAILY_SUMMARY, null,
+                    DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_DAY + " = ?",
+                    new String[]{String.valueOf(userId), String.valueOf(dayOf(time))},
+                    null, null, null);
+            return ROW_MAPPER.mapFirst(cursor);
+        } catch (Exception e) {
+            Log.e(TAG, "查询服药日汇总失败", e);
+            return null;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * 按时间范围查询每日汇总，按日期升序，没有服药计划的日期不返回
+     */
+    public List<IntakeDailySummary> findByDayRange(String userId, long startTime, long endTime) {
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<IntakeDailySummary> list = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_INTAKE_DAILY_SUMMARY, null,
+                    DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+                            DatabaseHelper.COLUMN_DAY + " >= ? AND " +
+                            DatabaseHelper.COLUMN_DAY + " <= ?",
+                    new String[]{String.valueOf(userId), String.valueOf(dayOf(startTime)), String.valueOf(endTime)},
+                    null, null, DatabaseHelper.COLUMN_DAY + " ASC");
+            ROW_MAPPER.mapAll(cursor, list);
+        } catch (Exception e) {
+            Log.e(TAG, "按时间范围查询服药日汇总失败", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 计算时间戳所在日期的本地零点
+     */
+    public static long dayOf(long time) {
+        return dayOf(Calendar.getInstance(), time);
+    }
+
+    private static long dayOf(Calendar calendar, long time) {
+        calendar.setTimeInMillis(time);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * 根据现有服药记录重建全部汇总（数据库升级时调用，调用方需在事务内）
+     */
+    public static void rebuild(SupportSQLiteDatabase db) {
+        db.delete(DatabaseHelper.TABLE_INTAKE_DAILY_SUMMARY, null, null);
+        Delta delta = new Delta();
+        delta.collect(db, null, null, 1, null);
+        delta.apply(db);
+        Log.d(TAG, "服药日汇总重建完成，共 " + delta.size() + " 天");
+    }
+
+    /**
+     * 汇总增量
+     *
+     * 在服药记录写入前后记录每条记录的增减，按 (用户, 日期) 合并后一次写入汇总表；
+     * 必须与服药记录的写入处于同一事务
+     */
+    static final class Delta {
+
+        private final Map<String, Bucket> buckets = new HashMap<>();
+        private final Calendar calendar = Calendar.getInstance();
+
+        /**
+         * 新增一条服药记录
+         */
+        void add(String userId, Long plannedTime, int status) {
+            change(userId, plannedTime, status, 1);
+        }
+
+        /**
+         * 移除一条服药记录
+         */
+        void remove(String userId, Long plannedTime, int status) {
+            change(userId, plannedTime, status, -1);
+        }
+
+        /**
+         * 按条件读取即将删除的服药记录并计入移除，需在执行删除之前调用
+         */
+        void removeMatching(SupportSQLiteDatabase db, String whereClause, String[] whereArgs) {
+            collect(db, whereClause, whereArgs, -1, null);
+        }
+
+        /**
+         * 按条件读取即将改为 userId 的服药记录，以新用户计入新增，需在执行更新之前调用
+         */
+        void addMatchingAs(SupportSQLiteDatabase db, String whereClause, String[] whereArgs, String userId) {
+            collect(db, whereClause, whereArgs, 1, userId);
+        }
+
+        private void collect(SupportSQLiteDatabase db, String whereClause, String[] whereArgs, int sign, String userIdOverride) {
+            Cursor cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE,
+                    new String[]{DatabaseHelper.COLUMN_USER_ID, DatabaseHelper.COLUMN_PLANNED_TIME, DatabaseHelper.COLUMN_STATUS},
+                    whereClause, whereArgs, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    if (cursor.isNull(1)) {
+                        continue;
+                    }
+                    String userId = userIdOverride != null ? userIdOverride : cursor.getString(0);
+                    change(userId, cursor.getLong(1), cursor.isNull(2) ? 0 : cursor.getInt(2), sign);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        private void change(String userId, Long plannedTime, int status, int sign) {
+            if (userId == null || plannedTime == null) {
+                return;
+            }
+            long day = dayOf(calendar, plannedTime);
+            String key = userId + '\u0001' + day;
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(userId, day);
+                buckets.put(key, bucket);
+            }
+            bucket.total += sign;
+            if (status == 1) {
+                bucket.taken += sign;
+            } else if (status == 2) {
+                bucket.late += sign;
+            } else if (status == 3) {
+                bucket.missed += sign;
+            }
+        }
+
+        int size() {
+            return buckets.size();
+        }
+
+        /**
+         * 将合并后的增量写入汇总表，计划次数归零的日期行会被删除
+         */
+        void apply(SupportSQLiteDatabase db) {
+            if (buckets.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            SupportSQLiteStatement ensureStatement = db.compileStatement(ENSURE_ROW_SQL);
+            SupportSQLiteStatement deltaStatement = db.compileStatement(APPLY_DELTA_SQL);
+            SupportSQLiteStatement deleteStatement = db.compileStatement(DELETE_EMPTY_SQL);
+            try {
+                for (Bucket bucket : buckets.values()) {
+                    if (bucket.isEmpty()) {
+                        continue;
+                    }
+                    ensureStatement.clearBindings();
+                    ensureStatement.bindString(1, bucket.userId);
+                    ensureStatement.bindLong(2, bucket.day);
+                    ensureStatement.bindLong(3, now);
+                    ensureStatement.executeInsert();
+
+                    deltaStatement.clearBindings();
+                    deltaStatement.bindLong(1, bucket.total);
+                    deltaStatement.bindLong(2, bucket.taken);
+                    deltaStatement.bindLong(3, bucket.late);
+                    deltaStatement.bindLong(4, bucket.missed);
+                    deltaStatement.bindLong(5, now);
+                    deltaStatement.bindString(6, bucket.userId);
+                    deltaStatement.bindLong(7, bucket.day);
+                    deltaStatement.executeUpdateDelete();
+
+                    if (bucket.total < 0) {
+                        deleteStatement.clearBindings();
+                        deleteStatement.bindString(1, bucket.userId);
+                        deleteStatement.bindLong(2, bucket.day);
+                        deleteStatement.executeUpdateDelete();
+                    }
+                }
+            } finally {
+                DatabaseHelper.closeQuietly(ensureStatement);
+                DatabaseHelper.closeQuietly(deltaStatement);
+                DatabaseHelper.closeQuietly(deleteStatement);
+            }
+            buckets.clear();
+        }    }
+
+    private static final class Bucket {
+        final String userId;
+        final long day;
+        int total;
+        int taken;
+        int late;
+        int missed;
+
+        Bucket(String userId, long day) {
+            this.userId = userId;
+            this.day = day;
+        }
+
+        boolean isEmpty() {
+            return total == 0 && taken == 0 && late == 0 && missed == 0;
+        }
+    }
+
+    /**
+     * 日汇总行映射器
+     */
+    private static final class SummaryRowMapper extends CursorRowMapper<IntakeDailySummary> {
+
+        private static final int USER_ID = 0;
+        private static final int DAY = 1;
+        private static final int TOTAL_COUNT = 2;
+        private static final int TAKEN_COUNT = 3;
+        private static final int LATE_COUNT = 4;
+        private static final int MISSED_COUNT = 5;
+        private static final int UPDATE_TIME = 6;
+
+        SummaryRowMapper() {
+            super(DatabaseHelper.COLUMN_USER_ID,
+                    DatabaseHelper.COLUMN_DAY,
+                    DatabaseHelper.COLUMN_TOTAL_COUNT,
+                    DatabaseHelper.COLUMN_TAKEN_COUNT,
+                    DatabaseHelper.COLUMN_LATE_COUNT,
+                    DatabaseHelper.COLUMN_MISSED_COUNT,
+                    DatabaseHelper.COLUMN_UPDATE_TIME);
+        }
+
+        @Override
+        public IntakeDailySummary map(Cursor cursor, int[] indexes) {
+            IntakeDailySummary summary = new IntakeDailySummary();
+            summary.setUserId(getString(cursor, indexes[USER_ID]));
+            summary.setDay(getLong(cursor, indexes[DAY]));
+            summary.setTotalCount(toInt(getInteger(cursor, indexes[TOTAL_COUNT])));
+            summary.setTakenCount(toInt(getInteger(cursor, indexes[TAKEN_COUNT])));
+            summary.setLateCount(toInt(getInteger(cursor, indexes[LATE_COUNT])));
+            summary.setMissedCount(toInt(getInteger(cursor, indexes[MISSED_COUNT])));
+            summary.setUpdateTime(getLong(cursor, indexes[UPDATE_TIME]));
+            return summary;
+        }
+
+        private static int toInt(Integer value) {
+            return value != null ? value : 0;
+        }
+    }
+}
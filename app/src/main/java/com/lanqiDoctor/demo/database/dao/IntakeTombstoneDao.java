@@ -0,0 +1,231 @@
+package com.lanqiDoctor.demo.database.dao;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.DatabaseHelper;
+import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服药记录删除墓碑数据访问对象
+ *
+ * 本地删除服药记录时在同一事务中为每条记录登记墓碑（待上传），云同步把墓碑作为 deleted=true 的记录上传，
+ * 服务器确认后改为已同步；云端下发的墓碑在合并胜出时同样保存下来。
+ * 墓碑一直保留到超出保留期限，期间云端下发的同一记录的旧版本按 SyncMerge 规则被忽略
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public class IntakeTombstoneDao {
+
+    private static final String TAG = "IntakeTombstoneDao";
+
+    private static final String KEY_WHERE_CLAUSE = DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + " = ?";
+
+    /** 删除前按条件登记墓碑，版本号在记录当前版本上加 1 */
+    private static final String RECORD_SELECT_SQL = "INSERT OR REPLACE INTO " + DatabaseHelper.TABLE_INTAKE_TOMBSTONE + " (" +
+            DatabaseHelper.COLUMN_USER_ID + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + ", " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + ", " +
+            DatabaseHelper.COLUMN_DELETED_AT + ", " +
+            DatabaseHelper.COLUMN_VERSION + ", " +
+            DatabaseHelper.COLUMN_LAST_WRITER + ", " +
+            DatabaseHelper.COLUMN_PENDING + ") SELECT " +
+            DatabaseHelper.COLUMN_USER_ID + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + ", " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + ", ?, " +
+            DatabaseHelper.COLUMN_VERSION + " + 1, ?, 1 FROM " +
+            DatabaseHelper.TABLE_MEDICATION_INTAKE + " WHERE ";
+
+    private static final String PUT_SQL = "INSERT OR REPLACE INTO " + DatabaseHelper.TABLE_INTAKE_TOMBSTONE + " (" +
+            DatabaseHelper.COLUMN_USER_ID + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + ", " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + ", " +
+            DatabaseHelper.COLUMN_DELETED_AT + ", " +
+            DatabaseHelper.COLUMN_VERSION + ", " +
+            DatabaseHelper.COLUMN_LAST_WRITER + ", " +
+            DatabaseHelper.COLUMN_PENDING + ") VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String REMOVE_SQL = "DELETE FROM " + DatabaseHelper.TABLE_INTAKE_TOMBSTONE +
+            " WHERE " + KEY_WHERE_CLAUSE;
+
+    /** 上传期间同一记录又被删除（重建后再删）时删除时间已变化，保持待上传 */
+    private static final String ACKNOWLEDGE_SQL = "UPDATE " + DatabaseHelper.TABLE_INTAKE_TOMBSTONE + " SET " +
+            DatabaseHelper.COLUMN_PENDING + " = 0 WHERE " + KEY_WHERE_CLAUSE + " AND " +
+            DatabaseHelper.COLUMN_DELETED_AT + " = ?";
+
+    private DatabaseHelper dbHelper;
+
+    public IntakeTombstoneDao(Context context) {
+        this.dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * 读取一页待上传的墓碑，转换为 deleted=true 的服药记录，按计划时间升序
+     *
+     * 每页上传成功后墓碑即不再待上传，因此总是读取第一页
+     */
+    public List<MedicationIntakeRecord> findPendingPage(String userId, int pageSize) {
+        List<MedicationIntakeRecord> list = new ArrayList<>();
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_INTAKE_TOMBSTONE,
+                    new String[]{
+                            DatabaseHelper.COLUMN_MEDICATION_NAME,
+                            DatabaseHelper.COLUMN_PLANNED_TIME,
+                            DatabaseHelper.COLUMN_DELETED_AT,
+                            DatabaseHelper.COLUMN_VERSION,
+                            DatabaseHelper.COLUMN_LAST_WRITER
+                    },
+                    DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_PENDING + " = 1",
+                    new String[]{String.valueOf(userId)},
+                    null, null, DatabaseHelper.COLUMN_PLANNED_TIME + " ASC", String.valueOf(pageSize));
+            while (cursor.moveToNext()) {
+                MedicationIntakeRecord record = new MedicationIntakeRecord();
+                record.setUserId(userId);
+                record.setMedicationName(cursor.getString(0));
+                record.setPlannedTime(cursor.getLong(1));
+                record.setCreateTime(cursor.getLong(2));
+                record.setUpdateTime(cursor.getLong(2));
+                record.setVersion(cursor.getLong(3));
+                record.setLastWriter(cursor.isNull(4) ? null : cursor.getString(4));
+                record.setDeleted(true);
+                list.add(record);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "查询待上传墓碑失败", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 服务器确认一页墓碑后标记为已同步
+     *
+     * @return 标记的墓碑数
+     */
+    public int acknowledge(List<MedicationIntakeRecord> tombstones) {
+        if (tombstones == null || tombstones.isEmpty()) {
+            return 0;
+        }
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        int acknowledged = 0;
+        SupportSQLiteStatement statement = null;
+        db.beginTransaction();
+        try {
+            statement = db.compileStatement(ACKNOWLEDGE_SQL);
+            for (MedicationIntakeRecord tombstone : tombstones) {
+                statement.clearBindings();
+                statement.bindString(1, tombstone.getUserId());
+                statement.bindString(2, tombstone.getMedicationName());
+                statement.bindLong(3, tombstone.getPlannedTime());
+                statement.bindLong(4, tombstone.getUpdateTime());
+                acknowledged += statement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "确认墓碑上传失败", e);
+            acknowledged = 0;
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+            db.endTransaction();
+        }
+        Log.d(TAG, "服务器已确认 " + acknowledged + "/" + tombstones.size() + " 条删除");
+        return acknowledged;
+    }
+
+    /**
+     * 删除计划时间早于 cutoffTime 的墓碑：对应记录已超出保留期限，云端下发时会被直接跳过
+     *
+     * @return 删除的墓碑数
+     */
+    public int purgeBefore(long cutoffTime) {
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        try {
+            return db.delete(DatabaseHelper.TABLE_INTAKE_TOMBSTONE,
+                    DatabaseHelper.COLUMN_PLANNED_TIME + " < ?", new Object[]{cutoffTime});
+        } catch (Exception e) {
+            Log.e(TAG, "清理过期墓碑失败", e);
+            return 0;
+        }
+    }
+
+    /**
+     * 为满足条件的服药记录登记待上传的墓碑，须在删除记录之前、同一事务内调用
+     *
+     * @return 登记的墓碑数
+     */
+    static int recordMatching(SupportSQLiteDatabase db, String writerId, long deletedAt,
+                              String whereClause, String[] whereArgs) {
+        SupportSQLiteStatement statement = db.compileStatement(RECORD_SELECT_SQL + "(" + whereClause + ")");
+        try {
+            statement.bindLong(1, deletedAt);
+            statement.bindString(2, writerId);
+            if (whereArgs != null) {
+                for (int i = 0; i < whereArgs.length; i++) {
+                    statement.bindString(i + 3, whereArgs[i]);
+                }
+            }
+            return statement.executeUpdateDelete();
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * 墓碑写入器
+     *
+     * 合并云端数据时使用：保存胜出的云端墓碑（已同步），或在云端的新版本胜出时移除本地墓碑；
+     * 必须与服药记录的写入处于同一事务，用完调用 close
+     */
+    static final class Writer {
+        private final SupportSQLiteStatement putStatement;
+        private final SupportSQLiteStatement removeStatement;
+
+        Writer(SupportSQLiteDatabase db) {
+            this.putStatement = db.compileStatement(PUT_SQL);
+            this.removeStatement = db.compileStatement(REMOVE_SQL);
+        }
+
+        void put(MedicationIntakeRecord tombstone) {
+            putStatement.clearBindings();
+            putStatement.bindString(1, tombstone.getUserId());
+            putStatement.bindString(2, tombstone.getMedicationName());
+            putStatement.bindLong(3, tombstone.getPlannedTime());
+            putStatement.bindLong(4, tombstone.getUpdateTime() != null ? tombstone.getUpdateTime() : 0L);
+            putStatement.bindLong(5, tombstone.getVersion() != null ? tombstone.getVersion() : 0L);
+            if (tombstone.getLastWriter() != null) {
+                putStatement.bindString(6, tombstone.getLastWriter());
+            } else {
+                putStatement.bindNull(6);
+            }
+            putStatement.executeInsert();
+        }
+
+        void remove(MedicationIntakeRecord record) {
+            removeStatement.clearBindings();
+            removeStatement.bindString(1, record.getUserId());
+            removeStatement.bindString(2, record.getMedicationName());
+            removeStatement.bindLong(3, record.getPlannedTime());
+            removeStatement.executeUpdateDelete();
+        }
+
+        void close() {
+            DatabaseHelper.closeQuietly(putStatement);
+            DatabaseHelper.closeQuietly(removeStatement);
+        }
+    }
+}
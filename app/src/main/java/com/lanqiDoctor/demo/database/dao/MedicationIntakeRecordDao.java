@@ -2,17 +2,28 @@ package com.lanqiDoctor.demo.database.dao;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.os.Build;
 import android.util.Log;
 
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.dao.MedicationIntakeRecordRoomDao;
 import com.lanqiDoctor.demo.database.DatabaseHelper;
+import com.lanqiDoctor.demo.database.DatabaseMaintenance;
+import com.lanqiDoctor.demo.database.SyncMerge;
 import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
 import com.lanqiDoctor.demo.manager.UserStateManager;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Calendar;
+import java.util.Map;
 
 /**
  * 服药记录数据访问对象
@@ -24,134 +35,620 @@ import java.util.Calendar;
 public class MedicationIntakeRecordDao {
 
     private static final String TAG = "MedicationIntakeRecordDao";//定义日志标签
+
+    private static final IntakeRowMapper ROW_MAPPER = new IntakeRowMapper();
+
+    /** 早期版本写入的无主记录条件 */
+    private static final String ORPHAN_WHERE_CLAUSE = DatabaseHelper.COLUMN_USER_ID + " IS NULL OR " +
+            DatabaseHelper.COLUMN_USER_ID + " IN ('', '0')";
+
+    private static final String MIGRATION_PREFS_NAME = "db_migrations";
+    private static final String KEY_ORPHAN_MIGRATION_VERSION = "orphan_intake_migration_version";
+    /** 无主记录迁移版本，迁移逻辑变化时递增以重新执行 */
+    private static final int ORPHAN_MIGRATION_VERSION = 1;
+
+    private static volatile boolean sOrphanMigrationDone;
+
+    /** 清理旧记录时每批删除的行数 */
+    private static final int CLEAN_CHUNK_SIZE = 500;
+
+    /** ON CONFLICT DO UPDATE 需要 SQLite 3.24，Android 11 起内置 */
+    private static final boolean SUPPORTS_UPSERT = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+
+    private static final String KEY_WHERE_CLAUSE = DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + " = ?";
+
+    private static final String UPSERT_SQL = "INSERT INTO " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " (" +
+            DatabaseHelper.COLUMN_USER_ID + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_ID + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + ", " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + ", " +
+            DatabaseHelper.COLUMN_ACTUAL_TIME + ", " +
+            DatabaseHelper.COLUMN_ACTUAL_DOSAGE + ", " +
+            DatabaseHelper.COLUMN_STATUS + ", " +
+            DatabaseHelper.COLUMN_NOTES + ", " +
+            DatabaseHelper.COLUMN_CREATE_TIME + ", " +
+            DatabaseHelper.COLUMN_UPDATE_TIME +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT(" +
+            DatabaseHelper.COLUMN_USER_ID + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + ", " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + ") DO UPDATE SET " +
+            DatabaseHelper.COLUMN_STATUS + " = excluded." + DatabaseHelper.COLUMN_STATUS + ", " +
+            DatabaseHelper.COLUMN_ACTUAL_TIME + " = excluded." + DatabaseHelper.COLUMN_ACTUAL_TIME + ", " +
+            DatabaseHelper.COLUMN_ACTUAL_DOSAGE + " = excluded." + DatabaseHelper.COLUMN_ACTUAL_DOSAGE + ", " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " = excluded." + DatabaseHelper.COLUMN_UPDATE_TIME;
+
+    private static final String SYNC_UPDATE_SQL = "UPDATE " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " SET " +
+            DatabaseHelper.COLUMN_STATUS + " = ?, " +
+            DatabaseHelper.COLUMN_ACTUAL_TIME + " = ?, " +
+            DatabaseHelper.COLUMN_ACTUAL_DOSAGE + " = ?, " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " = ?, " +
+            DatabaseHelper.COLUMN_VERSION + " = ?, " +
+            DatabaseHelper.COLUMN_LAST_WRITER + " = ? WHERE " + KEY_WHERE_CLAUSE;
+
+    private static final String SYNC_DELETE_SQL = "DELETE FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE +
+            " WHERE " + KEY_WHERE_CLAUSE;
+
+    private static final String SYNC_INSERT_SQL = "INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " (" +
+            DatabaseHelper.COLUMN_USER_ID + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_ID + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + ", " +
+            DatabaseHelper.COLUMN_PLANNED_TIME + ", " +
+            DatabaseHelper.COLUMN_ACTUAL_TIME + ", " +
+            DatabaseHelper.COLUMN_ACTUAL_DOSAGE + ", " +
+            DatabaseHelper.COLUMN_STATUS + ", " +
+            DatabaseHelper.COLUMN_NOTES + ", " +
+            DatabaseHelper.COLUMN_CREATE_TIME + ", " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + ", " +
+            DatabaseHelper.COLUMN_VERSION + ", " +
+            DatabaseHelper.COLUMN_LAST_WRITER +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String STATUS_BY_KEY_SQL = "SELECT COALESCE(" + DatabaseHelper.COLUMN_STATUS + ", 0) FROM " +
+            DatabaseHelper.TABLE_MEDICATION_INTAKE + " WHERE " + KEY_WHERE_CLAUSE;
+
     private DatabaseHelper dbHelper;//数据库帮助类实例,用于获取数据库连接
+    private MedicationIntakeRecordRoomDao roomDao;
     private Context context; // 添加这一行
 
     public MedicationIntakeRecordDao(Context context) {
         this.context = context; // 添加这一行
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
+        this.roomDao = dbHelper.getAppDatabase().medicationIntakeRecordDao();
     }
 
     // ==================== 基于名称的CRUD方法 ====================
 
     /**
      * 插入或更新服药记录（基于药物名称和时间）
+     *
+     * 依赖 (user_id, medication_name, planned_time) 唯一约束，一条 UPSERT 语句完成，
+     * 不再先 SELECT 再 UPDATE/INSERT，避免两个写入方在两步之间产生竞争
      */
     public long insertOrUpdateByNameAndTime(MedicationIntakeRecord record) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
-        
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+
         try {
-            // 🔥 关键修复：更严格的userId检查
-            if (record.getUserId() == null || record.getUserId().isEmpty()) {
-                Log.w(TAG, "服药记录的userId为空，尝试从UserStateManager获取");
-                
-                // 尝试从UserStateManager获取用户ID
-                UserStateManager userStateManager = UserStateManager.getInstance(context);
-                
-                // 添加调试日志
-                Log.d("DEBUG", "=== 用户状态检查 ===");
-                Log.d("DEBUG", "用户ID: " + userStateManager.getUserId());
-                Log.d("DEBUG", "用户邮箱: " + userStateManager.getUserEmail());
-                Log.d("DEBUG", "用户昵称: " + userStateManager.getUserNickname());
-                Log.d("DEBUG", "是否已登录: " + userStateManager.isUserLoggedIn());
-                Log.d("DEBUG", "==================");
-                
-                String userId = userStateManager.getUserId();
-                
-                if (userId != null && !userId.isEmpty() && !"000000".equals(userId)) {
-                    record.setUserId(userId);
-                    Log.d(TAG, "从UserStateManager获取到用户ID: " + userId);
-                } else {
-                    Log.e(TAG, "无法获取有效的用户ID，插入失败");
-                    Log.e(TAG, "用户邮箱: " + userStateManager.getUserEmail());
-                    Log.e(TAG, "用户登录状态: " + userStateManager.isUserLoggedIn());
-                    return -1;
-                }
-            }
-             else {
-            // 🔥 新增：记录userId来源，便于调试
-            Log.d(TAG, "服药记录已有userId: " + record.getUserId() + 
-                  " (药物: " + record.getMedicationName() + ")");
+            if (!ensureUserId(record)) {
+                return -1;
             }
-            Log.d(TAG, "插入或更新服药记录: " + record.getMedicationName() + 
-                    " userId: " + record.getUserId() + 
+            Log.d(TAG, "插入或更新服药记录: " + record.getMedicationName() +
+                    " userId: " + record.getUserId() +
                     " 时间: " + record.getPlannedTime());
-            
-            // 先检查是否已存在
-            String selectSql = "SELECT id FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE +
-                    " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
-                    DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
-                    DatabaseHelper.COLUMN_PLANNED_TIME + " = ?";
-            
-            Cursor cursor = db.rawQuery(selectSql, new String[]{
-                    record.getUserId(),
-                    record.getMedicationName(),
-                    String.valueOf(record.getPlannedTime())
-            });
-            
-            if (cursor.moveToFirst()) {
-                // 记录已存在，更新
-                long existingId = cursor.getLong(0);
-                cursor.close();
-                
-                ContentValues values = new ContentValues();
-                values.put(DatabaseHelper.COLUMN_STATUS, record.getStatus());
-                values.put(DatabaseHelper.COLUMN_ACTUAL_TIME, record.getActualTime());
-                values.put(DatabaseHelper.COLUMN_ACTUAL_DOSAGE, record.getActualDosage());
-                values.put(DatabaseHelper.COLUMN_UPDATE_TIME, System.currentTimeMillis());
-                
-                int affectedRows = db.update(DatabaseHelper.TABLE_MEDICATION_INTAKE,
-                        values,
-                        "id = ?",
-                        new String[]{String.valueOf(existingId)});
-                
-                Log.d(TAG, "更新现有记录: ID=" + existingId + ", 影响行数=" + affectedRows);
-                return existingId;
-            } else {
-                cursor.close();
-                
-                // 记录不存在，插入新记录
-                ContentValues values = new ContentValues();
-                values.put(DatabaseHelper.COLUMN_MEDICATION_ID, record.getMedicationId());
-                values.put(DatabaseHelper.COLUMN_MEDICATION_NAME, record.getMedicationName());
-                values.put(DatabaseHelper.COLUMN_PLANNED_TIME, record.getPlannedTime());
-                values.put(DatabaseHelper.COLUMN_ACTUAL_TIME, record.getActualTime());
-                values.put(DatabaseHelper.COLUMN_STATUS, record.getStatus());
-                values.put(DatabaseHelper.COLUMN_ACTUAL_DOSAGE, record.getActualDosage());
-                values.put(DatabaseHelper.COLUMN_NOTES, record.getNotes());
-                values.put(DatabaseHelper.COLUMN_USER_ID, record.getUserId()); // 重要：确保设置userId
-                values.put(DatabaseHelper.COLUMN_CREATE_TIME, System.currentTimeMillis());
-                values.put(DatabaseHelper.COLUMN_UPDATE_TIME, System.currentTimeMillis());
-                
-                long newId = db.insert(DatabaseHelper.TABLE_MEDICATION_INTAKE, null, values);
-                Log.d(TAG, "插入新的服药记录: " + record.getMedicationName() + 
-                        " ID: " + newId + " userId: " + record.getUserId());
-                return newId;
+
+            long id;
+            db.beginTransaction();
+            try {
+                IntakeDailySummaryDao.Delta delta = new IntakeDailySummaryDao.Delta();
+                SupportSQLiteStatement statusStatement = db.compileStatement(STATUS_BY_KEY_SQL);
+                try {
+                    trackUpsert(statusStatement, delta, record);
+                } finally {
+                    DatabaseHelper.closeQuietly(statusStatement);
+                }
+                upsert(db, record, System.currentTimeMillis());
+                id = queryIdByNameAndTime(db, record);
+                delta.apply(db);
+                IntakeChangeJournalDao.recordLocalChange(db, dbHelper.getWriterId(), KEY_WHERE_CLAUSE, new String[]{
+                        record.getUserId(), record.getMedicationName(), String.valueOf(record.getPlannedTime())});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
             }
-            
+
+            Log.d(TAG, "插入或更新服药记录完成: " + record.getMedicationName() + " ID: " + id);
+            return id;
+
         } catch (Exception e) {
             Log.e(TAG, "插入或更新服药记录时发生异常", e);
             return -1;
+        }
+    }
+
+    /**
+     * 批量插入或更新服药记录（基于药物名称和时间）
+     *
+     * 整批记录在同一个事务中写入，并复用同一条预编译语句
+     *
+     * @return 成功写入的记录数，失败返回 -1
+     */
+    public int insertOrUpdateByNameAndTime(List<MedicationIntakeRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return 0;
+        }
+
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        int written = 0;
+        long now = System.currentTimeMillis();
+
+        db.beginTransaction();
+        IntakeDailySummaryDao.Delta delta = new IntakeDailySummaryDao.Delta();
+        SupportSQLiteStatement statusStatement = null;
+        IntakeChangeJournalDao.Marker marker = null;
+        try {
+            statusStatement = db.compileStatement(STATUS_BY_KEY_SQL);
+            marker = new IntakeChangeJournalDao.Marker(db, dbHelper.getWriterId());
+            if (SUPPORTS_UPSERT) {
+                SupportSQLiteStatement statement = db.compileStatement(UPSERT_SQL);
+                try {
+                    for (MedicationIntakeRecord record : records) {
+                        if (!ensureUserId(record)) {
+                            continue;
+                        }
+                        trackUpsert(statusStatement, delta, record);
+                        bindIntakeRecord(statement, record, now);
+                        statement.executeUpdateDelete();
+                        marker.mark(record);
+                        written++;
+                    }
+                } finally {
+                    DatabaseHelper.closeQuietly(statement);
+                }
+            } else {
+                for (MedicationIntakeRecord record : records) {
+                    if (!ensureUserId(record)) {
+                        continue;
+                    }
+                    trackUpsert(statusStatement, delta, record);
+                    upsert(db, record, now);
+                    marker.mark(record);
+                    written++;
+                }
+            }
+            delta.apply(db);
+            db.setTransactionSuccessful();
+            Log.d(TAG, "批量插入或更新服药记录完成: " + written + "/" + records.size());
+        } catch (Exception e) {
+            Log.e(TAG, "批量插入或更新服药记录时发生异常", e);
+            written = -1;
+        } finally {
+            if (statusStatement != null) {
+                DatabaseHelper.closeQuietly(statusStatement);
+            }
+            if (marker != null) {
+                marker.close();
+            }
+            db.endTransaction();
+        }
+        return written;
+    }
+
+    /**
+     * 批量写入一页云端下发的服药记录（同步专用）
+     *
+     * 整页在一个事务中完成：先一次查出本页涉及的本地记录与墓碑的版本，逐条按 SyncMerge 规则合并，
+     * 只有云端版本更晚时才写入（deleted=true 的记录删除本地记录并保存墓碑），
+     * 因此重复下载同一页或下载到本地已修改过的记录都不会覆盖本地数据；
+     * 写入语句都预编译复用，userId 为空的记录归属当前用户，属于其他用户、缺少关键字段或早于保留期限的记录计入跳过
+     */
+    public SyncBatchResult applySyncBatch(List<MedicationIntakeRecord> records, String currentUserId) {
+        SyncBatchResult result = new SyncBatchResult();
+        if (records == null || records.isEmpty()) {
+            return result;
+        }
+
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteStatement updateStatement = null;
+        SupportSQLiteStatement insertStatement = null;
+        SupportSQLiteStatement deleteStatement = null;
+        IntakeTombstoneDao.Writer tombstoneWriter = null;
+        IntakeDailySummaryDao.Delta delta = new IntakeDailySummaryDao.Delta();
+        long now = System.currentTimeMillis();
+        // 早于保留期限的记录已被清理并计入日汇总，重新下载会重复计数
+        long retentionCutoff = DatabaseMaintenance.getRetentionCutoff(context);
+
+        db.beginTransaction();
+        try {
+            List<MedicationIntakeRecord> accepted = new ArrayList<>(records.size());
+            for (MedicationIntakeRecord record : records) {
+                if (record.getUserId() == null || record.getUserId().isEmpty()) {
+                    record.setUserId(currentUserId);
+                }
+                if (!currentUserId.equals(record.getUserId())
+                        || record.getMedicationName() == null || record.getPlannedTime() == null
+                        || record.getPlannedTime() < retentionCutoff) {
+                    result.addSkipped();
+                } else {
+                    accepted.add(record);
+                }
+            }
+            Map<String, LocalVersion> locals = loadLocalVersions(db, currentUserId, accepted);
+
+            updateStatement = db.compileStatement(SYNC_UPDATE_SQL);
+            insertStatement = db.compileStatement(SYNC_INSERT_SQL);
+            deleteStatement = db.compileStatement(SYNC_DELETE_SQL);
+            tombstoneWriter = new IntakeTombstoneDao.Writer(db);
+
+            for (MedicationIntakeRecord record : accepted) {
+                String key = localKey(record.getMedicationName(), record.getPlannedTime());
+                LocalVersion local = locals.get(key);
+                SyncMerge.Version remote = new SyncMerge.Version(record.getUpdateTime(), record.getVersion(),
+                        record.getLastWriter(), record.isDeleted());
+                if (!SyncMerge.remoteWins(local != null ? local.version : null, remote)) {
+                    // 本地版本相同或更晚：已下载过，或本地修改尚未上传
+                    result.addSkipped();
+                    continue;
+                }
+                boolean exists = local != null && local.status >= 0;
+
+                if (record.isDeleted()) {
+                    if (exists) {
+                        bindKey(deleteStatement, record, 1);
+                        deleteStatement.executeUpdateDelete();
+                        delta.remove(record.getUserId(), record.getPlannedTime(), local.status);
+                        result.addDeleted();
+                    } else {
+                        result.addSkipped();
+                    }
+                    tombstoneWriter.put(record);
+                    locals.put(key, new LocalVersion(remote, -1));
+                    continue;
+                }
+
+                if (local != null && local.version.isDeleted()) {
+                    tombstoneWriter.remove(record);
+                }
+                if (exists) {
+                    updateStatement.clearBindings();
+                    bindNullableLong(updateStatement, 1, record.getStatus() != null ? record.getStatus().longValue() : null);
+                    bindNullableLong(updateStatement, 2, record.getActualTime());
+                    bindNullableString(updateStatement, 3, record.getActualDosage());
+                    updateStatement.bindLong(4, remote.getUpdateTime());
+                    updateStatement.bindLong(5, remote.getVersion());
+                    bindNullableString(updateStatement, 6, record.getLastWriter());
+                    bindKey(updateStatement, record, 7);
+                    updateStatement.executeUpdateDelete();
+                    delta.remove(record.getUserId(), record.getPlannedTime(), local.status);
+                    delta.add(record.getUserId(), record.getPlannedTime(), statusOf(record));
+                    result.addUpdated();
+                } else {
+                    bindSyncRecord(insertStatement, record, now);
+                    if (insertStatement.executeInsert() == -1) {
+                        result.addSkipped();
+                        continue;
+                    }
+                    delta.add(record.getUserId(), record.getPlannedTime(), statusOf(record));
+                    result.addInserted();
+                }
+                // 同一页中同一记录出现多次时，后面的版本与本次写入的结果比较
+                locals.put(key, new LocalVersion(remote, statusOf(record)));
+            }
+
+            delta.apply(db);
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            Log.e(TAG, "批量写入同步服药记录失败，整批回滚", e);
+            result.setFailed();
         } finally {
-            db.close();
+            if (updateStatement != null) {
+                DatabaseHelper.closeQuietly(updateStatement);
+            }
+            if (insertStatement != null) {
+                DatabaseHelper.closeQuietly(insertStatement);
+            }
+            if (deleteStatement != null) {
+                DatabaseHelper.closeQuietly(deleteStatement);
+            }
+            if (tombstoneWriter != null) {
+                tombstoneWriter.close();
+            }
+            db.endTransaction();
         }
+
+        Log.d(TAG, "同步批量写入服药记录: " + result);
+        return result;
     }
+
+    /**
+     * 一次查出本页计划时间范围内本地记录与墓碑的版本，按 (药物名称, 计划时间) 索引；
+     * 同一键既有记录又有墓碑（删除后重建）时取较晚的版本
+     */
+    private static Map<String, LocalVersion> loadLocalVersions(SupportSQLiteDatabase db, String userId,
+                                                               List<MedicationIntakeRecord> records) {
+        Map<String, LocalVersion> locals = new HashMap<>();
+        if (records.isEmpty()) {
+            return locals;
+        }
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        for (MedicationIntakeRecord record : records) {
+            minTime = Math.min(minTime, record.getPlannedTime());
+            maxTime = Math.max(maxTime, record.getPlannedTime());
+        }
+        String[] args = {userId, String.valueOf(minTime), String.valueOf(maxTime)};
+        String rangeWhere = " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+                DatabaseHelper.COLUMN_PLANNED_TIME + " BETWEEN ? AND ?";
+
+        Cursor cursor = db.query("SELECT " + DatabaseHelper.COLUMN_MEDICATION_NAME + ", " +
+                DatabaseHelper.COLUMN_PLANNED_TIME + ", COALESCE(" + DatabaseHelper.COLUMN_STATUS + ", 0), " +
+                DatabaseHelper.COLUMN_UPDATE_TIME + ", " + DatabaseHelper.COLUMN_VERSION + ", " +
+                DatabaseHelper.COLUMN_LAST_WRITER + " FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE + rangeWhere, args);
+        try {
+            while (cursor.moveToNext()) {
+                SyncMerge.Version version = new SyncMerge.Version(cursor.getLong(3), cursor.getLong(4),
+                        cursor.isNull(5) ? null : cursor.getString(5), false);
+                locals.put(localKey(cursor.getString(0), cursor.getLong(1)),
+                        new LocalVersion(version, cursor.getInt(2)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        cursor = db.query("SELECT " + DatabaseHelper.COLUMN_MEDICATION_NAME + ", " +
+                DatabaseHelper.COLUMN_PLANNED_TIME + ", " + DatabaseHelper.COLUMN_DELETED_AT + ", " +
+                DatabaseHelper.COLUMN_VERSION + ", " + DatabaseHelper.COLUMN_LAST_WRITER + " FROM " +
+                DatabaseHelper.TABLE_INTAKE_TOMBSTONE + rangeWhere, args);
+        try {
+            while (cursor.moveToNext()) {
+                SyncMerge.Version tombstone = new SyncMerge.Version(cursor.getLong(2), cursor.getLong(3),
+                        cursor.isNull(4) ? null : cursor.getString(4), true);
+                String key = localKey(cursor.getString(0), cursor.getLong(1));
+                LocalVersion row = locals.get(key);
+                if (row == null) {
+                    locals.put(key, new LocalVersion(tombstone, -1));
+                } else if (SyncMerge.merge(row.version, tombstone) == tombstone) {
+                    // 墓碑更晚但记录仍在，不应出现；按墓碑比较，保留记录状态用于扣减汇总
+                    locals.put(key, new LocalVersion(tombstone, row.status));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return locals;
+    }
+
+    private static String localKey(String medicationName, long plannedTime) {
+        return medicationName + '\u0000' + plannedTime;
+    }
+
+    /**
+     * 按 (user_id, medication_name, planned_time) 从 start 开始绑定唯一键
+     */
+    private static void bindKey(SupportSQLiteStatement statement, MedicationIntakeRecord record, int start) {
+        statement.bindString(start, record.getUserId());
+        statement.bindString(start + 1, record.getMedicationName());
+        statement.bindLong(start + 2, record.getPlannedTime());
+    }
+
+    /**
+     * 按 SYNC_INSERT_SQL 的列顺序绑定参数，时间与版本保留云端的值
+     */
+    private void bindSyncRecord(SupportSQLiteStatement statement, MedicationIntakeRecord record, long now) {
+        bindIntakeRecord(statement, record, now);
+        statement.bindLong(9, record.getCreateTime() != null ? record.getCreateTime() : now);
+        statement.bindLong(10, record.getUpdateTime() != null ? record.getUpdateTime() : now);
+        statement.bindLong(11, record.getVersion() != null ? record.getVersion() : 0L);
+        bindNullableString(statement, 12, record.getLastWriter());
+    }
+
+    /**
+     * 本地记录（或墓碑）的版本，status 为 -1 表示本地没有该记录
+     */
+    private static final class LocalVersion {
+        final SyncMerge.Version version;
+        final int status;
+
+        LocalVersion(SyncMerge.Version version, int status) {
+            this.version = version;
+            this.status = status;
+        }
+    }
+
+    private static void bindNullableLong(SupportSQLiteStatement statement, int index, Long value) {
+        if (value != null) {
+            statement.bindLong(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static void bindNullableString(SupportSQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    /**
+     * 按唯一键查询记录当前状态，记录不存在时返回 -1
+     */
+    private static long queryStatus(SupportSQLiteStatement statusStatement, MedicationIntakeRecord record) {
+        statusStatement.clearBindings();
+        statusStatement.bindString(1, record.getUserId());
+        bindNullableString(statusStatement, 2, record.getMedicationName());
+        bindNullableLong(statusStatement, 3, record.getPlannedTime());
+        try {
+            return statusStatement.simpleQueryForLong();
+        } catch (SQLiteDoneException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 记录写入前登记汇总增量：已存在则先移除旧状态，再计入新状态
+     */
+    private static void trackUpsert(SupportSQLiteStatement statusStatement, IntakeDailySummaryDao.Delta delta,
+                                    MedicationIntakeRecord record) {
+        long oldStatus = queryStatus(statusStatement, record);
+        if (oldStatus >= 0) {
+            delta.remove(record.getUserId(), record.getPlannedTime(), (int) oldStatus);
+        }
+        delta.add(record.getUserId(), record.getPlannedTime(), statusOf(record));
+    }
+
+    private static int statusOf(MedicationIntakeRecord record) {
+        return record.getStatus() != null ? record.getStatus() : 0;
+    }
+
+    /**
+     * 删除满足条件的服药记录，并在同一事务中扣减日汇总、登记待上传的删除墓碑
+     */
+    private int deleteWithSummary(SupportSQLiteDatabase db, String whereClause, String[] whereArgs) {
+        db.beginTransaction();
+        try {
+            IntakeDailySummaryDao.Delta delta = new IntakeDailySummaryDao.Delta();
+            delta.removeMatching(db, whereClause, whereArgs);
+            IntakeTombstoneDao.recordMatching(db, dbHelper.getWriterId(), System.currentTimeMillis(),
+                    whereClause, whereArgs);
+            int rows = db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE, whereClause, whereArgs);
+            delta.apply(db);
+            db.setTransactionSuccessful();
+            return rows;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 写入单条记录：SQLite 3.24+（Android 11+）使用 ON CONFLICT DO UPDATE，
+     * 旧版本使用 insertWithOnConflict(IGNORE) + UPDATE 回退（调用方需在事务内）
+     */
+    private void upsert(SupportSQLiteDatabase db, MedicationIntakeRecord record, long now) {
+        if (SUPPORTS_UPSERT) {
+            SupportSQLiteStatement statement = db.compileStatement(UPSERT_SQL);
+            try {
+                bindIntakeRecord(statement, record, now);
+                statement.executeUpdateDelete();
+            } finally {
+                DatabaseHelper.closeQuietly(statement);
+            }
+            return;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_USER_ID, record.getUserId());
+        values.put(DatabaseHelper.COLUMN_MEDICATION_ID, record.getMedicationId());
+        values.put(DatabaseHelper.COLUMN_MEDICATION_NAME, record.getMedicationName());
+        values.put(DatabaseHelper.COLUMN_PLANNED_TIME, record.getPlannedTime());
+        values.put(DatabaseHelper.COLUMN_ACTUAL_TIME, record.getActualTime());
+        values.put(DatabaseHelper.COLUMN_ACTUAL_DOSAGE, record.getActualDosage());
+        values.put(DatabaseHelper.COLUMN_STATUS, record.getStatus());
+        values.put(DatabaseHelper.COLUMN_NOTES, record.getNotes());
+        values.put(DatabaseHelper.COLUMN_CREATE_TIME, now);
+        values.put(DatabaseHelper.COLUMN_UPDATE_TIME, now);
+
+        long rowId = db.insert(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+                SQLiteDatabase.CONFLICT_IGNORE, values);
+        if (rowId != -1) {
+            return;
+        }
+
+        ContentValues updateValues = new ContentValues();
+        updateValues.put(DatabaseHelper.COLUMN_STATUS, record.getStatus());
+        updateValues.put(DatabaseHelper.COLUMN_ACTUAL_TIME, record.getActualTime());
+        updateValues.put(DatabaseHelper.COLUMN_ACTUAL_DOSAGE, record.getActualDosage());
+        updateValues.put(DatabaseHelper.COLUMN_UPDATE_TIME, now);
+        db.update(DatabaseHelper.TABLE_MEDICATION_INTAKE, SQLiteDatabase.CONFLICT_NONE, updateValues,
+                KEY_WHERE_CLAUSE,
+                new String[]{
+                        record.getUserId(),
+                        record.getMedicationName(),
+                        String.valueOf(record.getPlannedTime())
+                });
+    }
+
+    /**
+     * 按唯一键查询记录ID
+     */
+    private long queryIdByNameAndTime(SupportSQLiteDatabase db, MedicationIntakeRecord record) {
+        Cursor cursor = db.query("SELECT " + DatabaseHelper.COLUMN_ID + " FROM " +
+                        DatabaseHelper.TABLE_MEDICATION_INTAKE + " WHERE " + KEY_WHERE_CLAUSE,
+                new String[]{
+                        record.getUserId(),
+                        record.getMedicationName(),
+                        String.valueOf(record.getPlannedTime())
+                });
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 按 UPSERT_SQL 的列顺序绑定参数
+     */
+    private void bindIntakeRecord(SupportSQLiteStatement statement, MedicationIntakeRecord record, long now) {
+        statement.clearBindings();
+        statement.bindString(1, record.getUserId());
+        if (record.getMedicationId() != null) {
+            statement.bindLong(2, record.getMedicationId());
+        }
+        if (record.getMedicationName() != null) {
+            statement.bindString(3, record.getMedicationName());
+        }
+        if (record.getPlannedTime() != null) {
+            statement.bindLong(4, record.getPlannedTime());
+        }
+        if (record.getActualTime() != null) {
+            statement.bindLong(5, record.getActualTime());
+        }
+        if (record.getActualDosage() != null) {
+            statement.bindString(6, record.getActualDosage());
+        }
+        if (record.getStatus() != null) {
+            statement.bindLong(7, record.getStatus());
+        }
+        if (record.getNotes() != null) {
+            statement.bindString(8, record.getNotes());
+        }
+        statement.bindLong(9, now);
+        statement.bindLong(10, now);
+    }
+
+    /**
+     * 确保记录带有有效的userId，为空时从UserStateManager获取
+     */
+    private boolean ensureUserId(MedicationIntakeRecord record) {
+        if (record.getUserId() != null && !record.getUserId().isEmpty()) {
+            return true;
+        }
+        Log.w(TAG, "服药记录的userId为空，尝试从UserStateManager获取");
+
+        UserStateManager userStateManager = UserStateManager.getInstance(context);
+        String userId = userStateManager.getUserId();
+
+        if (userId != null && !userId.isEmpty() && !"000000".equals(userId)) {
+            record.setUserId(userId);
+            Log.d(TAG, "从UserStateManager获取到用户ID: " + userId);
+            return true;
+        }
+        Log.e(TAG, "无法获取有效的用户ID，插入失败");
+        Log.e(TAG, "用户邮箱: " + userStateManager.getUserEmail());
+        Log.e(TAG, "用户登录状态: " + userStateManager.isUserLoggedIn());
+        return false;
+    }
+
     /**
      * 根据药物名称和计划时间查询服药记录
      */
     public MedicationIntakeRecord findByNameAndTime(String userId,String medicationName, long plannedTime) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         MedicationIntakeRecord record = null;
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
-                    "user_id = ? AND " + DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
-                            DatabaseHelper.COLUMN_PLANNED_TIME + " = ?",
-                    new String[]{String.valueOf(userId), medicationName, String.valueOf(plannedTime)},
-                    null, null, null);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                record = cursorToMedicationIntakeRecord(cursor);
+            record = roomDao.findByNameAndTime(String.valueOf(userId), medicationName, plannedTime);
+            if (record != null) {
                 Log.d(TAG, "找到服药记录: " + medicationName + " 时间: " + plannedTime + " 状态: " + record.getStatus());
             } else {
                 Log.d(TAG, "未找到服药记录: " + medicationName + " 时间: " + plannedTime);
@@ -159,11 +656,6 @@ public class MedicationIntakeRecordDao {
         } catch (Exception e) {
             Log.e(TAG, "查询服药记录失败", e);
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return record;
     }
@@ -172,7 +664,7 @@ public class MedicationIntakeRecordDao {
      * 根据用户ID、药物名称和计划时间更新服药记录
      */
     public int updateByNameAndTime(String userId, MedicationIntakeRecord record) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
 
         try {
             // 添加调试日志
@@ -198,7 +690,7 @@ public class MedicationIntakeRecordDao {
             };
 
             // 先查询是否存在记录
-            Cursor cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+            Cursor cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE,
                     new String[]{"id", "status"},
                     whereClause,
                     whereArgs,
@@ -210,17 +702,30 @@ public class MedicationIntakeRecordDao {
                 Log.d(TAG, "找到要更新的记录: ID=" + id + ", 当前状态=" + currentStatus);
                 cursor.close();
 
-                // 执行更新
-                int affectedRows = db.update(DatabaseHelper.TABLE_MEDICATION_INTAKE,
-                        values,
-                        whereClause,
-                        whereArgs);
+                // 执行更新，同一事务中调整日汇总
+                int affectedRows;
+                db.beginTransaction();
+                try {
+                    affectedRows = db.update(DatabaseHelper.TABLE_MEDICATION_INTAKE, SQLiteDatabase.CONFLICT_NONE, values,
+                            whereClause,
+                            whereArgs);
+                    if (affectedRows > 0) {
+                        IntakeDailySummaryDao.Delta delta = new IntakeDailySummaryDao.Delta();
+                        delta.remove(userId, record.getPlannedTime(), currentStatus);
+                        delta.add(userId, record.getPlannedTime(), statusOf(record));
+                        delta.apply(db);
+                        IntakeChangeJournalDao.recordLocalChange(db, dbHelper.getWriterId(), whereClause, whereArgs);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
 
                 Log.d(TAG, "更新服药记录完成，影响行数: " + affectedRows);
 
                 if (affectedRows > 0) {
                     // 验证更新结果
-                    Cursor verifyyCursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+                    Cursor verifyyCursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE,
                             new String[]{"status"},
                             whereClause,
                             whereArgs,
@@ -252,8 +757,6 @@ public class MedicationIntakeRecordDao {
         } catch (Exception e) {
             Log.e(TAG, "更新服药记录时发生异常", e);
             return 0;
-        } finally {
-            db.close();
         }
     }
 
@@ -261,10 +764,10 @@ public class MedicationIntakeRecordDao {
      * 根据药物名称和计划时间删除服药记录
      */
     public int deleteByNameAndTime(String userId,String medicationName, long plannedTime) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
         int rows = 0;
         try {
-            rows = db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+            rows = deleteWithSummary(db,
                     "user_id = ? AND " + DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
                             DatabaseHelper.COLUMN_PLANNED_TIME + " = ?",
                     new String[]{String.valueOf(userId), medicationName, String.valueOf(plannedTime)});
@@ -273,8 +776,6 @@ public class MedicationIntakeRecordDao {
         } catch (Exception e) {
             Log.e(TAG, "删除服药记录失败", e);
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return rows;
     }
@@ -283,29 +784,12 @@ public class MedicationIntakeRecordDao {
      * 根据药物名称查询所有服药记录
      */
     public List<MedicationIntakeRecord> findByMedicationName(String userId,String medicationName) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<MedicationIntakeRecord> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
-                    "user_id = ? AND " + DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
-                    new String[]{String.valueOf(userId), medicationName},
-                    null, null, DatabaseHelper.COLUMN_PLANNED_TIME + " DESC");
-
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    MedicationIntakeRecord record = cursorToMedicationIntakeRecord(cursor);
-                    list.add(record);
-                } while (cursor.moveToNext());
-            }
+            list.addAll(roomDao.findByMedicationName(String.valueOf(userId), medicationName));
         } catch (Exception e) {
             Log.e(TAG, "根据药物名称查询服药记录失败", e);
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return list;
     }
@@ -314,10 +798,10 @@ public class MedicationIntakeRecordDao {
      * 根据药物名称删除所有相关服药记录
      */
     public int deleteByMedicationName(String userId,String medicationName) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
         int rows = 0;
         try {
-            rows = db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+            rows = deleteWithSummary(db,
                     "user_id = ? AND " + DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
                     new String[]{String.valueOf(userId), medicationName});
 
@@ -325,8 +809,6 @@ public class MedicationIntakeRecordDao {
         } catch (Exception e) {
             Log.e(TAG, "删除药物服药记录失败", e);
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return rows;
     }
@@ -344,11 +826,11 @@ public class MedicationIntakeRecordDao {
         long todayStart = today.getTimeInMillis();
         long todayEnd = todayStart + 24 * 60 * 60 * 1000;
 
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
         boolean exists = false;
         Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE,
                     new String[]{"COUNT(*)"},
                     "user_id = ? AND " + DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " +
                             DatabaseHelper.COLUMN_PLANNED_TIME + " = ? AND " +
@@ -377,7 +859,6 @@ public class MedicationIntakeRecordDao {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
         return exists;
     }
@@ -398,7 +879,7 @@ public class MedicationIntakeRecordDao {
         Log.d(TAG, "开始查询今日服药记录: 药物='" + medicationName + "', 计划时间=" + plannedTime
                 + ", 日期范围=" + formatDateTime(todayStart) + " 至 " + formatDateTime(todayEnd));
 
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
         MedicationIntakeRecord record = null;
         Cursor cursor = null;
         try {
@@ -418,7 +899,7 @@ public class MedicationIntakeRecordDao {
             Log.d(TAG, "SQL查询条件: " + selection + ", 参数=['" + medicationName + "', "
                     + plannedTime + ", " + todayStart + ", " + todayEnd + "]");
 
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
                     selection, selectionArgs, null, null, null);
 
             if (cursor != null) {
@@ -447,7 +928,6 @@ public class MedicationIntakeRecordDao {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
         return record;
     }
@@ -455,11 +935,11 @@ public class MedicationIntakeRecordDao {
     /**
      * 辅助方法：检查记录是否存在于数据库中（不考虑日期限制）
      */
-    private void checkRecordExistence(SQLiteDatabase db, String medicationName, long plannedTime) {
+    private void checkRecordExistence(SupportSQLiteDatabase db, String medicationName, long plannedTime) {
         Cursor diagCursor = null;
         try {
             // 1. 检查药物名称是否存在
-            diagCursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+            diagCursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE,
                     new String[]{"COUNT(*)"},
                     DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
                     new String[]{medicationName}, null, null, null);
@@ -471,7 +951,7 @@ public class MedicationIntakeRecordDao {
             if (diagCursor != null) diagCursor.close();
 
             // 2. 检查是否有该计划时间的记录
-            diagCursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+            diagCursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE,
                     new String[]{"COUNT(*)"},
                     DatabaseHelper.COLUMN_PLANNED_TIME + " = ?",
                     new String[]{String.valueOf(plannedTime)}, null, null, null);
@@ -483,7 +963,7 @@ public class MedicationIntakeRecordDao {
             if (diagCursor != null) diagCursor.close();
 
             // 3. 检查数据库中共有多少条记录
-            diagCursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE, null);
+            diagCursor = db.query("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE);
             if (diagCursor != null && diagCursor.moveToFirst()) {
                 int totalCount = diagCursor.getInt(0);
                 Log.d(TAG, "诊断信息: 数据库中服药记录总数为 " + totalCount + " 条");
@@ -525,25 +1005,12 @@ public class MedicationIntakeRecordDao {
      */
     @Deprecated
     public MedicationIntakeRecord findById(long id) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         MedicationIntakeRecord record = null;
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
-                    DatabaseHelper.COLUMN_ID + " = ?",
-                    new String[]{String.valueOf(id)}, null, null, null);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                record = cursorToMedicationIntakeRecord(cursor);
-            }
+            record = roomDao.findById(id);
         } catch (Exception e) {
             Log.e(TAG, "根据ID查询服药记录失败", e);
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return record;
     }
@@ -552,12 +1019,12 @@ public class MedicationIntakeRecordDao {
      * 根据日期和药物ID查询服药记录（保持原有方法签名）
      */
     public MedicationIntakeRecord findByDateAndMedicationId(long date, long medicationId, long plannedTime) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
         MedicationIntakeRecord record = null;
         Cursor cursor = null;
         try {
             // 查询指定日期、药物ID和计划时间的记录
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
                     DatabaseHelper.COLUMN_MEDICATION_ID + " = ? AND " +
                             DatabaseHelper.COLUMN_PLANNED_TIME + " = ?",
                     new String[]{String.valueOf(medicationId), String.valueOf(plannedTime)},
@@ -573,7 +1040,6 @@ public class MedicationIntakeRecordDao {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
         return record;
     }
@@ -591,12 +1057,12 @@ public class MedicationIntakeRecordDao {
         long todayStart = today.getTimeInMillis();
         long todayEnd = todayStart + 24 * 60 * 60 * 1000;
 
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
         MedicationIntakeRecord record = null;
         Cursor cursor = null;
         try {
             // 查询今天的特定药物和计划时间的记录
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
                     DatabaseHelper.COLUMN_MEDICATION_ID + " = ? AND " +
                             DatabaseHelper.COLUMN_PLANNED_TIME + " = ? AND " +
                             DatabaseHelper.COLUMN_PLANNED_TIME + " >= ? AND " +
@@ -622,7 +1088,6 @@ public class MedicationIntakeRecordDao {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
         return record;
     }
@@ -650,35 +1115,15 @@ public class MedicationIntakeRecordDao {
      * 根据时间范围查询服药记录 - 优化版本
      */
     public List<MedicationIntakeRecord> findByTimeRange(String userId, long startTime, long endTime) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<MedicationIntakeRecord> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
-                    "user_id = ? AND " + DatabaseHelper.COLUMN_PLANNED_TIME + " >= ? AND " +
-                            DatabaseHelper.COLUMN_PLANNED_TIME + " <= ?",
-                    new String[]{String.valueOf(userId), String.valueOf(startTime), String.valueOf(endTime)},
-                    null, null, DatabaseHelper.COLUMN_PLANNED_TIME + " ASC");
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    MedicationIntakeRecord record = cursorToMedicationIntakeRecord(cursor);
-                    list.add(record);
-                    Log.d(TAG, "查询到服药记录: " + record.getMedicationName() +
-                            " 计划时间: " + formatDateTime(record.getPlannedTime()) +
-                            " 状态: " + record.getStatus());
-                } while (cursor.moveToNext());
-            }
+            list.addAll(roomDao.findByTimeRange(String.valueOf(userId), startTime, endTime));
 
             Log.d(TAG, "时间范围查询结果: " + formatDateTime(startTime) + " 至 " +
                     formatDateTime(endTime) + " 共 " + list.size() + " 条记录");
         } catch (Exception e) {
             Log.e(TAG, "根据时间范围查询服药记录失败", e);
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return list;
     }
@@ -728,59 +1173,229 @@ public class MedicationIntakeRecordDao {
      * 查询所有服药记录
      */
     public List<MedicationIntakeRecord> findAll(String userId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<MedicationIntakeRecord> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
-                    "user_id = ?", new String[]{String.valueOf(userId)},
-                    null, null, DatabaseHelper.COLUMN_PLANNED_TIME + " DESC");
-
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    MedicationIntakeRecord record = cursorToMedicationIntakeRecord(cursor);
-                    list.add(record);
-                } while (cursor.moveToNext());
-            }
+            list.addAll(roomDao.findAll(String.valueOf(userId)));
         } catch (Exception e) {
             Log.e(TAG, "查询所有服药记录失败", e);
             e.printStackTrace();
+        }
+        return list;
+    }
+
+    // ==================== 分页（keyset）查询 ====================
+
+    /**
+     * 分页游标：上一页最后一条记录的 (planned_time, id)
+     *
+     * 下一页从该位置之后开始读取，不使用 OFFSET，翻到多深都只扫描一页的数据
+     */
+    public static final class PageKey {
+        private final long plannedTime;
+        private final long id;
+
+        public PageKey(long plannedTime, long id) {
+            this.plannedTime = plannedTime;
+            this.id = id;
+        }
+
+        /**
+         * 以某条记录为游标，记录缺少 id 或计划时间时返回 null
+         */
+        public static PageKey after(MedicationIntakeRecord record) {
+            if (record == null || record.getId() == null || record.getPlannedTime() == null) {
+                return null;
+            }
+            return new PageKey(record.getPlannedTime(), record.getId());
+        }
+
+        public long getPlannedTime() { return plannedTime; }
+
+        public long getId() { return id; }
+    }
+
+    /**
+     * 分页读取回调
+     */
+    public interface PageCallback {
+        /**
+         * 收到一页记录，返回 false 时停止读取后续页
+         */
+        boolean onPage(List<MedicationIntakeRecord> page);
+    }
+
+    /**
+     * 按时间范围读取一页服药记录，按 planned_time、id 升序
+     *
+     * @param after    上一页的游标，null 表示从第一页开始
+     * @param pageSize 每页条数
+     */
+    public List<MedicationIntakeRecord> findPageByTimeRange(String userId, long startTime, long endTime,
+                                                            PageKey after, int pageSize) {
+        String selection = DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+                DatabaseHelper.COLUMN_PLANNED_TIME + " >= ? AND " +
+                DatabaseHelper.COLUMN_PLANNED_TIME + " <= ?";
+        String[] args = {String.valueOf(userId), String.valueOf(startTime), String.valueOf(endTime)};
+        return queryPage(selection, args, after, pageSize);
+    }
+
+    /**
+     * 按药物ID读取一页服药记录，按 planned_time、id 升序
+     */
+    public List<MedicationIntakeRecord> findPageByMedicationId(String userId, long medicationId,
+                                                               PageKey after, int pageSize) {
+        String selection = DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+                DatabaseHelper.COLUMN_MEDICATION_ID + " = ?";
+        String[] args = {String.valueOf(userId), String.valueOf(medicationId)};
+        return queryPage(selection, args, after, pageSize);
+    }
+
+    /**
+     * 逐页遍历时间范围内的服药记录，内存中同时只保留一页
+     *
+     * @return 实际回调的记录总数
+     */
+    public int forEachPageByTimeRange(String userId, long startTime, long endTime,
+                                      int pageSize, PageCallback callback) {
+        return iteratePages(after -> findPageByTimeRange(userId, startTime, endTime, after, pageSize),
+                pageSize, callback);
+    }
+
+    /**
+     * 逐页遍历用户的全部服药记录
+     */
+    public int forEachPage(String userId, int pageSize, PageCallback callback) {
+        return forEachPageByTimeRange(userId, Long.MIN_VALUE, Long.MAX_VALUE, pageSize, callback);
+    }
+
+    /**
+     * 逐页遍历某个药物的服药记录
+     */
+    public int forEachPageByMedicationId(String userId, long medicationId,
+                                         int pageSize, PageCallback callback) {
+        return iteratePages(after -> findPageByMedicationId(userId, medicationId, after, pageSize),
+                pageSize, callback);
+    }
+
+    private interface PageLoader {
+        List<MedicationIntakeRecord> load(PageKey after);
+    }
+
+    private int iteratePages(PageLoader loader, int pageSize, PageCallback callback) {
+        int total = 0;
+        PageKey after = null;
+        while (true) {
+            List<MedicationIntakeRecord> page = loader.load(after);
+            if (page.isEmpty()) {
+                break;
+            }
+            total += page.size();
+            if (!callback.onPage(page) || page.size() < pageSize) {
+                break;
+            }
+            after = PageKey.after(page.get(page.size() - 1));
+            if (after == null) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 在基础条件上追加 keyset 条件并查询一页
+     */
+    private List<MedicationIntakeRecord> queryPage(String selection, String[] args, PageKey after, int pageSize) {
+        if (after != null) {
+            selection = selection + " AND (" +
+                    DatabaseHelper.COLUMN_PLANNED_TIME + " > ? OR (" +
+                    DatabaseHelper.COLUMN_PLANNED_TIME + " = ? AND " +
+                    DatabaseHelper.COLUMN_ID + " > ?))";
+            String[] keyArgs = new String[args.length + 3];
+            System.arraycopy(args, 0, keyArgs, 0, args.length);
+            keyArgs[args.length] = String.valueOf(after.plannedTime);
+            keyArgs[args.length + 1] = String.valueOf(after.plannedTime);
+            keyArgs[args.length + 2] = String.valueOf(after.id);
+            args = keyArgs;
+        }
+
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<MedicationIntakeRecord> list = new ArrayList<>(pageSize);
+        Cursor cursor = null;
+        try {
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_MEDICATION_INTAKE, null, selection, args,
+                    null, null,
+                    DatabaseHelper.COLUMN_PLANNED_TIME + " ASC, " + DatabaseHelper.COLUMN_ID + " ASC",
+                    String.valueOf(pageSize));
+            ROW_MAPPER.mapAll(cursor, list);
+        } catch (Exception e) {
+            Log.e(TAG, "分页查询服药记录失败", e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
         }
         return list;
     }
 
+    // ==================== 变更日志（增量上传） ====================
+
     /**
-     * 根据药物ID查询服药记录
+     * 读取一页本地修改过、尚未被服务器确认的服药记录，按登记序号、记录ID升序
+     *
+     * @param after    上一页最后一条日志行，null 表示从第一页开始
+     * @param pageSize 每页条数
      */
-    public List<MedicationIntakeRecord> findByMedicationId(String userId, long medicationId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        List<MedicationIntakeRecord> list = new ArrayList<>();
+    public IntakeChangeJournalDao.ChangePage findChangedPage(String userId, IntakeChangeJournalDao.Entry after,
+                                                             int pageSize) {
+        String seq = "j." + DatabaseHelper.COLUMN_SEQ;
+        String recordId = "j." + DatabaseHelper.COLUMN_RECORD_ID;
+        StringBuilder sql = new StringBuilder("SELECT r.*, ").append(seq).append(" FROM ")
+                .append(DatabaseHelper.TABLE_MEDICATION_INTAKE).append(" r INNER JOIN ")
+                .append(DatabaseHelper.TABLE_INTAKE_CHANGE_JOURNAL).append(" j ON ")
+                .append(recordId).append(" = r.").append(DatabaseHelper.COLUMN_ID)
+                .append(" WHERE r.").append(DatabaseHelper.COLUMN_USER_ID).append(" = ?");
+        String[] args;
+        if (after != null) {
+            sql.append(" AND (").append(seq).append(" > ? OR (").append(seq).append(" = ? AND ")
+                    .append(recordId).append(" > ?))");
+            args = new String[]{String.valueOf(userId), String.valueOf(after.getSeq()),
+                    String.valueOf(after.getSeq()), String.valueOf(after.getRecordId())};
+        } else {
+            args = new String[]{String.valueOf(userId)};
+        }
+        sql.append(" ORDER BY ").append(seq).append(" ASC, ").append(recordId).append(" ASC LIMIT ").append(pageSize);
+
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        IntakeChangeJournalDao.ChangePage page = new IntakeChangeJournalDao.ChangePage();
         Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null,
-                    "user_id = ? AND " + DatabaseHelper.COLUMN_MEDICATION_ID + " = ?",
-                    new String[]{String.valueOf(userId), String.valueOf(medicationId)},
-                    null, null, DatabaseHelper.COLUMN_PLANNED_TIME + " DESC");
-
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    MedicationIntakeRecord record = cursorToMedicationIntakeRecord(cursor);
-                    list.add(record);
-                } while (cursor.moveToNext());
+            cursor = db.query(sql.toString(), args);
+            int[] indexes = ROW_MAPPER.resolve(cursor);
+            int seqIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_SEQ);
+            while (cursor.moveToNext()) {
+                MedicationIntakeRecord record = ROW_MAPPER.map(cursor, indexes);
+                page.add(record, new IntakeChangeJournalDao.Entry(record.getId(), cursor.getLong(seqIndex)));
             }
         } catch (Exception e) {
-            Log.e(TAG, "根据药物ID查询服药记录失败", e);
-            e.printStackTrace();
+            Log.e(TAG, "查询待上传服药记录失败", e);
         } finally {
             if (cursor != null) {
                 cursor.close();
             }
-            db.close();
+        }
+        return page;
+    }
+
+    /**
+     * 根据药物ID查询服药记录
+     */
+    public List<MedicationIntakeRecord> findByMedicationId(String userId, long medicationId) {
+        List<MedicationIntakeRecord> list = new ArrayList<>();
+        try {
+            list.addAll(roomDao.findByMedicationId(String.valueOf(userId), medicationId));
+        } catch (Exception e) {
+            Log.e(TAG, "根据药物ID查询服药记录失败", e);
+            e.printStackTrace();
         }
         return list;
     }
@@ -789,51 +1404,92 @@ public class MedicationIntakeRecordDao {
      * 获取记录总数
      */
     public int getCount() {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         int count = 0;
-        Cursor cursor = null;
         try {
-            cursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE, null);
-            if (cursor != null && cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
+            count = roomDao.count();
         } catch (Exception e) {
             Log.e(TAG, "获取记录总数失败", e);
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return count;
     }
 
     /**
      * 新增：清理指定天数之前的服药记录（数据清理）
+     *
+     * 只删除明细，不扣减日汇总，历史依从性统计仍然保留；
+     * 按 CLEAN_CHUNK_SIZE 分批删除，每批一个短事务，不会长时间占用写锁
      */
     public int cleanOldRecords(int daysToKeep, String userId) {
         Calendar calendar = Calendar.getInstance();
         calendar.add(Calendar.DAY_OF_MONTH, -daysToKeep);
         long cutoffTime = calendar.getTimeInMillis();
 
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
         int deletedRows = 0;
         try {
-            deletedRows = db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE,
-                    "user_id = ? AND " + DatabaseHelper.COLUMN_PLANNED_TIME + " < ?",
-                    new String[]{String.valueOf(userId), String.valueOf(cutoffTime)});
+            int chunk;
+            do {
+                chunk = deleteOldRecordsChunk(userId, cutoffTime, CLEAN_CHUNK_SIZE);
+                deletedRows += chunk;
+            } while (chunk >= CLEAN_CHUNK_SIZE);
 
             Log.d(TAG, "清理了 " + daysToKeep + " 天前的服药记录，删除行数: " + deletedRows);
         } catch (Exception e) {
             Log.e(TAG, "清理旧记录失败", e);
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return deletedRows;
     }
 
+    /**
+     * 删除一批计划时间早于 cutoffTime 的服药记录，最多 limit 条，按计划时间从旧到新
+     *
+     * 不扣减日汇总：被清理的记录已经计入汇总表
+     *
+     * @return 本批删除的行数，小于 limit 说明已清理完
+     */
+    public int deleteOldRecordsChunk(String userId, long cutoffTime, int limit) {
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteStatement statement = db.compileStatement("DELETE FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE +
+                " WHERE " + DatabaseHelper.COLUMN_ID + " IN (SELECT " + DatabaseHelper.COLUMN_ID +
+                " FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE + " WHERE " +
+                DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_PLANNED_TIME + " < ?" +
+                " ORDER BY " + DatabaseHelper.COLUMN_PLANNED_TIME + " LIMIT ?)");
+        try {
+            statement.bindString(1, String.valueOf(userId));
+            statement.bindLong(2, cutoffTime);
+            statement.bindLong(3, limit);
+            return statement.executeUpdateDelete();
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * 查询本地服药记录涉及的所有用户ID
+     */
+    public List<String> findUserIds() {
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        List<String> userIds = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = db.query("SELECT DISTINCT " + DatabaseHelper.COLUMN_USER_ID + " FROM " +
+                    DatabaseHelper.TABLE_MEDICATION_INTAKE);
+            while (cursor.moveToNext()) {
+                if (!cursor.isNull(0)) {
+                    userIds.add(cursor.getString(0));
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "查询服药记录用户失败", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return userIds;
+    }
+
     /**
      * 新增：删除今日指定药物和时间的服药记录
      */
@@ -847,10 +1503,10 @@ public class MedicationIntakeRecordDao {
         long todayStart = today.getTimeInMillis();
         long todayEnd = todayStart + 24 * 60 * 60 * 1000;
 
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
         int deletedRows = 0;
         try {
-            deletedRows = db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE,
+            deletedRows = deleteWithSummary(db,
                     "user_id = ? AND " + DatabaseHelper.COLUMN_MEDICATION_ID + " = ? AND " +
                             DatabaseHelper.COLUMN_PLANNED_TIME + " = ? AND " +
                             DatabaseHelper.COLUMN_PLANNED_TIME + " >= ? AND " +
@@ -867,8 +1523,6 @@ public class MedicationIntakeRecordDao {
         } catch (Exception e) {
             Log.e(TAG, "删除今日服药记录失败", e);
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return deletedRows;
     }
@@ -910,25 +1564,11 @@ public class MedicationIntakeRecordDao {
      * 根据时间范围和状态查询服药记录
      */
     public List<MedicationIntakeRecord> findByTimeRangeAndStatus(String userId,long startTime, long endTime, int status) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<MedicationIntakeRecord> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE,
-                    null,
-                    "user_id = ? AND " + DatabaseHelper.COLUMN_PLANNED_TIME + " >= ? AND " +
-                            DatabaseHelper.COLUMN_PLANNED_TIME + " < ? AND " +
-                            DatabaseHelper.COLUMN_STATUS + " = ?",
-                    new String[]{String.valueOf(userId), String.valueOf(startTime), String.valueOf(endTime), String.valueOf(status)},
-                    null, null,
-                    DatabaseHelper.COLUMN_PLANNED_TIME + " ASC");
-
-            // 其余处理逻辑...
+            list.addAll(roomDao.findByTimeRangeAndStatus(String.valueOf(userId), startTime, endTime, status));
         } catch (Exception e) {
             Log.e(TAG, "查询失败", e);
-        } finally {
-            if (cursor != null) cursor.close();
-            db.close();
         }
         return list;
     }
@@ -937,18 +1577,10 @@ public class MedicationIntakeRecordDao {
      */
     public MedicationIntakeRecord findByUserMedicationAndTime(String userId, String medicationName, long plannedTime) {
         Log.d(TAG, "查询特定用户的服药记录: userId=" + userId + ", 药物=" + medicationName + ", 时间=" + plannedTime);
-        
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Cursor cursor = null;
-        
+
         try {
-            String selection = "user_id = ? AND medication_name = ? AND planned_time = ?";
-            String[] selectionArgs = {userId, medicationName, String.valueOf(plannedTime)};
-            
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_INTAKE, null, selection, selectionArgs, null, null, null);
-            
-            if (cursor != null && cursor.moveToFirst()) {
-                MedicationIntakeRecord record = cursorToMedicationIntakeRecord(cursor);
+            MedicationIntakeRecord record = roomDao.findByNameAndTime(userId, medicationName, plannedTime);
+            if (record != null) {
                 Log.d(TAG, "找到用户服药记录: " + medicationName + " userId: " + userId);
                 return record;
             }
@@ -959,133 +1591,194 @@ public class MedicationIntakeRecordDao {
         } catch (Exception e) {
             Log.e(TAG, "查询用户服药记录失败", e);
             return null;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close(); // 🔥 添加：关闭数据库连接
         }
     }
     /**
-     * 将Cursor转换为MedicationIntakeRecord对象
+     * 将Cursor转换为MedicationIntakeRecord对象（单行查询使用）
      */
     private MedicationIntakeRecord cursorToMedicationIntakeRecord(Cursor cursor) {
-        MedicationIntakeRecord record = new MedicationIntakeRecord();
-        record.setId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID)));
-        // 🔥 添加：读取 user_id 字段
-        
-        int userIdIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_USER_ID);
-        if (userIdIndex >= 0 && !cursor.isNull(userIdIndex)) {
-            record.setUserId(cursor.getString(userIdIndex));
-        }
-        int medicationIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MEDICATION_ID);
-        if (!cursor.isNull(medicationIdIndex)) {
-            record.setMedicationId(cursor.getLong(medicationIdIndex));
-        }
+        return ROW_MAPPER.map(cursor, ROW_MAPPER.resolve(cursor));
+    }
 
-        int medicationNameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MEDICATION_NAME);
-        if (!cursor.isNull(medicationNameIndex)) {
-            record.setMedicationName(cursor.getString(medicationNameIndex));
-        }
+    /**
+     * 服药记录行映射器（供基准测试使用）
+     */
+    public static CursorRowMapper<MedicationIntakeRecord> rowMapper() {
+        return ROW_MAPPER;
+    }
 
-        int plannedTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_PLANNED_TIME);
-        if (!cursor.isNull(plannedTimeIndex)) {
-            record.setPlannedTime(cursor.getLong(plannedTimeIndex));
+    /**
+     * 服药记录行映射器，列索引每个Cursor只解析一次
+     */
+    private static final class IntakeRowMapper extends CursorRowMapper<MedicationIntakeRecord> {
+
+        private static final int ID = 0;
+        private static final int USER_ID = 1;
+        private static final int MEDICATION_ID = 2;
+        private static final int MEDICATION_NAME = 3;
+        private static final int PLANNED_TIME = 4;
+        private static final int ACTUAL_TIME = 5;
+        private static final int ACTUAL_DOSAGE = 6;
+        private static final int STATUS = 7;
+        private static final int NOTES = 8;
+        private static final int CREATE_TIME = 9;
+        private static final int UPDATE_TIME = 10;
+        private static final int VERSION = 11;
+        private static final int LAST_WRITER = 12;
+
+        IntakeRowMapper() {
+            super(DatabaseHelper.COLUMN_ID,
+                    DatabaseHelper.COLUMN_USER_ID,
+                    DatabaseHelper.COLUMN_MEDICATION_ID,
+                    DatabaseHelper.COLUMN_MEDICATION_NAME,
+                    DatabaseHelper.COLUMN_PLANNED_TIME,
+                    DatabaseHelper.COLUMN_ACTUAL_TIME,
+                    DatabaseHelper.COLUMN_ACTUAL_DOSAGE,
+                    DatabaseHelper.COLUMN_STATUS,
+                    DatabaseHelper.COLUMN_NOTES,
+                    DatabaseHelper.COLUMN_CREATE_TIME,
+                    DatabaseHelper.COLUMN_UPDATE_TIME,
+                    DatabaseHelper.COLUMN_VERSION,
+                    DatabaseHelper.COLUMN_LAST_WRITER);
         }
 
-        int actualTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ACTUAL_TIME);
-        if (!cursor.isNull(actualTimeIndex)) {
-            record.setActualTime(cursor.getLong(actualTimeIndex));
+        @Override
+        public MedicationIntakeRecord map(Cursor cursor, int[] indexes) {
+            MedicationIntakeRecord record = new MedicationIntakeRecord();
+            record.setId(getLong(cursor, indexes[ID]));
+            record.setUserId(getString(cursor, indexes[USER_ID]));
+            record.setMedicationId(getLong(cursor, indexes[MEDICATION_ID]));
+            record.setMedicationName(getString(cursor, indexes[MEDICATION_NAME]));
+            record.setPlannedTime(getLong(cursor, indexes[PLANNED_TIME]));
+            record.setActualTime(getLong(cursor, indexes[ACTUAL_TIME]));
+            record.setActualDosage(getString(cursor, indexes[ACTUAL_DOSAGE]));
+            Integer status = getInteger(cursor, indexes[STATUS]);
+            if (status != null) {
+                record.setStatus(status);
+            }
+            record.setNotes(getString(cursor, indexes[NOTES]));
+            // createTime/updateTime 最后设置，覆盖 setter 中对 updateTime 的修改
+            record.setCreateTime(getLong(cursor, indexes[CREATE_TIME]));
+            record.setUpdateTime(getLong(cursor, indexes[UPDATE_TIME]));
+            Long version = getLong(cursor, indexes[VERSION]);
+            if (version != null) {
+                record.setVersion(version);
+            }
+            record.setLastWriter(getString(cursor, indexes[LAST_WRITER]));
+            return record;
         }
-
-        int actualDosageIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ACTUAL_DOSAGE);
-        if (!cursor.isNull(actualDosageIndex)) {
-            record.setActualDosage(cursor.getString(actualDosageIndex));
+    }
+    
+    /**
+     * 将无主服药记录（user_id 为空、'' 或 '0'，来自早期版本）归属到当前用户
+     *
+     * 集合操作一次完成：与当前用户已有记录重复的无主记录直接删除，无主记录之间的重复只保留最早一条，
+     * 其余整体改为当前用户；完成后写入持久化标记，之后调用直接返回，不再访问数据库
+     *
+     * @return 本次是否实际执行了迁移
+     */
+    public boolean adoptOrphanRecords(String currentUserId) {
+        if (currentUserId == null || currentUserId.isEmpty() || "000000".equals(currentUserId)) {
+            return false;
         }
-
-        int statusIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_STATUS);
-        if (!cursor.isNull(statusIndex)) {
-            record.setStatus(cursor.getInt(statusIndex));
+        if (sOrphanMigrationDone) {
+            return false;
+        }
+        SharedPreferences prefs = context.getSharedPreferences(MIGRATION_PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getInt(KEY_ORPHAN_MIGRATION_VERSION, 0) >= ORPHAN_MIGRATION_VERSION) {
+            sOrphanMigrationDone = true;
+            return false;
         }
 
-        int notesIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTES);
-        if (!cursor.isNull(notesIndex)) {
-            record.setNotes(cursor.getString(notesIndex));
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            OrphanMigration result = migrateOrphans(db, currentUserId);
+            db.setTransactionSuccessful();
+            Log.d(TAG, "无主服药记录迁移完成: " + result);
+        } catch (Exception e) {
+            Log.e(TAG, "无主服药记录迁移失败", e);
+            return false;
+        } finally {
+            db.endTransaction();
         }
 
-        record.setCreateTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME)));
-        record.setUpdateTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UPDATE_TIME)));
+        prefs.edit().putInt(KEY_ORPHAN_MIGRATION_VERSION, ORPHAN_MIGRATION_VERSION).apply();
+        sOrphanMigrationDone = true;
+        return true;
+    }
 
-        return record;
+    /**
+     * 无主记录迁移的三条语句，由调用方开启事务；adoptOrphanRecords 与迁移耗时测试共用
+     */
+    public static OrphanMigration migrateOrphans(SupportSQLiteDatabase db, String currentUserId) {
+        String table = DatabaseHelper.TABLE_MEDICATION_INTAKE;
+        String name = DatabaseHelper.COLUMN_MEDICATION_NAME;
+        String time = DatabaseHelper.COLUMN_PLANNED_TIME;
+        OrphanMigration result = new OrphanMigration();
+
+        IntakeDailySummaryDao.Delta delta = new IntakeDailySummaryDao.Delta();
+        delta.removeMatching(db, ORPHAN_WHERE_CLAUSE, null);
+
+        // 1. 与当前用户记录重复的无主记录
+        long start = System.nanoTime();
+        result.duplicatesOfUser = executeUpdateDelete(db, "DELETE FROM " + table + " WHERE (" + ORPHAN_WHERE_CLAUSE + ")" +
+                " AND EXISTS (SELECT 1 FROM " + table + " c WHERE c." + DatabaseHelper.COLUMN_USER_ID + " = ?" +
+                " AND c." + name + " = " + table + "." + name +
+                " AND c." + time + " = " + table + "." + time + ")", currentUserId);
+        result.stepNanos[0] = System.nanoTime() - start;
+
+        // 2. 无主记录之间的重复，保留 id 最小的一条
+        start = System.nanoTime();
+        result.duplicatesAmongOrphans = executeUpdateDelete(db, "DELETE FROM " + table + " WHERE (" + ORPHAN_WHERE_CLAUSE + ")" +
+                " AND EXISTS (SELECT 1 FROM " + table + " o WHERE (o." + DatabaseHelper.COLUMN_USER_ID + " IS NULL" +
+                " OR o." + DatabaseHelper.COLUMN_USER_ID + " IN ('', '0'))" +
+                " AND o." + name + " = " + table + "." + name +
+                " AND o." + time + " = " + table + "." + time +
+                " AND o." + DatabaseHelper.COLUMN_ID + " < " + table + "." + DatabaseHelper.COLUMN_ID + ")");
+        result.stepNanos[1] = System.nanoTime() - start;
+
+        // 3. 剩余无主记录归属当前用户，并登记为待上传
+        delta.addMatchingAs(db, ORPHAN_WHERE_CLAUSE, null, currentUserId);
+        IntakeChangeJournalDao.markMatching(db, ORPHAN_WHERE_CLAUSE, null);
+        start = System.nanoTime();
+        result.adopted = executeUpdateDelete(db, "UPDATE " + table + " SET " + DatabaseHelper.COLUMN_USER_ID + " = ?" +
+                " WHERE " + ORPHAN_WHERE_CLAUSE, currentUserId);
+        result.stepNanos[2] = System.nanoTime() - start;
+
+        delta.apply(db);
+        return result;
     }
-    
-        public void validateUserData(String currentUserId) {
-            SQLiteDatabase db = dbHelper.getWritableDatabase();
-            
-            try {
-                // 查找所有没有正确userId的记录
-                String findInvalidSql = "SELECT id, medication_name, planned_time, user_id FROM " + 
-                        DatabaseHelper.TABLE_MEDICATION_INTAKE + " WHERE " +
-                        "user_id IS NULL OR user_id = '' OR user_id = '0'";
-                
-                Cursor cursor = db.rawQuery(findInvalidSql, null);
-                
-                if (cursor != null && cursor.moveToFirst()) {
-                    Log.d(TAG, "发现无效的服药记录，开始验证");
-                    
-                    do {
-                        long id = cursor.getLong(0);
-                        String medicationName = cursor.getString(1);
-                        long plannedTime = cursor.getLong(2);
-                        String userId = cursor.getString(3);
-                        
-                        Log.d(TAG, "无效记录: ID=" + id + " 药物=" + medicationName + 
-                            " userId=" + userId + " 时间=" + plannedTime);
-                        
-                        // 检查是否与当前用户的记录重复
-                        String checkDuplicateSql = "SELECT COUNT(*) FROM " + 
-                                DatabaseHelper.TABLE_MEDICATION_INTAKE + " WHERE " +
-                                "user_id = ? AND medication_name = ? AND planned_time = ?";
-                        
-                        Cursor checkCursor = db.rawQuery(checkDuplicateSql, 
-                                new String[]{currentUserId, medicationName, String.valueOf(plannedTime)});
-                        
-                        if (checkCursor != null && checkCursor.moveToFirst()) {
-                            int duplicateCount = checkCursor.getInt(0);
-                            
-                            if (duplicateCount > 0) {
-                                // 有重复，删除无效记录
-                                db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE, 
-                                        "id = ?", new String[]{String.valueOf(id)});
-                                Log.d(TAG, "删除重复的无效记录: " + medicationName);
-                            } else {
-                                // 没有重复，更新userId
-                                ContentValues values = new ContentValues();
-                                values.put(DatabaseHelper.COLUMN_USER_ID, currentUserId);
-                                
-                                db.update(DatabaseHelper.TABLE_MEDICATION_INTAKE, 
-                                        values, "id = ?", new String[]{String.valueOf(id)});
-                                Log.d(TAG, "修复无效记录的userId: " + medicationName);
-                            }
-                        }
-                        
-                        if (checkCursor != null) {
-                            checkCursor.close();
-                        }
-                        
-                    } while (cursor.moveToNext());
-                }
-                
-                if (cursor != null) {
-                    cursor.close();
-                }
-                
-                Log.d(TAG, "用户数据验证完成");
-                
-            } catch (Exception e) {
-                Log.e(TAG, "验证用户数据失败", e);
-            } finally {
-                db.close();
+
+    /**
+     * 无主记录迁移的结果
+     */
+    public static final class OrphanMigration {
+        /** 与当前用户记录重复而删除的条数 */
+        public int duplicatesOfUser;
+        /** 无主记录之间重复而删除的条数 */
+        public int duplicatesAmongOrphans;
+        /** 归属当前用户的条数 */
+        public int adopted;
+        /** 三条语句各自的耗时（纳秒） */
+        public final long[] stepNanos = new long[3];
+
+        @Override
+        public String toString() {
+            return "删除重复 " + (duplicatesOfUser + duplicatesAmongOrphans) + " 条, 归属当前用户 " + adopted + " 条, 耗时 "
+                    + stepNanos[0] / 1000000 + "/" + stepNanos[1] / 1000000 + "/" + stepNanos[2] / 1000000 + " ms";
+        }
+    }
+
+    private static int executeUpdateDelete(SupportSQLiteDatabase db, String sql, String... args) {
+        SupportSQLiteStatement statement = db.compileStatement(sql);
+        try {
+            for (int i = 0; i < args.length; i++) {
+                statement.bindString(i + 1, args[i]);
             }
+            return statement.executeUpdateDelete();
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
         }
+    }
 }
\ No newline at end of file
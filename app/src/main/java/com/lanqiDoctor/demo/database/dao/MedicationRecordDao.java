@@ -2,10 +2,14 @@ package com.lanqiDoctor.demo.database.dao;
 
 import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.dao.MedicationRecordRoomDao;
 import com.lanqiDoctor.demo.database.DatabaseHelper;
+import com.lanqiDoctor.demo.database.SyncMerge;
 import com.lanqiDoctor.demo.database.entity.MedicationRecord;
 import com.lanqiDoctor.demo.manager.UserStateManager; // 修改为正确的包路径
 
@@ -19,12 +23,54 @@ import java.util.List;
  * @version 1.0
  */
 public class MedicationRecordDao {
+
+    private static final String SYNC_UPDATE_SQL = "UPDATE " + DatabaseHelper.TABLE_MEDICATION_RECORD + " SET " +
+            DatabaseHelper.COLUMN_USER_ID + " = ?, " +
+            DatabaseHelper.COLUMN_DOSAGE + " = COALESCE(?, " + DatabaseHelper.COLUMN_DOSAGE + "), " +
+            DatabaseHelper.COLUMN_FREQUENCY + " = COALESCE(?, " + DatabaseHelper.COLUMN_FREQUENCY + "), " +
+            DatabaseHelper.COLUMN_UNIT + " = COALESCE(?, " + DatabaseHelper.COLUMN_UNIT + "), " +
+            DatabaseHelper.COLUMN_START_DATE + " = COALESCE(?, " + DatabaseHelper.COLUMN_START_DATE + "), " +
+            DatabaseHelper.COLUMN_END_DATE + " = COALESCE(?, " + DatabaseHelper.COLUMN_END_DATE + "), " +
+            DatabaseHelper.COLUMN_REMINDER_TIMES + " = COALESCE(?, " + DatabaseHelper.COLUMN_REMINDER_TIMES + "), " +
+            DatabaseHelper.COLUMN_NOTES + " = COALESCE(?, " + DatabaseHelper.COLUMN_NOTES + "), " +
+            DatabaseHelper.COLUMN_STATUS + " = COALESCE(?, " + DatabaseHelper.COLUMN_STATUS + "), " +
+            DatabaseHelper.COLUMN_CREATE_TIME + " = ?, " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + " = ?, " +
+            DatabaseHelper.COLUMN_VERSION + " = ?, " +
+            DatabaseHelper.COLUMN_LAST_WRITER + " = ? WHERE " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " + DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+            SyncMerge.REMOTE_NEWER_WHERE;
+
+    private static final String SYNC_INSERT_SQL = "INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_MEDICATION_RECORD + " (" +
+            DatabaseHelper.COLUMN_USER_ID + ", " +
+            DatabaseHelper.COLUMN_DOSAGE + ", " +
+            DatabaseHelper.COLUMN_FREQUENCY + ", " +
+            DatabaseHelper.COLUMN_UNIT + ", " +
+            DatabaseHelper.COLUMN_START_DATE + ", " +
+            DatabaseHelper.COLUMN_END_DATE + ", " +
+            DatabaseHelper.COLUMN_REMINDER_TIMES + ", " +
+            DatabaseHelper.COLUMN_NOTES + ", " +
+            DatabaseHelper.COLUMN_STATUS + ", " +
+            DatabaseHelper.COLUMN_CREATE_TIME + ", " +
+            DatabaseHelper.COLUMN_UPDATE_TIME + ", " +
+            DatabaseHelper.COLUMN_VERSION + ", " +
+            DatabaseHelper.COLUMN_LAST_WRITER + ", " +
+            DatabaseHelper.COLUMN_MEDICATION_NAME +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, COALESCE(?, 1), ?, ?, ?, ?, ?)";
+
+    /** 本地修改后版本号加 1、写入方改为本机 */
+    private static final String STAMP_SQL = "UPDATE " + DatabaseHelper.TABLE_MEDICATION_RECORD + " SET " +
+            DatabaseHelper.COLUMN_VERSION + " = " + DatabaseHelper.COLUMN_VERSION + " + 1, " +
+            DatabaseHelper.COLUMN_LAST_WRITER + " = ? WHERE " + DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?";
+
     private Context context; // 添加context成员变量
     private DatabaseHelper dbHelper;//用于获取数据库连接
+    private MedicationRecordRoomDao roomDao;
 
     public MedicationRecordDao(Context context) {
         this.context = context; // 保存context
-        this.dbHelper = new DatabaseHelper(context);
+        this.dbHelper = DatabaseHelper.getInstance(context);
+        this.roomDao = dbHelper.getAppDatabase().medicationRecordDao();
     }
 
     // ==================== 基于名称的CRUD方法 ====================
@@ -33,7 +79,7 @@ public class MedicationRecordDao {
      * 根据药物名称插入或更新用药记录（云同步专用）
      */
     public long insertOrUpdateByName(MedicationRecord record) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
         long result = -1;
         try {
             // 确保userId不为空，如果为空则尝试从UserStateManager获取
@@ -58,50 +104,175 @@ public class MedicationRecordDao {
             android.util.Log.d("MedicationRecordDao", "准备插入/更新药物: " + record.getMedicationName() + ", userId: " + record.getUserId());
             
             // 先尝试更新
-            int updatedRows = db.update(DatabaseHelper.TABLE_MEDICATION_RECORD, values,
+            int updatedRows = db.update(DatabaseHelper.TABLE_MEDICATION_RECORD, SQLiteDatabase.CONFLICT_NONE, values,
                     DatabaseHelper.COLUMN_MEDICATION_NAME + " = ? AND " + DatabaseHelper.COLUMN_USER_ID + " = ?",
                     new String[]{record.getMedicationName(), record.getUserId()});
 
             if (updatedRows == 0) {
                 // 如果没有更新任何行，说明记录不存在，执行插入
-                result = db.insert(DatabaseHelper.TABLE_MEDICATION_RECORD, null, values);
+                result = db.insert(DatabaseHelper.TABLE_MEDICATION_RECORD, SQLiteDatabase.CONFLICT_NONE, values);
+                if (result != -1) {
+                    stampLocalWrite(db, record.getMedicationName());
+                }
                 android.util.Log.d("MedicationRecordDao", "插入结果: " + result);
             } else {
                 // 更新成功，返回受影响的行数
                 result = updatedRows;
+                stampLocalWrite(db, record.getMedicationName());
                 android.util.Log.d("MedicationRecordDao", "更新结果: " + result);
             }
         } catch (Exception e) {
             android.util.Log.e("MedicationRecordDao", "插入/更新失败: " + e.getMessage(), e);
             e.printStackTrace();
+        }
+        return result;
+    }
+
+    /**
+     * 批量写入一页云端下发的用药记录（同步专用）
+     *
+     * 整页在一个事务中完成，先按 (药物名称, userId) UPDATE，未命中再 INSERT，两条语句都预编译复用；
+     * 与 insertOrUpdateByName 一致，服务器未下发的字段保留本地值；
+     * UPDATE 只在云端版本按 SyncMerge 规则更晚时生效，本地修改过、尚未上传的记录不会被旧版本覆盖
+     */
+    public SyncBatchResult applySyncBatch(List<MedicationRecord> records) {
+        SyncBatchResult result = new SyncBatchResult();
+        if (records == null || records.isEmpty()) {
+            return result;
+        }
+
+        String fallbackUserId = UserStateManager.getInstance(context).getUserId();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteStatement updateStatement = null;
+        SupportSQLiteStatement insertStatement = null;
+
+        db.beginTransaction();
+        try {
+            updateStatement = db.compileStatement(SYNC_UPDATE_SQL);
+            insertStatement = db.compileStatement(SYNC_INSERT_SQL);
+
+            for (MedicationRecord record : records) {
+                if (record.getUserId() == null || record.getUserId().isEmpty()) {
+                    record.setUserId(fallbackUserId);
+                }
+                if (record.getUserId() == null || record.getUserId().isEmpty()
+                        || record.getMedicationName() == null) {
+                    result.addSkipped();
+                    continue;
+                }
+
+                bindMedicationRecord(updateStatement, record);
+                updateStatement.bindString(14, record.getMedicationName());
+                updateStatement.bindString(15, record.getUserId());
+                bindRemoteVersion(updateStatement, record, 16);
+                if (updateStatement.executeUpdateDelete() > 0) {
+                    result.addUpdated();
+                    continue;
+                }
+
+                bindMedicationRecord(insertStatement, record);
+                insertStatement.bindString(14, record.getMedicationName());
+                if (insertStatement.executeInsert() != -1) {
+                    result.addInserted();
+                } else {
+                    // 本地版本相同或更晚，或同名药物属于其他用户、缺少必填字段
+                    result.addSkipped();
+                }
+            }
+
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            android.util.Log.e("MedicationRecordDao", "批量写入同步用药记录失败，整批回滚", e);
+            result.setFailed();
         } finally {
-            db.close();
+            if (updateStatement != null) {
+                DatabaseHelper.closeQuietly(updateStatement);
+            }
+            if (insertStatement != null) {
+                DatabaseHelper.closeQuietly(insertStatement);
+            }
+            db.endTransaction();
         }
+
+        android.util.Log.d("MedicationRecordDao", "同步批量写入用药记录: " + result);
         return result;
     }
 
+    /**
+     * 按 SYNC_UPDATE_SQL / SYNC_INSERT_SQL 共同的前 13 个参数绑定
+     */
+    private void bindMedicationRecord(SupportSQLiteStatement statement, MedicationRecord record) {
+        statement.clearBindings();
+        statement.bindString(1, record.getUserId());
+        if (record.getDosage() != null) {
+            statement.bindString(2, record.getDosage());
+        }
+        if (record.getFrequency() != null) {
+            statement.bindString(3, record.getFrequency());
+        }
+        if (record.getUnit() != null) {
+            statement.bindString(4, record.getUnit());
+        }
+        if (record.getStartDate() != null) {
+            statement.bindLong(5, record.getStartDate());
+        }
+        if (record.getEndDate() != null) {
+            statement.bindLong(6, record.getEndDate());
+        }
+        if (record.getReminderTimes() != null) {
+            statement.bindString(7, record.getReminderTimes());
+        }
+        if (record.getNotes() != null) {
+            statement.bindString(8, record.getNotes());
+        }
+        if (record.getStatus() != null) {
+            statement.bindLong(9, record.getStatus());
+        }
+        long now = System.currentTimeMillis();
+        statement.bindLong(10, record.getCreateTime() != null ? record.getCreateTime() : now);
+        statement.bindLong(11, record.getUpdateTime() != null ? record.getUpdateTime() : now);
+        statement.bindLong(12, record.getVersion() != null ? record.getVersion() : 0L);
+        if (record.getLastWriter() != null) {
+            statement.bindString(13, record.getLastWriter());
+        }
+    }
+
+    /**
+     * 从 start 开始按 SyncMerge.REMOTE_NEWER_WHERE 绑定云端版本，与 bindMedicationRecord 取值一致
+     */
+    private void bindRemoteVersion(SupportSQLiteStatement statement, MedicationRecord record, int start) {
+        long updateTime = record.getUpdateTime() != null ? record.getUpdateTime() : System.currentTimeMillis();
+        long version = record.getVersion() != null ? record.getVersion() : 0L;
+        statement.bindLong(start, updateTime);
+        statement.bindLong(start + 1, updateTime);
+        statement.bindLong(start + 2, version);
+        statement.bindLong(start + 3, version);
+        statement.bindString(start + 4, record.getLastWriter() != null ? record.getLastWriter() : "");
+    }
+
+    /**
+     * 本地修改了用药记录：版本号加 1、写入方改为本机
+     */
+    private void stampLocalWrite(SupportSQLiteDatabase db, String medicationName) {
+        SupportSQLiteStatement statement = db.compileStatement(STAMP_SQL);
+        try {
+            statement.bindString(1, dbHelper.getWriterId());
+            statement.bindString(2, medicationName);
+            statement.executeUpdateDelete();
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+        }
+    }
+
     /**
      * 根据药物名称查询用药记录
      */
     public MedicationRecord findByName(String medicationName) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         MedicationRecord record = null;
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_RECORD, null,
-                    DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
-                    new String[]{medicationName}, null, null, null);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                record = cursorToMedicationRecord(cursor);
-            }
+            record = roomDao.findByName(medicationName);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return record;
     }
@@ -110,18 +281,19 @@ public class MedicationRecordDao {
      * 根据药物名称更新用药记录
      */
     public int updateByName(MedicationRecord record) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
         int rows = 0;
         try {
             record.setUpdateTime(System.currentTimeMillis());
             ContentValues values = medicationRecordToContentValues(record);
-            rows = db.update(DatabaseHelper.TABLE_MEDICATION_RECORD, values,
+            rows = db.update(DatabaseHelper.TABLE_MEDICATION_RECORD, SQLiteDatabase.CONFLICT_NONE, values,
                     DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
                     new String[]{record.getMedicationName()});
+            if (rows > 0) {
+                stampLocalWrite(db, record.getMedicationName());
+            }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return rows;
     }
@@ -130,22 +302,30 @@ public class MedicationRecordDao {
      * 根据药物名称删除用药记录
      */
     public int deleteByName(String medicationName) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
         int rows = 0;
+        db.beginTransaction();
         try {
-            // 先删除相关的服药记录
-            db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE,
-                    DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
-                    new String[]{medicationName});
+            // 先删除相关的服药记录，同时扣减服药日汇总、登记删除墓碑
+            String intakeWhere = DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?";
+            String[] intakeArgs = {medicationName};
+            IntakeDailySummaryDao.Delta delta = new IntakeDailySummaryDao.Delta();
+            delta.removeMatching(db, intakeWhere, intakeArgs);
+            IntakeTombstoneDao.recordMatching(db, dbHelper.getWriterId(), System.currentTimeMillis(),
+                    intakeWhere, intakeArgs);
+            db.delete(DatabaseHelper.TABLE_MEDICATION_INTAKE, intakeWhere, intakeArgs);
+            delta.apply(db);
 
             // 再删除用药记录
             rows = db.delete(DatabaseHelper.TABLE_MEDICATION_RECORD,
                     DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
                     new String[]{medicationName});
+            db.setTransactionSuccessful();
         } catch (Exception e) {
             e.printStackTrace();
+            rows = 0;
         } finally {
-            db.close();
+            db.endTransaction();
         }
         return rows;
     }
@@ -154,20 +334,21 @@ public class MedicationRecordDao {
      * 根据药物名称更新状态
      */
     public int updateStatusByName(String medicationName, int status) {
-        SQLiteDatabase db = dbHelper.getWritableDatabase();
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
         int rows = 0;
         try {
             ContentValues values = new ContentValues();
             values.put(DatabaseHelper.COLUMN_STATUS, status);
             values.put(DatabaseHelper.COLUMN_UPDATE_TIME, System.currentTimeMillis());
 
-            rows = db.update(DatabaseHelper.TABLE_MEDICATION_RECORD, values,
+            rows = db.update(DatabaseHelper.TABLE_MEDICATION_RECORD, SQLiteDatabase.CONFLICT_NONE, values,
                     DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
                     new String[]{medicationName});
+            if (rows > 0) {
+                stampLocalWrite(db, medicationName);
+            }
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            db.close();
         }
         return rows;
     }
@@ -176,25 +357,11 @@ public class MedicationRecordDao {
      * 检查药物名称是否已存在
      */
     public boolean existsByName(String medicationName) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         boolean exists = false;
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_RECORD,
-                    new String[]{"COUNT(*)"},
-                    DatabaseHelper.COLUMN_MEDICATION_NAME + " = ?",
-                    new String[]{medicationName}, null, null, null);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                exists = cursor.getInt(0) > 0;
-            }
+            exists = roomDao.countByName(medicationName) > 0;
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return exists;
     }
@@ -241,24 +408,11 @@ public class MedicationRecordDao {
      */
     @Deprecated
     public MedicationRecord findById(long id) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         MedicationRecord record = null;
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_RECORD, null,
-                    DatabaseHelper.COLUMN_ID + " = ?",
-                    new String[]{String.valueOf(id)}, null, null, null);
-
-            if (cursor != null && cursor.moveToFirst()) {
-                record = cursorToMedicationRecord(cursor);
-            }
+            record = roomDao.findById(id);
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return record;
     }
@@ -275,28 +429,11 @@ public class MedicationRecordDao {
      * 根据状态和用户ID查询用药记录
      */
     public List<MedicationRecord> findByStatusAndUserId(int status, String userId) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<MedicationRecord> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_RECORD, null,
-                    DatabaseHelper.COLUMN_STATUS + " = ? AND " + DatabaseHelper.COLUMN_USER_ID + " = ?",
-                    new String[]{String.valueOf(status), userId},
-                    null, null, DatabaseHelper.COLUMN_CREATE_TIME + " DESC");
-
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    MedicationRecord record = cursorToMedicationRecord(cursor);
-                    list.add(record);
-                } while (cursor.moveToNext());
-            }
+            list.addAll(roomDao.findByStatusAndUserId(status, userId));
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return list;
     }
@@ -305,26 +442,11 @@ public class MedicationRecordDao {
      * 查询所有用药记录
      */
     public List<MedicationRecord> findAll() {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<MedicationRecord> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_RECORD, null, null, null,
-                    null, null, DatabaseHelper.COLUMN_CREATE_TIME + " DESC");
-
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    MedicationRecord record = cursorToMedicationRecord(cursor);
-                    list.add(record);
-                } while (cursor.moveToNext());
-            }
+            list.addAll(roomDao.findAll());
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return list;
     }
@@ -340,29 +462,11 @@ public class MedicationRecordDao {
      * 根据状态查询用药记录（不区分用户）
      */
     public List<MedicationRecord> findByStatus(int status) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<MedicationRecord> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_RECORD, 
-                    null,
-                    DatabaseHelper.COLUMN_STATUS + " = ?",
-                    new String[]{String.valueOf(status)},
-                    null, null, DatabaseHelper.COLUMN_CREATE_TIME + " DESC");
-            
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    MedicationRecord record = cursorToMedicationRecord(cursor);
-                    list.add(record);
-                } while (cursor.moveToNext());
-            }
+            list.addAll(roomDao.findByStatus(status));
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return list;
     }
@@ -371,28 +475,11 @@ public class MedicationRecordDao {
      * 根据药品名称模糊查询
      */
     public List<MedicationRecord> findByNameLike(String name) {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         List<MedicationRecord> list = new ArrayList<>();
-        Cursor cursor = null;
         try {
-            cursor = db.query(DatabaseHelper.TABLE_MEDICATION_RECORD, null,
-                    DatabaseHelper.COLUMN_MEDICATION_NAME + " LIKE ?",
-                    new String[]{"%" + name + "%"},
-                    null, null, DatabaseHelper.COLUMN_CREATE_TIME + " DESC");
-
-            if (cursor != null && cursor.moveToFirst()) {
-                do {
-                    MedicationRecord record = cursorToMedicationRecord(cursor);
-                    list.add(record);
-                } while (cursor.moveToNext());
-            }
+            list.addAll(roomDao.findByNameLike(name));
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return list;
     }
@@ -401,21 +488,11 @@ public class MedicationRecordDao {
      * 获取记录总数
      */
     public int getCount() {
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
         int count = 0;
-        Cursor cursor = null;
         try {
-            cursor = db.rawQuery("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_MEDICATION_RECORD, null);
-            if (cursor != null && cursor.moveToFirst()) {
-                count = cursor.getInt(0);
-            }
+            count = roomDao.count();
         } catch (Exception e) {
             e.printStackTrace();
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-            db.close();
         }
         return count;
     }
@@ -460,67 +537,4 @@ public class MedicationRecordDao {
         values.put(DatabaseHelper.COLUMN_UPDATE_TIME, record.getUpdateTime());
         return values;
     }
-
-    /**
-     * 将Cursor转换为MedicationRecord对象
-     */
-    private MedicationRecord cursorToMedicationRecord(Cursor cursor) {
-        MedicationRecord record = new MedicationRecord();
-        record.setId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID)));
-
-        int nameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MEDICATION_NAME);
-        if (!cursor.isNull(nameIndex)) {
-            record.setMedicationName(cursor.getString(nameIndex));
-        }
-
-        int dosageIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DOSAGE);
-        if (!cursor.isNull(dosageIndex)) {
-            record.setDosage(cursor.getString(dosageIndex));
-        }
-
-        int frequencyIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_FREQUENCY);
-        if (!cursor.isNull(frequencyIndex)) {
-            record.setFrequency(cursor.getString(frequencyIndex));
-        }
-
-        int unitIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UNIT);
-        if (!cursor.isNull(unitIndex)) {
-            record.setUnit(cursor.getString(unitIndex));
-        }
-
-        int startDateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_START_DATE);
-        if (!cursor.isNull(startDateIndex)) {
-            record.setStartDate(cursor.getLong(startDateIndex));
-        }
-
-        int endDateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_END_DATE);
-        if (!cursor.isNull(endDateIndex)) {
-            record.setEndDate(cursor.getLong(endDateIndex));
-        }
-
-        int reminderTimesIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_REMINDER_TIMES);
-        if (!cursor.isNull(reminderTimesIndex)) {
-            record.setReminderTimes(cursor.getString(reminderTimesIndex));
-        }
-
-        int notesIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTES);
-        if (!cursor.isNull(notesIndex)) {
-            record.setNotes(cursor.getString(notesIndex));
-        }
-
-        int statusIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_STATUS);
-        if (!cursor.isNull(statusIndex)) {
-            record.setStatus(cursor.getInt(statusIndex));
-        }
-
-        int userIdIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_USER_ID);
-        if (userIdIndex != -1 && !cursor.isNull(userIdIndex)) {
-            record.setUserId(cursor.getString(userIdIndex));
-        }
-
-        record.setCreateTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME)));
-        record.setUpdateTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UPDATE_TIME)));
-
-        return record;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,205 @@
+package com.lanqiDoctor.demo.database.dao;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.DatabaseHelper;
+import com.lanqiDoctor.demo.database.entity.OutboxRequest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 待发送请求数据访问对象
+ *
+ * 入队时在同一事务中删除同一用户合并键相同的旧请求，再插入新请求，
+ * 因此连续多次修改同一设置只会发送最后一次；重放按自增ID顺序进行
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public class OutboxDao {
+
+    private static final String TAG = "OutboxDao";
+
+    private static final String RECORD_FAILURE_SQL = "UPDATE " + DatabaseHelper.TABLE_HTTP_OUTBOX + " SET " +
+            DatabaseHelper.COLUMN_ATTEMPTS + " = " + DatabaseHelper.COLUMN_ATTEMPTS + " + 1, " +
+            DatabaseHelper.COLUMN_LAST_ERROR + " = ? WHERE " + DatabaseHelper.COLUMN_ID + " = ?";
+
+    private DatabaseHelper dbHelper;
+
+    public OutboxDao(Context context) {
+        this.dbHelper = DatabaseHelper.getInstance(context);
+    }
+
+    /**
+     * 写入一条待发送请求，合并键相同的旧请求被替换
+     *
+     * @return 新请求的ID，失败返回 -1
+     */
+    public long enqueue(OutboxRequest request) {
+        SupportSQLiteDatabase db = dbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int collapsed = 0;
+            if (request.getCollapseKey() != null) {
+                collapsed = db.delete(DatabaseHelper.TABLE_HTTP_OUTBOX,
+                        DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_COLLAPSE_KEY + " = ?",
+                        new String[]{request.getUserId(), request.getCollapseKey()});
+            }
+
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_USER_ID, request.getUserId());
+            values.put(DatabaseHelper.COLUMN_KIND, request.getKind());
+            values.put(DatabaseHelper.COLUMN_COLLAPSE_KEY, request.getCollapseKey());
+            values.put(DatabaseHelper.COLUMN_PAYLOAD, request.getPayload());
+            values.put(DatabaseHelper.COLUMN_ATTEMPTS, 0);
+            values.put(DatabaseHelper.COLUMN_CREATE_TIME, request.getCreateTime());
+            long id = db.insert(DatabaseHelper.TABLE_HTTP_OUTBOX, SQLiteDatabase.CONFLICT_NONE, values);
+            db.setTransactionSuccessful();
+
+            request.setId(id);
+            Log.d(TAG, "请求入队: " + request + (collapsed > 0 ? "，替换旧请求 " + collapsed + " 条" : ""));
+            return id;
+        } catch (Exception e) {
+            Log.e(TAG, "请求入队失败", e);
+            return -1;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 按ID升序读取一页待发送请求
+     *
+     * @param afterId 上一页最后一条请求的ID，0 表示从头开始
+     */
+    public List<OutboxRequest> findPage(String userId, long afterId, int pageSize) {
+        List<OutboxRequest> list = new ArrayList<>();
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_HTTP_OUTBOX,
+                    new String[]{
+                            DatabaseHelper.COLUMN_ID,
+                            DatabaseHelper.COLUMN_KIND,
+                            DatabaseHelper.COLUMN_COLLAPSE_KEY,
+                            DatabaseHelper.COLUMN_PAYLOAD,
+                            DatabaseHelper.COLUMN_ATTEMPTS,
+                            DatabaseHelper.COLUMN_LAST_ERROR,
+                            DatabaseHelper.COLUMN_CREATE_TIME
+                    },
+                    DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_ID + " > ?",
+                    new String[]{String.valueOf(userId), String.valueOf(afterId)},
+                    null, null, DatabaseHelper.COLUMN_ID + " ASC", String.valueOf(pageSize));
+            while (cursor.moveToNext()) {
+                OutboxRequest request = new OutboxRequest();
+                request.setId(cursor.getLong(0));
+                request.setUserId(userId);
+                request.setKind(cursor.getString(1));
+                request.setCollapseKey(cursor.isNull(2) ? null : cursor.getString(2));
+                request.setPayload(cursor.isNull(3) ? null : cursor.getString(3));
+                request.setAttempts(cursor.getInt(4));
+                request.setLastError(cursor.isNull(5) ? null : cursor.getString(5));
+                request.setCreateTime(cursor.getLong(6));
+                list.add(request);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "查询待发送请求失败", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return list;
+    }
+
+    /**
+     * 获取用户某类待发送请求的请求数据，用于避免本地已生效、服务器尚未确认的修改被服务器数据覆盖
+     */
+    public Set<String> findPayloads(String userId, String kind) {
+        Set<String> payloads = new HashSet<>();
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = DatabaseHelper.query(db, DatabaseHelper.TABLE_HTTP_OUTBOX,
+                    new String[]{DatabaseHelper.COLUMN_PAYLOAD},
+                    DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_KIND + " = ?",
+                    new String[]{String.valueOf(userId), kind},
+                    null, null, null);
+            while (cursor.moveToNext()) {
+                if (!cursor.isNull(0)) {
+                    payloads.add(cursor.getString(0));
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "查询待发送请求数据失败", e);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return payloads;
+    }
+
+    /**
+     * 服务器已确认或放弃发送，移除请求
+     */
+    public void delete(long id) {
+        try {
+            dbHelper.getWritableDatabase().delete(DatabaseHelper.TABLE_HTTP_OUTBOX,
+                    DatabaseHelper.COLUMN_ID + " = ?", new Object[]{id});
+        } catch (Exception e) {
+            Log.e(TAG, "移除待发送请求失败", e);
+        }
+    }
+
+    /**
+     * 记录一次服务器错误
+     */
+    public void recordFailure(long id, String error) {
+        SupportSQLiteStatement statement = null;
+        try {
+            statement = dbHelper.getWritableDatabase().compileStatement(RECORD_FAILURE_SQL);
+            if (error != null) {
+                statement.bindString(1, error);
+            } else {
+                statement.bindNull(1);
+            }
+            statement.bindLong(2, id);
+            statement.executeUpdateDelete();
+        } catch (Exception e) {
+            Log.e(TAG, "记录请求失败次数失败", e);
+        } finally {
+            DatabaseHelper.closeQuietly(statement);
+        }
+    }
+
+    /**
+     * 获取用户待发送的请求数
+     */
+    public int getPendingCount(String userId) {
+        SupportSQLiteDatabase db = dbHelper.getReadableDatabase();
+        Cursor cursor = null;
+        try {
+            cursor = db.query("SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_HTTP_OUTBOX + " WHERE " +
+                    DatabaseHelper.COLUMN_USER_ID + " = ?", new String[]{String.valueOf(userId)});
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } catch (Exception e) {
+            Log.e(TAG, "查询待发送请求数失败", e);
+            return 0;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.lanqiDoctor.demo.database.dao;
+
+/**
+ * 云同步批量写入结果
+ * 一页服务器数据在单个事务中写入后，统计插入、更新、删除和跳过的行数
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public class SyncBatchResult {
+
+    private int inserted;
+    private int updated;
+    private int deleted;
+    private int skipped;
+    private boolean success = true;
+
+    void addInserted() {
+        inserted++;
+    }
+
+    void addUpdated() {
+        updated++;
+    }
+
+    void addDeleted() {
+        deleted++;
+    }
+
+    void addSkipped() {
+        skipped++;
+    }
+
+    void setFailed() {
+        success = false;
+        inserted = 0;
+        updated = 0;
+        deleted = 0;
+    }
+
+    public int getInserted() { return inserted; }
+
+    public int getUpdated() { return updated; }
+
+    public int getDeleted() { return deleted; }
+
+    public int getSkipped() { return skipped; }
+
+    /**
+     * 实际写入的行数（插入 + 更新 + 删除）
+     */
+    public int getSavedCount() { return inserted + updated + deleted; }
+
+    /**
+     * 事务是否提交成功，失败时整批回滚
+     */
+    public boolean isSuccess() { return success; }
+
+    @Override
+    public String toString() {
+        return "SyncBatchResult{" +
+                "inserted=" + inserted +
+                ", updated=" + updated +
+                ", deleted=" + deleted +
+                ", skipped=" + skipped +
+                ", success=" + success +
+                '}';
+    }
+}
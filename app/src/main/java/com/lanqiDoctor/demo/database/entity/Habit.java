@@ -1,35 +1,65 @@
 package com.lanqiDoctor.demo.database.entity;
 
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
 /**
  * 习惯实体类
  * 
  * @author 蓝岐医童开发团队
  * @version 1.0
  */
+@Entity(tableName = "habits",
+        indices = {@Index(value = {"user_id", "create_time"}, name = "idx_habits_user_create_time")})
 public class Habit {
+    @PrimaryKey(autoGenerate = true)
     private Long id;                    // 习惯ID
+    @NonNull
+    @ColumnInfo(name = "user_id")
     private String userId;              // 用户ID
+    @NonNull
+    @ColumnInfo(name = "habit_name")
     private String habitName;           // 习惯名称
     private String description;         // 习惯描述
     private String frequency;           // 频次类型：DAILY(每日), HOURLY(每小时), WEEKLY(每周), CUSTOM(自定义)
+    @ColumnInfo(name = "frequency_value")
     private Integer frequencyValue;     // 频次值（如每2小时一次，则为2）
+    @ColumnInfo(name = "frequency_unit")
     private String frequencyUnit;       // 频次单位：HOUR(小时), DAY(天), WEEK(周)
     private Integer duration;           // 持续时长（分钟）
+    @ColumnInfo(name = "cycle_days")
     private Integer cycleDays;          // 习惯周期（天数），如21天、30天等
+    @ColumnInfo(name = "reminder_times")
     private String reminderTimes;       // 提醒时间（JSON格式存储多个时间点）
+    @ColumnInfo(name = "block_times")
     private String blockTimes;          // 屏蔽时间段（JSON格式，如午睡、晚睡时间）
+    @ColumnInfo(name = "is_active", defaultValue = "1")
     private Boolean isActive;           // 是否启用
+    @ColumnInfo(name = "enable_notification", defaultValue = "1")
     private Boolean enableNotification; // 是否启用通知提醒
+    @ColumnInfo(name = "enable_system_alarm", defaultValue = "0")
     private Boolean enableSystemAlarm;  // 是否启用系统闹钟
+    @ColumnInfo(name = "completed_days", defaultValue = "0")
     private Integer completedDays;      // 已坚持天数
+    @ColumnInfo(name = "total_check_ins", defaultValue = "0")
     private Integer totalCheckIns;      // 总打卡次数
+    @ColumnInfo(name = "start_date")
     private String startDate;           // 开始日期
+    @ColumnInfo(name = "end_date")
     private String endDate;             // 结束日期（根据周期计算）
     private String category;            // 习惯分类：HEALTH(健康), EXERCISE(运动), DIET(饮食), STUDY(学习), OTHER(其他)
     private Integer priority;           // 优先级：1-5
     private String notes;               // 备注
+    @ColumnInfo(defaultValue = "1")
     private Integer status;             // 状态：0-删除, 1-正常, 2-已完成, 3-已暂停
+    @NonNull
+    @ColumnInfo(name = "create_time")
     private Long createTime;            // 创建时间
+    @NonNull
+    @ColumnInfo(name = "update_time")
     private Long updateTime;            // 更新时间
 
     public Habit() {
@@ -1,26 +1,45 @@
 package com.lanqiDoctor.demo.database.entity;
 
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
 /**
  *    author : rrrrrzy
  *    github : https://github.com/rrrrrzy
  *    time   : 2025/6/19
  *    desc   : 健康信息实体类
  */
+@Entity(tableName = "health_info",
+        indices = {@Index(value = {"timestamp"}, name = "idx_health_info_timestamp")})
 public class HealthInfo {
+    @PrimaryKey(autoGenerate = true)
     private Long id;
+    @NonNull
     private Long timestamp; // 时间戳（精确到秒）
     private Integer age; // 年龄
     private Double height; // 身高（cm）
     private Double weight; // 体重（kg）
+    @ColumnInfo(name = "heart_rate")
     private Integer heartRate; // 心率（次/分钟）
+    @ColumnInfo(name = "systolic_pressure")
     private Double systolicPressure; // 收缩压（mmHg）
+    @ColumnInfo(name = "diastolic_pressure")
     private Double diastolicPressure; // 舒张压（mmHg）
+    @ColumnInfo(name = "blood_sugar")
     private Double bloodSugar; // 血糖（mmol/L）
     private String remarks; // 备注
+    @NonNull
+    @ColumnInfo(name = "create_time")
     private Long createTime; // 创建时间
+    @NonNull
+    @ColumnInfo(name = "update_time")
     private Long updateTime; // 更新时间
     
     private Integer steps; // 步数
+    @ColumnInfo(name = "sleep_duration")
     private Double sleepDuration; // 睡眠时长（小时）
     public HealthInfo() {
         this.createTime = System.currentTimeMillis();
@@ -0,0 +1,29 @@
+package com.lanqiDoctor.demo.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * 服药记录变更日志实体类
+ * 每条本地新增或修改过、尚未被服务器确认的服药记录对应一行，同一条记录多次修改只保留最新的序号
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+@Entity(tableName = "intake_change_journal")
+public class IntakeChangeJournal {
+    @NonNull
+    @PrimaryKey
+    @ColumnInfo(name = "record_id")
+    private Long recordId;              // 服药记录ID
+    @NonNull
+    private Long seq;                   // 变更序号，记录再次修改时递增
+
+    public Long getRecordId() { return recordId; }
+    public void setRecordId(Long recordId) { this.recordId = recordId; }
+
+    public Long getSeq() { return seq; }
+    public void setSeq(Long seq) { this.seq = seq; }
+}
@@ -0,0 +1,86 @@
+package com.lanqiDoctor.demo.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+/**
+ * 服药日汇总实体类
+ * 按 (用户, 日期) 预先统计的服药次数，供周/月依从性图表和家庭监护摘要使用
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+@Entity(tableName = "intake_daily_summary", primaryKeys = {"user_id", "day"})
+public class IntakeDailySummary {
+    @NonNull
+    @ColumnInfo(name = "user_id")
+    private String userId;
+    @NonNull
+    private Long day;                   // 当天本地零点时间戳
+    @ColumnInfo(name = "total_count", defaultValue = "0")
+    private int totalCount;             // 计划服药总次数
+    @ColumnInfo(name = "taken_count", defaultValue = "0")
+    private int takenCount;             // 已服用次数（状态1）
+    @ColumnInfo(name = "late_count", defaultValue = "0")
+    private int lateCount;              // 延迟服用次数（状态2）
+    @ColumnInfo(name = "missed_count", defaultValue = "0")
+    private int missedCount;            // 跳过次数（状态3）
+    @NonNull
+    @ColumnInfo(name = "update_time", defaultValue = "0")
+    private Long updateTime;            // 更新时间
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public Long getDay() { return day; }
+    public void setDay(Long day) { this.day = day; }
+
+    public int getTotalCount() { return totalCount; }
+    public void setTotalCount(int totalCount) { this.totalCount = totalCount; }
+
+    public int getTakenCount() { return takenCount; }
+    public void setTakenCount(int takenCount) { this.takenCount = takenCount; }
+
+    public int getLateCount() { return lateCount; }
+    public void setLateCount(int lateCount) { this.lateCount = lateCount; }
+
+    public int getMissedCount() { return missedCount; }
+    public void setMissedCount(int missedCount) { this.missedCount = missedCount; }
+
+    public Long getUpdateTime() { return updateTime; }
+    public void setUpdateTime(Long updateTime) { this.updateTime = updateTime; }
+
+    /**
+     * 尚未服用（状态0）的次数
+     */
+    public int getPendingCount() {
+        return Math.max(0, totalCount - takenCount - lateCount - missedCount);
+    }
+
+    /**
+     * 完成率：已服用次数 / 总次数
+     */
+    public float getCompletionRate() {
+        return totalCount > 0 ? (float) takenCount / totalCount : 0f;
+    }
+
+    /**
+     * 当天计划是否全部服用
+     */
+    public boolean isAllTaken() {
+        return totalCount > 0 && takenCount >= totalCount;
+    }
+
+    @Override
+    public String toString() {
+        return "IntakeDailySummary{" +
+                "userId='" + userId + '\'' +
+                ", day=" + day +
+                ", totalCount=" + totalCount +
+                ", takenCount=" + takenCount +
+                ", lateCount=" + lateCount +
+                ", missedCount=" + missedCount +
+                '}';
+    }
+}
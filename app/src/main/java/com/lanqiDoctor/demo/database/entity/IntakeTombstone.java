@@ -0,0 +1,57 @@
+package com.lanqiDoctor.demo.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+/**
+ * 服药记录删除墓碑实体类
+ * 服药记录被删除后保留其唯一键与删除时的版本，用于把删除同步到云端，
+ * 并阻止云端下发的旧版本把已删除的记录恢复回来
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+@Entity(tableName = "intake_tombstone",
+        primaryKeys = {"user_id", "medication_name", "planned_time"})
+public class IntakeTombstone {
+    @NonNull
+    @ColumnInfo(name = "user_id")
+    private String userId;
+    @NonNull
+    @ColumnInfo(name = "medication_name")
+    private String medicationName;      // 药品名称
+    @NonNull
+    @ColumnInfo(name = "planned_time")
+    private Long plannedTime;           // 计划服药时间
+    @NonNull
+    @ColumnInfo(name = "deleted_at")
+    private Long deletedAt;             // 删除时间，参与同步冲突比较
+    @NonNull
+    private Long version;               // 删除时的同步版本号
+    @ColumnInfo(name = "last_writer")
+    private String lastWriter;          // 执行删除的设备标识
+    @NonNull
+    private Integer pending;            // 是否待上传: 0-已同步, 1-待上传
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getMedicationName() { return medicationName; }
+    public void setMedicationName(String medicationName) { this.medicationName = medicationName; }
+
+    public Long getPlannedTime() { return plannedTime; }
+    public void setPlannedTime(Long plannedTime) { this.plannedTime = plannedTime; }
+
+    public Long getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(Long deletedAt) { this.deletedAt = deletedAt; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public String getLastWriter() { return lastWriter; }
+    public void setLastWriter(String lastWriter) { this.lastWriter = lastWriter; }
+
+    public Integer getPending() { return pending; }
+    public void setPending(Integer pending) { this.pending = pending; }
+}
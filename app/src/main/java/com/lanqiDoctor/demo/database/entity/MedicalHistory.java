@@ -1,25 +1,46 @@
 package com.lanqiDoctor.demo.database.entity;
 
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
 /**
  * 既往病史记录实体类
  * 
  * @author 蓝旗医生开发团队
  * @version 1.0
  */
+@Entity(tableName = "medical_history",
+        indices = {@Index(value = {"user_id", "create_time"}, name = "idx_medical_history_user_create_time")})
 public class MedicalHistory {
+    @NonNull
+    @ColumnInfo(name = "user_id")
     private String userId; // 用户ID
+    @PrimaryKey(autoGenerate = true)
     private Long id;
+    @NonNull
+    @ColumnInfo(name = "disease_name")
     private String diseaseName;         // 疾病名称
+    @ColumnInfo(name = "diagnosis_date")
     private String diagnosisDate;       // 诊断时间
     private String severity;            // 严重程度(轻度、中度、重度)
+    @ColumnInfo(name = "treatment_status")
     private String treatmentStatus;     // 治疗状况(治疗中、已治愈、慢性病等)
     private String hospital;            // 就诊医院
     private String doctor;              // 主治医生
     private String symptoms;            // 主要症状
     private String treatment;           // 治疗方案
     private String notes;               // 备注信息
+    @ColumnInfo(defaultValue = "1")
     private Integer status;             // 状态: 0-删除, 1-正常
+    @NonNull
+    @ColumnInfo(name = "create_time")
     private Long createTime;            // 创建时间
+    @NonNull
+    @ColumnInfo(name = "update_time")
     private Long updateTime;            // 更新时间
     
     // 构造函数
@@ -29,6 +50,7 @@ public class MedicalHistory {
         this.status = 1; // 默认正常状态
     }
     
+    @Ignore
     public MedicalHistory(String diseaseName, String diagnosisDate, String severity, String treatmentStatus) {
         this();
         this.diseaseName = diseaseName;
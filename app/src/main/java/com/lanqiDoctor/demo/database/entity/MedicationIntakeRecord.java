@@ -1,5 +1,12 @@
 package com.lanqiDoctor.demo.database.entity;
 
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
 /**
  * 服药记录实体类
  * 记录用户实际的服药情况
@@ -7,26 +14,57 @@ package com.lanqiDoctor.demo.database.entity;
  * @author 蓝岐医童开发团队
  * @version 1.0
  */
+@Entity(tableName = "medication_intake_record",
+        indices = {
+                @Index(value = {"user_id", "medication_name", "planned_time"}, name = "idx_intake_user_name_time", unique = true),
+                @Index(value = {"user_id", "planned_time", "status"}, name = "idx_intake_user_time_status"),
+                @Index(value = {"user_id", "planned_time"}, name = "idx_intake_user_time_id"),
+                @Index(value = {"user_id", "medication_id", "planned_time"}, name = "idx_intake_user_medication_id")
+        })
 public class MedicationIntakeRecord {
+    @NonNull
+    @ColumnInfo(name = "user_id")
     private String userId;
+    @PrimaryKey(autoGenerate = true)
     private Long id;
+    @ColumnInfo(name = "medication_id")
     private Long medicationId;          // 关联的用药记录ID
+    @NonNull
+    @ColumnInfo(name = "medication_name")
     private String medicationName;      // 药品名称(冗余字段，方便查询)
+    @NonNull
+    @ColumnInfo(name = "planned_time")
     private Long plannedTime;           // 计划服药时间
+    @ColumnInfo(name = "actual_time")
     private Long actualTime;            // 实际服药时间
+    @ColumnInfo(name = "actual_dosage")
     private String actualDosage;        // 实际服药剂量
+    @ColumnInfo(defaultValue = "0")
     private Integer status;             // 服药状态: 0-未服用, 1-已服用, 2-延迟服用, 3-跳过
     private String notes;               // 备注
+    @NonNull
+    @ColumnInfo(name = "create_time")
     private Long createTime;            // 创建时间
+    @NonNull
+    @ColumnInfo(name = "update_time")
     private Long updateTime;            // 更新时间
+    @NonNull
+    @ColumnInfo(defaultValue = "0")
+    private Long version;               // 同步版本号，本地每次修改加 1
+    @ColumnInfo(name = "last_writer")
+    private String lastWriter;          // 最后写入方的设备标识
+    @Ignore
+    private Boolean deleted;            // 同步专用：true 表示删除墓碑，不保存到本地表
     
     // 构造函数
     public MedicationIntakeRecord() {
         this.createTime = System.currentTimeMillis();
         this.updateTime = System.currentTimeMillis();
         this.status = 0; // 默认未服用
+        this.version = 0L;
     }
     
+    @Ignore
     public MedicationIntakeRecord(Long medicationId, String medicationName, Long plannedTime) {
         this();
         this.medicationId = medicationId;
@@ -73,6 +111,15 @@ public class MedicationIntakeRecord {
     
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public String getLastWriter() { return lastWriter; }
+    public void setLastWriter(String lastWriter) { this.lastWriter = lastWriter; }
+
+    public boolean isDeleted() { return deleted != null && deleted; }
+    public void setDeleted(Boolean deleted) { this.deleted = deleted; }
     /**
      * 判断是否按时服药
      */
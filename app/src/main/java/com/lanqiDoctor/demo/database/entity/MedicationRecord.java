@@ -1,33 +1,68 @@
 package com.lanqiDoctor.demo.database.entity;
 
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
 /**
  * 用药记录实体类
  * 
  * @author 蓝岐医童开发团队
  * @version 1.0
  */
+@Entity(tableName = "medication_record",
+        indices = {
+                @Index(value = {"medication_name"}, name = "idx_medication_name", unique = true),
+                @Index(value = {"user_id", "status"}, name = "idx_medication_user_status")
+        })
 public class MedicationRecord {
+    @NonNull
+    @ColumnInfo(name = "user_id")
     private String userId; // 新增字段
+    @PrimaryKey(autoGenerate = true)
     private Long id;
+    @NonNull
+    @ColumnInfo(name = "medication_name")
     private String medicationName;      // 药品名称
+    @NonNull
     private String dosage;              // 剂量
+    @NonNull
     private String frequency;           // 服药频率
+    @NonNull
     private String unit;                // 单位(片、ml等)
+    @ColumnInfo(name = "start_date")
     private Long startDate;             // 开始服药时间
+    @ColumnInfo(name = "end_date")
     private Long endDate;               // 结束服药时间
+    @ColumnInfo(name = "reminder_times")
     private String reminderTimes;       // 提醒时间(JSON格式存储多个时间)
     private String notes;               // 备注
+    @ColumnInfo(defaultValue = "1")
     private Integer status;             // 状态: 0-停用, 1-正在服用, 2-已完成
+    @NonNull
+    @ColumnInfo(name = "create_time")
     private Long createTime;            // 创建时间
+    @NonNull
+    @ColumnInfo(name = "update_time")
     private Long updateTime;            // 更新时间
+    @NonNull
+    @ColumnInfo(defaultValue = "0")
+    private Long version;               // 同步版本号，本地每次修改加 1
+    @ColumnInfo(name = "last_writer")
+    private String lastWriter;          // 最后写入方的设备标识
     
     // 构造函数
     public MedicationRecord() {
         this.createTime = System.currentTimeMillis();
         this.updateTime = System.currentTimeMillis();
         this.status = 1; // 默认正在服用
+        this.version = 0L;
     }
     
+    @Ignore
     public MedicationRecord(String medicationName, String dosage, String frequency, String unit) {
         this();
         this.medicationName = medicationName;
@@ -83,6 +118,13 @@ public class MedicationRecord {
     public void setUserId(String userId) {
         this.userId = userId;
     }
+
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public String getLastWriter() { return lastWriter; }
+    public void setLastWriter(String lastWriter) { this.lastWriter = lastWriter; }
+
     @Override
     public String toString() {
         return "MedicationRecord{" +
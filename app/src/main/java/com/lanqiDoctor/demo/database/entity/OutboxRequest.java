@@ -0,0 +1,78 @@
+package com.lanqiDoctor.demo.database.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * 待发送请求实体类
+ * 修改服务器数据的请求先写入该表再发送，服务器确认后删除；离线时保留，联网后按 id 顺序重放
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+@Entity(tableName = "http_outbox",
+        indices = {
+                @Index(value = {"user_id", "collapse_key"}, name = "idx_outbox_user_collapse")
+        })
+public class OutboxRequest {
+    @PrimaryKey(autoGenerate = true)
+    private Long id;                    // 自增ID，即重放顺序
+    @NonNull
+    @ColumnInfo(name = "user_id")
+    private String userId;              // 发起请求的用户
+    @NonNull
+    private String kind;                // 请求类型，见 OutboxManager.KIND_*
+    @ColumnInfo(name = "collapse_key")
+    private String collapseKey;         // 合并键，同一用户相同合并键的请求只保留最后一条
+    private String payload;             // 请求参数
+    @NonNull
+    @ColumnInfo(defaultValue = "0")
+    private Integer attempts;           // 服务器返回错误的次数（网络不可用不计入）
+    @ColumnInfo(name = "last_error")
+    private String lastError;           // 最近一次失败原因
+    @NonNull
+    @ColumnInfo(name = "create_time")
+    private Long createTime;            // 创建时间
+
+    public OutboxRequest() {
+        this.attempts = 0;
+        this.createTime = System.currentTimeMillis();
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+
+    public String getCollapseKey() { return collapseKey; }
+    public void setCollapseKey(String collapseKey) { this.collapseKey = collapseKey; }
+
+    public String getPayload() { return payload; }
+    public void setPayload(String payload) { this.payload = payload; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public Long getCreateTime() { return createTime; }
+    public void setCreateTime(Long createTime) { this.createTime = createTime; }
+
+    @Override
+    public String toString() {
+        return "OutboxRequest{" +
+                "id=" + id +
+                ", kind='" + kind + '\'' +
+                ", collapseKey='" + collapseKey + '\'' +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
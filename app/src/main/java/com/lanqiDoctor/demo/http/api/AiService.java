@@ -2,6 +2,7 @@ package com.lanqiDoctor.demo.http.api;
 
 import com.lanqiDoctor.demo.aop.Log;
 import com.lanqiDoctor.demo.config.AiConfig;
+import com.lanqiDoctor.demo.http.model.SharedHttpClient;
 import com.hjq.http.EasyHttp;
 import com.hjq.http.listener.OnHttpListener;
 import androidx.lifecycle.LifecycleOwner;
@@ -36,6 +37,19 @@ public class AiService {
         }
     }
     
+    /**
+     * 提前与当前模型的服务器建立连接，打开对话界面时调用，第一次提问不用再等待 DNS 和 TLS 握手
+     */
+    public static void preconnect() {
+        if (AiConfig.isLanXinModel()) {
+            SharedHttpClient.getInstance().preconnect(LanXin.BASE_URL);
+        } else if (AiConfig.isQwenModel()) {
+            SharedHttpClient.getInstance().preconnect(AiConfig.QWEN_API_BASE_URL);
+        } else {
+            SharedHttpClient.getInstance().preconnect(AiConfig.API_BASE_URL);
+        }
+    }
+
     /**
      * 发送聊天请求 - 同步模式
      */
@@ -89,10 +103,10 @@ public class AiService {
             
             if (AiConfig.isLanXinModel()) {
                 // 使用蓝心流式API
-                sendLanXinStreamRequest(messages, callback);
+                sendLanXinStreamRequest(messages, callback, lifecycleOwner);
             } else if (AiConfig.isQwenModel()) {
                 // 使用通义千问流式API
-                sendQwenStreamRequest(messages, callback);
+                sendQwenStreamRequest(messages, callback, lifecycleOwner);
             } else {
                 // 使用OpenAI流式API（如果需要）
                 sendOpenAIStreamRequest(messages, callback, lifecycleOwner);
@@ -136,7 +150,7 @@ public class AiService {
     /**
      * 发送蓝心流式API请求
      */
-    private static void sendLanXinStreamRequest(List<ChatMessage> messages, StreamResponseCallback callback) {
+    private static void sendLanXinStreamRequest(List<ChatMessage> messages, StreamResponseCallback callback, LifecycleOwner lifecycleOwner) {
         try {
             LanXinChatApi api = new LanXinChatApi()
                     .setModel(AiConfig.MODEL)
@@ -145,7 +159,7 @@ public class AiService {
                     .setTemperature(AiConfig.TEMPERATURE)
                     .setStream(true);
             
-            api.executeStreamChat(new LanXinChatApi.StreamChatCallback() {
+            api.executeStreamChat(lifecycleOwner, new LanXinChatApi.StreamChatCallback() {
                 @Override
                 public void onStreamMessage(LanXinChatApi.Bean deltaBean) {
                     if (callback != null) {
@@ -204,7 +218,7 @@ public class AiService {
     /**
      * 发送通义千问流式API请求
      */
-    private static void sendQwenStreamRequest(List<ChatMessage> messages, StreamResponseCallback callback) {
+    private static void sendQwenStreamRequest(List<ChatMessage> messages, StreamResponseCallback callback, LifecycleOwner lifecycleOwner) {
         try {
             QwenChatApi api = new QwenChatApi()
                     .setModel(AiConfig.getModelName())
@@ -213,7 +227,7 @@ public class AiService {
                     .setTemperature(AiConfig.TEMPERATURE)
                     .setStream(true);
             
-            api.executeStreamChat(new QwenChatApi.StreamChatCallback() {
+            api.executeStreamChat(lifecycleOwner, new QwenChatApi.StreamChatCallback() {
                 @Override
                 public void onStreamMessage(QwenChatApi.Bean deltaBean) {
                     if (callback != null) {
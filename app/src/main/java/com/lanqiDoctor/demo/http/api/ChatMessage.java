@@ -6,6 +6,11 @@ package com.lanqiDoctor.demo.http.api;
 public class ChatMessage {
     private String role;
     private String content;
+
+    /** 流式回答的追加缓冲，不参与序列化，读取内容时才生成字符串 */
+    private transient StringBuilder streamingBuilder;
+    /** 是否正在流式接收，界面据此只重新渲染末尾的段落 */
+    private transient boolean streaming;
     
     public ChatMessage(String role, String content) {
         this.role = role != null ? role : "user";
@@ -21,11 +26,47 @@ public class ChatMessage {
     }
     
     public String getContent() {
+        // 追加缓冲只会变长，长度不同说明有新片段还没生成字符串
+        if (streamingBuilder != null && streamingBuilder.length() != content.length()) {
+            content = streamingBuilder.toString();
+        }
         return content;
     }
     
     public void setContent(String content) {
         this.content = content;
+        this.streamingBuilder = null;
+    }
+
+    /**
+     * 追加流式片段，只复制片段本身，不会每次都生成完整字符串
+     */
+    public void appendContent(String delta) {
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        if (streamingBuilder == null) {
+            streamingBuilder = new StringBuilder(content != null ? content : "");
+        }
+        streamingBuilder.append(delta);
+        streaming = true;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * 流式接收结束，生成最终内容并释放追加缓冲（序列化直接读取 content 字段，结束前必须调用）
+     */
+    public void finishStreaming() {
+        getContent();
+        streamingBuilder = null;
+        streaming = false;
     }
     
     @Override
@@ -2,16 +2,27 @@ package com.lanqiDoctor.demo.http.api;
 
 import com.hjq.http.config.IRequestApi;
 import com.google.gson.annotations.SerializedName;
+import com.lanqiDoctor.demo.http.model.IConditionalApi;
 
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * 获取亲友今日服药记录API
+ *
+ * 每个亲友的今日数据按 friendUserId 缓存，内容没有变化时服务器返回 304；
+ * 服务器返回增量（delta 为 true）时按记录ID合并到缓存上，并重新计算统计数
  * 
  * @author 蓝岐医童开发团队
  * @version 1.0
  */
-public final class FriendTodayIntakeApi implements IRequestApi {
+public final class FriendTodayIntakeApi implements IRequestApi, IConditionalApi {
 
     private String friendUserId;
 
@@ -28,6 +39,68 @@ public final class FriendTodayIntakeApi implements IRequestApi {
         return friendUserId; 
     }
 
+    @Override
+    public String getCacheKey() {
+        return "friend_today_intake:" + friendUserId;
+    }
+
+    @Override
+    public String getCacheScope() {
+        // 今日数据，跨天后重新请求完整数据
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date());
+    }
+
+    @Override
+    public boolean isDelta(Object data) {
+        return data instanceof Bean && ((Bean) data).delta;
+    }
+
+    @Override
+    public Object mergeDelta(Object snapshot, Object delta) {
+        Bean base = (Bean) snapshot;
+        Bean changes = (Bean) delta;
+
+        Map<String, Bean.IntakeRecord> records = new LinkedHashMap<>();
+        if (base.intakeRecords != null) {
+            for (Bean.IntakeRecord record : base.intakeRecords) {
+                records.put(record.getMergeKey(), record);
+            }
+        }
+        if (changes.removedRecordIds != null) {
+            for (Long id : changes.removedRecordIds) {
+                records.remove("id:" + id);
+            }
+        }
+        if (changes.intakeRecords != null) {
+            for (Bean.IntakeRecord record : changes.intakeRecords) {
+                records.put(record.getMergeKey(), record);
+            }
+        }
+
+        List<Bean.IntakeRecord> merged = new ArrayList<>(records.values());
+        Collections.sort(merged, (a, b) -> {
+            long left = a.getPlannedTime() != null ? a.getPlannedTime() : Long.MAX_VALUE;
+            long right = b.getPlannedTime() != null ? b.getPlannedTime() : Long.MAX_VALUE;
+            return Long.compare(left, right);
+        });
+
+        Bean result = new Bean();
+        result.message = changes.message;
+        result.intakeRecords = merged;
+        result.totalCount = merged.size();
+        for (Bean.IntakeRecord record : merged) {
+            if (record.isTaken()) {
+                result.takenCount++;
+            } else {
+                result.missedCount++;
+            }
+        }
+        result.queryDate = changes.queryDate != null ? changes.queryDate : base.queryDate;
+        result.friendInfo = changes.friendInfo != null ? changes.friendInfo : base.friendInfo;
+        result.timeRange = changes.timeRange != null ? changes.timeRange : base.timeRange;
+        return result;
+    }
+
     public final static class Bean {
         // 移除success字段，因为服务端没有返回这个字段
         // private boolean success;
@@ -44,6 +117,10 @@ public final class FriendTodayIntakeApi implements IRequestApi {
         private FriendInfo friendInfo;
         private TimeRange timeRange;
 
+        // 增量响应：只包含 since 之后新增或修改的记录，以及被删除的记录ID
+        private boolean delta;
+        private List<Long> removedRecordIds;
+
         // Getters
         public boolean isSuccess() { 
             // 根据是否有数据来判断成功
@@ -112,6 +189,13 @@ public final class FriendTodayIntakeApi implements IRequestApi {
             public String getTimeGroup() { return timeGroup; }
             public Long getCreateTime() { return createTime; }
             public Long getUpdateTime() { return updateTime; }
+
+            /**
+             * 合并增量时识别同一条记录，没有ID时按药物和计划时间识别
+             */
+            String getMergeKey() {
+                return id != null ? "id:" + id : medicationId + "@" + plannedTime;
+            }
             
             /**
              * 判断是否已服用
@@ -1,22 +1,45 @@
 package com.lanqiDoctor.demo.http.api;
 
 import com.hjq.http.config.IRequestApi;
+import com.lanqiDoctor.demo.http.model.IConditionalApi;
 
 import java.util.List;
 
 /**
  * 好友/家庭成员管理API
+ *
+ * 好友列表按当前用户缓存，没有变化时服务器返回 304，不支持增量
  * 
  * @author 蓝岐医童开发团队
  * @version 1.0
  */
-public final class FriendsApi implements IRequestApi {
+public final class FriendsApi implements IRequestApi, IConditionalApi {
 
     @Override
     public String getApi() {
         return "friends";
     }
 
+    @Override
+    public String getCacheKey() {
+        return "friends";
+    }
+
+    @Override
+    public String getCacheScope() {
+        return "";
+    }
+
+    @Override
+    public boolean isDelta(Object data) {
+        return false;
+    }
+
+    @Override
+    public Object mergeDelta(Object snapshot, Object delta) {
+        return delta;
+    }
+
     public final static class Bean {
         private List<FriendInfo> friends;
         private int totalCount;
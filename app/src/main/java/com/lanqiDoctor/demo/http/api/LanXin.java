@@ -2,13 +2,14 @@ package com.lanqiDoctor.demo.http.api;
 
 import com.lanqiDoctor.demo.aop.Log;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonElement;
+import com.lanqiDoctor.demo.http.model.DeltaDecoder;
+import com.lanqiDoctor.demo.http.model.StreamClient;
+
+import androidx.lifecycle.LifecycleOwner;
 
 import okhttp3.*;
-import java.io.IOException;
 import java.util.*;
-import java.lang.reflect.Type;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 蓝心大模型API客户端 - 使用OkHttp
@@ -18,6 +19,8 @@ public class LanXin {
     private static final String SYNC_URI = "/vivogpt/completions";
     private static final String STREAM_URI = "/vivogpt/completions/stream";
     private static final String METHOD = "POST";
+    /** 服务器地址，用于预连接 */
+    static final String BASE_URL = "https://" + DOMAIN + "/";
 
     private final String appId;
     private final String appKey;
@@ -34,13 +37,9 @@ public class LanXin {
         this.appId = appId;
         this.appKey = appKey;
         this.gson = new Gson();
-        
-        // 创建OkHttp客户端
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(60, TimeUnit.SECONDS)
-                .writeTimeout(60, TimeUnit.SECONDS)
-                .build();
+
+        // 与其他大模型接口共用 OkHttpClient，复用连接
+        this.httpClient = StreamClient.getInstance().getHttpClient();
     }
 
     /**
@@ -177,83 +176,27 @@ public class LanXin {
 
             Request request = requestBuilder.build();
 
-            // 异步执行流式请求
-            httpClient.newCall(request).enqueue(new Callback() {
+            // 共用的流式客户端增量读取，片段在主线程回调
+            StreamClient.getInstance().stream(null, request, new StreamDecoder(false), new StreamClient.Listener() {
+                @Override
+                public void onDelta(String delta) {
+                    if (callback != null) {
+                        callback.onMessage(delta);
+                    }
+                }
+
                 @Override
-                public void onFailure(Call call, IOException e) {
-                    System.err.println("LanXin: 流式请求失败 - " + e.getMessage());
+                public void onComplete(String fullText) {
                     if (callback != null) {
-                        callback.onError("Request failed: " + e.getMessage());
+                        callback.onComplete(fullText);
                     }
                 }
 
                 @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    long startTime = System.currentTimeMillis();
-                    boolean firstLine = true;
-                    StringBuilder resultBuilder = new StringBuilder();
-
-                    try {
-                        if (response.isSuccessful() && response.body() != null) {
-                            String responseBody = response.body().string();
-                            String[] lines = responseBody.split("\n");
-                            
-                            for (String line : lines) {
-                                if (firstLine) {
-                                    long firstLineTime = System.currentTimeMillis();
-                                    System.out.println("LanXin: 首字耗时: " + (firstLineTime - startTime) + "ms");
-                                    firstLine = false;
-                                }
-
-                                if (line.startsWith("data:")) {
-                                    String content = line.substring(5).trim();
-                                    System.out.println("LanXin: 接收到: " + content);
-
-                                    try {
-                                        // 跳过空内容或特殊标记
-                                        if (!content.isEmpty() && !content.equals("[DONE]")) {
-                                            // 解析JSON
-                                            Type type = new TypeToken<Map<String, Object>>(){}.getType();
-                                            Map<String, Object> jsonMap = gson.fromJson(content, type);
-
-                                            // 只提取message字段
-                                            if (jsonMap.containsKey("message")) {
-                                                String messageText = jsonMap.get("message").toString();
-                                                resultBuilder.append(messageText);
-
-                                                // 回调通知新的消息片段
-                                                if (callback != null) {
-                                                    callback.onMessage(messageText);
-                                                }
-                                            }
-                                        }
-                                    } catch (Exception e) {
-                                        System.err.println("LanXin: 解析JSON出错: " + e.getMessage());
-                                    }
-                                } else if (line.startsWith("event:")) {
-                                    System.out.println("LanXin: 事件: " + line);
-                                }
-                            }
-
-                            long endTime = System.currentTimeMillis();
-                            System.out.println("LanXin: 流式请求总耗时: " + (endTime - startTime) + "ms");
-
-                            String result = resultBuilder.toString();
-                            System.out.println("LanXin: 结果长度: " + result.length() +
-                                ", 前20个字符: " + (result.length() > 20 ? result.substring(0, 20) : result));
-
-                            if (callback != null) {
-                                callback.onComplete(result);
-                            }
-                        } else {
-                            String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                            System.err.println("LanXin: Stream Error: " + response.code() + ", " + errorBody);
-                            if (callback != null) {
-                                callback.onError("HTTP Error: " + response.code());
-                            }
-                        }
-                    } finally {
-                        response.close();
+                public void onError(String error) {
+                    System.err.println("LanXin: 流式请求失败 - " + error);
+                    if (callback != null) {
+                        callback.onError(error);
                     }
                 }
             });
@@ -357,8 +300,18 @@ public class LanXin {
     /**
      * 多轮流式对话调用蓝心大模型API（支持系统人设）
      */
-    @Log("LanXin")
     public void streamChatCompletionsWithSystem(List<Map<String, String>> messages, String systemPrompt, StreamCallback callback) {
+        streamChatCompletionsWithSystem(messages, systemPrompt, null, callback);
+    }
+
+    /**
+     * 多轮流式对话调用蓝心大模型API（支持系统人设），界面销毁时自动取消
+     *
+     * @param lifecycleOwner 界面生命周期，传 null 则不自动取消
+     */
+    @Log("LanXin")
+    public void streamChatCompletionsWithSystem(List<Map<String, String>> messages, String systemPrompt,
+                                                LifecycleOwner lifecycleOwner, StreamCallback callback) {
         try {
             // 生成唯一请求ID和会话ID
             String requestId = UUID.randomUUID().toString();
@@ -419,84 +372,27 @@ public class LanXin {
 
             Request request = requestBuilder.build();
 
-            // 异步执行流式请求
-            httpClient.newCall(request).enqueue(new Callback() {
+            // 共用的流式客户端增量读取，片段在主线程回调
+            StreamClient.getInstance().stream(lifecycleOwner, request, new StreamDecoder(true), new StreamClient.Listener() {
+                @Override
+                public void onDelta(String delta) {
+                    if (callback != null) {
+                        callback.onMessage(delta);
+                    }
+                }
+
                 @Override
-                public void onFailure(Call call, IOException e) {
-                    System.err.println("LanXin: 多轮流式请求失败 - " + e.getMessage());
+                public void onComplete(String fullText) {
                     if (callback != null) {
-                        callback.onError("Request failed: " + e.getMessage());
+                        callback.onComplete(fullText);
                     }
                 }
 
                 @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    // ...existing stream response handling code...
-                    // 保持原有的流式响应处理逻辑
-                    long startTime = System.currentTimeMillis();
-                    boolean firstLine = true;
-                    StringBuilder resultBuilder = new StringBuilder();
-
-                    try {
-                        if (response.isSuccessful() && response.body() != null) {
-                            String responseBody = response.body().string();
-                            String[] lines = responseBody.split("\n");
-                            
-                            for (String line : lines) {
-                                if (firstLine) {
-                                    long firstLineTime = System.currentTimeMillis();
-                                    System.out.println("LanXin: 多轮流式首字耗时: " + (firstLineTime - startTime) + "ms");
-                                    firstLine = false;
-                                }
-
-                                if (line.startsWith("data:")) {
-                                    String content = line.substring(5).trim();
-                                    System.out.println("LanXin: 多轮流式接收到: " + content);
-
-                                    try {
-                                        // 跳过空内容或特殊标记
-                                        if (!content.isEmpty() && !content.equals("[DONE]")) {
-                                            // 解析JSON
-                                            Type type = new TypeToken<Map<String, Object>>(){}.getType();
-                                            Map<String, Object> jsonMap = gson.fromJson(content, type);
-
-                                            // 提取message字段
-                                            String messageText = extractMessageFromResponse(jsonMap);
-                                            if (messageText != null && !messageText.isEmpty()) {
-                                                resultBuilder.append(messageText);
-
-                                                // 回调通知新的消息片段
-                                                if (callback != null) {
-                                                    callback.onMessage(messageText);
-                                                }
-                                            }
-                                        }
-                                    } catch (Exception e) {
-                                        System.err.println("LanXin: 多轮流式解析JSON出错: " + e.getMessage());
-                                    }
-                                } else if (line.startsWith("event:")) {
-                                    System.out.println("LanXin: 多轮流式事件: " + line);
-                                }
-                            }
-
-                            long endTime = System.currentTimeMillis();
-                            System.out.println("LanXin: 多轮流式请求总耗时: " + (endTime - startTime) + "ms");
-
-                            String result = resultBuilder.toString();
-                            System.out.println("LanXin: 多轮流式结果长度: " + result.length());
-
-                            if (callback != null) {
-                                callback.onComplete(result);
-                            }
-                        } else {
-                            String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                            System.err.println("LanXin: Multi-stream Error: " + response.code() + ", " + errorBody);
-                            if (callback != null) {
-                                callback.onError("HTTP Error: " + response.code());
-                            }
-                        }
-                    } finally {
-                        response.close();
+                public void onError(String error) {
+                    System.err.println("LanXin: 多轮流式请求失败 - " + error);
+                    if (callback != null) {
+                        callback.onError(error);
                     }
                 }
             });
@@ -510,32 +406,56 @@ public class LanXin {
     }
 
     /**
-     * 从响应中提取消息内容
+     * 蓝心流式响应片段解析器
+     *
+     * 单轮接口只取 message 字段；多轮接口依次检查 data.content、content、message
      */
-    private String extractMessageFromResponse(Map<String, Object> jsonMap) {
-        try {
-            // 根据蓝心API文档，检查data.content字段
-            if (jsonMap.containsKey("data")) {
-                Object data = jsonMap.get("data");
-                if (data instanceof Map) {
-                    Map<String, Object> dataMap = (Map<String, Object>) data;
-                    if (dataMap.containsKey("content")) {
-                        return dataMap.get("content").toString();
-                    }
-                }
+    public static final class StreamDecoder implements DeltaDecoder {
+
+        private static final Gson GSON = new Gson();
+
+        private final boolean multiChat;
+
+        public StreamDecoder(boolean multiChat) {
+            this.multiChat = multiChat;
+        }
+
+        @Override
+        public boolean isEnd(String event, String data) {
+            return "[DONE]".equals(data.trim());
+        }
+
+        @Override
+        public String decode(String event, String data) {
+            String content = data.trim();
+            if (content.isEmpty()) {
+                return null;
             }
-            
-            // 备用字段检查
-            if (jsonMap.containsKey("content")) {
-                return jsonMap.get("content").toString();
+            Chunk chunk = GSON.fromJson(content, Chunk.class);
+            if (chunk == null) {
+                return null;
             }
-            if (jsonMap.containsKey("message")) {
-                return jsonMap.get("message").toString();
+            if (!multiChat) {
+                return chunk.message;
             }
-        } catch (Exception e) {
-            System.err.println("LanXin: 提取消息内容失败 - " + e.getMessage());
+            // 根据蓝心API文档，优先检查data.content字段
+            if (chunk.data != null && chunk.data.isJsonObject()) {
+                JsonElement dataContent = chunk.data.getAsJsonObject().get("content");
+                if (dataContent != null && !dataContent.isJsonNull()) {
+                    return dataContent.getAsString();
+                }
+            }
+            return chunk.content != null ? chunk.content : chunk.message;
+        }
+
+        /**
+         * 只解析需要的字段，其余字段跳过
+         */
+        private static final class Chunk {
+            private String message;
+            private String content;
+            private JsonElement data;
         }
-        return null;
     }
 
     /**
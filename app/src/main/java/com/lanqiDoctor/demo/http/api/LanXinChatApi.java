@@ -6,6 +6,8 @@ import com.lanqiDoctor.demo.config.AiConfig;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
+import androidx.lifecycle.LifecycleOwner;
+
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
@@ -71,8 +73,17 @@ public final class LanXinChatApi implements IRequestApi {
     /**
      * 执行流式聊天请求（支持多轮对话和系统人设）
      */
-    @Log("LanXinChatApi")
     public void executeStreamChat(StreamChatCallback callback) {
+        executeStreamChat(null, callback);
+    }
+
+    /**
+     * 执行流式聊天请求，界面销毁时自动取消
+     *
+     * @param lifecycleOwner 界面生命周期，传 null 则不自动取消
+     */
+    @Log("LanXinChatApi")
+    public void executeStreamChat(LifecycleOwner lifecycleOwner, StreamChatCallback callback) {
         try {
             if (lanXinClient == null) {
                 throw new RuntimeException("LanXin客户端未初始化，请先调用initLanXinClient()");
@@ -85,7 +96,7 @@ public final class LanXinChatApi implements IRequestApi {
             String systemPrompt = AiConfig.shouldIncludeSystemPrompt() ? AiConfig.getSystemPrompt() : null;
             List<Map<String, String>> chatMessages = convertToLanXinFormat(messages);
             
-            lanXinClient.streamChatCompletionsWithSystem(chatMessages, systemPrompt, new LanXin.StreamCallback() {
+            lanXinClient.streamChatCompletionsWithSystem(chatMessages, systemPrompt, lifecycleOwner, new LanXin.StreamCallback() {
                 @Override
                 public void onMessage(String message) {
                     // 将流式消息转换为Bean格式
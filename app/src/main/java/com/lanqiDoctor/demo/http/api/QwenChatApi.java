@@ -5,6 +5,10 @@ import com.lanqiDoctor.demo.aop.Log;
 import com.lanqiDoctor.demo.config.AiConfig;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import com.lanqiDoctor.demo.http.model.DeltaDecoder;
+import com.lanqiDoctor.demo.http.model.StreamClient;
+
+import androidx.lifecycle.LifecycleOwner;
 
 import java.lang.reflect.Type;
 import java.util.List;
@@ -26,11 +30,6 @@ public final class QwenChatApi implements IRequestApi {
     private boolean stream = false;
 
     private static final Gson gson = new Gson();
-    private static final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, java.util.concurrent.TimeUnit.SECONDS)
-            .readTimeout(60, java.util.concurrent.TimeUnit.SECONDS)
-            .writeTimeout(60, java.util.concurrent.TimeUnit.SECONDS)
-            .build();
 
     @Override
     public String getApi() {
@@ -65,7 +64,7 @@ public final class QwenChatApi implements IRequestApi {
                     .build();
 
             // 执行请求
-            try (Response response = httpClient.newCall(request).execute()) {
+            try (Response response = StreamClient.getInstance().getHttpClient().newCall(request).execute()) {
                 if (!response.isSuccessful()) {
                     throw new IOException("HTTP请求失败: " + response.code() + " " + response.message());
                 }
@@ -84,8 +83,17 @@ public final class QwenChatApi implements IRequestApi {
     /**
      * 执行流式聊天请求（支持多轮对话和系统人设）
      */
-    @Log("QwenChatApi")
     public void executeStreamChat(StreamChatCallback callback) {
+        executeStreamChat(null, callback);
+    }
+
+    /**
+     * 执行流式聊天请求，界面销毁时自动取消
+     *
+     * @param lifecycleOwner 界面生命周期，传 null 则不自动取消
+     */
+    @Log("QwenChatApi")
+    public void executeStreamChat(LifecycleOwner lifecycleOwner, StreamChatCallback callback) {
         try {
             String apiKey = AiConfig.getQwenApiKey();
             if (apiKey == null || apiKey.trim().isEmpty() || "your-qwen-api-key-here".equals(apiKey)) {
@@ -111,54 +119,21 @@ public final class QwenChatApi implements IRequestApi {
                     .addHeader("Accept", "text/event-stream")
                     .build();
 
-            // 执行流式请求
-            httpClient.newCall(request).enqueue(new Callback() {
+            // 共用的流式客户端增量读取，片段在主线程回调
+            StreamClient.getInstance().stream(lifecycleOwner, request, new StreamDecoder(), new StreamClient.Listener() {
                 @Override
-                public void onFailure(Call call, IOException e) {
-                    callback.onError("流式请求失败: " + e.getMessage());
+                public void onDelta(String delta) {
+                    callback.onStreamMessage(createStreamResponse(delta));
                 }
 
                 @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (!response.isSuccessful()) {
-                        callback.onError("HTTP请求失败: " + response.code() + " " + response.message());
-                        return;
-                    }
+                public void onComplete(String fullText) {
+                    callback.onStreamComplete(createStreamResponse(fullText));
+                }
 
-                    StringBuilder fullResponse = new StringBuilder();
-                    try (ResponseBody body = response.body()) {
-                        String line;
-                        java.io.BufferedReader reader = new java.io.BufferedReader(
-                            new java.io.InputStreamReader(body.byteStream(), "UTF-8")
-                        );
-                        
-                        while ((line = reader.readLine()) != null) {
-                            if (line.startsWith("data: ")) {
-                                String data = line.substring(6);
-                                if ("[DONE]".equals(data)) {
-                                    // 流结束
-                                    Bean completeBean = createStreamResponse(fullResponse.toString());
-                                    callback.onStreamComplete(completeBean);
-                                    break;
-                                }
-                                
-                                try {
-                                    // 解析流式数据
-                                    Type type = new TypeToken<Map<String, Object>>(){}.getType();
-                                    Map<String, Object> streamData = gson.fromJson(data, type);
-                                    
-                                    String deltaContent = extractStreamContent(streamData);
-                                    if (deltaContent != null && !deltaContent.isEmpty()) {
-                                        fullResponse.append(deltaContent);
-                                        Bean deltaBean = createStreamResponse(deltaContent);
-                                        callback.onStreamMessage(deltaBean);
-                                    }
-                                } catch (Exception e) {
-                                    // 忽略解析错误，继续处理下一行
-                                }
-                            }
-                        }
-                    }
+                @Override
+                public void onError(String error) {
+                    callback.onError(error);
                 }
             });
 
@@ -323,26 +298,6 @@ public final class QwenChatApi implements IRequestApi {
         return fallback;
     }
 
-    /**
-     * 从流式数据中提取内容
-     */
-    private String extractStreamContent(Map<String, Object> streamData) {
-        try {
-            if (streamData.containsKey("output")) {
-                Object output = streamData.get("output");
-                if (output instanceof Map) {
-                    Map<String, Object> outputMap = (Map<String, Object>) output;
-                    if (outputMap.containsKey("text")) {
-                        return outputMap.get("text").toString();
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("QwenChatApi: 提取流式内容失败 - " + e.getMessage());
-        }
-        return null;
-    }
-    
     /**
      * 创建简单响应Bean
      */
@@ -405,6 +360,55 @@ public final class QwenChatApi implements IRequestApi {
         return this;
     }
 
+    /**
+     * 通义千问流式响应片段解析器
+     *
+     * result_format 为 message 时内容在 output.choices[0].message.content，否则在 output.text
+     */
+    public static final class StreamDecoder implements DeltaDecoder {
+
+        @Override
+        public boolean isEnd(String event, String data) {
+            return "[DONE]".equals(data);
+        }
+
+        @Override
+        public String decode(String event, String data) {
+            Chunk chunk = gson.fromJson(data, Chunk.class);
+            if (chunk == null || chunk.output == null) {
+                return null;
+            }
+            if (chunk.output.text != null) {
+                return chunk.output.text;
+            }
+            if (chunk.output.choices != null && !chunk.output.choices.isEmpty()) {
+                Chunk.Choice choice = chunk.output.choices.get(0);
+                return choice.message != null ? choice.message.content : null;
+            }
+            return null;
+        }
+
+        /**
+         * 只解析需要的字段，其余字段跳过
+         */
+        private static final class Chunk {
+            private Output output;
+
+            private static final class Output {
+                private String text;
+                private List<Choice> choices;
+            }
+
+            private static final class Choice {
+                private Message message;
+            }
+
+            private static final class Message {
+                private String content;
+            }
+        }
+    }
+
     /**
      * 流式聊天回调接口
      */
@@ -1,7 +1,11 @@
 package com.lanqiDoctor.demo.http.api;
 
+import com.google.gson.stream.JsonReader;
+import com.hjq.http.annotation.HttpIgnore;
 import com.hjq.http.config.IRequestApi;
 import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+import com.lanqiDoctor.demo.http.model.IStreamingApi;
+import com.lanqiDoctor.demo.http.model.StreamingParser;
 
 import java.util.List;
 
@@ -11,7 +15,7 @@ import java.util.List;
  * @author 蓝岐医童开发团队
  * @version 1.0
  */
-public final class SyncMedicationIntakeApi implements IRequestApi {
+public final class SyncMedicationIntakeApi implements IRequestApi, IStreamingApi {
 
     @Override
     public String getApi() {
@@ -30,6 +34,15 @@ public final class SyncMedicationIntakeApi implements IRequestApi {
     private Long endDate;
     /** 是否首次同步 */
     private boolean isFirstSync;
+    /** 分页游标：下载时传上一页响应中的 nextCursor，null 表示第一页 */
+    private String cursor;
+    /** 每页条数，不传时服务器一次返回全部数据 */
+    private Integer pageSize;
+    /** 分页上传时标记本页是否为最后一页 */
+    private Boolean lastPage;
+    /** 下载时逐批接收服务器下发的记录，设置后响应按流式解析，不作为请求参数 */
+    @HttpIgnore
+    private transient StreamingParser.RecordSink<MedicationIntakeRecord> recordSink;
     
     public SyncMedicationIntakeApi setIsFirstSync(boolean isFirstSync) {
         this.isFirstSync = isFirstSync;
@@ -70,6 +83,74 @@ public final class SyncMedicationIntakeApi implements IRequestApi {
     public String getOperationType() { return operationType; }
     public Long getStartDate() { return startDate; }
     public Long getEndDate() { return endDate; }
+    public String getCursor() { return cursor; }
+    public Integer getPageSize() { return pageSize; }
+    public Boolean getLastPage() { return lastPage; }
+
+    public SyncMedicationIntakeApi setCursor(String cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    public SyncMedicationIntakeApi setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    public SyncMedicationIntakeApi setLastPage(Boolean lastPage) {
+        this.lastPage = lastPage;
+        return this;
+    }
+
+    /**
+     * 设置后 Bean 中不再包含记录列表，记录在网络线程中按批交给 sink
+     */
+    public SyncMedicationIntakeApi setRecordSink(StreamingParser.RecordSink<MedicationIntakeRecord> recordSink) {
+        this.recordSink = recordSink;
+        return this;
+    }
+
+    @Override
+    public boolean isStreamingResponse() {
+        return recordSink != null;
+    }
+
+    @Override
+    public Object readData(JsonReader reader) throws Exception {
+        Bean bean = new Bean();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "success":
+                    bean.success = StreamingParser.nextBoolean(reader);
+                    break;
+                case "message":
+                    bean.message = StreamingParser.nextString(reader);
+                    break;
+                case "serverTime":
+                    bean.serverTime = StreamingParser.nextLong(reader);
+                    break;
+                case "totalCount":
+                    bean.totalCount = StreamingParser.nextInt(reader);
+                    break;
+                case "nextCursor":
+                    bean.nextCursor = StreamingParser.nextString(reader);
+                    break;
+                case "hasMore":
+                    bean.hasMore = StreamingParser.nextBoolean(reader);
+                    break;
+                case "intakeRecords":
+                    bean.receivedCount = StreamingParser.readArray(reader, MedicationIntakeRecord.class,
+                            StreamingParser.DEFAULT_BATCH_SIZE, recordSink);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return bean;
+    }
 
     public final static class Bean {
         private boolean success;
@@ -77,11 +158,20 @@ public final class SyncMedicationIntakeApi implements IRequestApi {
         private List<MedicationIntakeRecord> intakeRecords;
         private Long serverTime;
         private int totalCount;
+        /** 下一页游标，hasMore 为 false 时为 null */
+        private String nextCursor;
+        /** 是否还有下一页 */
+        private boolean hasMore;
+        /** 流式解析时交给 recordSink 的记录数 */
+        private int receivedCount;
 
         public boolean isSuccess() { return success; }
         public String getMessage() { return message; }
         public List<MedicationIntakeRecord> getIntakeRecords() { return intakeRecords; }
         public Long getServerTime() { return serverTime; }
         public int getTotalCount() { return totalCount; }
+        public String getNextCursor() { return nextCursor; }
+        public boolean hasMore() { return hasMore; }
+        public int getReceivedCount() { return receivedCount; }
     }
 }
\ No newline at end of file
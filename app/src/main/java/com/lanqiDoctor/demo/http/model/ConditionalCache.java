@@ -0,0 +1,189 @@
+package com.lanqiDoctor.demo.http.model;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.hjq.gson.factory.GsonFactory;
+import com.hjq.http.model.HttpHeaders;
+import com.hjq.http.model.HttpParams;
+import com.lanqiDoctor.demo.manager.UserStateManager;
+import com.tencent.mmkv.MMKV;
+
+import java.lang.reflect.Type;
+
+import okhttp3.Response;
+
+/**
+ * 条件请求缓存
+ *
+ * 保存 IConditionalApi 最近一次完整响应（HttpData 的 JSON）以及服务器返回的校验信息：
+ * 1. 发送请求前带上 If-None-Match / If-Modified-Since，有同步令牌时再带上 since 参数
+ * 2. 服务器返回 304 时直接使用缓存的响应，不再传输数据
+ * 3. 服务器只返回变化的部分时，与缓存合并后再交给调用方，合并结果作为新的缓存
+ *
+ * 缓存按当前登录用户区分，未登录时不读写缓存；缓存范围（例如日期）变化后视为没有缓存
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class ConditionalCache {
+
+    private static final String TAG = "ConditionalCache";
+
+    /** 服务器返回的同步令牌，下次请求作为 since 参数 */
+    private static final String HEADER_SYNC_TOKEN = "X-Sync-Token";
+    private static final String PARAM_SINCE = "since";
+
+    private static volatile ConditionalCache instance;
+
+    private final MMKV mmkv;
+    private final UserStateManager userStateManager;
+    private final Gson gson;
+
+    private ConditionalCache(Context context) {
+        this.mmkv = MMKV.mmkvWithID("conditional_cache");
+        this.userStateManager = UserStateManager.getInstance(context);
+        this.gson = GsonFactory.getSingletonGson();
+    }
+
+    public static ConditionalCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ConditionalCache.class) {
+                if (instance == null) {
+                    instance = new ConditionalCache(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 给请求加上缓存校验头和 since 参数，在 EasyConfig 的请求拦截器中调用
+     */
+    public void applyValidators(IConditionalApi api, HttpParams params, HttpHeaders headers) {
+        Entry entry = findEntry(api);
+        if (entry == null) {
+            return;
+        }
+        if (!TextUtils.isEmpty(entry.etag)) {
+            headers.put("If-None-Match", entry.etag);
+        }
+        if (!TextUtils.isEmpty(entry.lastModified)) {
+            headers.put("If-Modified-Since", entry.lastModified);
+        }
+        if (!TextUtils.isEmpty(entry.syncToken)) {
+            params.put(PARAM_SINCE, entry.syncToken);
+        }
+    }
+
+    /**
+     * 读取缓存的响应，没有缓存或缓存已失效时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(IConditionalApi api, Type type) {
+        Entry entry = findEntry(api);
+        if (entry == null) {
+            return null;
+        }
+        try {
+            return (T) gson.fromJson(entry.body, type);
+        } catch (JsonSyntaxException e) {
+            Log.w(TAG, "缓存内容无法解析，丢弃: " + api.getCacheKey(), e);
+            remove(api);
+            return null;
+        }
+    }
+
+    /**
+     * 保存新的响应，响应只包含变化的部分时先与缓存合并（在网络线程调用）
+     *
+     * @return          交给调用方的完整响应
+     */
+    HttpData<?> update(IConditionalApi api, Response response, HttpData<?> model, Type type) {
+        String key = buildKey(api);
+        if (key == null) {
+            return model;
+        }
+
+        HttpData<?> result = model;
+        if (api.isDelta(model.getData())) {
+            HttpData<?> snapshot = read(api, type);
+            if (snapshot == null || snapshot.getData() == null) {
+                // 发送 since 时缓存还在，之后被清除，这次的结果不完整，不缓存，下次请求完整数据
+                Log.w(TAG, "缓存已失效，无法合并增量: " + api.getCacheKey());
+                remove(api);
+                return model;
+            }
+            result = new HttpData<>(model.getCode(), model.getMessage(),
+                    api.mergeDelta(snapshot.getData(), model.getData()));
+            Log.d(TAG, "已合并增量响应: " + api.getCacheKey());
+        }
+
+        Entry entry = new Entry();
+        entry.scope = api.getCacheScope();
+        entry.etag = response.header("ETag");
+        entry.lastModified = response.header("Last-Modified");
+        entry.syncToken = response.header(HEADER_SYNC_TOKEN);
+        entry.body = gson.toJson(result);
+        mmkv.putString(key, gson.toJson(entry)).commit();
+        return result;
+    }
+
+    /**
+     * 删除缓存
+     */
+    public void remove(IConditionalApi api) {
+        String key = buildKey(api);
+        if (key != null) {
+            mmkv.removeValueForKey(key);
+        }
+    }
+
+    private Entry findEntry(IConditionalApi api) {
+        String key = buildKey(api);
+        if (key == null) {
+            return null;
+        }
+        String value = mmkv.getString(key, null);
+        if (TextUtils.isEmpty(value)) {
+            return null;
+        }
+
+        Entry entry;
+        try {
+            entry = gson.fromJson(value, Entry.class);
+        } catch (JsonSyntaxException e) {
+            Log.w(TAG, "缓存记录无法解析，丢弃: " + key, e);
+            mmkv.removeValueForKey(key);
+            return null;
+        }
+        if (entry == null || TextUtils.isEmpty(entry.body)
+                || !TextUtils.equals(entry.scope, api.getCacheScope())) {
+            return null;
+        }
+        return entry;
+    }
+
+    private String buildKey(IConditionalApi api) {
+        String userId = userStateManager.getUserId();
+        if (!userStateManager.isUserLoggedIn() || TextUtils.isEmpty(userId)) {
+            return null;
+        }
+        return userId + ":" + api.getCacheKey();
+    }
+
+    /**
+     * 一条缓存记录
+     */
+    private static final class Entry {
+        private String scope;
+        private String etag;
+        private String lastModified;
+        private String syncToken;
+        /** 完整响应的 JSON */
+        private String body;
+    }
+}
@@ -0,0 +1,23 @@
+package com.lanqiDoctor.demo.http.model;
+
+/**
+ * 流式响应片段解析器
+ *
+ * 每个大模型后端的事件格式不同，由各自的接口类提供实现，交给 StreamClient 使用
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public interface DeltaDecoder {
+
+    /**
+     * 是否为结束事件，返回 true 时停止读取，按正常完成处理
+     */
+    boolean isEnd(String event, String data);
+
+    /**
+     * 解析一个事件中的文本片段，没有文本时返回 null（在网络线程调用），
+     * 抛出异常时跳过这个事件
+     */
+    String decode(String event, String data) throws Exception;
+}
@@ -15,6 +15,18 @@ public class HttpData<T> {
     /** 数据 */
     private T data;
 
+    public HttpData() {
+    }
+
+    /**
+     * 流式解析时由 StreamingParser 构造
+     */
+    HttpData(int code, String msg, T data) {
+        this.code = code;
+        this.msg = msg;
+        this.data = data;
+    }
+
     public int getCode() {
         return code;
     }
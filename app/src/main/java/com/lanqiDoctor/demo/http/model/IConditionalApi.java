@@ -0,0 +1,34 @@
+package com.lanqiDoctor.demo.http.model;
+
+/**
+ * 支持条件请求的接口
+ *
+ * 由 ConditionalCache 保存最近一次完整响应，再次请求时带上 ETag / Last-Modified 校验，
+ * 内容没有变化时服务器返回 304，RequestHandler 直接使用缓存；
+ * 服务器返回同步令牌时下次请求带上 since 参数，服务器可以只返回变化的部分，由接口自己合并
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public interface IConditionalApi {
+
+    /**
+     * 缓存键，同一资源的请求返回相同的键（不需要包含当前用户，ConditionalCache 会按用户区分）
+     */
+    String getCacheKey();
+
+    /**
+     * 缓存的有效范围，与写入缓存时不同则视为没有缓存，例如按天刷新的数据返回当天日期
+     */
+    String getCacheScope();
+
+    /**
+     * 响应的 data 是否只包含 since 之后变化的部分
+     */
+    boolean isDelta(Object data);
+
+    /**
+     * 把变化的部分合并到缓存的完整数据上，返回合并后的完整数据（在网络线程调用）
+     */
+    Object mergeDelta(Object snapshot, Object delta);
+}
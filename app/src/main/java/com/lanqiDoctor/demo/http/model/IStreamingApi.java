@@ -0,0 +1,25 @@
+package com.lanqiDoctor.demo.http.model;
+
+import com.google.gson.stream.JsonReader;
+
+/**
+ * 需要流式解析响应的接口
+ *
+ * RequestHandler 不再把响应读成字符串再整体转换成对象，而是读取 HttpData 外层字段，
+ * 读到 data 字段时交给接口自己逐个元素解析
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public interface IStreamingApi {
+
+    /**
+     * 本次请求是否流式解析响应，返回 false 时仍按原来的方式整体解析
+     */
+    boolean isStreamingResponse();
+
+    /**
+     * 读取 data 字段的值，返回值作为 HttpData 的 data（在网络线程调用）
+     */
+    Object readData(JsonReader reader) throws Exception;
+}
@@ -8,6 +8,7 @@ import android.net.NetworkInfo;
 
 import androidx.lifecycle.LifecycleOwner;
 
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonSyntaxException;
 import com.lanqiDoctor.demo.R;
 import com.lanqiDoctor.demo.manager.ActivityManager;
@@ -49,6 +50,8 @@ import okhttp3.ResponseBody;
  */
 public final class RequestHandler implements IRequestHandler {
 
+    private static final int HTTP_NOT_MODIFIED = 304;
+
     private final Application mApplication;
     private final MMKV mMmkv;
 
@@ -64,6 +67,15 @@ public final class RequestHandler implements IRequestHandler {
             return response;
         }
 
+        if (response.code() == HTTP_NOT_MODIFIED && api instanceof IConditionalApi) {
+            // 内容没有变化，使用上次缓存的完整响应
+            Object cached = ConditionalCache.getInstance(mApplication).read((IConditionalApi) api, type);
+            if (cached != null) {
+                EasyLog.print("内容未变化，使用缓存：" + api.getApi());
+                return cached instanceof HttpData ? checkHttpData((HttpData<?>) cached) : cached;
+            }
+        }
+
         if (!response.isSuccessful()) {
             // 返回响应异常
             throw new ResponseException(mApplication.getString(R.string.http_response_error) + "，responseCode：" + response.code() + "，message：" + response.message(), response);
@@ -82,6 +94,19 @@ public final class RequestHandler implements IRequestHandler {
             return body.byteStream();
         }
 
+        if (api instanceof IStreamingApi && ((IStreamingApi) api).isStreamingResponse()) {
+            // 流式解析：不把响应读成字符串，data 中的数组逐个元素交给接口处理
+            final HttpData<Object> model;
+            try {
+                model = StreamingParser.readHttpData(body.charStream(), (IStreamingApi) api);
+            } catch (JsonParseException | IOException | IllegalStateException | NumberFormatException e) {
+                // 返回结果读取异常（JsonReader 遇到意外的结构、记录写入失败时抛出 IllegalStateException）
+                throw new DataException(mApplication.getString(R.string.http_data_explain_error), e);
+            }
+            EasyLog.print("流式解析响应完成：" + api.getApi());
+            return checkHttpData(model);
+        }
+
         String text;
         try {
             text = body.string();
@@ -125,22 +150,32 @@ public final class RequestHandler implements IRequestHandler {
         }
 
         if (result instanceof HttpData) {
-            HttpData<?> model = (HttpData<?>) result;
-
-            if (model.isRequestSucceed()) {
-                // 代表执行成功
-                return result;
+            checkHttpData((HttpData<?>) result);
+            if (api instanceof IConditionalApi) {
+                // 保存校验信息和完整响应，只返回了变化的部分时与缓存合并
+                return ConditionalCache.getInstance(mApplication).update((IConditionalApi) api, response, (HttpData<?>) result, type);
             }
+            return result;
+        }
+        return result;
+    }
 
-            if (model.isTokenFailure()) {
-                // 代表登录失效，需要重新登录
-                throw new TokenException(mApplication.getString(R.string.http_token_error));
-            }
+    /**
+     * 检查 HttpData 的返回码
+     */
+    private Object checkHttpData(HttpData<?> model) throws Exception {
+        if (model.isRequestSucceed()) {
+            // 代表执行成功
+            return model;
+        }
 
-            // 代表执行失败
-            throw new ResultException(model.getMessage(), model);
+        if (model.isTokenFailure()) {
+            // 代表登录失效，需要重新登录
+            throw new TokenException(mApplication.getString(R.string.http_token_error));
         }
-        return result;
+
+        // 代表执行失败
+        throw new ResultException(model.getMessage(), model);
     }
 
     @Override
@@ -0,0 +1,268 @@
+package com.lanqiDoctor.demo.http.model;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 全局共用的 OkHttpClient
+ *
+ * EasyHttp 的业务和同步请求、大模型的流式和非流式请求都从这里派生客户端（newBuilder），
+ * 派生出的客户端只改超时和拦截器，连接池、线程池、DNS 缓存都是同一份：
+ * 1. 连接池按同时使用的服务器数量放大，空闲连接保留 5 分钟，对话间隔内不用重新握手
+ * 2. 服务器支持 HTTP/2 时（OkHttp 默认协商），同一服务器的并发请求复用一个连接
+ * 3. DNS 结果在内存中缓存，过期后查询失败时继续使用旧结果；切换网络时清空
+ * 4. preconnect() 在打开对话界面时提前完成 DNS、TCP 和 TLS 握手
+ * 5. 记录每个请求的首字节耗时，区分复用已有连接和新建连接，可在同步诊断界面查看
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class SharedHttpClient {
+
+    private static final String TAG = "SharedHttpClient";
+
+    /** 连接池保留的空闲连接数 */
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    /** 同一服务器同时进行的请求数（流式请求会长时间占用） */
+    private static final int MAX_REQUESTS_PER_HOST = 10;
+    /** 同一服务器两次预连接的最小间隔 */
+    private static final long PRECONNECT_INTERVAL_MS = 60 * 1000;
+    /** 预连接请求的 tag，不计入首字节耗时 */
+    private static final Object PRECONNECT_TAG = new Object();
+
+    private static volatile SharedHttpClient instance;
+
+    private final CachingDns dns = new CachingDns();
+    private final OkHttpClient httpClient;
+    private final Map<String, Long> lastPreconnect = new ConcurrentHashMap<>();
+
+    private final TtfbStats warmStats = new TtfbStats();
+    private final TtfbStats coldStats = new TtfbStats();
+
+    private SharedHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        this.httpClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .dns(dns)
+                .eventListenerFactory(call -> call.request().tag() == PRECONNECT_TAG
+                        ? EventListener.NONE : new TimingListener())
+                .build();
+    }
+
+    public static SharedHttpClient getInstance() {
+        if (instance == null) {
+            synchronized (SharedHttpClient.class) {
+                if (instance == null) {
+                    instance = new SharedHttpClient();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 派生客户端，与共用客户端使用同一个连接池、线程池和 DNS 缓存
+     */
+    public OkHttpClient.Builder newBuilder() {
+        return httpClient.newBuilder();
+    }
+
+    /**
+     * 提前与 url 所在的服务器建立连接，连接放入连接池供之后的请求复用
+     *
+     * 发送一个不关心结果的 HEAD 请求，短时间内重复调用只会连接一次
+     */
+    public void preconnect(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return;
+        }
+        String host = httpUrl.host();
+        long now = SystemClock.elapsedRealtime();
+        Long last = lastPreconnect.get(host);
+        if (last != null && now - last < PRECONNECT_INTERVAL_MS) {
+            return;
+        }
+        lastPreconnect.put(host, now);
+
+        Request request = new Request.Builder()
+                .url(httpUrl.resolve("/"))
+                .head()
+                .tag(PRECONNECT_TAG)
+                .build();
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                lastPreconnect.remove(host);
+                Log.w(TAG, "预连接失败: " + host + "，" + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                response.close();
+                Log.d(TAG, "预连接完成: " + host + "，耗时 " + (SystemClock.elapsedRealtime() - now) + "ms");
+            }
+        });
+    }
+
+    /**
+     * 网络切换后，原来的连接和 DNS 结果都可能不再可用
+     */
+    public void onNetworkChanged() {
+        dns.clear();
+        lastPreconnect.clear();
+        httpClient.connectionPool().evictAll();
+    }
+
+    /**
+     * 复用已有连接的请求的首字节耗时
+     */
+    public TtfbStats getWarmStats() {
+        return warmStats;
+    }
+
+    /**
+     * 需要新建连接的请求的首字节耗时
+     */
+    public TtfbStats getColdStats() {
+        return coldStats;
+    }
+
+    /**
+     * 首字节耗时统计
+     */
+    public static final class TtfbStats {
+
+        private int count;
+        private long totalMs;
+        private long minMs = Long.MAX_VALUE;
+        private long maxMs;
+
+        synchronized void record(long ms) {
+            count++;
+            totalMs += ms;
+            minMs = Math.min(minMs, ms);
+            maxMs = Math.max(maxMs, ms);
+        }
+
+        public synchronized int getCount() {
+            return count;
+        }
+
+        public synchronized long getAverageMs() {
+            return count == 0 ? 0 : totalMs / count;
+        }
+
+        @Override
+        public synchronized String toString() {
+            if (count == 0) {
+                return "暂无请求";
+            }
+            return String.format(Locale.ROOT, "%d 次，平均 %d ms，最快 %d ms，最慢 %d ms",
+                    count, totalMs / count, minMs, maxMs);
+        }
+    }
+
+    /**
+     * 记录一个请求从开始到收到响应头的耗时，期间发生过建立连接即为新建连接
+     */
+    private final class TimingListener extends EventListener {
+
+        private long callStart;
+        private boolean connected;
+        private boolean recorded;
+
+        @Override
+        public void callStart(Call call) {
+            callStart = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            connected = true;
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            // 重定向、重试时会多次回调，只记录第一次
+            if (recorded) {
+                return;
+            }
+            recorded = true;
+            long ttfb = SystemClock.elapsedRealtime() - callStart;
+            (connected ? coldStats : warmStats).record(ttfb);
+            Log.d(TAG, "首字节耗时 " + ttfb + "ms（" + (connected ? "新建连接" : "复用连接") + "）: "
+                    + call.request().url().host());
+        }
+    }
+
+    /**
+     * 带缓存的 DNS，查询失败时使用过期的结果
+     */
+    private static final class CachingDns implements Dns {
+
+        private static final long TTL_MS = 5 * 60 * 1000;
+
+        private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            long now = SystemClock.elapsedRealtime();
+            Entry entry = cache.get(hostname);
+            if (entry != null && now < entry.expireAt) {
+                return entry.addresses;
+            }
+            try {
+                List<InetAddress> addresses = Dns.SYSTEM.lookup(hostname);
+                cache.put(hostname, new Entry(addresses, now + TTL_MS));
+                return addresses;
+            } catch (UnknownHostException e) {
+                if (entry != null) {
+                    Log.w(TAG, "DNS 查询失败，使用缓存结果: " + hostname);
+                    return entry.addresses;
+                }
+                throw e;
+            }
+        }
+
+        void clear() {
+            cache.clear();
+        }
+
+        private static final class Entry {
+
+            final List<InetAddress> addresses;
+            final long expireAt;
+
+            Entry(List<InetAddress> addresses, long expireAt) {
+                this.addresses = addresses;
+                this.expireAt = expireAt;
+            }
+        }
+    }
+}
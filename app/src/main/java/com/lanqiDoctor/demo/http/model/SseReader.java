@@ -0,0 +1,107 @@
+package com.lanqiDoctor.demo.http.model;
+
+import java.io.IOException;
+
+import okio.BufferedSource;
+
+/**
+ * SSE（text/event-stream）增量读取工具
+ *
+ * 直接从响应体的 BufferedSource 逐行读取（okio 在自己的缓冲区中查找换行，不经过 Reader 再复制一次），
+ * 每读完一个事件（遇到空行）立即回调，不需要等整个响应下载完成，首个事件的到达时间与响应总长度无关：
+ * 1. 同一事件的多行 data: 按规范用换行符拼接
+ * 2. event: 指定事件类型，没有指定时为 message
+ * 3. 冒号开头的注释行、id: 和 retry: 字段忽略
+ * 4. 流结束时还没有遇到空行的事件也会回调，兼容最后没有空行的服务器
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class SseReader {
+
+    /** 没有 event: 字段时的事件类型 */
+    public static final String DEFAULT_EVENT = "message";
+
+    /**
+     * 事件接收方
+     */
+    public interface EventListener {
+        /**
+         * 收到一个完整事件（在读取响应的线程调用）
+         *
+         * @param event         事件类型
+         * @param data          事件数据，多行 data: 之间以换行符分隔
+         * @return              返回 false 停止读取
+         */
+        boolean onEvent(String event, String data) throws IOException;
+    }
+
+    private SseReader() {
+    }
+
+    /**
+     * 读取整个事件流，直到流结束或接收方要求停止
+     */
+    public static void read(BufferedSource source, EventListener listener) throws IOException {
+        String event = null;
+        // 绝大多数事件只有一行 data:，直接使用读出的行，多行时才拼接
+        String data = null;
+        StringBuilder multiLine = null;
+
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (line.isEmpty()) {
+                // 空行表示一个事件结束
+                if (data != null && !listener.onEvent(event != null ? event : DEFAULT_EVENT,
+                        multiLine != null ? multiLine.toString() : data)) {
+                    return;
+                }
+                event = null;
+                data = null;
+                multiLine = null;
+                continue;
+            }
+
+            if (line.charAt(0) == ':') {
+                // 注释行，通常是服务器保持连接的心跳
+                continue;
+            }
+
+            String field;
+            String value;
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                field = line;
+                value = "";
+            } else {
+                field = line.substring(0, colon);
+                // 冒号后的第一个空格不属于值
+                int start = colon + 1 < line.length() && line.charAt(colon + 1) == ' ' ? colon + 2 : colon + 1;
+                value = line.substring(start);
+            }
+
+            switch (field) {
+                case "data":
+                    if (data == null) {
+                        data = value;
+                    } else {
+                        if (multiLine == null) {
+                            multiLine = new StringBuilder(data);
+                        }
+                        multiLine.append('\n').append(value);
+                    }
+                    break;
+                case "event":
+                    event = value;
+                    break;
+                default:
+                    // id、retry 及未知字段不影响数据
+                    break;
+            }
+        }
+
+        if (data != null) {
+            listener.onEvent(event != null ? event : DEFAULT_EVENT, multiLine != null ? multiLine.toString() : data);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.lanqiDoctor.demo.http.model;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 大模型流式请求客户端
+ *
+ * 各个大模型后端共用的 SSE 请求入口：
+ * 1. 所有后端共用一个 OkHttpClient，由 SharedHttpClient 派生，与业务请求共用连接池、线程池和 DNS 缓存
+ * 2. SseReader 在网络线程逐个事件读取，DeltaDecoder 把事件解析成文本片段
+ * 3. 片段在主线程回调，上一次回调还没执行时到达的片段合并成一次回调，
+ *    主线程繁忙时消息队列不会堆积，网络线程也不会因此阻塞
+ * 4. 传入 LifecycleOwner 时，界面销毁后自动取消请求，之后不再回调
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class StreamClient {
+
+    private static final String TAG = "StreamClient";
+
+    private static volatile StreamClient instance;
+
+    private final OkHttpClient httpClient;
+    private final Handler mainHandler;
+
+    private StreamClient() {
+        this.httpClient = SharedHttpClient.getInstance().newBuilder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .build();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public static StreamClient getInstance() {
+        if (instance == null) {
+            synchronized (StreamClient.class) {
+                if (instance == null) {
+                    instance = new StreamClient();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 大模型请求共用的 OkHttpClient，非流式请求也使用它以复用连接
+     */
+    public OkHttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * 发起流式请求
+     *
+     * @param lifecycleOwner    界面销毁时取消请求，传 null 则不跟随生命周期
+     * @return                  可用于手动取消请求，取消后不再回调
+     */
+    public Call stream(LifecycleOwner lifecycleOwner, Request request, DeltaDecoder decoder, Listener listener) {
+        Call call = httpClient.newCall(request);
+        StreamTask task = new StreamTask(call, lifecycleOwner, decoder, listener);
+        task.bindLifecycle();
+        call.enqueue(task);
+        return call;
+    }
+
+    /**
+     * 流式请求回调，全部在主线程执行
+     */
+    public interface Listener {
+
+        /**
+         * 新的文本片段，可能由多个事件合并而成
+         */
+        void onDelta(String delta);
+
+        /**
+         * 流结束
+         *
+         * @param fullText      全部片段拼接的完整文本
+         */
+        void onComplete(String fullText);
+
+        /**
+         * 请求失败或读取中断，之前回调的片段仍然有效
+         */
+        void onError(String error);
+    }
+
+    /**
+     * 一次流式请求
+     */
+    private final class StreamTask implements Callback, LifecycleEventObserver {
+
+        private final Call call;
+        private final LifecycleOwner lifecycleOwner;
+        private final DeltaDecoder decoder;
+        private final Listener listener;
+        private final long startTime = System.currentTimeMillis();
+
+        /** 网络线程使用 */
+        private final StringBuilder fullText = new StringBuilder();
+        private boolean firstDelta = true;
+
+        /** 等待主线程回调的片段，网络线程与主线程共用 */
+        private final StringBuilder pending = new StringBuilder();
+        private boolean dispatchScheduled;
+
+        /** 已完成、失败或取消，之后不再回调 */
+        private volatile boolean finished;
+
+        StreamTask(Call call, LifecycleOwner lifecycleOwner, DeltaDecoder decoder, Listener listener) {
+            this.call = call;
+            this.lifecycleOwner = lifecycleOwner;
+            this.decoder = decoder;
+            this.listener = listener;
+        }
+
+        void bindLifecycle() {
+            if (lifecycleOwner == null) {
+                return;
+            }
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                addObserver();
+            } else {
+                mainHandler.post(this::addObserver);
+            }
+        }
+
+        private void addObserver() {
+            if (finished) {
+                return;
+            }
+            if (lifecycleOwner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+                cancel();
+                return;
+            }
+            lifecycleOwner.getLifecycle().addObserver(this);
+        }
+
+        @Override
+        public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                Log.d(TAG, "界面已销毁，取消流式请求");
+                cancel();
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            if (call.isCanceled()) {
+                return;
+            }
+            Log.e(TAG, "流式请求失败", e);
+            postError("流式请求失败: " + e.getMessage());
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            try (Response r = response) {
+                if (!r.isSuccessful() || r.body() == null) {
+                    postError("HTTP请求失败: " + r.code() + " " + r.message());
+                    return;
+                }
+
+                SseReader.read(r.body().source(), (event, data) -> {
+                    if (finished || decoder.isEnd(event, data)) {
+                        return false;
+                    }
+                    String delta;
+                    try {
+                        delta = decoder.decode(event, data);
+                    } catch (Exception e) {
+                        Log.w(TAG, "片段解析失败，跳过: " + data, e);
+                        return true;
+                    }
+                    if (delta != null && !delta.isEmpty()) {
+                        if (firstDelta) {
+                            Log.d(TAG, "首字耗时: " + (System.currentTimeMillis() - startTime) + "ms");
+                            firstDelta = false;
+                        }
+                        fullText.append(delta);
+                        offer(delta);
+                    }
+                    return true;
+                });
+
+                Log.d(TAG, "流式请求总耗时: " + (System.currentTimeMillis() - startTime) + "ms，结果长度: " + fullText.length());
+                String result = fullText.toString();
+                mainHandler.post(() -> {
+                    dispatchPending();
+                    if (finish()) {
+                        listener.onComplete(result);
+                    }
+                });
+            } catch (IOException e) {
+                if (call.isCanceled()) {
+                    return;
+                }
+                Log.e(TAG, "流式读取中断", e);
+                postError("流式读取中断: " + e.getMessage());
+            }
+        }
+
+        /**
+         * 网络线程交出一个片段，主线程还没取走上一批时只追加，不重复投递
+         */
+        private void offer(String delta) {
+            synchronized (pending) {
+                pending.append(delta);
+                if (dispatchScheduled) {
+                    return;
+                }
+                dispatchScheduled = true;
+            }
+            mainHandler.post(this::dispatchPending);
+        }
+
+        private void dispatchPending() {
+            String text;
+            synchronized (pending) {
+                text = pending.toString();
+                pending.setLength(0);
+                dispatchScheduled = false;
+            }
+            if (!finished && !text.isEmpty()) {
+                listener.onDelta(text);
+            }
+        }
+
+        private void postError(String error) {
+            mainHandler.post(() -> {
+                dispatchPending();
+                if (finish()) {
+                    listener.onError(error);
+                }
+            });
+        }
+
+        /**
+         * 在主线程结束本次请求，返回 false 表示已经结束过
+         */
+        private boolean finish() {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            if (lifecycleOwner != null) {
+                lifecycleOwner.getLifecycle().removeObserver(this);
+            }
+            return true;
+        }
+
+        private void cancel() {
+            finish();
+            call.cancel();
+        }
+    }
+}
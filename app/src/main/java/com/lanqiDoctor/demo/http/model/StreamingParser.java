@@ -0,0 +1,150 @@
+package com.lanqiDoctor.demo.http.model;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.hjq.gson.factory.GsonFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 响应流式解析工具
+ *
+ * 数组按元素逐个解析，每攒满一批交给接收方处理，内存中最多只保留一批元素，
+ * 峰值内存由批大小决定，与响应中的元素总数无关
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class StreamingParser {
+
+    /** 默认每批交给接收方的元素数 */
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    /**
+     * 批量接收方
+     */
+    public interface RecordSink<T> {
+        /**
+         * 接收一批元素（在网络线程调用），抛出异常会中止解析，本次请求按失败处理
+         */
+        void accept(List<T> batch) throws Exception;
+    }
+
+    private StreamingParser() {
+    }
+
+    /**
+     * 读取 HttpData 外层结构，data 字段交给接口解析
+     */
+    static HttpData<Object> readHttpData(Reader source, IStreamingApi api) throws Exception {
+        JsonReader reader = new JsonReader(source);
+        reader.setLenient(true);
+        try {
+            int code = 0;
+            String msg = null;
+            Object data = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "code":
+                        code = nextInt(reader);
+                        break;
+                    case "msg":
+                        msg = nextString(reader);
+                        break;
+                    case "data":
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                        } else {
+                            data = api.readData(reader);
+                        }
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+            return new HttpData<>(code, msg, data);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 逐个解析数组元素，按批交给接收方
+     *
+     * @return 解析的元素总数
+     */
+    public static <T> int readArray(JsonReader reader, Class<T> clazz, int batchSize,
+                                    RecordSink<T> sink) throws Exception {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        Gson gson = GsonFactory.getSingletonGson();
+        List<T> batch = new ArrayList<>(batchSize);
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            T element = gson.fromJson(reader, clazz);
+            if (element == null) {
+                continue;
+            }
+            batch.add(element);
+            count++;
+            if (batch.size() >= batchSize) {
+                sink.accept(batch);
+                // 接收方可能持有这一批，换一个新列表
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        reader.endArray();
+        if (!batch.isEmpty()) {
+            sink.accept(batch);
+        }
+        return count;
+    }
+
+    public static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    public static Long nextLong(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextLong();
+    }
+
+    public static int nextInt(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        return reader.nextInt();
+    }
+
+    public static boolean nextBoolean(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return false;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        // 容错：服务器以 "true" 或 1 表示布尔值
+        String value = reader.nextString();
+        return "true".equalsIgnoreCase(value) || "1".equals(value);
+    }
+}
@@ -0,0 +1,131 @@
+package com.lanqiDoctor.demo.http.model;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.lanqiDoctor.demo.http.api.SyncMedicationApi;
+import com.lanqiDoctor.demo.http.api.SyncMedicationIntakeApi;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * 同步请求体压缩拦截器
+ *
+ * 同步接口的请求体是大量重复字段名的 JSON，gzip 后通常只剩原来的一小部分。
+ * 旧服务器不认识 gzip 请求体，因此按响应头协商：
+ * 1. 服务器在同步接口的响应中带上 X-Accept-Content-Encoding: gzip，表示可以接收 gzip 请求体
+ * 2. 收到后记住，之后的同步请求体超过 MIN_COMPRESS_BYTES 时以 Content-Encoding: gzip 发送
+ * 3. 服务器返回 415 时视为不再支持，关闭压缩并以原始请求体重发一次
+ *
+ * 响应体的 gzip 由 OkHttp 自动协商和解压，这里不需要处理
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class SyncCompressionInterceptor implements Interceptor {
+
+    private static final String TAG = "SyncCompression";
+
+    /** 服务器声明可接收的请求体编码 */
+    public static final String HEADER_ACCEPT_CONTENT_ENCODING = "X-Accept-Content-Encoding";
+    private static final String ENCODING_GZIP = "gzip";
+    private static final int HTTP_UNSUPPORTED_MEDIA_TYPE = 415;
+
+    /** 小于该字节数的请求体不压缩 */
+    private static final long MIN_COMPRESS_BYTES = 1024;
+
+    private static final String PREFS_NAME = "sync_compression";
+    private static final String KEY_GZIP_ACCEPTED = "gzip_accepted";
+
+    /** 需要压缩的接口路径 */
+    private static final Set<String> SYNC_PATHS = new HashSet<>(Arrays.asList(
+            new SyncMedicationApi().getApi(),
+            new SyncMedicationIntakeApi().getApi()));
+
+    private final SharedPreferences prefs;
+
+    public SyncCompressionInterceptor(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isSyncRequest(request)) {
+            return chain.proceed(request);
+        }
+
+        RequestBody body = request.body();
+        if (body == null || request.header("Content-Encoding") != null
+                || !prefs.getBoolean(KEY_GZIP_ACCEPTED, false) || body.contentLength() < MIN_COMPRESS_BYTES) {
+            return remember(chain.proceed(request));
+        }
+
+        RequestBody gzipBody = gzip(body);
+        Log.d(TAG, "压缩同步请求体: " + body.contentLength() + " -> " + gzipBody.contentLength() + " 字节");
+        Response response = chain.proceed(request.newBuilder()
+                .header("Content-Encoding", ENCODING_GZIP)
+                .method(request.method(), gzipBody)
+                .build());
+
+        if (response.code() != HTTP_UNSUPPORTED_MEDIA_TYPE) {
+            return remember(response);
+        }
+
+        // 服务器已不支持 gzip 请求体（例如回滚到旧版本），关闭压缩并重发原始请求体
+        Log.w(TAG, "服务器不接收 gzip 请求体，关闭压缩");
+        prefs.edit().putBoolean(KEY_GZIP_ACCEPTED, false).apply();
+        response.close();
+        return remember(chain.proceed(request));
+    }
+
+    /**
+     * 根据响应头记录服务器是否可接收 gzip 请求体
+     */
+    private Response remember(Response response) {
+        String accepted = response.header(HEADER_ACCEPT_CONTENT_ENCODING);
+        boolean gzipAccepted = accepted != null && accepted.toLowerCase(Locale.ROOT).contains(ENCODING_GZIP);
+        if (response.isSuccessful() && gzipAccepted != prefs.getBoolean(KEY_GZIP_ACCEPTED, false)) {
+            Log.d(TAG, "服务器" + (gzipAccepted ? "支持" : "不再支持") + " gzip 请求体");
+            prefs.edit().putBoolean(KEY_GZIP_ACCEPTED, gzipAccepted).apply();
+        }
+        return response;
+    }
+
+    private static boolean isSyncRequest(Request request) {
+        String path = request.url().encodedPath();
+        for (String syncPath : SYNC_PATHS) {
+            if (path.endsWith(syncPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 压缩请求体，先写入内存以便给出准确的 Content-Length
+     */
+    private static RequestBody gzip(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        BufferedSink gzipSink = Okio.buffer(new GzipSink(buffer));
+        body.writeTo(gzipSink);
+        gzipSink.close();
+        ByteString compressed = buffer.readByteString();
+        return RequestBody.create(body.contentType(), compressed);
+    }
+}
@@ -0,0 +1,100 @@
+package com.lanqiDoctor.demo.http.model;
+
+import android.content.Context;
+
+import com.lanqiDoctor.demo.manager.SyncMetrics;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * 同步请求字节数统计拦截器
+ *
+ * 作为网络拦截器注册，统计的是网络上实际传输的字节数：请求体在 SyncCompressionInterceptor 压缩之后，
+ * 响应体在 OkHttp 自动解压之前。只处理 tag 为 SyncMetrics.Trace 的请求，
+ * 同一请求被重发（超时重试、压缩协商失败）时每次都会经过这里，由 Trace 计为重发
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class SyncMetricsInterceptor implements Interceptor {
+
+    private final SyncMetrics metrics;
+
+    public SyncMetricsInterceptor(Context context) {
+        this.metrics = SyncMetrics.getInstance(context);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        SyncMetrics.Trace trace = metrics.findTrace(request.tag());
+        if (trace == null) {
+            return chain.proceed(request);
+        }
+
+        long requestBytes = request.body() != null ? request.body().contentLength() : 0;
+        trace.onAttempt(requestBytes);
+
+        Response response = chain.proceed(request);
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        return response.newBuilder()
+                .body(new CountingResponseBody(body, trace))
+                .build();
+    }
+
+    /**
+     * 边读取边统计字节数的响应体，同步响应是流式解析的，内容长度未知时也能统计
+     */
+    private static final class CountingResponseBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        CountingResponseBody(ResponseBody delegate, SyncMetrics.Trace trace) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(countingSource(delegate.source(), trace));
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+
+        private static Source countingSource(Source source, SyncMetrics.Trace trace) {
+            return new ForwardingSource(source) {
+                @Override
+                public long read(Buffer sink, long byteCount) throws IOException {
+                    long read = super.read(sink, byteCount);
+                    if (read > 0) {
+                        trace.onResponseBytes(read);
+                    }
+                    return read;
+                }
+            };
+        }
+    }
+}
@@ -2,14 +2,21 @@ package com.lanqiDoctor.demo.manager;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
+import com.google.gson.Gson;
 import com.hjq.http.EasyHttp;
 import com.hjq.http.lifecycle.ApplicationLifecycle;
 import com.hjq.http.listener.OnHttpListener;
 import com.hjq.toast.ToastUtils;
+import com.lanqiDoctor.demo.database.dao.IntakeChangeJournalDao;
+import com.lanqiDoctor.demo.database.dao.IntakeTombstoneDao;
 import com.lanqiDoctor.demo.database.dao.MedicationIntakeRecordDao;
 import com.lanqiDoctor.demo.database.dao.MedicationRecordDao;
+import com.lanqiDoctor.demo.database.dao.SyncBatchResult;
 import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
 import com.lanqiDoctor.demo.database.entity.MedicationRecord;
 import com.lanqiDoctor.demo.http.api.SyncMedicationApi;
@@ -17,8 +24,18 @@ import com.lanqiDoctor.demo.http.api.SyncMedicationIntakeApi;
 
 import com.lanqiDoctor.demo.http.model.HttpData;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 import okhttp3.Call;
 
@@ -38,6 +55,22 @@ public class CloudSyncManager {
     private static final String KEY_LAST_INTAKE_SYNC = "last_intake_sync";
     private static final String KEY_AUTO_SYNC_ENABLED = "auto_sync_enabled";
 
+    /** 服药记录上传每页条数 */
+    private static final int INTAKE_UPLOAD_PAGE_SIZE = 200;
+    /** 用药信息每次上传的条数 */
+    private static final int MEDICATION_UPLOAD_PAGE_SIZE = 100;
+    /** 下载时每页请求的条数 */
+    private static final int DOWNLOAD_PAGE_SIZE = 500;
+
+    /** 用药信息分页上传断点：已被服务器确认的最后一条记录ID */
+    private static final String KEY_MEDICATION_UPLOAD_AFTER_ID = "medication_upload_after_id";
+    /** 分页下载断点名称 */
+    private static final String CHECKPOINT_MEDICATION = "medication";
+    private static final String CHECKPOINT_INTAKE = "intake";
+    private static final String SYNC_CANCELLED = "同步已取消";
+    /** 超过该时间仍未结束的同步视为已失去响应，允许重新发起 */
+    private static final long SYNC_STALE_MS = 10 * 60 * 1000;
+
     private static volatile CloudSyncManager instance;
 
     private Context context;
@@ -45,12 +78,26 @@ public class CloudSyncManager {
     private IUserState userStateManager;
     private MedicationRecordDao medicationDao;
     private MedicationIntakeRecordDao intakeDao;
+    private IntakeChangeJournalDao changeJournalDao;
+    private IntakeTombstoneDao tombstoneDao;
+    private SyncMetrics metrics;
+    /** 同步结果在主线程回调 */
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /** 进行中的完整同步，null 表示没有同步在进行 */
+    private InFlightSync inFlight;
+    /** 最近一次发起的完整同步的序号 */
+    private long syncGeneration;
+    /** 最近一次完整同步各环节的耗时 */
+    private volatile Map<String, Long> lastLegDurations = Collections.emptyMap();
+    private volatile long lastSyncDurationMs;
     // private String userId; // 新增
 
     private CloudSyncManager(Context context) {
         Log.d(TAG, "初始化 CloudSyncManager");
         this.context = context.getApplicationContext();
         this.syncPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.metrics = SyncMetrics.getInstance(context);
 
         try {
             // 使用适配器包装UserStateManager
@@ -68,6 +115,8 @@ public class CloudSyncManager {
         try {
             this.medicationDao = new MedicationRecordDao(context);
             this.intakeDao = new MedicationIntakeRecordDao(context);
+            this.changeJournalDao = new IntakeChangeJournalDao(context);
+            this.tombstoneDao = new IntakeTombstoneDao(context);
             Log.d(TAG, "数据库DAO初始化成功");
         } catch (Exception e) {
             Log.e(TAG, "数据库DAO初始化失败", e);
@@ -164,6 +213,10 @@ public class CloudSyncManager {
 
     /**
      * 执行完整的数据同步（上传和下载） - 修复首次同步逻辑
+     *
+     * 同一时间只有一次完整同步在进行，期间的调用不再重新发起，等当前同步结束后一起回调。
+     * 超过 SYNC_STALE_MS 仍未结束的同步被取消后重新发起；每次同步有自己的序号，
+     * 被取消的同步结束时只通知加入它的调用方，不影响新发起的同步
      */
     public void performFullSync(SyncCallback callback) {
         Log.d(TAG, "开始执行完整数据同步");
@@ -177,32 +230,113 @@ public class CloudSyncManager {
             return;
         }
 
+        InFlightSync current;
+        synchronized (this) {
+            if (inFlight != null) {
+                if (System.currentTimeMillis() - inFlight.startTime < SYNC_STALE_MS) {
+                    Log.d(TAG, "已有同步正在进行，等待其完成");
+                    inFlight.callbacks.add(callback);
+                    return;
+                }
+                Log.w(TAG, "第 " + inFlight.generation + " 次同步超时仍未结束，取消后重新发起");
+                inFlight.cancelled = true;
+            }
+            current = new InFlightSync(++syncGeneration);
+            current.callbacks.add(callback);
+            inFlight = current;
+        }
+
+        SyncCallback fullSyncCallback = new SyncCallback() {
+            @Override
+            public void onSuccess(String message) {
+                List<SyncCallback> waiting = finishFullSync(current);
+                mainHandler.post(() -> {
+                    for (SyncCallback waitingCallback : waiting) {
+                        waitingCallback.onSuccess(message);
+                    }
+                });
+            }
+
+            @Override
+            public void onError(String error) {
+                List<SyncCallback> waiting = finishFullSync(current);
+                mainHandler.post(() -> {
+                    for (SyncCallback waitingCallback : waiting) {
+                        waitingCallback.onError(error);
+                    }
+                });
+            }
+        };
+
         boolean isFirstSync = isFirstSync();
         Log.d(TAG, "执行同步流程，是否首次同步: " + isFirstSync);
+        SyncMetrics.Run run = metrics.startRun(isFirstSync ? "首次同步" : "增量同步");
 
         if (isFirstSync) {
             // 首次同步：先下载服务器数据，再上传本地数据
-            performFirstTimeSync(callback);
+            performFirstTimeSync(current, run, fullSyncCallback);
         } else {
             // 增量同步：先上传，再下载
-            performIncrementalSync(callback);
+            performIncrementalSync(current, run, fullSyncCallback);
+        }
+    }
+
+    /**
+     * 结束一次完整同步，返回加入这次同步、需要通知的回调；
+     * 结束的是已被取代的旧同步时，不影响进行中的新同步
+     */
+    private synchronized List<SyncCallback> finishFullSync(InFlightSync finished) {
+        List<SyncCallback> waiting = new ArrayList<>();
+        for (SyncCallback callback : finished.callbacks) {
+            if (callback != null) {
+                waiting.add(callback);
+            }
+        }
+        finished.callbacks.clear();
+        if (inFlight == finished) {
+            inFlight = null;
+        }
+        return waiting;
+    }
+
+    /**
+     * 取消进行中的同步
+     *
+     * 尚未开始的环节不再执行，进行中的分页传输在当前页结束后停止，已提交的页由断点保留
+     */
+    public void cancelSync() {
+        synchronized (this) {
+            if (inFlight == null) {
+                return;
+            }
+            Log.d(TAG, "请求取消同步");
+            inFlight.cancelled = true;
         }
     }
 
     /**
      * 执行首次同步
+     *
+     * 用药信息下载 → (服务器服药记录下载 ∥ 本地用药信息上传) → 标记首次同步完成
      */
-    private void performFirstTimeSync(SyncCallback callback) {
+    private void performFirstTimeSync(InFlightSync current, SyncMetrics.Run run, SyncCallback callback) {
         Log.d(TAG, "执行首次同步流程");
-
-        // 首次同步：先下载服务器的所有数据
-        downloadAllServerData(new SyncCallback() {
+        SyncTimer timer = new SyncTimer();
+
+        // 首次同步：先下载服务器的所有用药信息，服药记录依赖用药信息
+        CompletableFuture<String> medicationDownload =
+                runLeg("用药信息下载", timer, current, this::downloadMedicationDataForFirstSync);
+        CompletableFuture<String> intakeDownload = medicationDownload.thenCompose(
+                message -> runLeg("服药记录下载", timer, current, this::downloadIntakeDataForFirstSync));
+        // 然后上传本地数据（如果有的话），与服药记录下载互不依赖
+        CompletableFuture<String> localUpload = medicationDownload.thenCompose(
+                message -> runLeg("本地数据上传", timer, current, this::uploadLocalDataForFirstSync));
+
+        finishPipeline(intakeDownload.thenCombine(localUpload, (intake, local) -> intake), timer, run, new SyncCallback() {
             @Override
             public void onSuccess(String message) {
                 Log.d(TAG, "首次同步：服务器数据下载成功: " + message);
-
-                // 然后上传本地数据（如果有的话）
-                uploadLocalDataForFirstSync(callback);
+                markFirstSyncCompleted(callback);
             }
 
             @Override
@@ -210,145 +344,165 @@ public class CloudSyncManager {
                 Log.e(TAG, "首次同步：服务器数据下载失败: " + error);
                 if (callback != null) callback.onError("首次同步失败: " + error);
             }
-        });
+        }, medicationDownload, intakeDownload, localUpload);
     }
 
     /**
      * 执行增量同步
+     *
+     * 用药信息上传 → (用药信息下载 ∥ 服药记录上传) → 服药记录下载
+     * 同类数据先上传再下载，避免服务器的旧数据覆盖尚未上传的本地修改；用药信息先于其服药记录
      */
-    private void performIncrementalSync(SyncCallback callback) {
+    private void performIncrementalSync(InFlightSync current, SyncMetrics.Run run, SyncCallback callback) {
         Log.d(TAG, "执行增量同步流程");
-
-        // 增量同步：先上传本地变更，再下载服务器变更
-        uploadMedicationData(new SyncCallback() {
+        SyncTimer timer = new SyncTimer();
+
+        // 下载的起始时间在上传之前读取：上传成功会把同步时间推进到上传时的服务器时间，
+        // 之后再读取会漏掉其他设备在这段时间内的修改，也与中断时保存的下载断点对不上
+        Long medicationSince = getLastMedicationSyncTime();
+        Long intakeSince = getLastIntakeSyncTime();
+
+        CompletableFuture<String> medicationUpload =
+                runLeg("用药信息上传", timer, current, this::uploadMedicationData);
+        CompletableFuture<String> medicationDownload = medicationUpload.thenCompose(
+                message -> runLeg("用药信息下载", timer, current, legCallback -> downloadMedicationData(medicationSince, legCallback)));
+        CompletableFuture<String> intakeUpload = medicationUpload.thenCompose(
+                message -> runLeg("服药记录上传", timer, current, this::uploadIntakeData));
+        CompletableFuture<String> intakeDownload = medicationDownload
+                .thenCombine(intakeUpload, (medication, intake) -> intake)
+                .thenCompose(message -> runLeg("服药记录下载", timer, current, legCallback -> downloadIntakeData(intakeSince, legCallback)));
+
+        finishPipeline(intakeDownload, timer, run, new SyncCallback() {
             @Override
             public void onSuccess(String message) {
-                Log.d(TAG, "增量同步：用药信息上传成功: " + message);
-                uploadIntakeData(new SyncCallback() {
-                    @Override
-                    public void onSuccess(String message) {
-                        Log.d(TAG, "增量同步：服药记录上传成功: " + message);
-                        downloadServerData(callback);
-                    }
-
-                    @Override
-                    public void onError(String error) {
-                        Log.e(TAG, "增量同步：服药记录上传失败: " + error);
-                        if (callback != null) callback.onError(error);
-                    }
-                });
+                Log.d(TAG, "增量同步完成: " + message);
+                if (callback != null) callback.onSuccess(message);
             }
 
             @Override
             public void onError(String error) {
-                Log.e(TAG, "增量同步：用药信息上传失败: " + error);
+                Log.e(TAG, "增量同步失败: " + error);
                 if (callback != null) callback.onError(error);
             }
-        });
+        }, medicationUpload, medicationDownload, intakeUpload, intakeDownload);
     }
 
     /**
-     * 下载所有服务器数据（首次同步专用）
+     * 把一个回调式的同步环节包装成 CompletableFuture，并记录耗时；已取消时不再执行
+     *
+     * 环节在线程池中发起，本地数据库读取不占用调用方线程（第一个环节的调用方通常是主线程）；
+     * 交给环节的回调带有所属的同步，分页传输据此判断是否已取消
      */
-    private void downloadAllServerData(SyncCallback callback) {
-        Log.d(TAG, "开始下载所有服务器数据（首次同步）");
-
-        // 首次同步时，不传递lastSyncTime，让服务器返回所有数据
-        downloadMedicationDataForFirstSync(new SyncCallback() {
-            @Override
-            public void onSuccess(String message) {
-                Log.d(TAG, "首次同步：用药信息下载成功: " + message);
-                downloadIntakeDataForFirstSync(callback);
+    private CompletableFuture<String> runLeg(String name, SyncTimer timer, InFlightSync current,
+                                             Consumer<SyncCallback> leg) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        syncExecutor().execute(() -> {
+            if (current.cancelled) {
+                future.completeExceptionally(new SyncLegException(SYNC_CANCELLED));
+                return;
             }
 
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "首次同步：用药信息下载失败: " + error);
-                if (callback != null) callback.onError(error);
+            long startTime = SystemClock.elapsedRealtime();
+            try {
+                leg.accept(new LegCallback(current) {
+                    @Override
+                    public void onSuccess(String message) {
+                        timer.record(name, startTime);
+                        future.complete(message);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        timer.record(name, startTime);
+                        future.completeExceptionally(new SyncLegException(name + "失败: " + error));
+                    }
+                });
+            } catch (Exception e) {
+                Log.e(TAG, name + "发生异常", e);
+                timer.record(name, startTime);
+                future.completeExceptionally(new SyncLegException(name + "失败: " + e.getMessage()));
             }
         });
+        return future;
     }
 
     /**
-     * 首次同步专用：下载用药信息
+     * 所有环节都结束后保存耗时和同步指标并回调；失败时报告第一个失败的环节
+     *
+     * 某个环节失败时，依赖它的环节立即以失败结束，但与它并行、已经开始的环节仍在传输，
+     * 必须等 legs 全部结束才能回调，否则同步状态被清除后可能再发起一次同步，与仍在进行的环节重叠
+     *
+     * @param pipeline      决定同步结果的最终环节
+     * @param legs          本次同步的所有环节
      */
-    private void downloadMedicationDataForFirstSync(SyncCallback callback) {
-        Log.d(TAG, "开始下载用药信息（首次同步）");
-
-        EasyHttp.post(new ApplicationLifecycle())
-                .api(new SyncMedicationApi()
-                        .setLastSyncTime(null) // 关键：首次同步不传递时间戳
-                        .setOperationType("download_all") // 使用特殊操作类型
-                        .setIsFirstSync(true)) // 标记为首次同步
-                .request(new OnHttpListener<HttpData<SyncMedicationApi.Bean>>() {
-
-                    @Override
-                    public void onStart(Call call) {
-                        Log.d(TAG, "开始下载用药信息网络请求（首次同步）");
+    private void finishPipeline(CompletableFuture<String> pipeline, SyncTimer timer, SyncMetrics.Run run,
+                                SyncCallback callback, CompletableFuture<?>... legs) {
+        CompletableFuture<?>[] all = Arrays.copyOf(legs, legs.length + 1);
+        all[legs.length] = pipeline;
+        CompletableFuture.allOf(all).handle((ignored, ignoredError) -> pipeline).thenCompose(result -> result)
+                .whenComplete((message, error) -> {
+                    lastLegDurations = timer.snapshot();
+                    lastSyncDurationMs = timer.elapsed();
+                    Log.d(TAG, "同步耗时 " + lastSyncDurationMs + " ms，各环节: " + lastLegDurations);
+
+                    if (error == null) {
+                        metrics.finishRun(run, lastLegDurations, lastSyncDurationMs, null, null);
+                        callback.onSuccess(message);
+                        return;
                     }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    String errorMsg = cause instanceof SyncLegException ? cause.getMessage() : "同步失败: " + cause.getMessage();
+                    metrics.finishRun(run, lastLegDurations, lastSyncDurationMs, errorMsg, cause);
+                    callback.onError(errorMsg);
+                });
+    }
 
-                    @Override
-                    public void onEnd(Call call) {
-                        Log.d(TAG, "用药信息下载网络请求结束（首次同步）");
-                    }
+    /**
+     * 同步环节在线程池中发起，本地数据库读取不占用主线程
+     */
+    private static Executor syncExecutor() {
+        return ThreadPoolManager.getInstance();
+    }
 
-                    @Override
-                    public void onSucceed(HttpData<SyncMedicationApi.Bean> data) {
-                        Log.d(TAG, "用药信息下载网络请求成功（首次同步）");
-                        try {
-                            SyncMedicationApi.Bean result = data.getData();
-                            if (result != null && result.isSuccess()) {
+    /**
+     * 分页传输在页与页之间检查所属的同步是否已取消，已提交的页由断点保留，下次从断点继续；
+     * 不属于完整同步的调用（例如直接调用 uploadMedicationData）不会被取消
+     */
+    private boolean stopIfCancelled(SyncCallback callback) {
+        InFlightSync owner = ownerOf(callback);
+        if (owner == null || !owner.cancelled) {
+            return false;
+        }
+        Log.d(TAG, "同步已取消，在页边界停止");
+        if (callback != null) {
+            callback.onError(SYNC_CANCELLED);
+        }
+        return true;
+    }
 
-                                if (result.getMedications() != null && !result.getMedications().isEmpty()) {
-                                    int savedCount = 0;
-                                    for (MedicationRecord medication : result.getMedications()) {
-                                        try {
-                                            // 首次同步：直接插入，不检查是否存在
-                                            medicationDao.insert(medication);
-                                            savedCount++;
-                                            Log.d(TAG, "首次同步：插入用药记录: " + medication.getMedicationName());
-                                        } catch (Exception e) {
-                                            Log.e(TAG, "首次同步：保存用药记录失败: " + medication.getMedicationName(), e);
-                                        }
-                                    }
+    /**
+     * 回调所属的完整同步，不属于完整同步时返回 null
+     */
+    private static InFlightSync ownerOf(SyncCallback callback) {
+        return callback instanceof LegCallback ? ((LegCallback) callback).owner : null;
+    }
 
-                                    Log.d(TAG, "首次同步：用药信息下载完成，保存了 " + savedCount + " 条记录");
-                                    if (callback != null) {
-                                        callback.onSuccess("下载了 " + savedCount + " 条用药信息");
-                                    }
-                                } else {
-                                    Log.d(TAG, "首次同步：服务器没有用药信息");
-                                    if (callback != null) {
-                                        callback.onSuccess("服务器没有用药信息");
-                                    }
-                                }
-                            } else {
-                                String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
-                                Log.e(TAG, "首次同步：用药信息下载失败: " + errorMsg);
-                                if (callback != null) {
-                                    callback.onError(errorMsg);
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "首次同步：处理用药信息下载响应时发生异常", e);
-                            if (callback != null) {
-                                callback.onError("响应处理失败: " + e.getMessage());
-                            }
-                        }
-                    }
+    /**
+     * 首次同步专用：下载用药信息
+     */
+    private void downloadMedicationDataForFirstSync(SyncCallback callback) {
+        Log.d(TAG, "开始下载用药信息（首次同步）");
 
-                    @Override
-                    public void onFail(Exception e) {
-                        Log.e(TAG, "首次同步：用药信息下载网络请求失败", e);
-                        if (callback != null) {
-                            callback.onError("下载失败: " + e.getMessage());
-                        }
-                    }
-                });
+        // 关键：首次同步不传递时间戳，让服务器返回所有数据
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(CHECKPOINT_MEDICATION, "download_all",
+                getCurrentUserId(), null)
+                .resume(syncPrefs);
+        downloadMedicationPage(checkpoint, callback);
     }
 
     /**
-     * 首次同步专用：下载服药记录 - 修复时间范围计算
+     * 首次同步专用：下载服药记录
      */
     private void downloadIntakeDataForFirstSync(SyncCallback callback) {
         Log.d(TAG, "开始下载服药记录（首次同步）");
@@ -363,116 +517,20 @@ public class CloudSyncManager {
             return;
         }
 
-        // 修复：正确计算最近30天的时间范围
-        Calendar calendar = Calendar.getInstance();
-
-        // 设置结束时间为今天的23:59:59
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-        calendar.set(Calendar.MILLISECOND, 999);
-        long endDate = calendar.getTimeInMillis();
-
-        // 设置开始时间为30天前的00:00:00
-        calendar.add(Calendar.DAY_OF_MONTH, -30);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long startDate = calendar.getTimeInMillis();
-
-        Log.d(TAG, "首次同步服药记录时间范围: " + formatDateTime(startDate) + " 至 " + formatDateTime(endDate));
-
-        EasyHttp.post(new ApplicationLifecycle())
-                .api(new SyncMedicationIntakeApi()
-                        .setLastSyncTime(null) // 关键：首次同步不传递时间戳
-                        .setOperationType("download_all") // 使用特殊操作类型
-                        .setStartDate(startDate)
-                        .setEndDate(endDate)
-                        //.setUserId(currentUserId) // 修复：传递当前用户ID
-                        .setIsFirstSync(true)) // 标记为首次同步
-                .request(new OnHttpListener<HttpData<SyncMedicationIntakeApi.Bean>>() {
-
-                    @Override
-                    public void onStart(Call call) {
-                        Log.d(TAG, "开始下载服药记录网络请求（首次同步）");
-                    }
-
-                    @Override
-                    public void onEnd(Call call) {
-                        Log.d(TAG, "服药记录下载网络请求结束（首次同步）");
-                    }
-
-                    @Override
-                    public void onSucceed(HttpData<SyncMedicationIntakeApi.Bean> data) {
-                        Log.d(TAG, "服药记录下载网络请求成功（首次同步）");
-                        try {
-                            SyncMedicationIntakeApi.Bean result = data.getData();
-                            if (result != null && result.isSuccess()) {
-
-                                if (result.getIntakeRecords() != null && !result.getIntakeRecords().isEmpty()) {
-                                    int savedCount = 0;
-                                    for (MedicationIntakeRecord intake : result.getIntakeRecords()) {
-                                        try {
-                                            // 🔥 关键修复：确保设置正确的用户ID
-                                            if (intake.getUserId() == null || intake.getUserId().isEmpty()) {
-                                                Log.w(TAG, "服务器返回的服药记录userId为空，设置为当前用户: " + intake.getMedicationName());
-                                                intake.setUserId(currentUserId);
-                                            }
-                                            
-                                            // 🔥 进一步验证：只保存属于当前用户的数据
-                                            if (currentUserId.equals(intake.getUserId())) {
-                                                intakeDao.insert(intake);
-                                                savedCount++;
-                                                Log.d(TAG, "首次同步：插入服药记录: " + intake.getMedicationName() +
-                                                        " userId=" + intake.getUserId() + 
-                                                        " (" + formatDateTime(intake.getPlannedTime()) + ")");
-                                            } else {
-                                                Log.w(TAG, "跳过其他用户的服药记录: userId=" + intake.getUserId() + 
-                                                        ", 当前用户=" + currentUserId);
-                                            }
-                                        } catch (Exception e) {
-                                            Log.e(TAG, "首次同步：保存服药记录失败: " + intake.getMedicationName(), e);
-                                        }
-                                    }
-
-                                    Log.d(TAG, "首次同步：服药记录下载完成，保存了 " + savedCount + " 条记录");
-                                    if (callback != null) {
-                                        callback.onSuccess("首次同步完成，下载了 " + savedCount + " 条服药记录");
-                                    }
-                                } else {
-                                    Log.d(TAG, "首次同步：服务器没有服药记录");
-                                    if (callback != null) {
-                                        callback.onSuccess("首次同步完成，服务器没有服药记录");
-                                    }
-                                }
-                            } else {
-                                String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
-                                Log.e(TAG, "首次同步：服药记录下载失败: " + errorMsg);
-                                if (callback != null) {
-                                    callback.onError(errorMsg);
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "首次同步：处理服药记录下载响应时发生异常", e);
-                            if (callback != null) {
-                                callback.onError("响应处理失败: " + e.getMessage());
-                            }
-                        }
-                    }
+        long[] window = recentIntakeWindow();
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(CHECKPOINT_INTAKE, "download_all",
+                currentUserId, null)
+                .withWindow(window[0], window[1])
+                .resume(syncPrefs);
 
-                    @Override
-                    public void onFail(Exception e) {
-                        Log.e(TAG, "首次同步：服药记录下载网络请求失败", e);
-                        if (callback != null) {
-                            callback.onError("下载失败: " + e.getMessage());
-                        }
-                    }
-                });
-}
+        Log.d(TAG, "首次同步服药记录时间范围: " + formatDateTime(checkpoint.startDate) + " 至 " + formatDateTime(checkpoint.endDate));
+        downloadIntakePage(checkpoint, callback);
+    }
 
     /**
      * 首次同步完成后上传本地数据
+     *
+     * 上传失败也按成功回调，避免重复下载服务器数据
      */
     private void uploadLocalDataForFirstSync(SyncCallback callback) {
         Log.d(TAG, "首次同步：开始上传本地数据");
@@ -482,32 +540,32 @@ public class CloudSyncManager {
             List<MedicationRecord> localMedications = medicationDao.findAll();
 
             if (localMedications.isEmpty()) {
-                Log.d(TAG, "首次同步：本地没有数据需要上传，标记同步完成");
-                markFirstSyncCompleted(callback);
+                Log.d(TAG, "首次同步：本地没有数据需要上传");
+                callback.onSuccess("本地没有数据需要上传");
                 return;
             }
 
             Log.d(TAG, "首次同步：发现本地有 " + localMedications.size() + " 条数据需要上传");
 
-            // 上传本地数据
-            uploadMedicationData(new SyncCallback() {
+            // 上传本地数据，仍属于本次同步，取消时同样在页边界停止
+            uploadMedicationData(new LegCallback(ownerOf(callback)) {
                 @Override
                 public void onSuccess(String message) {
                     Log.d(TAG, "首次同步：本地数据上传成功: " + message);
-                    markFirstSyncCompleted(callback);
+                    callback.onSuccess(message);
                 }
 
                 @Override
                 public void onError(String error) {
                     Log.e(TAG, "首次同步：本地数据上传失败: " + error);
                     // 即使上传失败，也标记首次同步完成，避免重复下载服务器数据
-                    markFirstSyncCompleted(callback);
+                    callback.onSuccess("本地数据上传失败: " + error);
                 }
             });
 
         } catch (Exception e) {
             Log.e(TAG, "首次同步：检查本地数据时发生异常", e);
-            markFirstSyncCompleted(callback);
+            callback.onSuccess("检查本地数据失败");
         }
     }
 
@@ -535,7 +593,10 @@ public class CloudSyncManager {
     }
 
     /**
-     * 上传用药信息到云端 - 优化版本
+     * 上传用药信息到云端
+     *
+     * 按ID升序分页上传，每页被服务器确认后保存断点，上传中断后从断点之后继续；
+     * 断点之后新增的记录ID更大，不会被跳过
      */
     public void uploadMedicationData(SyncCallback callback) {
         Log.d(TAG, "开始上传用药信息到云端");
@@ -558,82 +619,127 @@ public class CloudSyncManager {
                 return;
             }
 
-            List<MedicationRecord> medications = medicationDao.findAll();
+            long afterId = syncPrefs.getLong(KEY_MEDICATION_UPLOAD_AFTER_ID, 0);
+            List<MedicationRecord> medications = new ArrayList<>();
+            for (MedicationRecord medication : medicationDao.findAll()) {
+                if (medication.getId() != null && medication.getId() > afterId) {
+                    medications.add(medication);
+                }
+            }
+            Collections.sort(medications, (a, b) -> Long.compare(a.getId(), b.getId()));
             Long lastSyncTime = getLastMedicationSyncTime();
 
-            Log.d(TAG, "准备上传 " + medications.size() + " 条用药记录");
+            Log.d(TAG, "准备上传 " + medications.size() + " 条用药记录" + (afterId > 0 ? "，从断点 ID " + afterId + " 之后继续" : ""));
             Log.d(TAG, "上次同步时间: " + (lastSyncTime != null ? lastSyncTime : "首次同步"));
 
-            // 使用 ApplicationLifecycle 进行网络请求
-            EasyHttp.post(new ApplicationLifecycle())
-                    .api(new SyncMedicationApi()
-                            .setMedications(medications)
-                            .setLastSyncTime(lastSyncTime) // 首次同步时为null
-                            .setOperationType("upload"))
-                    .request(new OnHttpListener<HttpData<SyncMedicationApi.Bean>>() {
-
-                        @Override
-                        public void onStart(Call call) {
-                            Log.d(TAG, "开始上传用药信息网络请求");
-                        }
+            uploadMedicationPage(medications, 0, lastSyncTime, callback);
 
-                        @Override
-                        public void onEnd(Call call) {
-                            Log.d(TAG, "用药信息上传网络请求结束");
-                        }
+        } catch (Exception e) {
+            Log.e(TAG, "上传用药信息时发生异常", e);
+            if (callback != null) {
+                callback.onError("上传失败: " + e.getMessage());
+            }
+        }
+    }
 
-                        @Override
-                        public void onSucceed(HttpData<SyncMedicationApi.Bean> data) {
-                            Log.d(TAG, "用药信息上传网络请求成功");
-                            try {
-                                SyncMedicationApi.Bean result = data.getData();
-                                if (result != null && result.isSuccess()) {
-                                    // 关键：保存服务器返回的时间戳
-                                    if (result.getServerTime() != null) {
-                                        updateLastMedicationSyncTime(result.getServerTime());
-                                        Log.d(TAG, "用药信息上传成功，更新同步时间: " + result.getServerTime());
-                                    } else {
-                                        Log.w(TAG, "服务器未返回同步时间，使用当前时间");
-                                        updateLastMedicationSyncTime(System.currentTimeMillis());
-                                    }
+    /**
+     * 上传一页用药信息，服务器确认后保存断点并继续上传下一页，最后一页成功后才更新同步时间
+     *
+     * @param offset 本页在 medications 中的起始位置
+     */
+    private void uploadMedicationPage(List<MedicationRecord> medications, int offset, Long lastSyncTime,
+                                      SyncCallback callback) {
+        int end = Math.min(offset + MEDICATION_UPLOAD_PAGE_SIZE, medications.size());
+        List<MedicationRecord> page = new ArrayList<>(medications.subList(offset, end));
+        boolean lastPage = end >= medications.size();
+        SyncMetrics.Trace trace = metrics.startRequest(SyncMetrics.PHASE_MEDICATION_UPLOAD);
+        trace.addRows(page.size(), 0);
+
+        // 使用 ApplicationLifecycle 进行网络请求
+        EasyHttp.post(new ApplicationLifecycle())
+                .tag(trace.getTag())
+                .api(new SyncMedicationApi()
+                        .setMedications(page)
+                        .setLastSyncTime(lastSyncTime) // 首次同步时为null
+                        .setOperationType("upload")
+                        .setPageSize(MEDICATION_UPLOAD_PAGE_SIZE)
+                        .setLastPage(lastPage))
+                .request(new OnHttpListener<HttpData<SyncMedicationApi.Bean>>() {
+
+                    @Override
+                    public void onStart(Call call) {
+                        Log.d(TAG, "开始上传用药信息网络请求 - 本页数量: " + page.size());
+                    }
+
+                    @Override
+                    public void onEnd(Call call) {
+                        Log.d(TAG, "用药信息上传网络请求结束");
+                    }
 
-                                    if (callback != null) {
-                                        callback.onSuccess(result.getMessage());
+                    @Override
+                    public void onSucceed(HttpData<SyncMedicationApi.Bean> data) {
+                        Log.d(TAG, "用药信息上传网络请求成功");
+                        try {
+                            SyncMedicationApi.Bean result = data.getData();
+                            if (result != null && result.isSuccess()) {
+                                trace.succeed();
+                                if (!lastPage) {
+                                    // 保存断点后继续上传下一页
+                                    syncPrefs.edit()
+                                            .putLong(KEY_MEDICATION_UPLOAD_AFTER_ID, page.get(page.size() - 1).getId())
+                                            .apply();
+                                    if (!stopIfCancelled(callback)) {
+                                        uploadMedicationPage(medications, end, lastSyncTime, callback);
                                     }
+                                    return;
+                                }
+                                syncPrefs.edit().remove(KEY_MEDICATION_UPLOAD_AFTER_ID).apply();
+
+                                // 关键：保存服务器返回的时间戳
+                                if (result.getServerTime() != null) {
+                                    updateLastMedicationSyncTime(result.getServerTime());
+                                    Log.d(TAG, "用药信息上传成功，更新同步时间: " + result.getServerTime());
                                 } else {
-                                    String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
-                                    Log.e(TAG, "用药信息上传失败: " + errorMsg);
-                                    if (callback != null) {
-                                        callback.onError(errorMsg);
-                                    }
+                                    Log.w(TAG, "服务器未返回同步时间，使用当前时间");
+                                    updateLastMedicationSyncTime(System.currentTimeMillis());
                                 }
-                            } catch (Exception e) {
-                                Log.e(TAG, "处理用药信息上传响应时发生异常", e);
+
+                                if (callback != null) {
+                                    callback.onSuccess(result.getMessage());
+                                }
+                            } else {
+                                String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
+                                Log.e(TAG, "用药信息上传失败: " + errorMsg);
+                                trace.fail(SyncMetrics.ERROR_SERVER_REJECTED);
                                 if (callback != null) {
-                                    callback.onError("响应处理失败: " + e.getMessage());
+                                    callback.onError(errorMsg);
                                 }
                             }
-                        }
-
-                        @Override
-                        public void onFail(Exception e) {
-                            Log.e(TAG, "用药信息上传网络请求失败", e);
+                        } catch (Exception e) {
+                            Log.e(TAG, "处理用药信息上传响应时发生异常", e);
+                            trace.fail(e);
                             if (callback != null) {
-                                callback.onError("网络错误: " + e.getMessage());
+                                callback.onError("响应处理失败: " + e.getMessage());
                             }
                         }
-                    });
+                    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "上传用药信息时发生异常", e);
-            if (callback != null) {
-                callback.onError("上传失败: " + e.getMessage());
-            }
-        }
+                    @Override
+                    public void onFail(Exception e) {
+                        Log.e(TAG, "用药信息上传网络请求失败", e);
+                        trace.fail(e);
+                        if (callback != null) {
+                            callback.onError("网络错误: " + e.getMessage());
+                        }
+                    }
+                });
     }
 
     /**
-     * 上传服药记录到云端 - 修复时间范围计算
+     * 上传服药记录到云端
+     *
+     * 只上传变更日志中登记的记录（上次服务器确认之后本地新增或修改的）和尚未同步的删除墓碑，
+     * 上传量与修改次数成正比，与历史记录的多少无关
      */
     public void uploadIntakeData(SyncCallback callback) {
         Log.d(TAG, "开始上传服药记录到云端");
@@ -648,7 +754,7 @@ public class CloudSyncManager {
         }
 
         try {
-            if (intakeDao == null) {
+            if (intakeDao == null || changeJournalDao == null || tombstoneDao == null) {
                 Log.e(TAG, "intakeDao 为 null，无法获取服药记录");
                 if (callback != null) {
                     callback.onError("数据库访问失败");
@@ -666,100 +772,211 @@ public class CloudSyncManager {
                 return;
             }
 
-            // 修复：正确计算最近30天的时间范围
-            Calendar calendar = Calendar.getInstance();
-
-            // 设置结束时间为今天的23:59:59
-            calendar.set(Calendar.HOUR_OF_DAY, 23);
-            calendar.set(Calendar.MINUTE, 59);
-            calendar.set(Calendar.SECOND, 59);
-            calendar.set(Calendar.MILLISECOND, 999);
-            long endDate = calendar.getTimeInMillis();
-
-            // 设置开始时间为30天前的00:00:00
-            calendar.add(Calendar.DAY_OF_MONTH, -30);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            long startDate = calendar.getTimeInMillis();
-
-            // 使用当前用户ID过滤数据
-            List<MedicationIntakeRecord> intakeRecords = intakeDao.findByTimeRange(currentUserId,startDate, endDate);
             Long lastSyncTime = getLastIntakeSyncTime();
-
-            Log.d(TAG, "准备上传服药记录 - 数量: " + intakeRecords.size());
-            Log.d(TAG, "时间范围: " + formatDateTime(startDate) + " 至 " + formatDateTime(endDate));
             Log.d(TAG, "上次同步时间: " + (lastSyncTime != null ? formatDateTime(lastSyncTime) : "首次同步"));
 
-            EasyHttp.post(new ApplicationLifecycle())
-                    .api(new SyncMedicationIntakeApi()
-                            .setIntakeRecords(intakeRecords)
-                            .setLastSyncTime(lastSyncTime)
-                            .setOperationType("upload")
-                            .setStartDate(startDate)
-                            .setEndDate(endDate))
-                    .request(new OnHttpListener<HttpData<SyncMedicationIntakeApi.Bean>>() {
-
-                        @Override
-                        public void onStart(Call call) {
-                            Log.d(TAG, "开始上传服药记录网络请求");
-                        }
-
-                        @Override
-                        public void onEnd(Call call) {
-                            Log.d(TAG, "服药记录上传网络请求结束");
-                        }
-
-                        @Override
-                        public void onSucceed(HttpData<SyncMedicationIntakeApi.Bean> data) {
-                            Log.d(TAG, "服药记录上传网络请求成功");
-                            try {
-                                SyncMedicationIntakeApi.Bean result = data.getData();
-                                if (result != null && result.isSuccess()) {
-                                    // 关键：保存服务器返回的时间戳
-                                    if (result.getServerTime() != null) {
-                                        updateLastIntakeSyncTime(result.getServerTime());
-                                        Log.d(TAG, "服药记录上传成功，更新同步时间: " + formatDateTime(result.getServerTime()));
-                                    } else {
-                                        Log.w(TAG, "服务器未返回同步时间，使用当前时间");
-                                        updateLastIntakeSyncTime(System.currentTimeMillis());
-                                    }
+            // 先上传删除墓碑，再按 (登记序号, 记录ID) 分页逐页上传修改过的记录，内存中只保留当前页
+            uploadIntakeTombstones(currentUserId, lastSyncTime, 0, callback);
 
-                                    if (callback != null) {
-                                        callback.onSuccess(result.getMessage());
-                                    }
-                                } else {
-                                    String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
-                                    Log.e(TAG, "服药记录上传失败: " + errorMsg);
-                                    if (callback != null) {
-                                        callback.onError(errorMsg);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "处理服药记录上传响应时发生异常", e);
-                                if (callback != null) {
-                                    callback.onError("响应处理失败: " + e.getMessage());
-                                }
+        } catch (Exception e) {
+            Log.e(TAG, "上传服药记录时发生异常", e);
+            if (callback != null) {
+                callback.onError("上传失败: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 上传一页本地删除的服药记录（deleted=true 的墓碑），服务器确认后标记为已同步并继续上传下一页，
+     * 全部上传后再上传修改过的记录，删除后又重建的记录因此总是在墓碑之后到达服务器；
+     * 墓碑页之后还有记录页，lastPage 始终为 false
+     *
+     * @param uploaded 之前各页已上传的墓碑数
+     */
+    private void uploadIntakeTombstones(String userId, Long lastSyncTime, int uploaded, SyncCallback callback) {
+        List<MedicationIntakeRecord> tombstones = tombstoneDao.findPendingPage(userId, INTAKE_UPLOAD_PAGE_SIZE);
+        if (tombstones.isEmpty()) {
+            if (uploaded > 0) {
+                Log.d(TAG, "删除记录上传完成，共 " + uploaded + " 条");
+            }
+            uploadIntakePage(userId, lastSyncTime, null, 0, null, callback);
+            return;
+        }
+
+        int total = uploaded + tombstones.size();
+        Log.d(TAG, "准备上传删除记录 - 本页数量: " + tombstones.size() + ", 累计: " + total);
+        SyncMetrics.Trace trace = metrics.startRequest(SyncMetrics.PHASE_TOMBSTONE_UPLOAD);
+
+        EasyHttp.post(new ApplicationLifecycle())
+                .tag(trace.getTag())
+                .api(new SyncMedicationIntakeApi()
+                        .setIntakeRecords(tombstones)
+                        .setLastSyncTime(lastSyncTime)
+                        .setOperationType("upload")
+                        .setPageSize(INTAKE_UPLOAD_PAGE_SIZE)
+                        .setLastPage(false))
+                .request(new OnHttpListener<HttpData<SyncMedicationIntakeApi.Bean>>() {
+
+                    @Override
+                    public void onStart(Call call) {
+                        Log.d(TAG, "开始上传删除记录网络请求");
+                    }
+
+                    @Override
+                    public void onEnd(Call call) {
+                        Log.d(TAG, "删除记录上传网络请求结束");
+                    }
+
+                    @Override
+                    public void onSucceed(HttpData<SyncMedicationIntakeApi.Bean> data) {
+                        SyncMedicationIntakeApi.Bean result = data.getData();
+                        if (result == null || !result.isSuccess()) {
+                            String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
+                            Log.e(TAG, "删除记录上传失败: " + errorMsg);
+                            trace.fail(SyncMetrics.ERROR_SERVER_REJECTED);
+                            if (callback != null) {
+                                callback.onError(errorMsg);
                             }
+                            return;
                         }
-
-                        @Override
-                        public void onFail(Exception e) {
-                            Log.e(TAG, "服药记录上传网络请求失败", e);
+                        // 确认失败时同一页会被反复读取，停止本次同步，下次从这一页重新上传
+                        int acknowledged = tombstoneDao.acknowledge(tombstones);
+                        trace.addRows(tombstones.size(), acknowledged);
+                        if (acknowledged == 0) {
+                            trace.fail(SyncMetrics.ERROR_LOCAL_WRITE);
                             if (callback != null) {
-                                callback.onError("网络错误: " + e.getMessage());
+                                callback.onError("删除记录确认失败");
                             }
+                            return;
                         }
-                    });
+                        trace.succeed();
+                        if (!stopIfCancelled(callback)) {
+                            uploadIntakeTombstones(userId, lastSyncTime, total, callback);
+                        }
+                    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "上传服药记录时发生异常", e);
+                    @Override
+                    public void onFail(Exception e) {
+                        Log.e(TAG, "删除记录上传网络请求失败", e);
+                        trace.fail(e);
+                        if (callback != null) {
+                            callback.onError("网络错误: " + e.getMessage());
+                        }
+                    }
+                });
+    }
+
+    /**
+     * 上传一页待上传的服药记录，服务器确认后移除对应的日志行并继续上传下一页，
+     * 最后一页成功后才更新同步时间；没有待上传的记录时不发起请求
+     *
+     * @param after           上一页最后一条日志行，null 表示第一页
+     * @param uploaded        之前各页已上传的条数
+     * @param afterServerTime 上一页响应中的服务器时间，null 表示第一页
+     */
+    private void uploadIntakePage(String userId, Long lastSyncTime, IntakeChangeJournalDao.Entry after,
+                                  int uploaded, Long afterServerTime, SyncCallback callback) {
+        IntakeChangeJournalDao.ChangePage page =
+                intakeDao.findChangedPage(userId, after, INTAKE_UPLOAD_PAGE_SIZE);
+
+        if (page.isEmpty()) {
+            Log.d(TAG, "服药记录上传完成，共 " + uploaded + " 条");
+            // 本地没有修改（或上一页恰好是满页），无需再请求服务器。
+            // 同步时间只能来自服务器：没有上传时保持不变，不能用本机时间，本机时钟偏快时下载会漏掉服务器上的修改
+            if (afterServerTime != null) {
+                updateLastIntakeSyncTime(afterServerTime);
+            }
             if (callback != null) {
-                callback.onError("上传失败: " + e.getMessage());
+                callback.onSuccess(uploaded == 0 ? "没有需要上传的服药记录" : "服药记录上传成功");
             }
+            return;
         }
+
+        // 本页不满说明已是最后一页
+        boolean lastPage = page.size() < INTAKE_UPLOAD_PAGE_SIZE;
+        int total = uploaded + page.size();
+
+        Log.d(TAG, "准备上传服药记录 - 本页数量: " + page.size() + ", 累计: " + total);
+        SyncMetrics.Trace trace = metrics.startRequest(SyncMetrics.PHASE_INTAKE_UPLOAD);
+
+        EasyHttp.post(new ApplicationLifecycle())
+                .tag(trace.getTag())
+                .api(new SyncMedicationIntakeApi()
+                        .setIntakeRecords(page.getRecords())
+                        .setLastSyncTime(lastSyncTime)
+                        .setOperationType("upload")
+                        .setPageSize(INTAKE_UPLOAD_PAGE_SIZE)
+                        .setLastPage(lastPage))
+                .request(new OnHttpListener<HttpData<SyncMedicationIntakeApi.Bean>>() {
+
+                    @Override
+                    public void onStart(Call call) {
+                        Log.d(TAG, "开始上传服药记录网络请求");
+                    }
+
+                    @Override
+                    public void onEnd(Call call) {
+                        Log.d(TAG, "服药记录上传网络请求结束");
+                    }
+
+                    @Override
+                    public void onSucceed(HttpData<SyncMedicationIntakeApi.Bean> data) {
+                        Log.d(TAG, "服药记录上传网络请求成功");
+                        try {
+                            SyncMedicationIntakeApi.Bean result = data.getData();
+                            if (result != null && result.isSuccess()) {
+                                // 服务器已确认本页，移除日志行；上传期间又被修改的记录序号已变化，会保留到下次
+                                trace.addRows(page.size(), changeJournalDao.acknowledge(page.getEntries()));
+                                trace.succeed();
+
+                                if (!lastPage) {
+                                    if (!stopIfCancelled(callback)) {
+                                        uploadIntakePage(userId, lastSyncTime, page.last(), total,
+                                                result.getServerTime(), callback);
+                                    }
+                                    return;
+                                }
+
+                                // 关键：保存服务器返回的时间戳
+                                if (result.getServerTime() != null) {
+                                    updateLastIntakeSyncTime(result.getServerTime());
+                                    Log.d(TAG, "服药记录上传成功，共 " + total + " 条，更新同步时间: " + formatDateTime(result.getServerTime()));
+                                } else {
+                                    Log.w(TAG, "服务器未返回同步时间，使用当前时间");
+                                    updateLastIntakeSyncTime(System.currentTimeMillis());
+                                }
+
+                                if (callback != null) {
+                                    callback.onSuccess(result.getMessage());
+                                }
+                            } else {
+                                String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
+                                Log.e(TAG, "服药记录上传失败: " + errorMsg);
+                                trace.fail(SyncMetrics.ERROR_SERVER_REJECTED);
+                                if (callback != null) {
+                                    callback.onError(errorMsg);
+                                }
+                            }
+                        } catch (Exception e) {
+                            Log.e(TAG, "处理服药记录上传响应时发生异常", e);
+                            trace.fail(e);
+                            if (callback != null) {
+                                callback.onError("响应处理失败: " + e.getMessage());
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFail(Exception e) {
+                        Log.e(TAG, "服药记录上传网络请求失败", e);
+                        trace.fail(e);
+                        if (callback != null) {
+                            callback.onError("网络错误: " + e.getMessage());
+                        }
+                    }
+                });
     }
+
     /**
      * 从服务器下载数据
      */
@@ -777,11 +994,11 @@ public class CloudSyncManager {
 
         Log.d(TAG, "开始下载服务器数据流程");
 
-        downloadMedicationData(new SyncCallback() {
+        downloadMedicationData(getLastMedicationSyncTime(), new SyncCallback() {
             @Override
             public void onSuccess(String message) {
                 Log.d(TAG, "用药信息下载成功: " + message);
-                downloadIntakeData(callback);
+                downloadIntakeData(getLastIntakeSyncTime(), callback);
             }
 
             @Override
@@ -793,23 +1010,80 @@ public class CloudSyncManager {
     }
 
     /**
-     * 下载用药信息 - 优化版本
+     * 下载用药信息
+     *
+     * @param lastSyncTime 下载的起始时间，增量同步中为上传之前的同步时间
      */
-    private void downloadMedicationData(SyncCallback callback) {
+    private void downloadMedicationData(Long lastSyncTime, SyncCallback callback) {
         Log.d(TAG, "开始下载用药信息");
 
-        Long lastSyncTime = getLastMedicationSyncTime();
         Log.d(TAG, "用药信息下载，上次同步时间: " + (lastSyncTime != null ? lastSyncTime : "首次同步"));
 
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(CHECKPOINT_MEDICATION, "download",
+                getCurrentUserId(), lastSyncTime)
+                .resume(syncPrefs);
+        downloadMedicationPage(checkpoint, callback);
+    }
+
+    /**
+     * 下载服药记录
+     *
+     * @param lastSyncTime 下载的起始时间，增量同步中为上传之前的同步时间
+     */
+    private void downloadIntakeData(Long lastSyncTime, SyncCallback callback) {
+        Log.d(TAG, "开始下载服药记录");
+
+        String currentUserId = getCurrentUserId();
+        if (currentUserId == null || currentUserId.isEmpty()) {
+            Log.e(TAG, "无法获取当前用户ID");
+            if (callback != null) {
+                callback.onError("用户ID获取失败");
+            }
+            return;
+        }
+
+        long[] window = recentIntakeWindow();
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(CHECKPOINT_INTAKE, "download",
+                currentUserId, lastSyncTime)
+                .withWindow(window[0], window[1])
+                .resume(syncPrefs);
+
+        Log.d(TAG, "服药记录下载时间范围: " + formatDateTime(checkpoint.startDate) + " 至 " + formatDateTime(checkpoint.endDate));
+        Log.d(TAG, "上次同步时间: " + (lastSyncTime != null ? formatDateTime(lastSyncTime) : "首次同步"));
+
+        downloadIntakePage(checkpoint, callback);
+    }
+
+    /**
+     * 下载一页用药信息：响应流式解析，按批写入本地后保存断点，再请求下一页；
+     * 全部下载完成后清除断点，增量下载此时才更新同步时间
+     */
+    private void downloadMedicationPage(DownloadCheckpoint checkpoint, SyncCallback callback) {
+        SyncMetrics.Trace trace = metrics.startRequest(SyncMetrics.PHASE_MEDICATION_DOWNLOAD);
+        // 上一次请求这一页时写入的条数不算，这一页重新计数
+        checkpoint.pageDownloaded = 0;
         EasyHttp.post(new ApplicationLifecycle())
+                .tag(trace.getTag())
                 .api(new SyncMedicationApi()
-                        .setLastSyncTime(lastSyncTime) // 首次同步时为null
-                        .setOperationType("download"))
+                        .setLastSyncTime(checkpoint.since)
+                        .setOperationType(checkpoint.operationType)
+                        .setIsFirstSync(checkpoint.isFirstSync())
+                        .setCursor(checkpoint.cursor)
+                        .setPageSize(DOWNLOAD_PAGE_SIZE)
+                        .setRecordSink(batch -> {
+                            // 在网络线程中边解析边写入，每批一个事务
+                            SyncBatchResult batchResult = medicationDao.applySyncBatch(batch);
+                            trace.addRows(batch.size(), batchResult.getSavedCount());
+                            if (!batchResult.isSuccess()) {
+                                throw new IllegalStateException("用药信息写入失败");
+                            }
+                            checkpoint.addPageRows(batchResult.getSavedCount());
+                        }))
                 .request(new OnHttpListener<HttpData<SyncMedicationApi.Bean>>() {
 
                     @Override
                     public void onStart(Call call) {
-                        Log.d(TAG, "开始下载用药信息网络请求");
+                        Log.d(TAG, "开始下载用药信息网络请求 - 第 " + (checkpoint.pages + 1) + " 页");
                     }
 
                     @Override
@@ -822,52 +1096,44 @@ public class CloudSyncManager {
                         Log.d(TAG, "用药信息下载网络请求成功");
                         try {
                             SyncMedicationApi.Bean result = data.getData();
-                            if (result != null && result.isSuccess()) {
-
-                                // 关键：先更新同步时间，再处理数据
-                                if (result.getServerTime() != null) {
-                                    updateLastMedicationSyncTime(result.getServerTime());
-                                    Log.d(TAG, "更新用药信息同步时间: " + result.getServerTime());
-                                }
-
-                                if (result.getMedications() != null && !result.getMedications().isEmpty()) {
-                                    int savedCount = 0;
-                                    for (MedicationRecord medication : result.getMedications()) {
-                                        try {
-                                            MedicationRecord existing = medicationDao.findById(medication.getId());
-                                            if (existing == null) {
-                                                medicationDao.insert(medication);
-                                                savedCount++;
-                                                Log.d(TAG, "插入新的用药记录: " + medication.getMedicationName());
-                                            } else {
-                                                medicationDao.update(medication);
-                                                savedCount++;
-                                                Log.d(TAG, "更新现有用药记录: " + medication.getMedicationName());
-                                            }
-                                        } catch (Exception e) {
-                                            Log.e(TAG, "保存用药记录时发生异常: " + medication.getMedicationName(), e);
-                                        }
-                                    }
-
-                                    Log.d(TAG, "用药信息下载完成，保存了 " + savedCount + " 条记录");
-                                    if (callback != null) {
-                                        callback.onSuccess("下载了 " + savedCount + " 条用药信息");
-                                    }
-                                } else {
-                                    Log.d(TAG, "服务器没有新的用药信息");
-                                    if (callback != null) {
-                                        callback.onSuccess("没有新的用药信息");
-                                    }
-                                }
-                            } else {
+                            if (result == null || !result.isSuccess()) {
                                 String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
                                 Log.e(TAG, "用药信息下载失败: " + errorMsg);
+                                trace.fail(SyncMetrics.ERROR_SERVER_REJECTED);
                                 if (callback != null) {
                                     callback.onError(errorMsg);
                                 }
+                                return;
+                            }
+
+                            // 记录已在解析时写入本地；写入失败会走 onFail，断点不推进，下次重新下载这一页
+                            trace.succeed();
+                            checkpoint.completePage();
+                            Log.d(TAG, "用药信息第 " + (checkpoint.pages + 1) + " 页写入完成，收到 " + result.getReceivedCount() + " 条");
+
+                            if (result.hasMore() && result.getNextCursor() != null) {
+                                checkpoint.commit(syncPrefs, result.getNextCursor(), result.getServerTime());
+                                if (!stopIfCancelled(callback)) {
+                                    downloadMedicationPage(checkpoint, callback);
+                                }
+                                return;
+                            }
+
+                            checkpoint.clear(syncPrefs);
+                            if (!checkpoint.isFirstSync()) {
+                                // 使用第一页的服务器时间，分页期间服务器上的修改留到下次同步
+                                updateLastMedicationSyncTime(checkpoint.serverTime != null
+                                        ? checkpoint.serverTime : result.getServerTime());
+                            }
+
+                            Log.d(TAG, "用药信息下载完成，共保存 " + checkpoint.downloaded + " 条");
+                            if (callback != null) {
+                                callback.onSuccess(checkpoint.downloaded > 0
+                                        ? "下载了 " + checkpoint.downloaded + " 条用药信息" : "没有新的用药信息");
                             }
                         } catch (Exception e) {
                             Log.e(TAG, "处理用药信息下载响应时发生异常", e);
+                            trace.fail(e);
                             if (callback != null) {
                                 callback.onError("响应处理失败: " + e.getMessage());
                             }
@@ -877,6 +1143,7 @@ public class CloudSyncManager {
                     @Override
                     public void onFail(Exception e) {
                         Log.e(TAG, "用药信息下载网络请求失败", e);
+                        trace.fail(e);
                         if (callback != null) {
                             callback.onError("下载失败: " + e.getMessage());
                         }
@@ -885,54 +1152,37 @@ public class CloudSyncManager {
     }
 
     /**
-     * 下载服药记录 - 修复时间范围计算
+     * 下载一页服药记录：响应流式解析，按批写入本地后保存断点，再请求下一页；
+     * 全部下载完成后清除断点，增量下载此时才更新同步时间
      */
-    private void downloadIntakeData(SyncCallback callback) {
-        Log.d(TAG, "开始下载服药记录");
-
-        String currentUserId = getCurrentUserId();
-        if (currentUserId == null || currentUserId.isEmpty()) {
-            Log.e(TAG, "无法获取当前用户ID");
-            if (callback != null) {
-                callback.onError("用户ID获取失败");
-            }
-            return;
-        }
-
-        Long lastSyncTime = getLastIntakeSyncTime();
-
-        // 修复：正确计算最近30天的时间范围
-        Calendar calendar = Calendar.getInstance();
-
-        // 设置结束时间为今天的23:59:59
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-        calendar.set(Calendar.MILLISECOND, 999);
-        long endDate = calendar.getTimeInMillis();
-
-        // 设置开始时间为30天前的00:00:00
-        calendar.add(Calendar.DAY_OF_MONTH, -30);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        long startDate = calendar.getTimeInMillis();
-
-        Log.d(TAG, "服药记录下载时间范围: " + formatDateTime(startDate) + " 至 " + formatDateTime(endDate));
-        Log.d(TAG, "上次同步时间: " + (lastSyncTime != null ? formatDateTime(lastSyncTime) : "首次同步"));
-
+    private void downloadIntakePage(DownloadCheckpoint checkpoint, SyncCallback callback) {
+        SyncMetrics.Trace trace = metrics.startRequest(SyncMetrics.PHASE_INTAKE_DOWNLOAD);
+        // 上一次请求这一页时写入的条数不算，这一页重新计数
+        checkpoint.pageDownloaded = 0;
         EasyHttp.post(new ApplicationLifecycle())
+                .tag(trace.getTag())
                 .api(new SyncMedicationIntakeApi()
-                        .setLastSyncTime(lastSyncTime)
-                        .setOperationType("download")
-                        .setStartDate(startDate)
-                        .setEndDate(endDate))
+                        .setLastSyncTime(checkpoint.since)
+                        .setOperationType(checkpoint.operationType)
+                        .setStartDate(checkpoint.startDate)
+                        .setEndDate(checkpoint.endDate)
+                        .setIsFirstSync(checkpoint.isFirstSync())
+                        .setCursor(checkpoint.cursor)
+                        .setPageSize(DOWNLOAD_PAGE_SIZE)
+                        .setRecordSink(batch -> {
+                            // 在网络线程中边解析边写入，每批一个事务；userId为空的记录归属当前用户，其他用户的记录跳过
+                            SyncBatchResult batchResult = intakeDao.applySyncBatch(batch, checkpoint.userId);
+                            trace.addRows(batch.size(), batchResult.getSavedCount());
+                            if (!batchResult.isSuccess()) {
+                                throw new IllegalStateException("服药记录写入失败");
+                            }
+                            checkpoint.addPageRows(batchResult.getSavedCount());
+                        }))
                 .request(new OnHttpListener<HttpData<SyncMedicationIntakeApi.Bean>>() {
 
                     @Override
                     public void onStart(Call call) {
-                        Log.d(TAG, "开始下载服药记录网络请求");
+                        Log.d(TAG, "开始下载服药记录网络请求 - 第 " + (checkpoint.pages + 1) + " 页");
                     }
 
                     @Override
@@ -945,54 +1195,45 @@ public class CloudSyncManager {
                         Log.d(TAG, "服药记录下载网络请求成功");
                         try {
                             SyncMedicationIntakeApi.Bean result = data.getData();
-                            if (result != null && result.isSuccess() && result.getIntakeRecords() != null) {
-                                int savedCount = 0;
-                                for (MedicationIntakeRecord intake : result.getIntakeRecords()) {
-                                    try {
-                                        // 🔥 关键修复：确保设置正确的用户ID
-                                        if (intake.getUserId() == null || intake.getUserId().isEmpty()) {
-                                            Log.w(TAG, "服务器返回的服药记录userId为空，设置为当前用户: " + intake.getMedicationName());
-                                            intake.setUserId(currentUserId);
-                                        }
-                                        
-                                        // 🔥 进一步验证：只保存属于当前用户的数据
-                                        if (currentUserId.equals(intake.getUserId())) {
-                                            MedicationIntakeRecord existing = intakeDao.findById(intake.getId());
-                                            if (existing == null) {
-                                                intakeDao.insert(intake);
-                                                savedCount++;
-                                                Log.d(TAG, "插入新的服药记录: " + intake.getMedicationName() +
-                                                        " userId=" + intake.getUserId() + 
-                                                        " (" + formatDateTime(intake.getPlannedTime()) + ")");
-                                            } else {
-                                                intakeDao.update(intake);
-                                                savedCount++;
-                                                Log.d(TAG, "更新现有服药记录: " + intake.getMedicationName() +
-                                                        " userId=" + intake.getUserId() + 
-                                                        " (" + formatDateTime(intake.getPlannedTime()) + ")");
-                                            }
-                                        } else {
-                                            Log.w(TAG, "跳过其他用户的服药记录: userId=" + intake.getUserId() + 
-                                                    ", 当前用户=" + currentUserId);
-                                        }
-                                    } catch (Exception e) {
-                                        Log.e(TAG, "保存服药记录时发生异常: " + intake.getMedicationName(), e);
-                                    }
-                                }
-
-                                updateLastIntakeSyncTime(result.getServerTime());
-                                Log.d(TAG, "服药记录下载完成，保存了 " + savedCount + " 条记录");
+                            if (result == null || !result.isSuccess()) {
+                                String errorMsg = result != null ? result.getMessage() : "服务器返回空数据";
+                                Log.e(TAG, "服药记录下载失败: " + errorMsg);
+                                trace.fail(SyncMetrics.ERROR_SERVER_REJECTED);
                                 if (callback != null) {
-                                    callback.onSuccess("同步完成，下载了 " + savedCount + " 条服药记录");
+                                    callback.onError(errorMsg);
                                 }
-                            } else {
-                                Log.d(TAG, "服务器没有新的服药记录");
-                                if (callback != null) {
-                                    callback.onSuccess("同步完成，没有新的服药记录");
+                                return;
+                            }
+
+                            // 记录已在解析时写入本地；写入失败会走 onFail，断点不推进，下次重新下载这一页
+                            trace.succeed();
+                            checkpoint.completePage();
+                            Log.d(TAG, "服药记录第 " + (checkpoint.pages + 1) + " 页写入完成，收到 " + result.getReceivedCount() + " 条");
+
+                            if (result.hasMore() && result.getNextCursor() != null) {
+                                checkpoint.commit(syncPrefs, result.getNextCursor(), result.getServerTime());
+                                if (!stopIfCancelled(callback)) {
+                                    downloadIntakePage(checkpoint, callback);
                                 }
+                                return;
+                            }
+
+                            checkpoint.clear(syncPrefs);
+                            if (!checkpoint.isFirstSync()) {
+                                // 使用第一页的服务器时间，分页期间服务器上的修改留到下次同步
+                                updateLastIntakeSyncTime(checkpoint.serverTime != null
+                                        ? checkpoint.serverTime : result.getServerTime());
+                            }
+
+                            Log.d(TAG, "服药记录下载完成，共保存 " + checkpoint.downloaded + " 条");
+                            if (callback != null) {
+                                String prefix = checkpoint.isFirstSync() ? "首次同步完成，" : "同步完成，";
+                                callback.onSuccess(prefix + (checkpoint.downloaded > 0
+                                        ? "下载了 " + checkpoint.downloaded + " 条服药记录" : "没有新的服药记录"));
                             }
                         } catch (Exception e) {
                             Log.e(TAG, "处理服药记录下载响应时发生异常", e);
+                            trace.fail(e);
                             if (callback != null) {
                                 callback.onError("响应处理失败: " + e.getMessage());
                             }
@@ -1002,37 +1243,45 @@ public class CloudSyncManager {
                     @Override
                     public void onFail(Exception e) {
                         Log.e(TAG, "服药记录下载网络请求失败", e);
+                        trace.fail(e);
                         if (callback != null) {
                             callback.onError("下载失败: " + e.getMessage());
                         }
                     }
                 });
-}
-    
+    }
 
     /**
-     * 自动同步数据（在后台静默执行）
+     * 服药记录下载的日期范围：30天前的00:00:00 至 今天的23:59:59
      */
-    public void autoSyncInBackground() {
-        Log.d(TAG, "尝试开始后台自动同步");
+    private static long[] recentIntakeWindow() {
+        Calendar calendar = Calendar.getInstance();
 
-        if (!canSyncToCloud()) {
-            Log.d(TAG, "后台自动同步条件不满足，跳过");
-            return;
-        }
+        // 设置结束时间为今天的23:59:59
+        calendar.set(Calendar.HOUR_OF_DAY, 23);
+        calendar.set(Calendar.MINUTE, 59);
+        calendar.set(Calendar.SECOND, 59);
+        calendar.set(Calendar.MILLISECOND, 999);
+        long endDate = calendar.getTimeInMillis();
 
-        Log.d(TAG, "开始后台自动同步");
-        performFullSync(new SyncCallback() {
-            @Override
-            public void onSuccess(String message) {
-                Log.d(TAG, "后台自动同步成功: " + message);
-            }
+        // 设置开始时间为30天前的00:00:00
+        calendar.add(Calendar.DAY_OF_MONTH, -30);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long startDate = calendar.getTimeInMillis();
 
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "后台自动同步失败: " + error);
-            }
-        });
+        return new long[]{startDate, endDate};
+    }
+
+    /**
+     * 自动同步数据（在后台静默执行）
+     *
+     * 交给 SyncScheduler 合并调度，短时间内的多次调用只会执行一次同步
+     */
+    public void autoSyncInBackground() {
+        SyncScheduler.getInstance(context).requestSync("autoSyncInBackground");
     }
 
     /**
@@ -1164,7 +1413,15 @@ public class CloudSyncManager {
             syncPrefs.edit()
                     .remove(KEY_LAST_MEDICATION_SYNC)
                     .remove(KEY_LAST_INTAKE_SYNC)
+                    .remove(KEY_MEDICATION_UPLOAD_AFTER_ID)
+                    .remove(DownloadCheckpoint.key(CHECKPOINT_MEDICATION))
+                    .remove(DownloadCheckpoint.key(CHECKPOINT_INTAKE))
                     .apply();
+            // 重新开始同步时整体重传当前用户的服药记录
+            String currentUserId = getCurrentUserId();
+            if (changeJournalDao != null && currentUserId != null && !currentUserId.isEmpty()) {
+                changeJournalDao.markAllForUpload(currentUserId);
+            }
             Log.d(TAG, "重置同步状态完成");
         } catch (Exception e) {
             Log.e(TAG, "重置同步状态失败", e);
@@ -1182,6 +1439,9 @@ public class CloudSyncManager {
             status.lastIntakeSyncTime = getLastIntakeSyncTime();
             status.isFirstSync = isFirstSync();
             status.canSync = canSyncToCloud();
+            status.lastLegDurations = lastLegDurations;
+            status.lastSyncDurationMs = lastSyncDurationMs;
+            status.recentRuns = metrics.getRecentRuns();
 
             Log.d(TAG, "同步状态: " + status.toString());
         } catch (Exception e) {
@@ -1191,6 +1451,138 @@ public class CloudSyncManager {
         return status;
     }
 
+    /**
+     * 分页下载断点
+     *
+     * 每页写入本地后保存服务器返回的下一页游标，下载中断后以相同的查询条件从游标继续；
+     * 用户或操作类型变化、同步时间被重置到断点之前时断点作废，从第一页重新下载。
+     * 恢复时沿用断点保存的上次同步时间和日期范围，保证游标与查询条件一致
+     */
+    public static final class DownloadCheckpoint {
+        private static final String KEY_PREFIX = "download_checkpoint_";
+        private static final Gson GSON = new Gson();
+
+        String name;
+        String operationType;
+        String userId;
+        Long since;
+        Long startDate;
+        Long endDate;
+        /** 下一页游标，null 表示从第一页开始 */
+        String cursor;
+        /** 第一页响应中的服务器时间，全部下载完成后作为同步时间 */
+        Long serverTime;
+        /** 已提交的页数与保存的条数 */
+        int pages;
+        int downloaded;
+        /** 当前页已保存的条数，整页完成后才计入 downloaded，重试这一页时不会重复计数 */
+        transient int pageDownloaded;
+
+        public DownloadCheckpoint(String name, String operationType, String userId, Long since) {
+            this.name = name;
+            this.operationType = operationType;
+            this.userId = userId;
+            this.since = since;
+        }
+
+        static String key(String name) {
+            return KEY_PREFIX + name;
+        }
+
+        public DownloadCheckpoint withWindow(long startDate, long endDate) {
+            this.startDate = startDate;
+            this.endDate = endDate;
+            return this;
+        }
+
+        boolean isFirstSync() {
+            return "download_all".equals(operationType);
+        }
+
+        /**
+         * 断点仍然可用时返回保存的断点，否则返回当前对象（从第一页开始）
+         *
+         * 中断之后的上传会推进同步时间，所以不要求上次同步时间与断点相同：
+         * 断点的起始时间不晚于当前的同步时间时，按断点的条件继续下载，范围只大不小，不会漏掉修改
+         */
+        public DownloadCheckpoint resume(SharedPreferences prefs) {
+            String json = prefs.getString(key(name), null);
+            if (json == null) {
+                return this;
+            }
+            try {
+                DownloadCheckpoint saved = GSON.fromJson(json, DownloadCheckpoint.class);
+                if (saved != null && saved.cursor != null
+                        && Objects.equals(operationType, saved.operationType)
+                        && Objects.equals(userId, saved.userId)
+                        && coversSince(saved.since)) {
+                    Log.d(TAG, "从断点继续下载 " + name + "：已完成 " + saved.pages + " 页，" + saved.downloaded + " 条");
+                    return saved;
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "读取下载断点失败，从第一页开始", e);
+            }
+            return this;
+        }
+
+        /**
+         * 以 savedSince 为起点的下载包含当前同步时间之后的全部修改
+         */
+        private boolean coversSince(Long savedSince) {
+            if (since == null || savedSince == null) {
+                return Objects.equals(since, savedSince);
+            }
+            return savedSince <= since;
+        }
+
+        /**
+         * 当前页写入了 count 条记录（在网络线程中按批调用）
+         */
+        public void addPageRows(int count) {
+            pageDownloaded += count;
+        }
+
+        /**
+         * 当前页全部写入完成，计入保存的条数
+         */
+        public void completePage() {
+            downloaded += pageDownloaded;
+            pageDownloaded = 0;
+        }
+
+        /**
+         * 当前页已写入本地，保存下一页游标
+         */
+        public void commit(SharedPreferences prefs, String nextCursor, Long pageServerTime) {
+            cursor = nextCursor;
+            if (serverTime == null) {
+                serverTime = pageServerTime;
+            }
+            pages++;
+            prefs.edit().putString(key(name), GSON.toJson(this)).apply();
+        }
+
+        public void clear(SharedPreferences prefs) {
+            prefs.edit().remove(key(name)).apply();
+        }
+
+        public String getCursor() {
+            return cursor;
+        }
+
+        public Long getSince() {
+            return since;
+        }
+
+        public int getPages() {
+            return pages;
+        }
+
+        public int getDownloaded() {
+            return downloaded;
+        }
+    }
+
     /**
      * 同步状态信息类
      */
@@ -1199,6 +1591,12 @@ public class CloudSyncManager {
         public Long lastIntakeSyncTime;
         public boolean isFirstSync;
         public boolean canSync;
+        /** 最近一次完整同步各环节的耗时（毫秒），按完成顺序排列 */
+        public Map<String, Long> lastLegDurations;
+        /** 最近一次完整同步的总耗时（毫秒），并行环节重叠计算 */
+        public long lastSyncDurationMs;
+        /** 最近几次完整同步的指标，按时间先后排列，详见 SyncMetrics */
+        public List<SyncMetrics.Run> recentRuns;
 
         @Override
         public String toString() {
@@ -1207,10 +1605,69 @@ public class CloudSyncManager {
                     ", lastIntakeSyncTime=" + lastIntakeSyncTime +
                     ", isFirstSync=" + isFirstSync +
                     ", canSync=" + canSync +
+                    ", lastLegDurations=" + lastLegDurations +
+                    ", lastSyncDurationMs=" + lastSyncDurationMs +
+                    ", lastRun=" + (recentRuns != null && !recentRuns.isEmpty()
+                            ? recentRuns.get(recentRuns.size() - 1) : null) +
                     '}';
         }
     }
 
+    /**
+     * 一次完整同步的计时：总耗时与各环节耗时
+     */
+    private static final class SyncTimer {
+        private final long startTime = SystemClock.elapsedRealtime();
+        private final Map<String, Long> legDurations = new LinkedHashMap<>();
+
+        synchronized void record(String leg, long legStartTime) {
+            legDurations.put(leg, SystemClock.elapsedRealtime() - legStartTime);
+        }
+
+        synchronized Map<String, Long> snapshot() {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(legDurations));
+        }
+
+        long elapsed() {
+            return SystemClock.elapsedRealtime() - startTime;
+        }
+    }
+
+    /**
+     * 一次完整同步：序号、开始时间、等待结果的回调与取消标记
+     */
+    private static final class InFlightSync {
+        final long generation;
+        final long startTime = System.currentTimeMillis();
+        /** 加入这次同步的回调，只在持有 CloudSyncManager 锁时访问 */
+        final List<SyncCallback> callbacks = new ArrayList<>();
+        volatile boolean cancelled;
+
+        InFlightSync(long generation) {
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * 交给同步环节的回调，记录它属于哪一次完整同步
+     */
+    private abstract static class LegCallback implements SyncCallback {
+        final InFlightSync owner;
+
+        LegCallback(InFlightSync owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * 同步环节失败，message 即回调给调用方的错误信息
+     */
+    private static final class SyncLegException extends RuntimeException {
+        SyncLegException(String message) {
+            super(message);
+        }
+    }
+
     /**
      * 同步回调接口
      */
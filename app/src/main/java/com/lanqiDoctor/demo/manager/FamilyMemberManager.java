@@ -10,13 +10,13 @@ import com.hjq.http.EasyHttp;
 import com.hjq.http.lifecycle.ApplicationLifecycle;
 import com.hjq.http.listener.OnHttpListener;
 import com.lanqiDoctor.demo.http.api.FriendsApi;
-import com.lanqiDoctor.demo.http.api.RemoveFriendApi;
 import com.lanqiDoctor.demo.http.model.HttpData;
 import com.lanqiDoctor.demo.model.FamilyMember;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import okhttp3.Call;
 
@@ -207,7 +207,12 @@ public class FamilyMemberManager {
                             if (result != null && result.getFriends() != null) {
                                 List<FamilyMember> serverMembers = new ArrayList<>();
                                 
+                                // 删除请求尚未发送成功的好友不再加回本地列表
+                                Set<String> pendingRemovals = OutboxManager.getInstance(context).getPendingFriendRemovals();
                                 for (FriendsApi.Bean.FriendInfo friendInfo : result.getFriends()) {
+                                    if (pendingRemovals.contains(friendInfo.getFriendUserId())) {
+                                        continue;
+                                    }
                                     FamilyMember member = new FamilyMember();
                                     member.setUserId(friendInfo.getFriendUserId());
                                     member.setEmail(friendInfo.getFriendEmail());
@@ -267,56 +272,14 @@ public class FamilyMemberManager {
             return;
         }
         
-        EasyHttp.delete(new ApplicationLifecycle())
-                .api(new RemoveFriendApi(userId))
-                .request(new OnHttpListener<HttpData<RemoveFriendApi.Bean>>() {
-                    
-                    @Override
-                    public void onStart(Call call) {
-                        Log.d(TAG, "开始删除家庭成员网络请求");
-                    }
-                    
-                    @Override
-                    public void onEnd(Call call) {
-                        Log.d(TAG, "删除家庭成员网络请求结束");
-                    }
-                    
-                    @Override
-                    public void onSucceed(HttpData<RemoveFriendApi.Bean> data) {
-                        Log.d(TAG, "删除家庭成员网络请求成功");
-                        try {
-                            RemoveFriendApi.Bean result = data.getData();
-                            if (result != null && result.isSuccess()) {
-                                // 从本地列表中删除
-                                boolean removed = removeFamilyMember(userId);
-                                
-                                Log.d(TAG, "家庭成员删除成功: " + userId);
-                                if (callback != null) {
-                                    callback.onSuccess("家庭成员删除成功");
-                                }
-                            } else {
-                                String errorMsg = result != null ? result.getMessage() : "删除失败";
-                                Log.e(TAG, "删除家庭成员失败: " + errorMsg);
-                                if (callback != null) {
-                                    callback.onError(errorMsg);
-                                }
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "处理删除家庭成员响应时发生异常", e);
-                            if (callback != null) {
-                                callback.onError("响应处理失败: " + e.getMessage());
-                            }
-                        }
-                    }
-                    
-                    @Override
-                    public void onFail(Exception e) {
-                        Log.e(TAG, "删除家庭成员网络请求失败", e);
-                        if (callback != null) {
-                            callback.onError("删除失败: " + e.getMessage());
-                        }
-                    }
-                });
+        // 本地立即删除，经待发送队列提交到服务器，离线时保留到网络恢复
+        removeFamilyMember(userId);
+        OutboxManager.getInstance(context).enqueueRemoveFriend(userId);
+
+        Log.d(TAG, "家庭成员删除成功: " + userId);
+        if (callback != null) {
+            callback.onSuccess("家庭成员删除成功");
+        }
     }
     
     /**
@@ -0,0 +1,155 @@
+package com.lanqiDoctor.demo.manager;
+
+import android.content.Context;
+import android.text.Spanned;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.noties.markwon.Markwon;
+
+/**
+ * Markdown 渲染管理器
+ *
+ * 聊天记录等列表中的 Markdown 统一在这里渲染：
+ * 1. 全局只有一个 Markwon 实例，解析器和渲染配置只创建一次，直接渲染成 Spanned，不再经过 HTML 中转
+ * 2. 渲染结果按 Markdown 原文缓存在 LRU 中（按字符数限制大小），列表来回滚动时同一条消息只渲染一次
+ * 3. prefetch() 在后台线程提前渲染即将显示的内容，并用 PrecomputedText 完成文字排版，
+ *    主线程显示时只需要设置结果
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class MarkdownRenderManager {
+
+    private static final String TAG = "MarkdownRenderManager";
+
+    /** 缓存的原文与渲染结果总字符数上限 */
+    private static final int CACHE_MAX_CHARS = 512 * 1024;
+
+    private static volatile MarkdownRenderManager instance;
+
+    private final Markwon markwon;
+    private final LruCache<String, Spanned> cache;
+    private final ExecutorService executor;
+    /** 已经提交后台渲染、还没完成的原文，避免重复提交 */
+    private final Set<String> pending = Collections.synchronizedSet(new HashSet<>());
+
+    private MarkdownRenderManager(Context context) {
+        this.markwon = Markwon.builder(context)
+                .textSetter(MarkdownRenderManager::setText)
+                .build();
+        this.cache = new LruCache<String, Spanned>(CACHE_MAX_CHARS) {
+            @Override
+            protected int sizeOf(String key, Spanned value) {
+                return key.length() + value.length();
+            }
+        };
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    public static MarkdownRenderManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (MarkdownRenderManager.class) {
+                if (instance == null) {
+                    instance = new MarkdownRenderManager(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 直接渲染，不使用缓存（例如流式接收中每次都不同的内容）
+     */
+    public Spanned render(String markdown) {
+        return markwon.toMarkdown(markdown == null ? "" : markdown);
+    }
+
+    /**
+     * 把 Spanned 设置到 TextView，经过 Markwon 以便插件处理（例如有序列表序号的宽度）
+     */
+    public void setParsed(TextView textView, Spanned spanned) {
+        markwon.setParsedMarkdown(textView, spanned);
+    }
+
+    /**
+     * 显示一段完整的 Markdown，命中缓存时不再解析
+     */
+    public void setMarkdown(TextView textView, String markdown) {
+        String key = markdown == null ? "" : markdown;
+        Spanned spanned = cache.get(key);
+        if (spanned == null) {
+            spanned = render(key);
+            cache.put(key, spanned);
+        }
+        setParsed(textView, spanned);
+    }
+
+    /**
+     * 在后台线程提前渲染并排版，已缓存或正在渲染的内容会跳过
+     *
+     * @param textView      用来显示这些内容的 TextView（只在调用线程读取它的文字参数）
+     */
+    public void prefetch(TextView textView, List<String> markdowns) {
+        if (markdowns.isEmpty()) {
+            return;
+        }
+        PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(textView);
+        for (String markdown : markdowns) {
+            if (markdown == null || markdown.isEmpty() || cache.get(markdown) != null || !pending.add(markdown)) {
+                continue;
+            }
+            executor.execute(() -> {
+                try {
+                    cache.put(markdown, PrecomputedTextCompat.create(render(markdown), params));
+                } catch (Exception e) {
+                    Log.w(TAG, "Markdown 预渲染失败", e);
+                } finally {
+                    pending.remove(markdown);
+                }
+            });
+        }
+    }
+
+    /**
+     * 清空缓存：内存不足时释放，退出登录后不再保留上一个用户的聊天内容。
+     * 还没有创建实例时什么也不做，不会为此初始化 Markwon
+     */
+    public static void clearCache() {
+        MarkdownRenderManager manager = instance;
+        if (manager != null) {
+            manager.cache.evictAll();
+        }
+    }
+
+    /**
+     * 预先排版的结果与 TextView 当前文字参数一致时直接使用，否则按普通文本设置
+     */
+    private static void setText(TextView textView, Spanned markdown, TextView.BufferType bufferType, Runnable onComplete) {
+        if (markdown instanceof PrecomputedTextCompat) {
+            PrecomputedTextCompat precomputed = (PrecomputedTextCompat) markdown;
+            if (precomputed.getParams().equals(TextViewCompat.getTextMetricsParams(textView))) {
+                try {
+                    TextViewCompat.setPrecomputedText(textView, precomputed);
+                    onComplete.run();
+                    return;
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "预排版参数不一致，按普通文本显示", e);
+                }
+            }
+        }
+        textView.setText(markdown, bufferType);
+        onComplete.run();
+    }
+}
@@ -0,0 +1,326 @@
+package com.lanqiDoctor.demo.manager;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.hjq.gson.factory.GsonFactory;
+import com.hjq.http.EasyHttp;
+import com.hjq.http.exception.CancelException;
+import com.hjq.http.exception.NetworkException;
+import com.hjq.http.exception.ResultException;
+import com.hjq.http.exception.ServerException;
+import com.hjq.http.exception.TimeoutException;
+import com.hjq.http.exception.TokenException;
+import com.hjq.http.lifecycle.ApplicationLifecycle;
+import com.hjq.http.listener.OnHttpListener;
+import com.hjq.toast.ToastUtils;
+import com.lanqiDoctor.demo.database.dao.OutboxDao;
+import com.lanqiDoctor.demo.database.entity.OutboxRequest;
+import com.lanqiDoctor.demo.http.api.RemoveFriendApi;
+import com.lanqiDoctor.demo.http.api.UserSettingsApi;
+import com.lanqiDoctor.demo.http.model.HttpData;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+
+/**
+ * 离线待发送请求管理器
+ *
+ * 修改类请求先写入 http_outbox 表再发送，本地修改立即生效，网络不可用时请求保留在表中，
+ * 网络恢复（AppApplication 的 NetworkCallback.onAvailable）或有新请求入队时按入队顺序逐条重放：
+ * 1. 合并键相同的请求只保留最后一条，例如多次修改设置只发送最终状态
+ * 2. 每次读取一页请求，逐条发送，前一条完成后再发送下一条，保证服务器收到的顺序与本地一致
+ * 3. 网络、超时、服务器、登录失效错误时停止重放，请求保留，等待下次网络恢复
+ * 4. 服务器明确拒绝（业务错误，包括响应数据中的失败结果）的请求直接丢弃并提示，
+ *    删除好友被拒绝时重新从服务器同步好友列表；其他错误累计次数，超过上限后丢弃
+ *
+ * 同一时间只有一轮重放，重放期间的触发在本轮结束后再执行一轮
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class OutboxManager {
+
+    private static final String TAG = "OutboxManager";
+
+    /** 修改用户设置，请求数据为 UserSettingsApi 的 JSON */
+    public static final String KIND_USER_SETTINGS = "user_settings";
+    /** 删除好友，请求数据为好友用户ID */
+    public static final String KIND_REMOVE_FRIEND = "remove_friend";
+
+    private static final int PAGE_SIZE = 20;
+    private static final int MAX_ATTEMPTS = 5;
+
+    /** 重放状态：空闲、进行中、进行中且结束后需要再执行一轮 */
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_RUNNING_RERUN = 2;
+
+    private static volatile OutboxManager instance;
+
+    private final Context context;
+    private final OutboxDao outboxDao;
+    private final UserStateManager userStateManager;
+    private final Gson gson;
+
+    private final AtomicInteger state = new AtomicInteger(STATE_IDLE);
+
+    private OutboxManager(Context context) {
+        this.context = context.getApplicationContext();
+        this.outboxDao = new OutboxDao(context.getApplicationContext());
+        this.userStateManager = UserStateManager.getInstance(context);
+        this.gson = GsonFactory.getSingletonGson();
+    }
+
+    public static OutboxManager getInstance(Context context) {
+        if (instance == null) {
+            synchronized (OutboxManager.class) {
+                if (instance == null) {
+                    instance = new OutboxManager(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 修改用户设置，设置接口每次提交完整状态，只保留最后一次
+     */
+    public void enqueueUserSettings(UserSettingsApi api) {
+        enqueue(KIND_USER_SETTINGS, KIND_USER_SETTINGS, gson.toJson(api));
+    }
+
+    /**
+     * 删除好友，同一好友重复删除只保留一条
+     */
+    public void enqueueRemoveFriend(String friendUserId) {
+        enqueue(KIND_REMOVE_FRIEND, KIND_REMOVE_FRIEND + ":" + friendUserId, friendUserId);
+    }
+
+    /**
+     * 获取尚未发送成功的待删除好友ID，从服务器刷新好友列表时据此过滤
+     */
+    public Set<String> getPendingFriendRemovals() {
+        return outboxDao.findPayloads(userStateManager.getUserId(), KIND_REMOVE_FRIEND);
+    }
+
+    /**
+     * 是否有尚未发送成功的设置修改，从服务器加载设置时据此保留本地设置
+     */
+    public boolean hasPendingUserSettings() {
+        return !outboxDao.findPayloads(userStateManager.getUserId(), KIND_USER_SETTINGS).isEmpty();
+    }
+
+    private void enqueue(String kind, String collapseKey, String payload) {
+        String userId = userStateManager.getUserId();
+        if (!userStateManager.isUserLoggedIn() || TextUtils.isEmpty(userId)) {
+            Log.d(TAG, "用户未登录，丢弃请求: " + kind);
+            return;
+        }
+
+        OutboxRequest request = new OutboxRequest();
+        request.setUserId(userId);
+        request.setKind(kind);
+        request.setCollapseKey(collapseKey);
+        request.setPayload(payload);
+        request.setCreateTime(System.currentTimeMillis());
+
+        ThreadPoolManager.getInstance().execute(() -> {
+            if (outboxDao.enqueue(request) > 0) {
+                drain();
+            }
+        });
+    }
+
+    /**
+     * 重放当前用户的待发送请求
+     */
+    public void drain() {
+        while (true) {
+            int current = state.get();
+            if (current == STATE_IDLE) {
+                if (state.compareAndSet(STATE_IDLE, STATE_RUNNING)) {
+                    startRound();
+                    return;
+                }
+            } else if (current == STATE_RUNNING) {
+                // 本轮结束后再执行一轮
+                if (state.compareAndSet(STATE_RUNNING, STATE_RUNNING_RERUN)) {
+                    return;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void startRound() {
+        String userId = userStateManager.getUserId();
+        if (!userStateManager.isUserLoggedIn() || TextUtils.isEmpty(userId)) {
+            finish(true);
+            return;
+        }
+        execute(() -> drainPage(userId, 0L));
+    }
+
+    /**
+     * 在线程池中执行重放步骤，发生异常时结束本轮，避免重放状态停留在进行中
+     */
+    private void execute(Runnable step) {
+        ThreadPoolManager.getInstance().execute(() -> {
+            try {
+                step.run();
+            } catch (Exception e) {
+                Log.e(TAG, "重放待发送请求时发生异常，结束本轮", e);
+                finish(false);
+            }
+        });
+    }
+
+    private void drainPage(String userId, long afterId) {
+        List<OutboxRequest> page = outboxDao.findPage(userId, afterId, PAGE_SIZE);
+        if (page.isEmpty()) {
+            Log.d(TAG, "待发送请求已全部处理");
+            finish(true);
+            return;
+        }
+        Log.d(TAG, "开始重放 " + page.size() + " 条待发送请求");
+        replay(userId, page, 0);
+    }
+
+    private void replay(String userId, List<OutboxRequest> page, int index) {
+        if (index >= page.size()) {
+            drainPage(userId, page.get(page.size() - 1).getId());
+            return;
+        }
+
+        OutboxRequest request = page.get(index);
+        OnHttpListener<HttpData<Object>> listener = new OnHttpListener<HttpData<Object>>() {
+
+            @Override
+            public void onStart(Call call) {}
+
+            @Override
+            public void onEnd(Call call) {}
+
+            @Override
+            public void onSucceed(HttpData<Object> data) {
+                execute(() -> {
+                    String rejection = findRejection(request, data);
+                    if (rejection != null) {
+                        reject(request, rejection);
+                    } else {
+                        outboxDao.delete(request.getId());
+                        Log.d(TAG, "请求发送成功: " + request.getKind() + "#" + request.getId());
+                    }
+                    replay(userId, page, index + 1);
+                });
+            }
+
+            @Override
+            public void onFail(Exception e) {
+                execute(() -> {
+                    if (isRetryable(e)) {
+                        Log.w(TAG, "网络不可用，暂停重放: " + e.getMessage());
+                        // 网络恢复时会重新触发，不在本轮结束后立即重试
+                        finish(false);
+                        return;
+                    }
+
+                    if (e instanceof ResultException) {
+                        reject(request, e.getMessage());
+                    } else if (request.getAttempts() + 1 >= MAX_ATTEMPTS) {
+                        Log.e(TAG, "请求失败次数过多，丢弃: " + request.getKind() + "#" + request.getId(), e);
+                        outboxDao.delete(request.getId());
+                    } else {
+                        Log.e(TAG, "请求发送失败: " + request.getKind() + "#" + request.getId(), e);
+                        outboxDao.recordFailure(request.getId(), e.getMessage());
+                    }
+                    replay(userId, page, index + 1);
+                });
+            }
+        };
+
+        try {
+            send(request, listener);
+        } catch (Exception e) {
+            listener.onFail(e);
+        }
+    }
+
+    /**
+     * 检查响应数据中的业务结果，被拒绝时返回原因，否则返回 null
+     */
+    private String findRejection(OutboxRequest request, HttpData<Object> data) {
+        if (!KIND_REMOVE_FRIEND.equals(request.getKind())) {
+            return null;
+        }
+        // 删除接口的结果在响应数据中，与原来直接请求时的判断一致
+        RemoveFriendApi.Bean result = data != null && data.getData() != null
+                ? gson.fromJson(gson.toJsonTree(data.getData()), RemoveFriendApi.Bean.class) : null;
+        if (result != null && result.isSuccess()) {
+            return null;
+        }
+        return result != null && !TextUtils.isEmpty(result.getMessage()) ? result.getMessage() : "删除失败";
+    }
+
+    /**
+     * 服务器拒绝的请求：丢弃并提示用户，本地已提前生效的修改以服务器为准恢复
+     */
+    private void reject(OutboxRequest request, String reason) {
+        Log.w(TAG, "服务器拒绝请求，丢弃: " + request.getKind() + "#" + request.getId() + "，" + reason);
+        outboxDao.delete(request.getId());
+
+        if (KIND_REMOVE_FRIEND.equals(request.getKind())) {
+            ToastUtils.show("删除家庭成员失败: " + reason);
+            // 待删除记录已丢弃，重新同步后该好友会按服务器的结果显示
+            FamilyMemberManager.getInstance(context).syncFamilyMembersFromServer(null);
+        } else {
+            ToastUtils.show("设置保存失败: " + reason);
+        }
+    }
+
+    private void send(OutboxRequest request, OnHttpListener<HttpData<Object>> listener) {
+        switch (request.getKind()) {
+            case KIND_USER_SETTINGS:
+                EasyHttp.post(new ApplicationLifecycle())
+                        .api(gson.fromJson(request.getPayload(), UserSettingsApi.class))
+                        .request(listener);
+                break;
+            case KIND_REMOVE_FRIEND:
+                EasyHttp.delete(new ApplicationLifecycle())
+                        .api(new RemoveFriendApi(request.getPayload()))
+                        .request(listener);
+                break;
+            default:
+                throw new IllegalArgumentException("未知的请求类型: " + request.getKind());
+        }
+    }
+
+    /**
+     * 是否为稍后重试即可恢复的错误
+     */
+    private static boolean isRetryable(Exception e) {
+        return e instanceof NetworkException || e instanceof TimeoutException
+                || e instanceof ServerException || e instanceof CancelException
+                || e instanceof TokenException;
+    }
+
+    /**
+     * 结束本轮重放
+     *
+     * @param allowRerun    为 false 时忽略本轮期间的触发（例如网络不可用，等待网络恢复再重放）
+     */
+    private void finish(boolean allowRerun) {
+        if (allowRerun && state.compareAndSet(STATE_RUNNING_RERUN, STATE_RUNNING)) {
+            startRound();
+            return;
+        }
+        state.set(STATE_IDLE);
+    }
+}
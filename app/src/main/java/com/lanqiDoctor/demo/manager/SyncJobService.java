@@ -0,0 +1,65 @@
+package com.lanqiDoctor.demo.manager;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * 云同步后台任务
+ *
+ * 由 SyncScheduler 安排，每次执行一次完整同步；失败时交给 JobScheduler 按退避策略重试
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public class SyncJobService extends JobService {
+
+    private static final String TAG = "SyncJobService";
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        CloudSyncManager cloudSyncManager = CloudSyncManager.getInstance(getApplicationContext());
+        if (!cloudSyncManager.canSyncToCloud()) {
+            Log.d(TAG, "同步条件不满足，跳过本次任务");
+            return false;
+        }
+
+        SyncScheduler syncScheduler = SyncScheduler.getInstance(getApplicationContext());
+        syncScheduler.onSyncStarted();
+        long startTime = SystemClock.elapsedRealtime();
+
+        ThreadPoolManager.getInstance().execute(() ->
+                cloudSyncManager.performFullSync(new CloudSyncManager.SyncCallback() {
+                    @Override
+                    public void onSuccess(String message) {
+                        Log.d(TAG, "后台同步成功: " + message);
+                        finish(params, true, startTime);
+                    }
+
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "后台同步失败，稍后重试: " + error);
+                        finish(params, false, startTime);
+                    }
+                }));
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // 网络断开或电量过低，当前页传输完成后停止；返回 true 让系统稍后从断点重试
+        Log.d(TAG, "同步任务被系统停止");
+        CloudSyncManager.getInstance(getApplicationContext()).cancelSync();
+        return true;
+    }
+
+    private void finish(JobParameters params, boolean success, long startTime) {
+        SyncScheduler syncScheduler = SyncScheduler.getInstance(getApplicationContext());
+        boolean rerun = syncScheduler.onSyncFinished(success, SystemClock.elapsedRealtime() - startTime);
+        jobFinished(params, !success);
+        if (rerun) {
+            syncScheduler.scheduleRerun();
+        }
+    }
+}
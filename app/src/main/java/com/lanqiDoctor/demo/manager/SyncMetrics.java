@@ -0,0 +1,446 @@
+package com.lanqiDoctor.demo.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 云同步指标
+ *
+ * 记录每次完整同步的结果和各阶段的指标：耗时、请求数、重试次数、请求与响应字节数、读写行数、错误类型。
+ * 最近 CAPACITY 次同步保存在环形缓冲区中并持久化，进程重启后仍可在同步诊断界面查看或导出为 JSON
+ *
+ * 每个同步请求通过 startRequest 得到一个 Trace，其 tag 作为 EasyHttp 请求的 tag，
+ * SyncMetricsInterceptor 在网络层据此把实际传输的字节数（压缩后）和重发次数记到对应阶段
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class SyncMetrics {
+
+    private static final String TAG = "SyncMetrics";
+
+    private static final String PREFS_NAME = "sync_metrics";
+    private static final String KEY_RUNS = "runs";
+    /** 保留的同步次数 */
+    private static final int CAPACITY = 20;
+    private static final String TRACE_TAG_PREFIX = "sync-metrics:";
+
+    public static final String PHASE_MEDICATION_UPLOAD = "用药信息上传";
+    public static final String PHASE_TOMBSTONE_UPLOAD = "删除记录上传";
+    public static final String PHASE_INTAKE_UPLOAD = "服药记录上传";
+    public static final String PHASE_MEDICATION_DOWNLOAD = "用药信息下载";
+    public static final String PHASE_INTAKE_DOWNLOAD = "服药记录下载";
+
+    /** 服务器返回失败（没有异常）时记录的错误类型 */
+    public static final String ERROR_SERVER_REJECTED = "ServerRejected";
+    /** 服务器已确认但本地标记失败时记录的错误类型 */
+    public static final String ERROR_LOCAL_WRITE = "LocalWriteFailed";
+
+    private static volatile SyncMetrics instance;
+
+    private final SharedPreferences prefs;
+    private final Gson gson = new Gson();
+    private final ArrayDeque<Run> runs = new ArrayDeque<>(CAPACITY);
+    /** 尚未结束的请求，按 tag 查找 */
+    private final Map<String, Trace> openTraces = new ConcurrentHashMap<>();
+    private final AtomicLong traceSequence = new AtomicLong();
+    private long runSequence;
+    private volatile Run currentRun;
+
+    private SyncMetrics(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        load();
+    }
+
+    public static SyncMetrics getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SyncMetrics.class) {
+                if (instance == null) {
+                    instance = new SyncMetrics(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 开始记录一次完整同步
+     *
+     * @param type 同步类型，首次同步或增量同步
+     */
+    public synchronized Run startRun(String type) {
+        Run run = new Run(++runSequence, type);
+        currentRun = run;
+        return run;
+    }
+
+    /**
+     * 一次完整同步结束，放入环形缓冲区并持久化
+     *
+     * @param error 回调给调用方的错误信息，成功时为 null
+     * @param cause 导致失败的异常，没有时为 null
+     */
+    public void finishRun(Run run, Map<String, Long> legDurations, long durationMs, String error, Throwable cause) {
+        synchronized (run) {
+            run.durationMs = durationMs;
+            run.legDurations = new LinkedHashMap<>(legDurations);
+            run.success = error == null;
+            run.error = error;
+            if (error != null && run.errorClass == null) {
+                run.errorClass = cause != null ? cause.getClass().getSimpleName() : "Unknown";
+            }
+        }
+
+        String json;
+        synchronized (this) {
+            if (currentRun == run) {
+                currentRun = null;
+            }
+            while (runs.size() >= CAPACITY) {
+                runs.removeFirst();
+            }
+            runs.addLast(run);
+            json = gson.toJson(new ArrayList<>(runs));
+        }
+        prefs.edit().putString(KEY_RUNS, json).apply();
+        Log.d(TAG, "同步指标: " + run);
+    }
+
+    /**
+     * 开始一个同步请求，计入当前同步的 phase 阶段；不在完整同步中时返回不计数的 Trace
+     */
+    public Trace startRequest(String phase) {
+        Run run = currentRun;
+        Trace trace = new Trace(TRACE_TAG_PREFIX + traceSequence.incrementAndGet(),
+                run != null ? run.phase(phase) : null);
+        openTraces.put(trace.tag, trace);
+        return trace;
+    }
+
+    /**
+     * 根据请求的 tag 查找进行中的请求，非同步请求或请求已结束时返回 null
+     */
+    public Trace findTrace(Object tag) {
+        if (!(tag instanceof String) || !((String) tag).startsWith(TRACE_TAG_PREFIX)) {
+            return null;
+        }
+        return openTraces.get(tag);
+    }
+
+    /**
+     * 获取最近的同步记录，按时间先后排列
+     */
+    public synchronized List<Run> getRecentRuns() {
+        return new ArrayList<>(runs);
+    }
+
+    /**
+     * 获取最近一次完整同步的记录，没有时返回 null
+     */
+    public synchronized Run getLastRun() {
+        return runs.peekLast();
+    }
+
+    /**
+     * 导出最近的同步记录
+     */
+    public String exportJson() {
+        List<Run> snapshot = getRecentRuns();
+        return new GsonBuilder().setPrettyPrinting().create().toJson(snapshot);
+    }
+
+    /**
+     * 清空同步记录
+     */
+    public synchronized void clear() {
+        runs.clear();
+        prefs.edit().remove(KEY_RUNS).apply();
+    }
+
+    private void load() {
+        String json = prefs.getString(KEY_RUNS, null);
+        if (json == null) {
+            return;
+        }
+        try {
+            List<Run> saved = gson.fromJson(json, new TypeToken<List<Run>>() {}.getType());
+            if (saved != null) {
+                for (Run run : saved) {
+                    runs.addLast(run);
+                    runSequence = Math.max(runSequence, run.id);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "读取同步指标失败，重新开始记录", e);
+            prefs.edit().remove(KEY_RUNS).apply();
+        }
+    }
+
+    /**
+     * 一次完整同步的记录
+     */
+    public static final class Run {
+        long id;
+        String type;
+        /** 开始时间（墙上时间） */
+        long startTime;
+        /** 总耗时（毫秒），并行阶段重叠计算 */
+        long durationMs;
+        boolean success;
+        String error;
+        /** 最后一个错误的异常类型，服务器返回失败时为 ServerRejected */
+        String errorClass;
+        /** 流水线各环节的耗时（毫秒），按完成顺序排列 */
+        Map<String, Long> legDurations = Collections.emptyMap();
+        /** 各阶段的请求指标，按开始顺序排列 */
+        final Map<String, Phase> phases = new LinkedHashMap<>();
+
+        Run(long id, String type) {
+            this.id = id;
+            this.type = type;
+            this.startTime = System.currentTimeMillis();
+        }
+
+        synchronized Phase phase(String name) {
+            Phase phase = phases.get(name);
+            if (phase == null) {
+                phase = new Phase(this, name);
+                phases.put(name, phase);
+            }
+            return phase;
+        }
+
+        synchronized void recordError(String errorClass) {
+            this.errorClass = errorClass;
+        }
+
+        public long getId() { return id; }
+
+        public String getType() { return type; }
+
+        public long getStartTime() { return startTime; }
+
+        public long getDurationMs() { return durationMs; }
+
+        public boolean isSuccess() { return success; }
+
+        public String getError() { return error; }
+
+        public String getErrorClass() { return errorClass; }
+
+        public synchronized Map<String, Long> getLegDurations() {
+            return new LinkedHashMap<>(legDurations);
+        }
+
+        public synchronized List<Phase> getPhases() {
+            return new ArrayList<>(phases.values());
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "Run{" +
+                    "id=" + id +
+                    ", type='" + type + '\'' +
+                    ", durationMs=" + durationMs +
+                    ", success=" + success +
+                    ", errorClass='" + errorClass + '\'' +
+                    ", phases=" + phases.values() +
+                    '}';
+        }
+    }
+
+    /**
+     * 一次同步中某一阶段的请求指标
+     */
+    public static final class Phase {
+        private transient Run run;
+        String name;
+        /** 第一个请求开始到最后一个请求结束的耗时（毫秒） */
+        long durationMs;
+        int requests;
+        int failures;
+        /** 网络层的重发次数：EasyHttp 的超时重试和压缩协商失败后的重发 */
+        int retries;
+        /** 网络上实际发送和接收的字节数，启用压缩时为压缩后的大小 */
+        long requestBytes;
+        long responseBytes;
+        /** 上传时从本地读取的行数，下载时从服务器收到的行数 */
+        long rowsRead;
+        /** 下载时写入本地的行数，上传时服务器确认后在本地标记的行数 */
+        long rowsWritten;
+        String errorClass;
+
+        private transient long firstStartTime;
+
+        Phase(Run run, String name) {
+            this.run = run;
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        public synchronized long getDurationMs() { return durationMs; }
+
+        public synchronized int getRequests() { return requests; }
+
+        public synchronized int getFailures() { return failures; }
+
+        public synchronized int getRetries() { return retries; }
+
+        public synchronized long getRequestBytes() { return requestBytes; }
+
+        public synchronized long getResponseBytes() { return responseBytes; }
+
+        public synchronized long getRowsRead() { return rowsRead; }
+
+        public synchronized long getRowsWritten() { return rowsWritten; }
+
+        public synchronized String getErrorClass() { return errorClass; }
+
+        synchronized void onRequestStart(long startTime) {
+            if (requests == 0) {
+                firstStartTime = startTime;
+            }
+            requests++;
+        }
+
+        synchronized void onRequestEnd(long endTime) {
+            durationMs = endTime - firstStartTime;
+        }
+
+        synchronized void onAttempt(boolean retry, long bytes) {
+            if (retry) {
+                retries++;
+            }
+            requestBytes += Math.max(bytes, 0);
+        }
+
+        synchronized void addResponseBytes(long bytes) {
+            responseBytes += bytes;
+        }
+
+        synchronized void addRows(long read, long written) {
+            rowsRead += read;
+            rowsWritten += written;
+        }
+
+        void onFailure(String errorClass) {
+            synchronized (this) {
+                failures++;
+                this.errorClass = errorClass;
+            }
+            if (run != null) {
+                run.recordError(errorClass);
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            return name + "{" +
+                    "durationMs=" + durationMs +
+                    ", requests=" + requests +
+                    ", retries=" + retries +
+                    ", requestBytes=" + requestBytes +
+                    ", responseBytes=" + responseBytes +
+                    ", rowsRead=" + rowsRead +
+                    ", rowsWritten=" + rowsWritten +
+                    ", errorClass='" + errorClass + '\'' +
+                    '}';
+        }
+    }
+
+    /**
+     * 一个同步请求（一页上传或下载），不在完整同步中时各方法不计数
+     *
+     * 请求结束时调用 succeed 或 fail 中的一个
+     */
+    public final class Trace {
+        private final String tag;
+        private final Phase phase;
+        private final long startTime = SystemClock.elapsedRealtime();
+        private int attempts;
+
+        private Trace(String tag, Phase phase) {
+            this.tag = tag;
+            this.phase = phase;
+            if (phase != null) {
+                phase.onRequestStart(startTime);
+            }
+        }
+
+        /**
+         * 作为 EasyHttp 请求的 tag，网络层据此统计字节数
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * 记录本地读取或从服务器收到的行数与写入本地的行数
+         */
+        public void addRows(long read, long written) {
+            if (phase != null) {
+                phase.addRows(read, written);
+            }
+        }
+
+        public void succeed() {
+            end();
+        }
+
+        public void fail(Exception e) {
+            fail(e != null ? e.getClass().getSimpleName() : "Unknown");
+        }
+
+        /**
+         * 服务器返回失败等没有异常的错误
+         */
+        public void fail(String errorClass) {
+            if (phase != null) {
+                phase.onFailure(errorClass);
+            }
+            end();
+        }
+
+        private void end() {
+            openTraces.remove(tag);
+            if (phase != null) {
+                phase.onRequestEnd(SystemClock.elapsedRealtime());
+            }
+        }
+
+        /**
+         * 网络层发出一次请求，第二次起计为重发；由 SyncMetricsInterceptor 调用
+         */
+        public void onAttempt(long requestBytes) {
+            boolean retry;
+            synchronized (this) {
+                retry = ++attempts > 1;
+            }
+            if (phase != null) {
+                phase.onAttempt(retry, requestBytes);
+            }
+        }
+
+        public void onResponseBytes(long bytes) {
+            if (phase != null) {
+                phase.addResponseBytes(bytes);
+            }
+        }
+    }
+}
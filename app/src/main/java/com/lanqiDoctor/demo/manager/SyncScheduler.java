@@ -0,0 +1,234 @@
+package com.lanqiDoctor.demo.manager;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 云同步调度器
+ *
+ * 各页面修改数据后调用 requestSync，不再各自直接发起完整同步：
+ * 1. 第一次请求后等待 DEBOUNCE_MS，窗口内的请求合并为一次同步
+ * 2. 同步进行中收到的请求只记一次，当前同步结束后再补一次
+ * 3. 同步失败由 JobScheduler 按指数退避重试，退避期间的请求并入待执行的任务
+ * 4. 需要联网，Android 8.0 以上还要求电量不低；任务交给系统保存，进程被杀后仍会执行
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class SyncScheduler {
+
+    private static final String TAG = "SyncScheduler";
+
+    static final int JOB_ID = 20002;
+
+    /** 合并请求的等待时间 */
+    private static final long DEBOUNCE_MS = TimeUnit.SECONDS.toMillis(5);
+    /** 失败重试的初始退避时间，之后每次翻倍（系统上限 5 小时） */
+    private static final long INITIAL_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String PREFS_NAME = "sync_scheduler";
+    private static final String KEY_REQUESTED = "requested";
+    private static final String KEY_COALESCED = "coalesced";
+    private static final String KEY_EXECUTED = "executed";
+    private static final String KEY_SUCCEEDED = "succeeded";
+    private static final String KEY_FAILED = "failed";
+    private static final String KEY_CONSECUTIVE_FAILURES = "consecutive_failures";
+    private static final String KEY_LAST_DURATION_MS = "last_duration_ms";
+
+    private static volatile SyncScheduler instance;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    /** 是否有同步正在执行 */
+    private boolean running;
+    /** 执行期间是否又收到了请求 */
+    private boolean rerunRequested;
+
+    private SyncScheduler(Context context) {
+        this.context = context.getApplicationContext();
+        this.prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static SyncScheduler getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SyncScheduler.class) {
+                if (instance == null) {
+                    instance = new SyncScheduler(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 请求一次后台同步，可在任意线程调用
+     *
+     * @param reason 触发原因，仅用于日志
+     */
+    public void requestSync(String reason) {
+        if (!CloudSyncManager.getInstance(context).canSyncToCloud()) {
+            Log.d(TAG, "同步条件不满足，忽略同步请求: " + reason);
+            return;
+        }
+        increment(KEY_REQUESTED);
+
+        synchronized (this) {
+            if (running) {
+                rerunRequested = true;
+                increment(KEY_COALESCED);
+                Log.d(TAG, "同步进行中，请求合并到下一次: " + reason);
+                return;
+            }
+        }
+
+        JobScheduler scheduler = jobScheduler();
+        if (scheduler == null) {
+            Log.w(TAG, "JobScheduler 不可用，直接同步: " + reason);
+            CloudSyncManager.getInstance(context).performFullSync(null);
+            return;
+        }
+        if (scheduler.getPendingJob(JOB_ID) != null) {
+            // 已有等待中（或退避中）的任务，合并进去
+            increment(KEY_COALESCED);
+            Log.d(TAG, "已有待执行的同步任务，请求已合并: " + reason);
+            return;
+        }
+        schedule(scheduler, DEBOUNCE_MS);
+        Log.d(TAG, "已安排同步任务: " + reason);
+    }
+
+    /**
+     * 由 SyncJobService 在开始执行前调用
+     */
+    synchronized void onSyncStarted() {
+        running = true;
+        rerunRequested = false;
+        increment(KEY_EXECUTED);
+    }
+
+    /**
+     * 由 SyncJobService 在同步结束后调用
+     *
+     * @return 同步成功且执行期间又收到了请求时返回 true，需要再安排一次；
+     *         失败时由退避重试覆盖期间的请求
+     */
+    boolean onSyncFinished(boolean success, long durationMs) {
+        boolean rerun;
+        synchronized (this) {
+            running = false;
+            rerun = rerunRequested;
+            rerunRequested = false;
+        }
+
+        SharedPreferences.Editor editor = prefs.edit().putLong(KEY_LAST_DURATION_MS, durationMs);
+        if (success) {
+            editor.putInt(KEY_SUCCEEDED, prefs.getInt(KEY_SUCCEEDED, 0) + 1)
+                    .putInt(KEY_CONSECUTIVE_FAILURES, 0);
+        } else {
+            editor.putInt(KEY_FAILED, prefs.getInt(KEY_FAILED, 0) + 1)
+                    .putInt(KEY_CONSECUTIVE_FAILURES, prefs.getInt(KEY_CONSECUTIVE_FAILURES, 0) + 1);
+        }
+        editor.apply();
+
+        return success && rerun;
+    }
+
+    /**
+     * 再安排一次同步，须在当前任务 jobFinished 之后调用，否则同一 ID 会让系统停止当前任务
+     */
+    void scheduleRerun() {
+        JobScheduler scheduler = jobScheduler();
+        if (scheduler != null) {
+            schedule(scheduler, DEBOUNCE_MS);
+            Log.d(TAG, "同步期间有新的请求，已再安排一次");
+        }
+    }
+
+    /**
+     * 取消待执行的同步任务（退出登录时调用）
+     */
+    public void cancel() {
+        JobScheduler scheduler = jobScheduler();
+        if (scheduler != null) {
+            scheduler.cancel(JOB_ID);
+        }
+        synchronized (this) {
+            rerunRequested = false;
+        }
+    }
+
+    /**
+     * 获取调度统计
+     */
+    public Metrics getMetrics() {
+        Metrics metrics = new Metrics();
+        metrics.requested = prefs.getInt(KEY_REQUESTED, 0);
+        metrics.coalesced = prefs.getInt(KEY_COALESCED, 0);
+        metrics.executed = prefs.getInt(KEY_EXECUTED, 0);
+        metrics.succeeded = prefs.getInt(KEY_SUCCEEDED, 0);
+        metrics.failed = prefs.getInt(KEY_FAILED, 0);
+        metrics.consecutiveFailures = prefs.getInt(KEY_CONSECUTIVE_FAILURES, 0);
+        metrics.lastDurationMs = prefs.getLong(KEY_LAST_DURATION_MS, 0);
+        return metrics;
+    }
+
+    private void schedule(JobScheduler scheduler, long delayMs) {
+        JobInfo.Builder builder = new JobInfo.Builder(JOB_ID, new ComponentName(context, SyncJobService.class))
+                .setMinimumLatency(delayMs)
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setBackoffCriteria(INITIAL_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(true);
+        }
+        int result = scheduler.schedule(builder.build());
+        if (result != JobScheduler.RESULT_SUCCESS) {
+            Log.e(TAG, "安排同步任务失败");
+        }
+    }
+
+    private JobScheduler jobScheduler() {
+        return (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+    }
+
+    private synchronized void increment(String key) {
+        prefs.edit().putInt(key, prefs.getInt(key, 0) + 1).apply();
+    }
+
+    /**
+     * 调度统计
+     */
+    public static class Metrics {
+        /** 收到的同步请求数 */
+        public int requested;
+        /** 被合并、没有单独执行的请求数 */
+        public int coalesced;
+        /** 实际执行的同步次数（含重试） */
+        public int executed;
+        public int succeeded;
+        public int failed;
+        /** 连续失败次数，成功后清零 */
+        public int consecutiveFailures;
+        public long lastDurationMs;
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "requested=" + requested +
+                    ", coalesced=" + coalesced +
+                    ", executed=" + executed +
+                    ", succeeded=" + succeeded +
+                    ", failed=" + failed +
+                    ", consecutiveFailures=" + consecutiveFailures +
+                    ", lastDurationMs=" + lastDurationMs +
+                    '}';
+        }
+    }
+}
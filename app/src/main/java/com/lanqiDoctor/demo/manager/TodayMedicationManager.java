@@ -4,8 +4,10 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 
+import com.lanqiDoctor.demo.database.dao.IntakeDailySummaryDao;
 import com.lanqiDoctor.demo.database.dao.MedicationIntakeRecordDao;
 import com.lanqiDoctor.demo.database.dao.MedicationRecordDao;
+import com.lanqiDoctor.demo.database.entity.IntakeDailySummary;
 import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
 import com.lanqiDoctor.demo.database.entity.MedicationRecord;
 
@@ -39,6 +41,7 @@ public class TodayMedicationManager {
     private Context context;
     private MedicationRecordDao medicationDao;
     private MedicationIntakeRecordDao intakeDao;
+    private IntakeDailySummaryDao summaryDao;
     private SharedPreferences timePrefs;
     private SharedPreferences initPrefs;
 
@@ -48,6 +51,7 @@ public class TodayMedicationManager {
         this.context = context.getApplicationContext();
         this.medicationDao = new MedicationRecordDao(this.context);
         this.intakeDao = new MedicationIntakeRecordDao(this.context);
+        this.summaryDao = new IntakeDailySummaryDao(this.context);
         this.timePrefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.initPrefs = this.context.getSharedPreferences(PREFS_LAST_INIT, Context.MODE_PRIVATE);
 
@@ -260,18 +264,12 @@ public class TodayMedicationManager {
                 return new TodayMedicationStats(0, 0);
             }
 
-            List<MedicationIntakeRecord> todayRecords = intakeDao.findTodayRecords(currentUserId);
-
-            int totalCount = todayRecords.size();
-            int takenCount = 0;
-
-            for (MedicationIntakeRecord record : todayRecords) {
-                if (record.getStatus() != null && record.getStatus() == 1) {
-                    takenCount++;
-                }
+            // 直接读取今日汇总行，不再加载今日全部服药记录
+            IntakeDailySummary summary = summaryDao.findByDay(currentUserId, System.currentTimeMillis());
+            if (summary == null) {
+                return new TodayMedicationStats(0, 0);
             }
-
-            return new TodayMedicationStats(totalCount, takenCount);
+            return new TodayMedicationStats(summary.getTotalCount(), summary.getTakenCount());
 
         } catch (Exception e) {
             Log.e(TAG, "获取今日服药统计失败", e);
@@ -118,7 +118,8 @@ public class UserStateManager {
             editor.apply();
             Log.d(TAG, "用户登录信息保存成功");
 
-            // 登录后从服务器加载用户设置
+            // 登录后先提交离线期间的修改，再从服务器加载用户设置
+            OutboxManager.getInstance(context).drain();
             loadUserSettingsFromServer();
         } catch (Exception e) {
             Log.e(TAG, "保存用户登录信息失败", e);
@@ -413,6 +414,10 @@ public class UserStateManager {
             // 注意：不清除偏好设置和地区信息，让用户设置保持
             
             editor.apply();
+            // 取消尚未执行的后台同步
+            SyncScheduler.getInstance(context).cancel();
+            // 不保留上一个用户聊天内容的渲染缓存
+            MarkdownRenderManager.clearCache();
             Log.d(TAG, "用户登出成功");
         } catch (Exception e) {
             Log.e(TAG, "用户登出失败", e);
@@ -663,7 +668,10 @@ public class UserStateManager {
                             Log.d(TAG, "从服务器加载用户设置网络请求成功");
                             try {
                                 UserSettingsApi.Bean settings = data.getData();
-                                if (settings != null) {
+                                if (settings != null && OutboxManager.getInstance(context).hasPendingUserSettings()) {
+                                    // 本地修改尚未提交到服务器，以本地为准
+                                    Log.d(TAG, "本地设置待提交，忽略服务器设置");
+                                } else if (settings != null) {
                                     // 更新本地设置
                                     SharedPreferences.Editor editor = sharedPreferences.edit();
                                     editor.putBoolean(KEY_AUTO_SYNC_HEALTH_DATA, settings.isAutoSyncHealthData());
@@ -699,33 +707,8 @@ public class UserStateManager {
             return;
         }
         
-        try {
-            EasyHttp.post(new ApplicationLifecycle())
-                    .api(new UserSettingsApi().setAutoSyncHealthData(enable))
-                    .request(new OnHttpListener<HttpData<Object>>() {
-                        @Override
-                        public void onStart(Call call) {
-                            Log.d(TAG, "开始同步自动同步设置到服务器网络请求");
-                        }
-                        
-                        @Override
-                        public void onEnd(Call call) {
-                            Log.d(TAG, "同步自动同步设置到服务器网络请求结束");
-                        }
-                        
-                        @Override
-                        public void onSucceed(HttpData<Object> data) {
-                            Log.d(TAG, "自动同步设置已成功同步到服务器: " + enable);
-                        }
-                        
-                        @Override
-                        public void onFail(Exception e) {
-                            Log.e(TAG, "同步设置到服务器失败", e);
-                        }
-                    });
-        } catch (Exception e) {
-            Log.e(TAG, "同步自动同步设置到服务器时发生异常", e);
-        }
+        // 经待发送队列提交，离线时保留到网络恢复，多次修改只发送最后一次
+        OutboxManager.getInstance(context).enqueueUserSettings(new UserSettingsApi().setAutoSyncHealthData(enable));
     }    
     
     /**
@@ -0,0 +1,187 @@
+package com.lanqiDoctor.demo.test;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.AppDatabase;
+import com.lanqiDoctor.demo.database.DatabaseHelper;
+import com.lanqiDoctor.demo.database.dao.MedicationIntakeRecordDao;
+import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cursor 行映射基准测试
+ *
+ * 按 JMH 的方式先预热再测量，输出每行的平均映射耗时，对比：
+ * 1. 原来的做法：每行每列调用 getColumnIndexOrThrow 查找列索引
+ * 2. CursorRowMapper：每个 Cursor 只解析一次列索引，逐行按下标取值
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 CursorMappingBenchmark.run(context, 100000)（不要在主线程调用）
+ * 2. 检查日志输出，对比两种做法的 ns/行
+ *
+ * 使用独立的内存数据库，两种做法遍历同一个 Cursor，差异只来自列索引的查找
+ */
+public class CursorMappingBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURE_ITERATIONS = 10;
+
+    /**
+     * 运行基准测试
+     *
+     * @param rowCount 服药记录行数
+     */
+    public static void run(Context context, int rowCount) {
+        System.out.println("=== 开始 Cursor 行映射基准测试，行数: " + rowCount + " ===");
+
+        AppDatabase database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        Cursor cursor = null;
+        try {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            seed(db, rowCount);
+            cursor = db.query("SELECT * FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE);
+            Cursor rows = cursor;
+
+            report("原做法（逐行查找列索引）", rowCount, () -> legacyMap(rows));
+            report("CursorRowMapper", rowCount, () -> mapperMap(rows));
+        } catch (Exception e) {
+            System.err.println("❌ 测试失败：" + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            database.close();
+        }
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    private interface Task {
+        int run() throws Exception;
+    }
+
+    private static void report(String name, int rowCount, Task task) {
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                task.run();
+            }
+            long total = 0;
+            long best = Long.MAX_VALUE;
+            int mapped = 0;
+            for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                mapped = task.run();
+                long elapsed = System.nanoTime() - start;
+                total += elapsed;
+                best = Math.min(best, elapsed);
+            }
+            System.out.println("📊 " + name + ": 平均 " + total / MEASURE_ITERATIONS / rowCount + " ns/行，最快 "
+                    + best / rowCount + " ns/行，映射出 " + mapped + " 行");
+        } catch (Exception e) {
+            System.err.println("❌ " + name + " 失败：" + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static int mapperMap(Cursor cursor) {
+        List<MedicationIntakeRecord> list = new ArrayList<>();
+        MedicationIntakeRecordDao.rowMapper().mapAll(cursor, list);
+        return list.size();
+    }
+
+    private static int legacyMap(Cursor cursor) {
+        List<MedicationIntakeRecord> list = new ArrayList<>();
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            list.add(legacyCursorToRecord(cursor));
+        }
+        return list.size();
+    }
+
+    /**
+     * 与 MedicationIntakeRecordDao 原来的 cursorToMedicationIntakeRecord 一致
+     */
+    private static MedicationIntakeRecord legacyCursorToRecord(Cursor cursor) {
+        MedicationIntakeRecord record = new MedicationIntakeRecord();
+        record.setId(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ID)));
+
+        int userIdIndex = cursor.getColumnIndex(DatabaseHelper.COLUMN_USER_ID);
+        if (userIdIndex >= 0 && !cursor.isNull(userIdIndex)) {
+            record.setUserId(cursor.getString(userIdIndex));
+        }
+        int medicationIdIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MEDICATION_ID);
+        if (!cursor.isNull(medicationIdIndex)) {
+            record.setMedicationId(cursor.getLong(medicationIdIndex));
+        }
+        int medicationNameIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_MEDICATION_NAME);
+        if (!cursor.isNull(medicationNameIndex)) {
+            record.setMedicationName(cursor.getString(medicationNameIndex));
+        }
+        int plannedTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_PLANNED_TIME);
+        if (!cursor.isNull(plannedTimeIndex)) {
+            record.setPlannedTime(cursor.getLong(plannedTimeIndex));
+        }
+        int actualTimeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ACTUAL_TIME);
+        if (!cursor.isNull(actualTimeIndex)) {
+            record.setActualTime(cursor.getLong(actualTimeIndex));
+        }
+        int actualDosageIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_ACTUAL_DOSAGE);
+        if (!cursor.isNull(actualDosageIndex)) {
+            record.setActualDosage(cursor.getString(actualDosageIndex));
+        }
+        int statusIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_STATUS);
+        if (!cursor.isNull(statusIndex)) {
+            record.setStatus(cursor.getInt(statusIndex));
+        }
+        int notesIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTES);
+        if (!cursor.isNull(notesIndex)) {
+            record.setNotes(cursor.getString(notesIndex));
+        }
+        record.setCreateTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CREATE_TIME)));
+        record.setUpdateTime(cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_UPDATE_TIME)));
+        return record;
+    }
+
+    /**
+     * 一个用户，20 种药品，每种每小时一次
+     */
+    private static void seed(SupportSQLiteDatabase db, int rowCount) {
+        long baseTime = 1700000000000L;
+        db.beginTransaction();
+        SupportSQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_MEDICATION_INTAKE
+                + " (" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_MEDICATION_ID + ", "
+                + DatabaseHelper.COLUMN_MEDICATION_NAME + ", " + DatabaseHelper.COLUMN_PLANNED_TIME + ", "
+                + DatabaseHelper.COLUMN_ACTUAL_TIME + ", " + DatabaseHelper.COLUMN_ACTUAL_DOSAGE + ", "
+                + DatabaseHelper.COLUMN_STATUS + ", " + DatabaseHelper.COLUMN_NOTES + ", "
+                + DatabaseHelper.COLUMN_CREATE_TIME + ", " + DatabaseHelper.COLUMN_UPDATE_TIME + ", "
+                + DatabaseHelper.COLUMN_VERSION + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)");
+        try {
+            for (int i = 0; i < rowCount; i++) {
+                long plannedTime = baseTime + (i / 20) * 3600000L;
+                insert.bindString(1, "10001");
+                insert.bindLong(2, i % 20);
+                insert.bindString(3, "测试药品" + i % 20);
+                insert.bindLong(4, plannedTime);
+                insert.bindLong(5, plannedTime + 60000L);
+                insert.bindString(6, "1片");
+                insert.bindLong(7, 1);
+                insert.bindString(8, "饭后服用");
+                insert.bindLong(9, plannedTime);
+                insert.bindLong(10, plannedTime);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            DatabaseHelper.closeQuietly(insert);
+            db.endTransaction();
+        }
+    }
+}
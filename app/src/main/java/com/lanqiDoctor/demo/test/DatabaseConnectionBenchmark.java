@@ -0,0 +1,248 @@
+package com.lanqiDoctor.demo.test;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 数据库连接并发读写延迟测试
+ *
+ * 一个写线程持续插入服药记录，同时多个读线程按时间范围查询，输出读、写各自的平均和 P95 延迟，对比：
+ * 1. 原来的做法：每次操作新建 SQLiteOpenHelper 并打开数据库，操作后关闭，回滚日志模式，读写互相阻塞
+ * 2. 共享连接：进程内共用一个开启 WAL 的 SQLiteOpenHelper，不再关闭，读不会被写阻塞
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 DatabaseConnectionBenchmark.run(context, 2000, 4)（不要在主线程调用）
+ * 2. 检查日志输出，对比两种做法的读写延迟，以及读写失败（数据库被锁）的次数
+ *
+ * 使用独立的临时数据库文件，测试结束后删除，不影响真实数据
+ */
+public class DatabaseConnectionBenchmark {
+
+    private static final String DB_NAME = "connection_benchmark.db";
+    private static final String USER_ID = "10001";
+    /** 预先写入的记录数，读线程查询的数据 */
+    private static final int SEED_COUNT = 5000;
+
+    /**
+     * 运行测试
+     *
+     * @param writeCount  写线程插入的记录数
+     * @param readerCount 读线程数
+     */
+    public static void run(Context context, int writeCount, int readerCount) {
+        System.out.println("=== 开始数据库连接并发读写延迟测试，写入 " + writeCount + " 条，读线程 " + readerCount + " 个 ===");
+
+        measure(context, "原做法（每次打开关闭，回滚日志）", writeCount, readerCount, false);
+        measure(context, "共享 WAL 连接", writeCount, readerCount, true);
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    /**
+     * 每种做法使用新的数据库文件
+     */
+    private static void measure(Context context, String name, int writeCount, int readerCount, boolean shared) {
+        context.deleteDatabase(DB_NAME);
+        BenchmarkHelper sharedHelper = new BenchmarkHelper(context, shared);
+        try {
+            seed(sharedHelper.getWritableDatabase());
+            if (!shared) {
+                sharedHelper.close();
+            }
+            ConnectionSource source = shared
+                    ? () -> sharedHelper
+                    : () -> new BenchmarkHelper(context, false);
+
+            List<Long> writeLatencies = new ArrayList<>();
+            List<Long> readLatencies = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger failures = new AtomicInteger();
+            AtomicBoolean writing = new AtomicBoolean(true);
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(readerCount + 1);
+
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < writeCount; i++) {
+                        long begin = System.nanoTime();
+                        if (write(source, shared, SEED_COUNT + i)) {
+                            writeLatencies.add(System.nanoTime() - begin);
+                        } else {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    writing.set(false);
+                    done.countDown();
+                }
+            }, "benchmark-writer").start();
+
+            for (int r = 0; r < readerCount; r++) {
+                int reader = r;
+                new Thread(() -> {
+                    try {
+                        start.await();
+                        int i = reader;
+                        while (writing.get()) {
+                            long begin = System.nanoTime();
+                            if (read(source, shared, i++)) {
+                                readLatencies.add(System.nanoTime() - begin);
+                            } else {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }, "benchmark-reader-" + r).start();
+            }
+
+            long begin = System.currentTimeMillis();
+            start.countDown();
+            done.await();
+            long elapsed = System.currentTimeMillis() - begin;
+
+            System.out.println("📊 " + name + ": 总耗时 " + elapsed + " ms，失败 " + failures.get() + " 次");
+            System.out.println("    写: " + describe(writeLatencies));
+            synchronized (readLatencies) {
+                System.out.println("    读: " + describe(readLatencies));
+            }
+        } catch (Exception e) {
+            System.err.println("❌ " + name + " 失败：" + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            sharedHelper.close();
+            context.deleteDatabase(DB_NAME);
+        }
+    }
+
+    private interface ConnectionSource {
+        SQLiteOpenHelper open();
+    }
+
+    /**
+     * 插入一条记录，原做法在操作后关闭数据库
+     */
+    private static boolean write(ConnectionSource source, boolean shared, int index) {
+        SQLiteOpenHelper helper = source.open();
+        SQLiteDatabase db = null;
+        try {
+            db = helper.getWritableDatabase();
+            insert(db, index);
+            return true;
+        } catch (SQLiteException e) {
+            return false;
+        } finally {
+            if (!shared && db != null) {
+                db.close();
+            }
+        }
+    }
+
+    /**
+     * 查询一天内的记录并读出全部行，原做法在操作后关闭数据库
+     */
+    private static boolean read(ConnectionSource source, boolean shared, int index) {
+        SQLiteOpenHelper helper = source.open();
+        SQLiteDatabase db = null;
+        Cursor cursor = null;
+        try {
+            db = helper.getReadableDatabase();
+            long startTime = plannedTime(index * 20 % SEED_COUNT);
+            cursor = db.rawQuery("SELECT * FROM intake WHERE user_id = ? AND planned_time >= ? AND planned_time < ? "
+                            + "ORDER BY planned_time ASC",
+                    new String[]{USER_ID, String.valueOf(startTime), String.valueOf(startTime + 86400000L)});
+            while (cursor.moveToNext()) {
+                cursor.getString(2);
+            }
+            return true;
+        } catch (SQLiteException e) {
+            return false;
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+            if (!shared && db != null) {
+                db.close();
+            }
+        }
+    }
+
+    private static void seed(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < SEED_COUNT; i++) {
+                insert(db, i);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void insert(SQLiteDatabase db, int index) {
+        long plannedTime = plannedTime(index);
+        db.execSQL("INSERT INTO intake (user_id, medication_name, planned_time, status, create_time, update_time) "
+                        + "VALUES (?, ?, ?, ?, ?, ?)",
+                new Object[]{USER_ID, "测试药品" + index % 20, plannedTime, index % 4, plannedTime, plannedTime});
+    }
+
+    /**
+     * 20 种药品，每种每小时一次
+     */
+    private static long plannedTime(int index) {
+        return 1700000000000L + (index / 20) * 3600000L;
+    }
+
+    private static String describe(List<Long> latencies) {
+        if (latencies.isEmpty()) {
+            return "没有成功的操作";
+        }
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        long total = 0;
+        for (long latency : sorted) {
+            total += latency;
+        }
+        long p95 = sorted.get(Math.min(sorted.size() - 1, sorted.size() * 95 / 100));
+        return sorted.size() + " 次，平均 " + total / sorted.size() / 1000 + " μs，P95 " + p95 / 1000
+                + " μs，最慢 " + sorted.get(sorted.size() - 1) / 1000 + " μs";
+    }
+
+    /**
+     * 与服药记录表结构相近的测试表
+     */
+    private static final class BenchmarkHelper extends SQLiteOpenHelper {
+
+        BenchmarkHelper(Context context, boolean writeAheadLogging) {
+            super(context, DB_NAME, null, 1);
+            setWriteAheadLoggingEnabled(writeAheadLogging);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE intake (id INTEGER PRIMARY KEY AUTOINCREMENT, user_id TEXT, "
+                    + "medication_name TEXT, planned_time INTEGER, status INTEGER, "
+                    + "create_time INTEGER, update_time INTEGER)");
+            db.execSQL("CREATE INDEX idx_intake_user_time ON intake (user_id, planned_time)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        }
+    }
+}
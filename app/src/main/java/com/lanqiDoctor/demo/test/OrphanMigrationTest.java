@@ -0,0 +1,150 @@
+package com.lanqiDoctor.demo.test;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.AppDatabase;
+import com.lanqiDoctor.demo.database.DatabaseHelper;
+import com.lanqiDoctor.demo.database.dao.MedicationIntakeRecordDao;
+
+/**
+ * 无主服药记录迁移耗时测试
+ *
+ * 在内存数据库中构造早期版本留下的无主记录，执行 MedicationIntakeRecordDao.migrateOrphans 的三条语句：
+ * 1. 删除与当前用户记录重复的无主记录
+ * 2. 删除无主记录之间的重复（user_id 为 '' 与 '0' 的同一条记录），保留 id 最小的一条
+ * 3. 剩余无主记录归属当前用户
+ *
+ * 构造的数据（orphanCount 为 N）：N 条 user_id 为 '' 的记录，其中前 N/5 条与当前用户的记录重复；
+ * N/5 条 user_id 为 '0' 的记录与 '' 记录中的另外 N/5 条重复
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 OrphanMigrationTest.run(context, 100000)（不要在主线程调用）
+ * 2. 检查日志输出，三条语句合计应远低于 1 秒，删除和归属的条数与预期一致时输出 ✅
+ *
+ * 使用独立的内存数据库，不影响真实数据
+ */
+public class OrphanMigrationTest {
+
+    private static final String USER_ID = "10001";
+    /** 三条语句合计耗时上限 */
+    private static final long MAX_TOTAL_MS = 1000;
+
+    /**
+     * 运行测试
+     *
+     * @param orphanCount user_id 为 '' 的无主记录数
+     */
+    public static void run(Context context, int orphanCount) {
+        System.out.println("=== 开始无主服药记录迁移耗时测试，无主记录数: " + orphanCount + " ===");
+
+        AppDatabase database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        try {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            int duplicateCount = orphanCount / 5;
+            long seedStart = System.currentTimeMillis();
+            seed(db, orphanCount, duplicateCount);
+            System.out.println("构造数据耗时 " + (System.currentTimeMillis() - seedStart) + " ms，共 "
+                    + count(db, null) + " 条");
+
+            MedicationIntakeRecordDao.OrphanMigration result;
+            db.beginTransaction();
+            try {
+                result = MedicationIntakeRecordDao.migrateOrphans(db, USER_ID);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+
+            long totalMs = (result.stepNanos[0] + result.stepNanos[1] + result.stepNanos[2]) / 1000000;
+            System.out.println("📊 语句 1（与当前用户重复）: 删除 " + result.duplicatesOfUser + " 条，"
+                    + result.stepNanos[0] / 1000000 + " ms");
+            System.out.println("📊 语句 2（无主记录之间重复）: 删除 " + result.duplicatesAmongOrphans + " 条，"
+                    + result.stepNanos[1] / 1000000 + " ms");
+            System.out.println("📊 语句 3（归属当前用户）: 更新 " + result.adopted + " 条，"
+                    + result.stepNanos[2] / 1000000 + " ms");
+            System.out.println("📊 合计 " + totalMs + " ms");
+
+            check(result.duplicatesOfUser == duplicateCount,
+                    "语句 1 删除 " + result.duplicatesOfUser + " 条，期望 " + duplicateCount + " 条");
+            check(result.duplicatesAmongOrphans == duplicateCount,
+                    "语句 2 删除 " + result.duplicatesAmongOrphans + " 条，期望 " + duplicateCount + " 条");
+            check(result.adopted == orphanCount - duplicateCount,
+                    "语句 3 更新 " + result.adopted + " 条，期望 " + (orphanCount - duplicateCount) + " 条");
+            check(count(db, "user_id IS NULL OR user_id IN ('', '0')") == 0, "迁移后仍有无主记录");
+            // 当前用户原有 N/5 条，加上归属的 N - N/5 条
+            check(count(db, "user_id = '" + USER_ID + "'") == orphanCount, "迁移后当前用户的记录数不正确");
+            check(totalMs < MAX_TOTAL_MS, "三条语句合计 " + totalMs + " ms，超过 " + MAX_TOTAL_MS + " ms");
+
+            System.out.println("✅ 迁移结果正确，合计 " + totalMs + " ms");
+        } catch (Exception e) {
+            System.err.println("❌ 测试失败：" + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            database.close();
+        }
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    /**
+     * 当前用户记录 duplicateCount 条；'' 记录 orphanCount 条，前 duplicateCount 条与当前用户重复；
+     * '0' 记录 duplicateCount 条，与第 duplicateCount 到 2 * duplicateCount 条 '' 记录重复
+     */
+    private static void seed(SupportSQLiteDatabase db, int orphanCount, int duplicateCount) {
+        long baseTime = 1700000000000L;
+        db.beginTransaction();
+        SupportSQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_MEDICATION_INTAKE
+                + " (" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_MEDICATION_NAME + ", "
+                + DatabaseHelper.COLUMN_PLANNED_TIME + ", " + DatabaseHelper.COLUMN_STATUS + ", "
+                + DatabaseHelper.COLUMN_CREATE_TIME + ", " + DatabaseHelper.COLUMN_UPDATE_TIME + ", "
+                + DatabaseHelper.COLUMN_VERSION + ") VALUES (?, ?, ?, ?, ?, ?, 1)");
+        try {
+            for (int i = 0; i < duplicateCount; i++) {
+                insertRecord(insert, USER_ID, i, baseTime);
+            }
+            for (int i = 0; i < orphanCount; i++) {
+                insertRecord(insert, "", i, baseTime);
+            }
+            for (int i = duplicateCount; i < 2 * duplicateCount; i++) {
+                insertRecord(insert, "0", i, baseTime);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            DatabaseHelper.closeQuietly(insert);
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * 第 index 条记录：20 种药品，每种每小时一次
+     */
+    private static void insertRecord(SupportSQLiteStatement insert, String userId, int index, long baseTime) {
+        long plannedTime = baseTime + (index / 20) * 3600000L;
+        insert.bindString(1, userId);
+        insert.bindString(2, "测试药品" + index % 20);
+        insert.bindLong(3, plannedTime);
+        insert.bindLong(4, index % 4);
+        insert.bindLong(5, plannedTime);
+        insert.bindLong(6, plannedTime);
+        insert.executeInsert();
+    }
+
+    private static int count(SupportSQLiteDatabase db, String where) {
+        String sql = "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_MEDICATION_INTAKE
+                + (where == null ? "" : " WHERE " + where);
+        try (Cursor cursor = db.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.lanqiDoctor.demo.test;
+
+import com.lanqiDoctor.demo.http.model.SharedHttpClient;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 预连接首字节耗时测试
+ *
+ * 对同一个服务器交替测量：
+ * 1. 冷连接：清空连接池和 DNS 缓存后直接请求，需要完成 DNS、TCP、TLS 握手
+ * 2. 预连接：先调用 SharedHttpClient.preconnect()，连接建立后再请求
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 PreconnectLatencyTest.run(5)（不要在主线程调用，需要联网）
+ * 2. 检查日志输出，预连接后的首字节耗时应明显低于冷连接；同步诊断界面也会显示两组统计
+ */
+public class PreconnectLatencyTest {
+
+    private static final String TEST_URL = "https://dashscope.aliyuncs.com/";
+    /** 等待预连接完成的最长时间 */
+    private static final long PRECONNECT_TIMEOUT_MS = 5000;
+
+    /**
+     * 运行测试
+     *
+     * @param rounds 测量轮数
+     */
+    public static void run(int rounds) {
+        System.out.println("=== 开始预连接首字节耗时测试 ===");
+
+        SharedHttpClient shared = SharedHttpClient.getInstance();
+        OkHttpClient client = shared.newBuilder().build();
+        long coldTotal = 0;
+        long warmTotal = 0;
+        try {
+            for (int i = 0; i < rounds; i++) {
+                shared.onNetworkChanged();
+                long cold = measure(client);
+
+                shared.onNetworkChanged();
+                shared.preconnect(TEST_URL);
+                waitForIdleConnection(client);
+                long warm = measure(client);
+
+                coldTotal += cold;
+                warmTotal += warm;
+                System.out.println("📊 第 " + (i + 1) + " 轮：冷连接 " + cold + " ms，预连接 " + warm + " ms");
+            }
+            System.out.println("📊 平均：冷连接 " + coldTotal / rounds + " ms，预连接 " + warmTotal / rounds + " ms");
+            System.out.println("📊 累计统计 复用连接: " + shared.getWarmStats() + "；新建连接: " + shared.getColdStats());
+        } catch (Exception e) {
+            System.err.println("❌ 测试失败：" + e.getMessage());
+            e.printStackTrace();
+        }
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    /**
+     * 从发出请求到收到响应头的耗时
+     */
+    private static long measure(OkHttpClient client) throws Exception {
+        Request request = new Request.Builder()
+                .url(TEST_URL)
+                .head()
+                .build();
+        long start = System.currentTimeMillis();
+        try (Response response = client.newCall(request).execute()) {
+            return System.currentTimeMillis() - start;
+        }
+    }
+
+    private static void waitForIdleConnection(OkHttpClient client) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + PRECONNECT_TIMEOUT_MS;
+        while (client.connectionPool().idleConnectionCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.lanqiDoctor.demo.test;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.lanqiDoctor.demo.database.AppDatabase;
+import com.lanqiDoctor.demo.database.DatabaseHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 热点查询执行计划测试
+ *
+ * 对各 DAO 中的热点查询执行 EXPLAIN QUERY PLAN，确认它们走复合索引，而不是全表扫描：
+ * 1. 计划中出现不带索引的 SCAN（新版 "SCAN t"，旧版 "SCAN TABLE t"）即失败
+ * 2. 计划中没有用到期望的索引之一也失败
+ * 只按索引顺序遍历整张表（例如 "SCAN t USING INDEX idx"）用于无 WHERE 的 ORDER BY，视为正常
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 QueryPlanTest.run(context, 10000)（不要在主线程调用）
+ * 2. 检查日志输出，每条查询输出执行计划，全部走索引时输出 ✅
+ *
+ * 使用独立的内存数据库，先写入 rowCount 条服药记录并执行 ANALYZE，
+ * 与设备空闲时 DatabaseMaintenance 更新统计信息后的情况一致
+ */
+public class QueryPlanTest {
+
+    private static final String USER_ID = "10001";
+
+    /**
+     * 运行测试
+     *
+     * @param rowCount 写入的服药记录数
+     */
+    public static void run(Context context, int rowCount) {
+        System.out.println("=== 开始热点查询执行计划测试，服药记录数: " + rowCount + " ===");
+
+        AppDatabase database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class).build();
+        int failed = 0;
+        try {
+            SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+            seed(db, rowCount);
+            db.execSQL("ANALYZE");
+
+            long now = 1700000000000L;
+            long dayStart = now - 86400000L;
+
+            // 服药记录
+            failed += check(db, "findByNameAndTime",
+                    "SELECT * FROM medication_intake_record "
+                            + "WHERE user_id = ? AND medication_name = ? AND planned_time = ?",
+                    new Object[]{USER_ID, "测试药品1", now},
+                    "idx_intake_user_name_time");
+            failed += check(db, "findByMedicationId",
+                    "SELECT * FROM medication_intake_record "
+                            + "WHERE user_id = ? AND medication_id = ? ORDER BY planned_time DESC",
+                    new Object[]{USER_ID, 1L},
+                    "idx_intake_user_medication_id");
+            failed += check(db, "findByTimeRange",
+                    "SELECT * FROM medication_intake_record "
+                            + "WHERE user_id = ? AND planned_time >= ? AND planned_time <= ? "
+                            + "ORDER BY planned_time ASC",
+                    new Object[]{USER_ID, dayStart, now},
+                    "idx_intake_user_time_id", "idx_intake_user_time_status");
+            failed += check(db, "findByTimeRangeAndStatus",
+                    "SELECT * FROM medication_intake_record "
+                            + "WHERE user_id = ? AND planned_time >= ? AND planned_time < ? AND status = ? "
+                            + "ORDER BY planned_time ASC",
+                    new Object[]{USER_ID, dayStart, now, 1},
+                    "idx_intake_user_time_status", "idx_intake_user_time_id");
+            failed += check(db, "findAll",
+                    "SELECT * FROM medication_intake_record WHERE user_id = ? ORDER BY planned_time DESC",
+                    new Object[]{USER_ID},
+                    "idx_intake_user_time_id", "idx_intake_user_time_status");
+
+            // 健康信息
+            failed += check(db, "HealthInfo.findByTimeRange",
+                    "SELECT * FROM health_info WHERE timestamp BETWEEN ? AND ? ORDER BY timestamp DESC",
+                    new Object[]{dayStart, now},
+                    "idx_health_info_timestamp");
+            failed += check(db, "HealthInfo.findAll",
+                    "SELECT * FROM health_info ORDER BY timestamp DESC",
+                    new Object[0],
+                    "idx_health_info_timestamp");
+
+            // 药品、习惯、病史
+            failed += check(db, "MedicationRecord.findByStatus",
+                    "SELECT * FROM medication_record WHERE status = ? AND user_id = ? ORDER BY create_time DESC",
+                    new Object[]{1, USER_ID},
+                    "idx_medication_user_status");
+            failed += check(db, "Habit.findAll",
+                    "SELECT * FROM habits WHERE user_id = ? AND status > 0 ORDER BY create_time DESC",
+                    new Object[]{USER_ID},
+                    "idx_habits_user_create_time");
+            failed += check(db, "MedicalHistory.findAll",
+                    "SELECT * FROM medical_history WHERE user_id = ? AND status = 1 ORDER BY create_time DESC",
+                    new Object[]{USER_ID},
+                    "idx_medical_history_user_create_time");
+
+            if (failed == 0) {
+                System.out.println("✅ 所有热点查询都走索引");
+            } else {
+                System.err.println("❌ 测试失败：" + failed + " 条查询没有走期望的索引");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ 测试失败：" + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            database.close();
+        }
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    /**
+     * 输出一条查询的执行计划，全表扫描或没有用到期望的索引时返回 1
+     */
+    private static int check(SupportSQLiteDatabase db, String name, String sql, Object[] args,
+                             String... expectedIndices) {
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.query("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detailIndex = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        }
+
+        System.out.println("📊 " + name + ":");
+        String problem = null;
+        boolean usesExpected = false;
+        for (String detail : details) {
+            System.out.println("    " + detail);
+            if (detail.startsWith("SCAN") && !detail.contains(" USING ")) {
+                problem = "全表扫描: " + detail;
+            }
+            for (String index : expectedIndices) {
+                if (detail.contains(index)) {
+                    usesExpected = true;
+                }
+            }
+        }
+        if (problem == null && !usesExpected) {
+            problem = "没有用到索引 " + String.join(" / ", expectedIndices);
+        }
+        if (problem != null) {
+            System.err.println("❌ " + name + " " + problem);
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * 5 个用户，每个用户 20 种药品，每种每小时一次
+     */
+    private static void seed(SupportSQLiteDatabase db, int rowCount) {
+        long baseTime = 1700000000000L - rowCount / 100 * 3600000L;
+        db.beginTransaction();
+        SupportSQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_MEDICATION_INTAKE
+                + " (" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_MEDICATION_ID + ", "
+                + DatabaseHelper.COLUMN_MEDICATION_NAME + ", " + DatabaseHelper.COLUMN_PLANNED_TIME + ", "
+                + DatabaseHelper.COLUMN_STATUS + ", " + DatabaseHelper.COLUMN_CREATE_TIME + ", "
+                + DatabaseHelper.COLUMN_UPDATE_TIME + ", " + DatabaseHelper.COLUMN_VERSION
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, 1)");
+        try {
+            for (int i = 0; i < rowCount; i++) {
+                long plannedTime = baseTime + (i / 100) * 3600000L;
+                insert.bindString(1, String.valueOf(10001 + i % 5));
+                insert.bindLong(2, (i / 5) % 20);
+                insert.bindString(3, "测试药品" + (i / 5) % 20);
+                insert.bindLong(4, plannedTime);
+                insert.bindLong(5, i % 4);
+                insert.bindLong(6, plannedTime);
+                insert.bindLong(7, plannedTime);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            DatabaseHelper.closeQuietly(insert);
+            db.endTransaction();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.lanqiDoctor.demo.test;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.lanqiDoctor.demo.http.api.LanXin;
+import com.lanqiDoctor.demo.http.api.QwenChatApi;
+import com.lanqiDoctor.demo.http.model.DeltaDecoder;
+import com.lanqiDoctor.demo.http.model.SseReader;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import okio.Buffer;
+
+/**
+ * 流式响应片段解析基准测试
+ *
+ * 按 JMH 的方式先预热再测量，输出每个片段的平均解析耗时，对比：
+ * 1. 原来的做法：BufferedReader 逐行读取，每个片段新建 TypeToken 并解析成 Map<String, Object>
+ * 2. 共用引擎：SseReader 从 okio 缓冲区读取事件，各后端的 DeltaDecoder 只解析需要的字段
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 SseParseBenchmark.run(2000)（不要在主线程调用）
+ * 2. 检查日志输出，对比同一后端两种做法的 ns/片段
+ */
+public class SseParseBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURE_ITERATIONS = 10;
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * 运行基准测试
+     *
+     * @param chunkCount 模拟响应中的片段数
+     */
+    public static void run(int chunkCount) {
+        System.out.println("=== 开始流式片段解析基准测试，片段数: " + chunkCount + " ===");
+
+        String qwen = buildStream(chunkCount, i -> "{\"output\":{\"choices\":[{\"message\":{\"role\":\"assistant\","
+                + "\"content\":\"第" + i + "段回答\"},\"finish_reason\":\"null\"}]},"
+                + "\"usage\":{\"total_tokens\":" + (i + 20) + ",\"output_tokens\":" + i + ",\"input_tokens\":20},"
+                + "\"request_id\":\"4f3e7c1a-0000-0000-0000-000000000000\"}");
+        String lanXin = buildStream(chunkCount, i -> "{\"code\":0,\"msg\":\"ok\",\"data\":{\"sessionId\":\"s-1\","
+                + "\"requestId\":\"r-1\",\"content\":\"第" + i + "段回答\",\"provider\":\"vivo\",\"model\":\"vivo-BlueLM-TB-Pro\"}}");
+
+        report("通义千问 原做法", chunkCount, () -> legacyParse(qwen));
+        report("通义千问 共用引擎", chunkCount, () -> engineParse(qwen, new QwenChatApi.StreamDecoder()));
+        report("蓝心 原做法", chunkCount, () -> legacyParse(lanXin));
+        report("蓝心 共用引擎", chunkCount, () -> engineParse(lanXin, new LanXin.StreamDecoder(true)));
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    private interface ChunkFactory {
+        String create(int index);
+    }
+
+    private interface Task {
+        int run() throws Exception;
+    }
+
+    private static String buildStream(int chunkCount, ChunkFactory factory) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < chunkCount; i++) {
+            builder.append("id:").append(i).append('\n')
+                    .append("event:result\n")
+                    .append("data:").append(factory.create(i)).append("\n\n");
+        }
+        return builder.toString();
+    }
+
+    private static void report(String name, int chunkCount, Task task) {
+        try {
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                task.run();
+            }
+            long total = 0;
+            long best = Long.MAX_VALUE;
+            int decoded = 0;
+            for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                decoded = task.run();
+                long elapsed = System.nanoTime() - start;
+                total += elapsed;
+                best = Math.min(best, elapsed);
+            }
+            System.out.println("📊 " + name + ": 平均 " + total / MEASURE_ITERATIONS / chunkCount + " ns/片段，最快 "
+                    + best / chunkCount + " ns/片段，解析出 " + decoded + " 个片段");
+        } catch (Exception e) {
+            System.err.println("❌ " + name + " 失败：" + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 与各后端原来的做法一致
+     */
+    @SuppressWarnings("unchecked")
+    private static int legacyParse(String stream) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)), "UTF-8"));
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.startsWith("data:")) {
+                continue;
+            }
+            Type type = new TypeToken<Map<String, Object>>(){}.getType();
+            Map<String, Object> map = GSON.fromJson(line.substring(5).trim(), type);
+            Object output = map.containsKey("output") ? map.get("output") : map.get("data");
+            if (output instanceof Map && !((Map<String, Object>) output).isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int engineParse(String stream, DeltaDecoder decoder) throws Exception {
+        Buffer buffer = new Buffer().writeUtf8(stream);
+        int[] count = {0};
+        SseReader.read(buffer, (event, data) -> {
+            if (decoder.isEnd(event, data)) {
+                return false;
+            }
+            try {
+                if (decoder.decode(event, data) != null) {
+                    count[0]++;
+                }
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            return true;
+        });
+        return count[0];
+    }
+}
@@ -0,0 +1,143 @@
+package com.lanqiDoctor.demo.test;
+
+import com.lanqiDoctor.demo.http.model.SseReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 流式响应首字耗时测试
+ *
+ * 在本机启动一个简单的 SSE 服务器，每隔一段时间发送一个事件（包含多行 data: 和 event: 帧），对比：
+ * 1. 整体读取：与 LanXin 原来的做法一致，body().string() 读完整个响应后再按行拆分
+ * 2. 增量读取：SseReader 从 BufferedSource 逐个事件回调
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 SseStreamLatencyTest.run(50)（不要在主线程调用）
+ * 2. 检查日志输出：增量读取的首字耗时应与事件数无关，整体读取随事件数线性增长
+ */
+public class SseStreamLatencyTest {
+
+    /** 服务器发送相邻两个事件的间隔 */
+    private static final long EVENT_INTERVAL_MS = 20;
+
+    /**
+     * 运行测试，分别用 eventCount 和 eventCount * 4 个事件测量
+     *
+     * @param eventCount 模拟响应中的事件数
+     */
+    public static void run(int eventCount) {
+        System.out.println("=== 开始流式响应首字耗时测试 ===");
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+        try {
+            for (int count : new int[]{eventCount, eventCount * 4}) {
+                long buffered = measureBuffered(client, count);
+                long incremental = measureIncremental(client, count);
+                System.out.println("📊 事件数 " + count + "：整体读取首字 " + buffered + " ms，增量读取首字 "
+                        + incremental + " ms");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ 测试失败：" + e.getMessage());
+            e.printStackTrace();
+        }
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    /**
+     * 读完整个响应后才能拿到第一个事件
+     */
+    private static long measureBuffered(OkHttpClient client, int eventCount) throws Exception {
+        try (ServerSocket server = startServer(eventCount)) {
+            long start = System.currentTimeMillis();
+            try (Response response = client.newCall(buildRequest(server)).execute()) {
+                String[] lines = response.body().string().split("\n");
+                for (String line : lines) {
+                    if (line.startsWith("data:")) {
+                        return System.currentTimeMillis() - start;
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("没有收到事件");
+    }
+
+    /**
+     * 收到第一个事件立即停止计时
+     */
+    private static long measureIncremental(OkHttpClient client, int eventCount) throws Exception {
+        try (ServerSocket server = startServer(eventCount)) {
+            long start = System.currentTimeMillis();
+            long[] firstEvent = {-1};
+            int[] received = {0};
+            try (Response response = client.newCall(buildRequest(server)).execute()) {
+                SseReader.read(response.body().source(), (event, data) -> {
+                    if (firstEvent[0] < 0) {
+                        firstEvent[0] = System.currentTimeMillis() - start;
+                    }
+                    if (!data.contains("\n")) {
+                        throw new IllegalStateException("多行 data: 没有合并: " + data);
+                    }
+                    received[0]++;
+                    return true;
+                });
+            }
+            if (received[0] != eventCount) {
+                throw new IllegalStateException("事件数不一致，期望 " + eventCount + "，实际 " + received[0]);
+            }
+            return firstEvent[0];
+        }
+    }
+
+    private static Request buildRequest(ServerSocket server) {
+        return new Request.Builder()
+                .url("http://127.0.0.1:" + server.getLocalPort() + "/stream")
+                .build();
+    }
+
+    /**
+     * 启动只处理一个请求的服务器，按固定间隔逐个发送事件
+     */
+    private static ServerSocket startServer(int eventCount) throws IOException {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        Thread thread = new Thread(() -> {
+            try (Socket socket = server.accept()) {
+                // 请求内容不影响响应，读取请求头后直接返回
+                byte[] buffer = new byte[4096];
+                socket.getInputStream().read(buffer);
+
+                OutputStream output = socket.getOutputStream();
+                output.write(("HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: text/event-stream\r\n"
+                        + "Connection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                output.flush();
+                for (int i = 0; i < eventCount; i++) {
+                    String event = ": keep-alive\n"
+                            + "event: message\n"
+                            + "data: {\"message\":\"片段" + i + "\",\n"
+                            + "data: \"index\":" + i + "}\n\n";
+                    output.write(event.getBytes(StandardCharsets.UTF_8));
+                    output.flush();
+                    Thread.sleep(EVENT_INTERVAL_MS);
+                }
+            } catch (Exception e) {
+                System.err.println("测试服务器异常：" + e.getMessage());
+            }
+        }, "sse-test-server");
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+}
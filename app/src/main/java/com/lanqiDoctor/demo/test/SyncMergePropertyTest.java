@@ -0,0 +1,184 @@
+package com.lanqiDoctor.demo.test;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.lanqiDoctor.demo.database.SyncMerge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 同步冲突合并规则性质测试
+ *
+ * 随机生成记录版本（取值范围很小，刻意制造更新时间、版本号、写入方相同的情况），检查 SyncMerge：
+ * 1. compare 是全序：反对称、传递
+ * 2. merge 满足交换律、结合律、幂等
+ * 3. 同一组版本以任意顺序、任意重复次数按 remoteWins 合并到本地，结果都相同（收敛）
+ * 4. REMOTE_NEWER_WHERE 在 SQLite 中的判断与 remoteWins 一致（不含墓碑）
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 SyncMergePropertyTest.run(10000)
+ * 2. 检查日志输出，出现 ❌ 时会打印反例
+ */
+public class SyncMergePropertyTest {
+
+    private static final String[] WRITERS = {null, "", "device-a", "device-b"};
+
+    /**
+     * 运行性质测试
+     *
+     * @param iterations 每条性质的随机用例数
+     */
+    public static void run(int iterations) {
+        System.out.println("=== 开始同步合并规则性质测试，用例数: " + iterations + " ===");
+        Random random = new Random(20240601L);
+
+        int failures = 0;
+        failures += checkTotalOrder(random, iterations);
+        failures += checkMergeLaws(random, iterations);
+        failures += checkConvergence(random, iterations);
+        failures += checkSqlEquivalence(random, iterations);
+
+        if (failures == 0) {
+            System.out.println("✅ 全部性质通过");
+        } else {
+            System.err.println("❌ 共 " + failures + " 个反例");
+        }
+        System.out.println("=== 测试结束 ===");
+    }
+
+    private static int checkTotalOrder(Random random, int iterations) {
+        int failures = 0;
+        for (int i = 0; i < iterations; i++) {
+            SyncMerge.Version a = randomVersion(random, true);
+            SyncMerge.Version b = randomVersion(random, true);
+            SyncMerge.Version c = randomVersion(random, true);
+            if (Integer.signum(SyncMerge.compare(a, b)) != -Integer.signum(SyncMerge.compare(b, a))) {
+                failures += report("反对称", a, b);
+            }
+            if (SyncMerge.compare(a, b) <= 0 && SyncMerge.compare(b, c) <= 0 && SyncMerge.compare(a, c) > 0) {
+                failures += report("传递", a, b, c);
+            }
+        }
+        System.out.println("📊 全序检查完成");
+        return failures;
+    }
+
+    private static int checkMergeLaws(Random random, int iterations) {
+        int failures = 0;
+        for (int i = 0; i < iterations; i++) {
+            SyncMerge.Version a = randomVersion(random, true);
+            SyncMerge.Version b = randomVersion(random, true);
+            SyncMerge.Version c = randomVersion(random, true);
+            if (!SyncMerge.merge(a, b).equals(SyncMerge.merge(b, a))) {
+                failures += report("交换律", a, b);
+            }
+            if (!SyncMerge.merge(a, SyncMerge.merge(b, c)).equals(SyncMerge.merge(SyncMerge.merge(a, b), c))) {
+                failures += report("结合律", a, b, c);
+            }
+            if (!SyncMerge.merge(a, a).equals(a)) {
+                failures += report("幂等", a);
+            }
+        }
+        System.out.println("📊 合并律检查完成");
+        return failures;
+    }
+
+    /**
+     * 模拟下载：本地从空开始，remoteWins 为 true 时用云端版本替换本地
+     */
+    private static int checkConvergence(Random random, int iterations) {
+        int failures = 0;
+        for (int i = 0; i < iterations; i++) {
+            List<SyncMerge.Version> versions = new ArrayList<>();
+            int count = 1 + random.nextInt(6);
+            for (int j = 0; j < count; j++) {
+                versions.add(randomVersion(random, true));
+            }
+            SyncMerge.Version expected = apply(versions);
+
+            List<SyncMerge.Version> replayed = new ArrayList<>(versions);
+            replayed.addAll(versions.subList(0, random.nextInt(versions.size() + 1)));
+            Collections.shuffle(replayed, random);
+            SyncMerge.Version actual = apply(replayed);
+
+            if (!expected.equals(actual)) {
+                failures += report("收敛", expected, actual);
+            }
+        }
+        System.out.println("📊 收敛检查完成");
+        return failures;
+    }
+
+    private static SyncMerge.Version apply(List<SyncMerge.Version> versions) {
+        SyncMerge.Version local = null;
+        for (SyncMerge.Version remote : versions) {
+            if (SyncMerge.remoteWins(local, remote)) {
+                local = remote;
+            }
+        }
+        return local;
+    }
+
+    private static int checkSqlEquivalence(Random random, int iterations) {
+        int failures = 0;
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        try {
+            db.execSQL("CREATE TABLE t (update_time INTEGER NOT NULL, version INTEGER NOT NULL, last_writer TEXT)");
+            db.execSQL("INSERT INTO t VALUES (0, 0, NULL)");
+            SQLiteStatement reset = db.compileStatement("UPDATE t SET update_time = ?, version = ?, last_writer = ?");
+            SQLiteStatement query = db.compileStatement("SELECT COUNT(*) FROM t WHERE " + SyncMerge.REMOTE_NEWER_WHERE);
+
+            for (int i = 0; i < iterations; i++) {
+                SyncMerge.Version local = randomVersion(random, false);
+                SyncMerge.Version remote = randomVersion(random, false);
+
+                reset.clearBindings();
+                reset.bindLong(1, local.getUpdateTime());
+                reset.bindLong(2, local.getVersion());
+                if (local.getWriter() != null) {
+                    reset.bindString(3, local.getWriter());
+                } else {
+                    reset.bindNull(3);
+                }
+                reset.executeUpdateDelete();
+
+                query.clearBindings();
+                query.bindLong(1, remote.getUpdateTime());
+                query.bindLong(2, remote.getUpdateTime());
+                query.bindLong(3, remote.getVersion());
+                query.bindLong(4, remote.getVersion());
+                query.bindString(5, remote.getWriter() != null ? remote.getWriter() : "");
+                boolean sqlWins = query.simpleQueryForLong() > 0;
+
+                if (sqlWins != SyncMerge.remoteWins(local, remote)) {
+                    failures += report("SQL 条件一致", local, remote);
+                }
+            }
+        } finally {
+            db.close();
+        }
+        System.out.println("📊 SQL 条件检查完成");
+        return failures;
+    }
+
+    private static SyncMerge.Version randomVersion(Random random, boolean allowDeleted) {
+        return new SyncMerge.Version(
+                (long) random.nextInt(4),
+                (long) random.nextInt(3),
+                WRITERS[random.nextInt(WRITERS.length)],
+                allowDeleted && random.nextInt(4) == 0);
+    }
+
+    private static int report(String property, SyncMerge.Version... versions) {
+        StringBuilder builder = new StringBuilder("❌ 不满足").append(property).append("：");
+        for (SyncMerge.Version version : versions) {
+            builder.append(' ').append(version);
+        }
+        System.err.println(builder);
+        return 1;
+    }
+}
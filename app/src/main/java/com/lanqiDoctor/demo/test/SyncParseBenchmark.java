@@ -0,0 +1,173 @@
+package com.lanqiDoctor.demo.test;
+
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.hjq.gson.factory.GsonFactory;
+import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+import com.lanqiDoctor.demo.http.api.SyncMedicationIntakeApi;
+import com.lanqiDoctor.demo.http.model.HttpData;
+
+import java.io.StringReader;
+import java.lang.reflect.Type;
+
+/**
+ * 同步响应解析基准测试
+ *
+ * 对比两种解析服药记录下载响应的方式：
+ * 1. Gson 整体解析：与 RequestHandler 原来的做法一致，整个响应转换成 HttpData<Bean> 对象树
+ * 2. 流式解析：JsonReader 逐个元素解析，按批交给接收方后即可回收
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 SyncParseBenchmark.run(20000)（不要在主线程调用）
+ * 2. 检查日志输出，对比耗时与解析过程中观察到的最大堆占用
+ *
+ * 堆占用通过 Runtime 采样得到，只能作为量级参考
+ */
+public class SyncParseBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    /**
+     * 运行基准测试
+     *
+     * @param recordCount 模拟响应中的服药记录数
+     */
+    public static void run(int recordCount) {
+        System.out.println("=== 开始同步响应解析基准测试，记录数: " + recordCount + " ===");
+
+        String json = buildResponse(recordCount);
+        System.out.println("响应大小: " + json.length() / 1024 + " KB");
+
+        // 预热
+        parseWithGsonTree(json);
+        parseWithStreaming(json);
+
+        long treeTime = 0;
+        long treePeak = 0;
+        long streamTime = 0;
+        long streamPeak = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            Result tree = parseWithGsonTree(json);
+            treeTime += tree.elapsedNanos;
+            treePeak = Math.max(treePeak, tree.peakBytes);
+
+            Result stream = parseWithStreaming(json);
+            streamTime += stream.elapsedNanos;
+            streamPeak = Math.max(streamPeak, stream.peakBytes);
+        }
+
+        System.out.println("📊 Gson 整体解析: 平均 " + treeTime / ROUNDS / 1000000 + " ms，堆增长峰值 "
+                + treePeak / 1024 + " KB");
+        System.out.println("📊 流式解析:      平均 " + streamTime / ROUNDS / 1000000 + " ms，堆增长峰值 "
+                + streamPeak / 1024 + " KB");
+        System.out.println("=== 测试结束 ===");
+    }
+
+    /**
+     * 与 RequestHandler 原来的做法一致：整体转换成对象树后再遍历
+     */
+    private static Result parseWithGsonTree(String json) {
+        Type type = new TypeToken<HttpData<SyncMedicationIntakeApi.Bean>>() {}.getType();
+        System.gc();
+        long baseline = usedHeap();
+        long start = System.nanoTime();
+
+        HttpData<SyncMedicationIntakeApi.Bean> data = GsonFactory.getSingletonGson().fromJson(json, type);
+        // 对象树在遍历写库期间一直存活，此时的堆占用即为峰值
+        long peak = usedHeap() - baseline;
+        int count = 0;
+        for (MedicationIntakeRecord record : data.getData().getIntakeRecords()) {
+            if (record.getPlannedTime() != null) {
+                count++;
+            }
+        }
+
+        Result result = new Result(System.nanoTime() - start, peak);
+        System.out.println("Gson 整体解析 " + count + " 条");
+        return result;
+    }
+
+    /**
+     * 流式解析：每批交给接收方后不再引用
+     */
+    private static Result parseWithStreaming(String json) {
+        System.gc();
+        long baseline = usedHeap();
+        long[] peak = new long[1];
+        int[] count = new int[1];
+        long start = System.nanoTime();
+
+        SyncMedicationIntakeApi api = new SyncMedicationIntakeApi().setRecordSink(batch -> {
+            for (MedicationIntakeRecord record : batch) {
+                if (record.getPlannedTime() != null) {
+                    count[0]++;
+                }
+            }
+            peak[0] = Math.max(peak[0], usedHeap() - baseline);
+        });
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("data".equals(reader.nextName())) {
+                    api.readData(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (Exception e) {
+            System.err.println("❌ 流式解析失败：" + e.getMessage());
+        }
+
+        Result result = new Result(System.nanoTime() - start, peak[0]);
+        System.out.println("流式解析 " + count[0] + " 条");
+        return result;
+    }
+
+    /**
+     * 构造与服务器格式一致的服药记录下载响应
+     */
+    private static String buildResponse(int recordCount) {
+        long now = System.currentTimeMillis();
+        StringBuilder builder = new StringBuilder(recordCount * 260);
+        builder.append("{\"code\":200,\"msg\":\"ok\",\"data\":{\"success\":true,\"message\":\"ok\",")
+                .append("\"serverTime\":").append(now).append(",\"totalCount\":").append(recordCount)
+                .append(",\"hasMore\":false,\"intakeRecords\":[");
+        for (int i = 0; i < recordCount; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            long plannedTime = now - i * 3600000L;
+            builder.append("{\"id\":").append(i + 1)
+                    .append(",\"userId\":\"benchmark\"")
+                    .append(",\"medicationId\":").append(i % 8 + 1)
+                    .append(",\"medicationName\":\"药品").append(i % 8).append('"')
+                    .append(",\"plannedTime\":").append(plannedTime)
+                    .append(",\"actualTime\":").append(plannedTime + 600000L)
+                    .append(",\"actualDosage\":\"1片\"")
+                    .append(",\"status\":1")
+                    .append(",\"notes\":\"\"")
+                    .append(",\"createTime\":").append(plannedTime)
+                    .append(",\"updateTime\":").append(plannedTime + 600000L)
+                    .append('}');
+        }
+        builder.append("]}}");
+        return builder.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class Result {
+        final long elapsedNanos;
+        final long peakBytes;
+
+        Result(long elapsedNanos, long peakBytes) {
+            this.elapsedNanos = elapsedNanos;
+            this.peakBytes = peakBytes;
+        }
+    }
+}
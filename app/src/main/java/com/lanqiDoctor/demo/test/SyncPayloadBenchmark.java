@@ -0,0 +1,124 @@
+package com.lanqiDoctor.demo.test;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.hjq.gson.factory.GsonFactory;
+import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 同步请求体编码基准测试
+ *
+ * 对比服药记录上传请求体的两种编码：
+ * 1. 原始 JSON：与不支持压缩的服务器通信时的格式
+ * 2. gzip JSON：服务器声明支持后 SyncCompressionInterceptor 发送的格式
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 SyncPayloadBenchmark.run(10000)（不要在主线程调用）
+ * 2. 检查日志输出，对比请求体字节数与编码、解码耗时
+ */
+public class SyncPayloadBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    /**
+     * 运行基准测试
+     *
+     * @param recordCount 模拟上传的服药记录数
+     */
+    public static void run(int recordCount) {
+        System.out.println("=== 开始同步请求体编码基准测试，记录数: " + recordCount + " ===");
+
+        Gson gson = GsonFactory.getSingletonGson();
+        Type type = new TypeToken<List<MedicationIntakeRecord>>() {}.getType();
+        List<MedicationIntakeRecord> records = buildRecords(recordCount);
+
+        try {
+            // 预热
+            byte[] json = gson.toJson(records).getBytes(StandardCharsets.UTF_8);
+            byte[] gzipped = gzip(json);
+            gson.fromJson(new String(json, StandardCharsets.UTF_8), type);
+
+            long jsonEncode = 0;
+            long gzipEncode = 0;
+            long jsonDecode = 0;
+            long gzipDecode = 0;
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                json = gson.toJson(records).getBytes(StandardCharsets.UTF_8);
+                jsonEncode += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                gzipped = gzip(gson.toJson(records).getBytes(StandardCharsets.UTF_8));
+                gzipEncode += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                List<MedicationIntakeRecord> decoded = gson.fromJson(new String(json, StandardCharsets.UTF_8), type);
+                jsonDecode += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                try (Reader reader = new InputStreamReader(
+                        new GZIPInputStream(new ByteArrayInputStream(gzipped)), StandardCharsets.UTF_8)) {
+                    decoded = gson.fromJson(reader, type);
+                }
+                gzipDecode += System.nanoTime() - start;
+
+                if (decoded.size() != recordCount) {
+                    System.err.println("❌ 解码条数不一致：" + decoded.size());
+                }
+            }
+
+            System.out.println("📊 原始 JSON: " + json.length / 1024 + " KB，编码 " + jsonEncode / ROUNDS / 1000000
+                    + " ms，解码 " + jsonDecode / ROUNDS / 1000000 + " ms");
+            System.out.println("📊 gzip JSON: " + gzipped.length / 1024 + " KB（" + gzipped.length * 100 / json.length
+                    + "%），编码 " + gzipEncode / ROUNDS / 1000000 + " ms，解码 " + gzipDecode / ROUNDS / 1000000 + " ms");
+        } catch (IOException e) {
+            System.err.println("❌ 测试失败：" + e.getMessage());
+        }
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(data);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * 构造与真实数据相近的服药记录：少量药品名反复出现，时间按小时递减
+     */
+    private static List<MedicationIntakeRecord> buildRecords(int recordCount) {
+        long now = System.currentTimeMillis();
+        List<MedicationIntakeRecord> records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            long plannedTime = now - i * 3600000L;
+            MedicationIntakeRecord record = new MedicationIntakeRecord();
+            record.setId((long) (i + 1));
+            record.setUserId("benchmark");
+            record.setMedicationId((long) (i % 8 + 1));
+            record.setMedicationName("药品" + (i % 8));
+            record.setPlannedTime(plannedTime);
+            record.setActualTime(plannedTime + 600000L);
+            record.setActualDosage("1片");
+            record.setStatus(1);
+            record.setCreateTime(plannedTime);
+            record.setUpdateTime(plannedTime + 600000L);
+            records.add(record);
+        }
+        return records;
+    }
+}
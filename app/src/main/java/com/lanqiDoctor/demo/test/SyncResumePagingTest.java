@@ -0,0 +1,307 @@
+package com.lanqiDoctor.demo.test;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.gson.stream.JsonReader;
+import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
+import com.lanqiDoctor.demo.http.api.SyncMedicationIntakeApi;
+import com.lanqiDoctor.demo.manager.CloudSyncManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 分页下载断点续传测试
+ *
+ * 在本机启动一个模拟同步服务器，按游标分页返回服药记录，第一次请求中间某一页时在响应写到一半时断开连接。
+ * 模拟一次完整同步被打断后的过程：
+ * 1. 按 CloudSyncManager 的方式逐页下载，每页完成后用 DownloadCheckpoint 保存游标
+ * 2. 中断后推进上次同步时间（与增量同步中先完成的上传相同），重新创建断点并恢复
+ * 3. 检查恢复后从中断的那一页继续，而不是从第一页重新下载，最终条数不重不漏
+ *
+ * 使用说明：
+ * 1. 在 Android 设备上调用 SyncResumePagingTest.run(context, 20000)（不要在主线程调用）
+ * 2. 检查日志输出，全部检查通过时输出 ✅
+ *
+ * 断点保存在单独的 SharedPreferences 中，不影响真实的同步状态
+ */
+public class SyncResumePagingTest {
+
+    private static final String PREFS_NAME = "sync_resume_paging_test";
+    private static final String CHECKPOINT_NAME = "intake";
+    private static final String USER_ID = "test-user";
+    private static final int PAGE_SIZE = 500;
+
+    /**
+     * 运行测试
+     *
+     * @param recordCount 服务器上的服药记录数
+     */
+    public static void run(Context context, int recordCount) {
+        System.out.println("=== 开始分页下载断点续传测试，记录数: " + recordCount + " ===");
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .readTimeout(30, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+
+        int pageCount = (recordCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        int interruptedPage = pageCount / 2;
+        long since = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+
+        try (MockSyncServer server = new MockSyncServer(recordCount, interruptedPage)) {
+            Set<Long> received = new HashSet<>();
+
+            // 第一次下载，在 interruptedPage 页中断
+            CloudSyncManager.DownloadCheckpoint checkpoint =
+                    new CloudSyncManager.DownloadCheckpoint(CHECKPOINT_NAME, "download", USER_ID, since)
+                            .resume(prefs);
+            boolean interrupted = false;
+            try {
+                downloadAll(client, server, prefs, checkpoint, received);
+            } catch (Exception e) {
+                interrupted = true;
+                System.out.println("第 " + (checkpoint.getPages() + 1) + " 页下载中断: " + e.getMessage());
+            }
+            check(interrupted, "下载没有在第 " + (interruptedPage + 1) + " 页中断");
+            check(checkpoint.getPages() == interruptedPage,
+                    "中断时已提交 " + checkpoint.getPages() + " 页，期望 " + interruptedPage + " 页");
+
+            // 上传推进了同步时间，恢复时仍应使用保存的断点
+            long advancedSince = since + TimeUnit.HOURS.toMillis(1);
+            int requestsBeforeResume = server.getRequestCount();
+            CloudSyncManager.DownloadCheckpoint resumed =
+                    new CloudSyncManager.DownloadCheckpoint(CHECKPOINT_NAME, "download", USER_ID, advancedSince)
+                            .resume(prefs);
+            check(resumed.getCursor() != null, "同步时间推进后断点被丢弃，从第一页重新下载");
+            check(resumed.getSince() != null && resumed.getSince() == since, "恢复后没有沿用断点的上次同步时间");
+
+            long start = System.currentTimeMillis();
+            downloadAll(client, server, prefs, resumed, received);
+            long elapsed = System.currentTimeMillis() - start;
+            int resumedRequests = server.getRequestCount() - requestsBeforeResume;
+
+            System.out.println("📊 恢复后请求 " + resumedRequests + " 页，耗时 " + elapsed + " ms，共保存 "
+                    + resumed.getDownloaded() + " 条，不同记录 " + received.size() + " 条");
+            check(resumedRequests == pageCount - interruptedPage,
+                    "恢复后请求了 " + resumedRequests + " 页，期望 " + (pageCount - interruptedPage) + " 页");
+            check(resumed.getDownloaded() == recordCount,
+                    "断点累计 " + resumed.getDownloaded() + " 条，期望 " + recordCount + " 条");
+            check(received.size() == recordCount, "收到 " + received.size() + " 条不同记录，期望 " + recordCount + " 条");
+            check(server.getFirstPageRequests() == 1, "第一页被请求了 " + server.getFirstPageRequests() + " 次");
+            check(prefs.getAll().isEmpty(), "下载完成后断点没有清除");
+
+            System.out.println("✅ 中断后从第 " + (interruptedPage + 1) + " 页继续，" + recordCount + " 条记录不重不漏");
+        } catch (Exception e) {
+            System.err.println("❌ 测试失败：" + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            prefs.edit().clear().commit();
+        }
+
+        System.out.println("=== 测试结束 ===");
+    }
+
+    /**
+     * 与 CloudSyncManager.downloadIntakePage 相同：边解析边写入，整页完成后提交断点，最后一页完成后清除断点
+     */
+    private static void downloadAll(OkHttpClient client, MockSyncServer server, SharedPreferences prefs,
+                                    CloudSyncManager.DownloadCheckpoint checkpoint, Set<Long> received) throws Exception {
+        while (true) {
+            HttpUrl.Builder url = HttpUrl.parse("http://127.0.0.1:" + server.getPort() + "/sync").newBuilder()
+                    .addQueryParameter("since", String.valueOf(checkpoint.getSince()))
+                    .addQueryParameter("pageSize", String.valueOf(PAGE_SIZE));
+            if (checkpoint.getCursor() != null) {
+                url.addQueryParameter("cursor", checkpoint.getCursor());
+            }
+
+            SyncMedicationIntakeApi api = new SyncMedicationIntakeApi().setRecordSink(batch -> {
+                // 与 applySyncBatch 一样按ID覆盖写入，重新下载的记录只会覆盖，不会多出一条
+                for (MedicationIntakeRecord record : batch) {
+                    received.add(record.getId());
+                }
+                checkpoint.addPageRows(batch.size());
+            });
+
+            SyncMedicationIntakeApi.Bean result;
+            try (Response response = client.newCall(new Request.Builder().url(url.build()).build()).execute();
+                 JsonReader reader = new JsonReader(response.body().charStream())) {
+                result = readBean(reader, api);
+            }
+
+            checkpoint.completePage();
+            if (result.hasMore() && result.getNextCursor() != null) {
+                checkpoint.commit(prefs, result.getNextCursor(), result.getServerTime());
+                continue;
+            }
+            checkpoint.clear(prefs);
+            return;
+        }
+    }
+
+    /**
+     * 与 StreamingParser.readHttpData 相同，读到 data 字段时交给接口解析
+     */
+    private static SyncMedicationIntakeApi.Bean readBean(JsonReader reader, SyncMedicationIntakeApi api) throws Exception {
+        SyncMedicationIntakeApi.Bean bean = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("data".equals(reader.nextName())) {
+                bean = (SyncMedicationIntakeApi.Bean) api.readData(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (bean == null || !bean.isSuccess()) {
+            throw new IllegalStateException("服务器返回失败");
+        }
+        return bean;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+
+    /**
+     * 模拟同步服务器：记录ID从 1 开始，游标为上一页最后一条记录的ID；
+     * 第一次请求 interruptedPage 页时只写出一半响应就断开连接
+     */
+    private static final class MockSyncServer implements AutoCloseable {
+
+        private final ServerSocket serverSocket;
+        private final int recordCount;
+        private final int interruptedPage;
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private final AtomicInteger firstPageRequests = new AtomicInteger();
+        private volatile boolean interruptedOnce;
+
+        MockSyncServer(int recordCount, int interruptedPage) throws IOException {
+            this.recordCount = recordCount;
+            this.interruptedPage = interruptedPage;
+            this.serverSocket = new ServerSocket(0, 8, InetAddress.getByName("127.0.0.1"));
+            Thread thread = new Thread(this::serve, "sync-resume-test-server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        int getRequestCount() {
+            return requestCount.get();
+        }
+
+        int getFirstPageRequests() {
+            return firstPageRequests.get();
+        }
+
+        private void serve() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    handle(socket);
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        System.err.println("测试服务器异常：" + e.getMessage());
+                    }
+                }
+            }
+        }
+
+        private void handle(Socket socket) throws IOException {
+            HttpUrl url = HttpUrl.parse("http://127.0.0.1" + readRequestTarget(socket.getInputStream()));
+            requestCount.incrementAndGet();
+            String cursor = url.queryParameter("cursor");
+            long afterId = cursor == null ? 0 : Long.parseLong(cursor);
+            if (cursor == null) {
+                firstPageRequests.incrementAndGet();
+            }
+            int page = (int) (afterId / PAGE_SIZE);
+            long lastId = Math.min(afterId + PAGE_SIZE, recordCount);
+            boolean hasMore = lastId < recordCount;
+
+            StringBuilder body = new StringBuilder((int) (lastId - afterId) * 200);
+            body.append("{\"code\":200,\"msg\":\"ok\",\"data\":{\"success\":true,\"message\":\"ok\",")
+                    .append("\"serverTime\":").append(System.currentTimeMillis())
+                    .append(",\"totalCount\":").append(recordCount)
+                    .append(",\"hasMore\":").append(hasMore);
+            if (hasMore) {
+                body.append(",\"nextCursor\":\"").append(lastId).append('"');
+            }
+            body.append(",\"intakeRecords\":[");
+            for (long id = afterId + 1; id <= lastId; id++) {
+                if (id > afterId + 1) {
+                    body.append(',');
+                }
+                body.append("{\"id\":").append(id)
+                        .append(",\"userId\":\"").append(USER_ID).append('"')
+                        .append(",\"medicationId\":").append(id % 20 + 1)
+                        .append(",\"medicationName\":\"测试药品\"")
+                        .append(",\"plannedTime\":").append(1700000000000L + id * 60000)
+                        .append(",\"status\":1,\"version\":1}");
+            }
+            body.append("]}}");
+
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            OutputStream output = socket.getOutputStream();
+            output.write(("HTTP/1.1 200 OK\r\n"
+                    + "Content-Type: application/json; charset=utf-8\r\n"
+                    + "Content-Length: " + bytes.length + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            if (page == interruptedPage && !interruptedOnce) {
+                interruptedOnce = true;
+                // 只写出一半就断开，客户端已经写入了这一页的部分记录
+                output.write(bytes, 0, bytes.length / 2);
+                output.flush();
+                return;
+            }
+            output.write(bytes);
+            output.flush();
+        }
+
+        /**
+         * 读取请求头，返回请求行中的路径和查询参数
+         */
+        private static String readRequestTarget(InputStream input) throws IOException {
+            StringBuilder header = new StringBuilder();
+            int c;
+            while ((c = input.read()) != -1) {
+                header.append((char) c);
+                if (header.length() >= 4 && header.substring(header.length() - 4).equals("\r\n\r\n")) {
+                    break;
+                }
+            }
+            String requestLine = header.substring(0, Math.max(0, header.indexOf("\r\n")));
+            String[] parts = requestLine.split(" ");
+            if (parts.length < 2) {
+                throw new IOException("请求格式错误: " + requestLine);
+            }
+            return parts[1];
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
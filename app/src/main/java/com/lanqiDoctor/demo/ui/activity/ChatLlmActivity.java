@@ -19,6 +19,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.lanqiDoctor.demo.R;
 import com.lanqiDoctor.demo.config.AiConfig;
 import com.lanqiDoctor.demo.entity.ChatSession;
+import com.lanqiDoctor.demo.http.api.AiService;
 import com.lanqiDoctor.demo.http.api.ChatMessage;
 import com.lanqiDoctor.demo.manager.ChatHistoryManager;
 import com.lanqiDoctor.demo.manager.UserStateManager;
@@ -66,6 +67,8 @@ public class ChatLlmActivity extends AppCompatActivity implements View.OnClickLi
 
         mMainHandler = new Handler(Looper.getMainLooper());
         mLlmUtil = new ChatLlmUtil(mMainHandler, this);
+        // 用户输入问题期间提前建立连接
+        AiService.preconnect();
         mHistoryManager = ChatHistoryManager.getInstance(this);
         mUserStateManager = UserStateManager.getInstance(this);
 
@@ -457,36 +460,36 @@ public class ChatLlmActivity extends AppCompatActivity implements View.OnClickLi
     }
 
     private void sendStreamRequest() {
-        final int[] aiVisibleMessageIndex = {-1};
-        mLlmUtil.sendStreamRequest(prepareMessagesForApi(), new ChatLlmUtil.LlmCallback() {
+        final ChatMessage[] aiMessage = {null};
+        mLlmUtil.sendStreamRequest(prepareMessagesForApi(), new ChatLlmUtil.StreamCallback() {
             @Override
-            public void onAssistantMessage(String content) {
-                // 流式模式下最终内容
-                updateLastAIMessageStreaming(content);
+            public void onStreamDelta(String delta) {
+                if (aiMessage[0] == null) {
+                    addMessage("assistant", "");
+                    aiMessage[0] = mVisibleMessages.get(findLastAssistantVisibleMessageIndex());
+                }
+                // 片段追加到消息上，只重新渲染最后一段
+                aiMessage[0].appendContent(delta);
+                refreshStreamingMessage(aiMessage[0]);
             }
 
             @Override
             public void onError(String errorMsg) {
-                if (aiVisibleMessageIndex[0] == -1) {
+                if (aiMessage[0] == null) {
                     addMessage("assistant", errorMsg);
                 } else {
-                    updateLastAIMessageStreaming(errorMsg);
+                    aiMessage[0].setContent(errorMsg);
                 }
             }
 
             @Override
             public void onComplete() {
-                scrollToBottom();
-            }
-
-            @Override
-            public void onStreamUpdate(String content) {
-                if (aiVisibleMessageIndex[0] == -1) {
-                    addMessage("assistant", content);
-                    aiVisibleMessageIndex[0] = findLastAssistantVisibleMessageIndex();
-                } else {
-                    updateLastAIMessageStreaming(content);
+                if (aiMessage[0] != null) {
+                    // 结束流式接收，整体重新渲染最终内容
+                    aiMessage[0].finishStreaming();
+                    refreshStreamingMessage(aiMessage[0]);
                 }
+                scrollToBottom();
             }
         });
     }
@@ -500,26 +503,14 @@ public class ChatLlmActivity extends AppCompatActivity implements View.OnClickLi
         return -1;
     }
 
-    private void updateLastAIMessageStreaming(String content) {
-        int lastVisibleAssistantIndex = findLastAssistantVisibleMessageIndex();
-        if (lastVisibleAssistantIndex >= 0) {
-            ChatMessage lastMessage = mVisibleMessages.get(lastVisibleAssistantIndex);
-            lastMessage.setContent(content);
-            updateMessageInFullList(lastMessage, content);
-            mAdapter.notifyItemChanged(lastVisibleAssistantIndex);
+    private void refreshStreamingMessage(ChatMessage message) {
+        int index = mVisibleMessages.indexOf(message);
+        if (index >= 0) {
+            mAdapter.notifyContentChanged(index);
             scrollToBottom();
         }
     }
 
-    private void updateMessageInFullList(ChatMessage visibleMessage, String content) {
-        for (ChatMessage msg : mMessages) {
-            if (msg == visibleMessage) {
-                msg.setContent(content);
-                break;
-            }
-        }
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -79,24 +79,23 @@ public class FamilyHealthDaily extends AppActivity  {
 
         String userIdStr = UserStateManager.getInstance(this).getUserId();
         String userId = userIdStr;
-        List<MedicationIntakeRecord> allIntakeRecords = intakeDao.findAll(userId);
-
-        // 日志输出服药数据数量
-        android.util.Log.d("FamilyHealthDaily", "服药记录总数: " + allIntakeRecords.size());
-        for (MedicationIntakeRecord record : allIntakeRecords) {
-            android.util.Log.d("FamilyHealthDaily", "服药记录: " + record.toString());
-        }
-
         StringBuilder medicationInfo = new StringBuilder();
         medicationInfo.append("【家庭成员服药情况】\n");
-        for (MedicationIntakeRecord record : allIntakeRecords) {
-            medicationInfo.append("药物：").append(record.getMedicationName())
-                    .append("，计划时间：").append(formatTime(record.getPlannedTime()))
-                    .append("，实际时间：").append(formatTime(record.getActualTime()))
-                    .append("，状态：").append(record.getStatusDescription())
-                    .append("，备注：").append(record.getNotes() == null ? "" : record.getNotes())
-                    .append("\n");
-        }
+        // 逐页读取服药记录并直接拼接，不在内存中保留全部历史记录
+        int total = intakeDao.forEachPage(userId, 200, page -> {
+            for (MedicationIntakeRecord record : page) {
+                medicationInfo.append("药物：").append(record.getMedicationName())
+                        .append("，计划时间：").append(formatTime(record.getPlannedTime()))
+                        .append("，实际时间：").append(formatTime(record.getActualTime()))
+                        .append("，状态：").append(record.getStatusDescription())
+                        .append("，备注：").append(record.getNotes() == null ? "" : record.getNotes())
+                        .append("\n");
+            }
+            return true;
+        });
+
+        // 日志输出服药数据数量
+        android.util.Log.d("FamilyHealthDaily", "服药记录总数: " + total);
 
         // 2. 拼接到 user prompt
         String userPrompt = "请帮我生成一份家庭健康日报,内容可以包含饮食、运动、睡眠、心理等方面,风格友好、简洁。\n"
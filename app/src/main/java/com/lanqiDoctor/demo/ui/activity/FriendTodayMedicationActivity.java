@@ -10,12 +10,14 @@ import android.widget.TextView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.google.gson.reflect.TypeToken;
 import com.hjq.base.BaseActivity;
 import com.hjq.toast.ToastUtils;
 import com.lanqiDoctor.demo.R;
 import com.lanqiDoctor.demo.database.dao.MedicationIntakeRecordDao;
 import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
 import com.lanqiDoctor.demo.http.api.FriendTodayIntakeApi;
+import com.lanqiDoctor.demo.http.model.ConditionalCache;
 import com.lanqiDoctor.demo.http.model.HttpData;
 import com.lanqiDoctor.demo.manager.UserStateManager;
 import com.lanqiDoctor.demo.model.TodayMedicationItem;
@@ -174,10 +176,21 @@ public class FriendTodayMedicationActivity extends BaseActivity {
     private void loadFriendTodayMedications() {
         Log.d(TAG, "开始加载亲友今日服药数据: " + friendUserId);
 
-        showLoadingState();
+        FriendTodayIntakeApi api = new FriendTodayIntakeApi(friendUserId);
+
+        // 先显示上次缓存的今日数据，请求返回（通常是 304）后再刷新
+        HttpData<FriendTodayIntakeApi.Bean> cached = ConditionalCache.getInstance(this).read(api,
+                new TypeToken<HttpData<FriendTodayIntakeApi.Bean>>() {}.getType());
+        final boolean showingCache = cached != null && cached.getData() != null;
+        if (showingCache) {
+            Log.d(TAG, "显示缓存的亲友今日服药数据");
+            handleSuccessResponse(cached.getData());
+        } else {
+            showLoadingState();
+        }
 
         EasyHttp.get(this)
-                .api(new FriendTodayIntakeApi(friendUserId))
+                .api(api)
                 .request(new OnHttpListener<HttpData<FriendTodayIntakeApi.Bean>>() {
 
                     @Override
@@ -211,6 +224,11 @@ public class FriendTodayMedicationActivity extends BaseActivity {
                     public void onFail(Exception e) {
                         Log.e(TAG, "请求亲友今日服药数据失败", e);
                         String errorMessage = NetworkErrorHandler.getAddFriendErrorMessage(e);
+                        if (showingCache) {
+                            // 保留缓存的数据，只提示刷新失败
+                            ToastUtils.show(errorMessage);
+                            return;
+                        }
                         showErrorState(errorMessage);
                     }
                 });
@@ -612,22 +612,9 @@ public class HabitAiRecommendationActivity extends BaseActivity {
             return;
         }
 
-        int successCount = 0;
-        int failCount = 0;
-        
-        for (Habit habit : selectedHabits) {
-            try {
-                long result = habitDao.insert(habit);
-                if (result != -1) {
-                    successCount++;
-                } else {
-                    failCount++;
-                }
-            } catch (Exception e) {
-                failCount++;
-                android.util.Log.e("HabitAiRecommendation", "保存习惯失败: " + habit.getHabitName(), e);
-            }
-        }
+        // 同一个事务中批量插入，要么全部成功，要么全部回滚
+        int successCount = habitDao.insertAll(selectedHabits);
+        int failCount = selectedHabits.size() - successCount;
 
         // 显示结果
         if (failCount == 0) {
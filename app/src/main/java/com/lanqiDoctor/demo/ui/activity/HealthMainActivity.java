@@ -23,6 +23,7 @@ import com.lanqiDoctor.demo.ui.fragment.HealthCenterFragmentNew;
 import com.lanqiDoctor.demo.ui.fragment.MobileHealthAssistantFragment;
 import com.lanqiDoctor.demo.ui.activity.TodayMedicationActivity;
 import com.lanqiDoctor.demo.manager.CloudSyncManager;
+import com.lanqiDoctor.demo.manager.SyncScheduler;
 import com.umeng.commonsdk.debug.I;
 
 import java.util.ArrayList;
@@ -94,14 +95,8 @@ public class HealthMainActivity extends AppActivity {
 
         cloudSyncManager = CloudSyncManager.getInstance(this);
 
-        // 在应用启动时尝试自动同步
-        postDelayed(() -> {
-            if (cloudSyncManager.canSyncToCloud()) {
-                new Thread(() -> {
-                    cloudSyncManager.autoSyncInBackground();
-                }).start();
-            }
-        }, 2000); // 延迟2秒执行，避免影响启动速度
+        // 在应用启动时尝试自动同步，由调度器延迟执行，不影响启动速度
+        SyncScheduler.getInstance(this).requestSync("应用启动");
 
         initListener();
     }
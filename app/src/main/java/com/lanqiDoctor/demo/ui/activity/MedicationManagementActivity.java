@@ -15,6 +15,7 @@ import com.lanqiDoctor.demo.database.dao.MedicationRecordDao;
 import com.lanqiDoctor.demo.database.entity.MedicationRecord;
 import com.lanqiDoctor.demo.manager.MedicationAlarmManager;
 import com.lanqiDoctor.demo.manager.CloudSyncManager;
+import com.lanqiDoctor.demo.manager.SyncScheduler;
 import com.lanqiDoctor.demo.ui.adapter.MedicationRecordAdapter;
 
 import java.util.ArrayList;
@@ -318,12 +319,8 @@ public class MedicationManagementActivity extends BaseActivity {//又是从这
      * 如果启用了自动同步，则触发云端同步
      */
     private void triggerCloudSyncIfEnabled() {
-        if (cloudSyncManager.canSyncToCloud()) {
-            // 在后台执行同步，不打扰用户
-            new Thread(() -> {
-                cloudSyncManager.autoSyncInBackground();
-            }).start();
-        }
+        // 交给同步调度器合并，连续修改只会触发一次后台同步
+        SyncScheduler.getInstance(this).requestSync("用药信息变更");
     }
 
     /**
@@ -12,7 +12,9 @@ import main.java.com.lanqiDoctor.demo.ui.adapter.CalendarDayRecordAdapter;
 
 import com.lanqiDoctor.demo.R;
 import com.lanqiDoctor.demo.View.CalendarView;
+import com.lanqiDoctor.demo.database.dao.IntakeDailySummaryDao;
 import com.lanqiDoctor.demo.database.dao.MedicationIntakeRecordDao;
+import com.lanqiDoctor.demo.database.entity.IntakeDailySummary;
 import com.lanqiDoctor.demo.database.entity.MedicationIntakeRecord;
 import com.lanqiDoctor.demo.manager.UserStateManager;
 
@@ -36,6 +38,7 @@ public class MonthCalendarActivity extends AppCompatActivity {
     // 存储日期状态：0=未标记，1=全部完成(绿)，2=未完成(红)
     private Map<String, Integer> dateStatusMap = new HashMap<>();
     private MedicationIntakeRecordDao intakeDao;
+    private IntakeDailySummaryDao summaryDao;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -46,6 +49,7 @@ public class MonthCalendarActivity extends AppCompatActivity {
         calendarView = findViewById(R.id.calendar_view);
         monthTitle = findViewById(R.id.month_title);
         intakeDao = new MedicationIntakeRecordDao(this);
+        summaryDao = new IntakeDailySummaryDao(this);
 
         // 1. 获取当前用户ID（请根据你的实际用户管理类调整）
         this.userId = UserStateManager.getInstance(this).getUserId();
@@ -141,19 +145,15 @@ public class MonthCalendarActivity extends AppCompatActivity {
         android.util.Log.d("MonthCalendarActivity", "查询时间范围: " + 
                 formatDateTime(startOfMonth) + " 至 " + formatDateTime(endOfMonth));
 
-        // 查询本月所有用药记录（使用成员变量userId）
-        List<MedicationIntakeRecord> records = intakeDao.findByTimeRange(this.userId, startOfMonth, endOfMonth);
-        
-        android.util.Log.d("MonthCalendarActivity", "查询到本月服药记录数量: " + records.size());
+        // 查询本月每日服药汇总（使用成员变量userId），每天最多一行
+        List<IntakeDailySummary> summaries = summaryDao.findByDayRange(this.userId, startOfMonth, endOfMonth);
 
-        // 按日期分组记录
-        Map<String, List<MedicationIntakeRecord>> recordsByDate = new HashMap<>();
-        for (MedicationIntakeRecord record : records) {
-            String dateKey = getDateKey(record.getPlannedTime());
-            recordsByDate.computeIfAbsent(dateKey, k -> new ArrayList<>()).add(record);
-            
-            android.util.Log.d("MonthCalendarActivity", "分组记录: " + 
-                    record.getMedicationName() + " 日期: " + dateKey + " 状态: " + record.getStatus());
+        android.util.Log.d("MonthCalendarActivity", "查询到本月有服药计划的天数: " + summaries.size());
+
+        // 按日期索引汇总
+        Map<String, IntakeDailySummary> summaryByDate = new HashMap<>();
+        for (IntakeDailySummary summary : summaries) {
+            summaryByDate.put(getDateKey(summary.getDay()), summary);
         }
 
         // 计算每日状态
@@ -167,9 +167,9 @@ public class MonthCalendarActivity extends AppCompatActivity {
             long dayEnd = dayStart + 24 * 60 * 60 * 1000 - 1;
 
             String dateKey = String.format("%d-%d-%d", currentYear, currentMonth, day);
-            List<MedicationIntakeRecord> dayRecords = recordsByDate.get(dateKey);
+            IntakeDailySummary daySummary = summaryByDate.get(dateKey);
 
-            if (dayRecords == null || dayRecords.isEmpty()) {
+            if (daySummary == null || daySummary.getTotalCount() == 0) {
                 // 如果当天没有记录且已经过了当天
                 if (currentTime > dayEnd) {
                     dateStatusMap.put(dateKey, 2); // 红色（未服药）
@@ -178,14 +178,8 @@ public class MonthCalendarActivity extends AppCompatActivity {
             }
 
             // 计算当天应服药次数和已服药次数
-            int totalCount = dayRecords.size();
-            int takenCount = 0;
-
-            for (MedicationIntakeRecord record : dayRecords) {
-                if (record.getStatus() != null && record.getStatus() == 1) {
-                    takenCount++;
-                }
-            }
+            int totalCount = daySummary.getTotalCount();
+            int takenCount = daySummary.getTakenCount();
 
             // 判断当天状态
             int status = 0; // 默认无状态
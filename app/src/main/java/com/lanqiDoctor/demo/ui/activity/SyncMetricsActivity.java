@@ -0,0 +1,105 @@
+package com.lanqiDoctor.demo.ui.activity;
+
+import android.content.Intent;
+import android.view.View;
+import android.widget.TextView;
+
+import com.lanqiDoctor.demo.R;
+import com.lanqiDoctor.demo.app.AppActivity;
+import com.lanqiDoctor.demo.http.model.SharedHttpClient;
+import com.lanqiDoctor.demo.manager.SyncMetrics;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 同步诊断界面
+ *
+ * 按时间倒序显示最近几次云同步的结果和各阶段指标，右上角导出为 JSON，
+ * 便于在真机上定位同步变慢或失败的原因；顶部显示本次启动以来请求的首字节耗时，
+ * 分为复用已有连接和新建连接两组，用于确认预连接的效果
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class SyncMetricsActivity extends AppActivity {
+
+    private TextView mMetricsView;
+
+    @Override
+    protected int getLayoutId() {
+        return R.layout.sync_metrics_activity;
+    }
+
+    @Override
+    protected void initView() {
+        mMetricsView = findViewById(R.id.tv_sync_metrics);
+    }
+
+    @Override
+    protected void initData() {
+        SharedHttpClient httpClient = SharedHttpClient.getInstance();
+        StringBuilder builder = new StringBuilder();
+        builder.append("首字节耗时\n")
+                .append("  复用连接: ").append(httpClient.getWarmStats()).append('\n')
+                .append("  新建连接: ").append(httpClient.getColdStats()).append("\n\n");
+
+        List<SyncMetrics.Run> runs = SyncMetrics.getInstance(this).getRecentRuns();
+        if (runs.isEmpty()) {
+            builder.append("暂无同步记录");
+            mMetricsView.setText(builder);
+            return;
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm:ss", Locale.getDefault());
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            SyncMetrics.Run run = runs.get(i);
+            builder.append('#').append(run.getId()).append(' ')
+                    .append(format.format(new Date(run.getStartTime()))).append(' ')
+                    .append(run.getType()).append(' ')
+                    .append(run.isSuccess() ? "成功" : "失败").append(' ')
+                    .append(run.getDurationMs()).append(" ms\n");
+            if (!run.isSuccess()) {
+                builder.append("  错误: ").append(run.getErrorClass()).append(' ')
+                        .append(run.getError()).append('\n');
+            }
+            for (Map.Entry<String, Long> leg : run.getLegDurations().entrySet()) {
+                builder.append("  环节 ").append(leg.getKey()).append(": ").append(leg.getValue()).append(" ms\n");
+            }
+            for (SyncMetrics.Phase phase : run.getPhases()) {
+                builder.append("  ").append(phase.getName()).append(": ")
+                        .append(phase.getDurationMs()).append(" ms，请求 ").append(phase.getRequests())
+                        .append("，重发 ").append(phase.getRetries())
+                        .append("，失败 ").append(phase.getFailures()).append('\n')
+                        .append("    发送 ").append(formatBytes(phase.getRequestBytes()))
+                        .append("，接收 ").append(formatBytes(phase.getResponseBytes()))
+                        .append("，读 ").append(phase.getRowsRead())
+                        .append(" 行，写 ").append(phase.getRowsWritten()).append(" 行\n");
+                if (phase.getErrorClass() != null) {
+                    builder.append("    最后错误: ").append(phase.getErrorClass()).append('\n');
+                }
+            }
+            builder.append('\n');
+        }
+        mMetricsView.setText(builder);
+    }
+
+    @Override
+    public void onRightClick(View view) {
+        // 导出为 JSON 文本
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/plain");
+        intent.putExtra(Intent.EXTRA_TEXT, SyncMetrics.getInstance(this).exportJson());
+        startActivity(Intent.createChooser(intent, "导出同步指标"));
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        return String.format(Locale.ROOT, "%.1f KB", bytes / 1024f);
+    }
+}
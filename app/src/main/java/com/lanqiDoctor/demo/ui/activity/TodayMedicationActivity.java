@@ -22,6 +22,7 @@ import com.lanqiDoctor.demo.manager.UserStateManager;
 import com.lanqiDoctor.demo.ui.adapter.TodayMedicationAdapter;
 import com.lanqiDoctor.demo.model.TodayMedicationItem;
 import com.lanqiDoctor.demo.manager.CloudSyncManager;
+import com.lanqiDoctor.demo.manager.SyncScheduler;
 import com.lanqiDoctor.demo.manager.TodayMedicationManager;
 
 import java.text.SimpleDateFormat;
@@ -189,7 +190,7 @@ public class TodayMedicationActivity extends BaseActivity implements TodayMedica
         try {
             // 确保今日数据已初始化（双重保险）
             TodayMedicationManager medicationManager = TodayMedicationManager.getInstance(this);
-            intakeDao.validateUserData(userId);
+            intakeDao.adoptOrphanRecords(userId);
             // loadTodayMedicationData();
 
             medicationManager.initTodayMedicationData();
@@ -523,12 +524,8 @@ public class TodayMedicationActivity extends BaseActivity implements TodayMedica
      * 如果启用了自动同步，则触发云端同步
      */
     private void triggerCloudSyncIfEnabled() {
-        if (cloudSyncManager.canSyncToCloud()) {
-            // 在后台执行同步，不打扰用户
-            new Thread(() -> {
-                cloudSyncManager.autoSyncInBackground();
-            }).start();
-        }
+        // 交给同步调度器合并，连续修改只会触发一次后台同步
+        SyncScheduler.getInstance(this).requestSync("服药记录变更");
     }
 
     /**
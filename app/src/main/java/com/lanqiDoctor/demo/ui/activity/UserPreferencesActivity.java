@@ -15,6 +15,7 @@ import com.hjq.bar.OnTitleBarListener;
 import com.lanqiDoctor.demo.R;
 import com.lanqiDoctor.demo.manager.UserStateManager;
 import com.lanqiDoctor.demo.manager.CloudSyncManager;
+import com.lanqiDoctor.demo.manager.SyncMetrics;
 
 /**
  * 用户偏好设置页面
@@ -89,6 +90,11 @@ public class UserPreferencesActivity extends BaseActivity implements View.OnClic
         // 添加同步状态显示
         tvSyncStatus = findViewById(R.id.tv_sync_status);
         btnResetSync = findViewById(R.id.btn_reset_sync);
+        // 长按同步状态进入同步诊断界面
+        tvSyncStatus.setOnLongClickListener(v -> {
+            startActivity(SyncMetricsActivity.class);
+            return true;
+        });
         
         setOnClickListener(btnResetSync);
         
@@ -218,6 +224,13 @@ public class UserPreferencesActivity extends BaseActivity implements View.OnClic
                             .append(formatSyncTime(status.lastIntakeSyncTime));
                 }
             }
+
+            if (status.recentRuns != null && !status.recentRuns.isEmpty()) {
+                SyncMetrics.Run lastRun = status.recentRuns.get(status.recentRuns.size() - 1);
+                statusText.append("\n上次同步")
+                        .append(lastRun.isSuccess() ? "成功" : "失败")
+                        .append("，耗时 ").append(lastRun.getDurationMs()).append(" ms");
+            }
             
             tvSyncStatus.setText(statusText.toString());
             
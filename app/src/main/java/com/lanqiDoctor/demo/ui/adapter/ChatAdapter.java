@@ -1,7 +1,8 @@
 package com.lanqiDoctor.demo.ui.adapter;
 
 import android.content.Context;
-import android.text.Html;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
 import android.text.Spanned;
 import android.view.ViewGroup;
 import android.widget.TextView;
@@ -12,10 +13,10 @@ import androidx.annotation.NonNull;
 import com.lanqiDoctor.demo.R;
 import com.lanqiDoctor.demo.app.AppAdapter;
 import com.lanqiDoctor.demo.http.api.ChatMessage;
+import com.lanqiDoctor.demo.manager.MarkdownRenderManager;
 
-import org.commonmark.node.*;
-import org.commonmark.parser.Parser;
-import org.commonmark.renderer.html.HtmlRenderer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 聊天记录适配器
@@ -25,8 +26,157 @@ public final class ChatAdapter extends AppAdapter<ChatMessage> {
     private static final int TYPE_USER = 1;
     private static final int TYPE_AI = 2;
 
+    /** 内容刷新时传给 notifyItemChanged 的标记，复用原来的 ViewHolder，不触发淡入淡出动画 */
+    private static final Object PAYLOAD_CONTENT = new Object();
+
+    /** 绑定时提前渲染前后各几条助手消息 */
+    private static final int PREFETCH_DISTANCE = 4;
+
+    private final MarkdownRenderManager mRenderManager;
+
+    /** 正在流式接收的消息，以及它已经渲染好的完整段落 */
+    private ChatMessage mStreamingMessage;
+    private String mStableSource;
+    /** 流式消息显示的文字：前 mStableLength 个字符是完整段落，之后是最后一个未完成的段落 */
+    private SpannableStringBuilder mStreamingText;
+    private int mStableLength;
+
+    /**
+     * 流式消息的文字直接交给 TextView，不再复制一份；
+     * 其他内容仍按默认方式复制，避免缓存的渲染结果被 TextView 修改
+     */
+    private final Spannable.Factory mSpannableFactory = new Spannable.Factory() {
+        @Override
+        public Spannable newSpannable(CharSequence source) {
+            return source == mStreamingText ? mStreamingText : super.newSpannable(source);
+        }
+    };
+
     public ChatAdapter(Context context) {
         super(context);
+        mRenderManager = MarkdownRenderManager.getInstance(context);
+    }
+
+    /**
+     * 消息内容变化（流式追加或接收结束）时刷新，原地重新绑定
+     */
+    public void notifyContentChanged(int position) {
+        notifyItemChanged(position, PAYLOAD_CONTENT);
+    }
+
+    /**
+     * 显示助手消息
+     *
+     * 接收完成的消息交给 MarkdownRenderManager，渲染结果有缓存，并提前渲染附近的消息。
+     * 流式接收时内容只会在末尾追加，空行之前（且不在代码块内）的段落不会再变化：
+     * 这部分渲染一次后保留在 mStreamingText 中，每次刷新只替换最后一个还没结束的段落。
+     * 接收结束后整体渲染一次，保证列表、代码块等跨段落的格式正确
+     */
+    private void bindAssistant(TextView textView, ChatMessage message, int position) {
+        String content = message.getContent() == null ? "" : message.getContent();
+        if (!message.isStreaming()) {
+            if (message == mStreamingMessage) {
+                mStreamingMessage = null;
+                mStableSource = null;
+                mStreamingText = null;
+            }
+            mRenderManager.setMarkdown(textView, content);
+            prefetchAround(textView, position);
+            return;
+        }
+
+        // 换了消息或内容被整体替换（例如出错提示）时重新开始
+        if (message != mStreamingMessage || !content.startsWith(mStableSource)) {
+            mStreamingMessage = message;
+            mStableSource = "";
+            mStreamingText = new SpannableStringBuilder();
+            mStableLength = 0;
+        }
+
+        // 去掉上一次的未完成段落，完整段落原样保留
+        mStreamingText.delete(mStableLength, mStreamingText.length());
+        int stableSourceLength = mStableSource.length();
+        int boundary = findStableBoundary(content, stableSourceLength);
+        if (boundary > stableSourceLength) {
+            appendBlock(mStreamingText, mRenderManager.render(content.substring(stableSourceLength, boundary)));
+            mStableSource = content.substring(0, boundary);
+            mStableLength = mStreamingText.length();
+        }
+        appendBlock(mStreamingText, mRenderManager.render(content.substring(boundary)));
+        mRenderManager.setParsed(textView, mStreamingText);
+    }
+
+    /**
+     * 分段渲染的结果末尾不带段落间距，拼接时补上空行
+     */
+    private static void appendBlock(SpannableStringBuilder builder, Spanned block) {
+        if (block.length() == 0) {
+            return;
+        }
+        if (builder.length() > 0) {
+            builder.append("\n\n");
+        }
+        builder.append(block);
+    }
+
+    /**
+     * 提前渲染附近已经接收完成的助手消息
+     */
+    private void prefetchAround(TextView textView, int position) {
+        List<String> contents = new ArrayList<>();
+        int end = Math.min(getCount() - 1, position + PREFETCH_DISTANCE);
+        for (int i = Math.max(0, position - PREFETCH_DISTANCE); i <= end; i++) {
+            ChatMessage item = getItem(i);
+            if (i != position && "assistant".equals(item.getRole()) && !item.isStreaming()) {
+                contents.add(item.getContent());
+            }
+        }
+        mRenderManager.prefetch(textView, contents);
+    }
+
+    /**
+     * 从 start（上一个段落边界，一定在代码块外）开始查找最后一个段落边界，
+     * 返回边界之后第一个字符的位置，没有新的边界时返回 start
+     */
+    private static int findStableBoundary(String content, int start) {
+        int boundary = start;
+        // 当前所在代码块的围栏字符，不在代码块内时为 0
+        char fence = 0;
+        int lineStart = start;
+        while (lineStart < content.length()) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                // 最后一行还没接收完整
+                break;
+            }
+            char lineFence = fenceChar(content, lineStart, lineEnd);
+            if (lineFence != 0 && (fence == 0 || fence == lineFence)) {
+                fence = fence == 0 ? lineFence : 0;
+            } else if (fence == 0 && content.substring(lineStart, lineEnd).trim().isEmpty()) {
+                boundary = lineEnd + 1;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return boundary;
+    }
+
+    /**
+     * 代码块围栏行返回围栏字符（` 或 ~），否则返回 0
+     *
+     * 与 CommonMark 一致，围栏前最多允许 3 个空格
+     */
+    private static char fenceChar(String content, int lineStart, int lineEnd) {
+        int i = lineStart;
+        while (i < lineEnd && i - lineStart < 3 && content.charAt(i) == ' ') {
+            i++;
+        }
+        if (content.startsWith("```", i) && i + 3 <= lineEnd) {
+            return '`';
+        }
+        if (content.startsWith("~~~", i) && i + 3 <= lineEnd) {
+            return '~';
+        }
+        return 0;
     }
 
     @Override
@@ -55,25 +205,14 @@ public final class ChatAdapter extends AppAdapter<ChatMessage> {
         public ChatViewHolder(int layoutId) {
             super(layoutId);
             tvMessage = findViewById(R.id.tv_message);
+            tvMessage.setSpannableFactory(mSpannableFactory);
         }
 
         @Override
         public void onBindView(int position) {
             ChatMessage message = getItem(position);
             if ("assistant".equals(message.getRole())) {
-                // 用 commonmark 渲染 Markdown
-                Parser parser = Parser.builder().build();
-                Node document = parser.parse(message.getContent() == null ? "" : message.getContent());
-                HtmlRenderer renderer = HtmlRenderer.builder().build();
-                String html = renderer.render(document);
-
-                Spanned spanned;
-                if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.N) {
-                    spanned = Html.fromHtml(html, Html.FROM_HTML_MODE_LEGACY);
-                } else {
-                    spanned = Html.fromHtml(html);
-                }
-                tvMessage.setText(spanned);
+                bindAssistant(tvMessage, message, position);
             } else {
                 // 用户消息直接显示
                 tvMessage.setText(message.getContent());
@@ -20,6 +20,7 @@ import com.lanqiDoctor.demo.http.api.AiService;
 import com.lanqiDoctor.demo.http.api.ChatMessage;
 import com.lanqiDoctor.demo.ui.activity.HomeActivity;
 import com.lanqiDoctor.demo.ui.adapter.ChatAdapter;
+import com.lanqiDoctor.demo.util.FrameCoalescer;
 import com.lanqiDoctor.demo.widget.StatusLayout;
 import com.hjq.http.listener.OnHttpListener;
 import com.hjq.toast.ToastUtils;
@@ -88,6 +89,8 @@ public final class ChatFragment extends TitleBarFragment<HomeActivity> implement
         try {
             // 初始化AI服务
             AiService.initialize();
+            // 用户输入问题期间提前建立连接
+            AiService.preconnect();
 
             // 确保状态布局被正确隐藏
             showComplete();
@@ -251,12 +254,14 @@ public final class ChatFragment extends TitleBarFragment<HomeActivity> implement
 
     /**
      * 发送流式请求
+     *
+     * 片段直接追加到AI消息上（只复制片段本身），列表刷新按帧合并，每帧最多刷新一次
      */
     @Log("ChatFragment")
     private void sendStreamRequest() {
         mExecutor.execute(() -> {
-            final int[] aiVisibleMessageIndex = {-1};
-            final StringBuilder responseBuilder = new StringBuilder();
+            final ChatMessage[] aiMessage = {null};
+            final FrameCoalescer updater = new FrameCoalescer(() -> refreshStreamingMessage(aiMessage[0]));
 
             // 使用完整的消息历史（包括系统消息）
             List<ChatMessage> apiMessages = prepareMessagesForApi();
@@ -270,22 +275,15 @@ public final class ChatFragment extends TitleBarFragment<HomeActivity> implement
                                 AiChatApi.Bean.Choice choice = deltaBean.getChoices().get(0);
                                 ChatMessage delta = choice.getDelta();
                                 if (delta != null && delta.getContent() != null && !delta.getContent().isEmpty()) {
-                                    // 累积内容
-                                    responseBuilder.append(delta.getContent());
-
-                                    System.out.println("ChatFragment: 收到流式片段: '" + delta.getContent() +
-                                            "', 累积长度: " + responseBuilder.length());
-
-                                    if (aiVisibleMessageIndex[0] == -1) {
+                                    if (aiMessage[0] == null) {
                                         // 第一次收到消息，添加AI消息
-                                        addMessage("assistant", responseBuilder.toString());
-                                        aiVisibleMessageIndex[0] = findLastAssistantVisibleMessageIndex();
-                                        System.out.println("ChatFragment: 创建新AI消息，可见索引: " + aiVisibleMessageIndex[0]);
-                                    } else {
-                                        // 流式更新现有AI消息
-                                        updateLastAIMessageStreaming(responseBuilder.toString());
-                                        System.out.println("ChatFragment: 更新AI消息，当前内容长度: " + responseBuilder.length());
+                                        addMessage("assistant", "");
+                                        int index = findLastAssistantVisibleMessageIndex();
+                                        aiMessage[0] = mVisibleMessages.get(index);
                                     }
+                                    // 流式更新现有AI消息，下一帧再刷新界面
+                                    aiMessage[0].appendContent(delta.getContent());
+                                    updater.schedule();
                                 }
                             }
                         } catch (Exception e) {
@@ -299,11 +297,13 @@ public final class ChatFragment extends TitleBarFragment<HomeActivity> implement
                 public void onComplete(AiChatApi.Bean completeBean) {
                     mMainHandler.post(() -> {
                         showComplete();
-                        System.out.println("ChatFragment: 流式请求完成，最终内容长度: " + responseBuilder.length());
+                        updater.cancel();
 
-                        // 确保最终内容正确显示
-                        if (aiVisibleMessageIndex[0] >= 0 && responseBuilder.length() > 0) {
-                            updateLastAIMessageStreaming(responseBuilder.toString());
+                        // 结束流式接收，整体重新渲染最终内容
+                        if (aiMessage[0] != null) {
+                            aiMessage[0].finishStreaming();
+                            System.out.println("ChatFragment: 流式请求完成，最终内容长度: " + aiMessage[0].getContent().length());
+                            refreshStreamingMessage(aiMessage[0]);
                         }
 
                         scrollToBottom();
@@ -314,17 +314,16 @@ public final class ChatFragment extends TitleBarFragment<HomeActivity> implement
                 public void onError(String error) {
                     mMainHandler.post(() -> {
                         showComplete();
+                        updater.cancel();
                         ToastUtils.show("请求失败: " + error);
                         System.err.println("ChatFragment: 流式请求错误: " + error);
 
-                        if (aiVisibleMessageIndex[0] == -1) {
+                        if (aiMessage[0] == null) {
                             addMessage("assistant", "抱歉，我暂时无法回答您的问题，请稍后再试。");
                         } else {
                             // 如果已经有部分内容，保留已显示的内容
-                            String currentContent = responseBuilder.toString();
-                            if (currentContent.isEmpty()) {
-                                updateLastAIMessageStreaming("抱歉，我暂时无法回答您的问题，请稍后再试。");
-                            }
+                            aiMessage[0].finishStreaming();
+                            refreshStreamingMessage(aiMessage[0]);
                         }
                         scrollToBottom();
                     });
@@ -333,6 +332,20 @@ public final class ChatFragment extends TitleBarFragment<HomeActivity> implement
         });
     }
 
+    /**
+     * 刷新流式接收中的AI消息（消息已被移出历史时忽略）
+     */
+    private void refreshStreamingMessage(ChatMessage message) {
+        if (message == null || mAdapter == null || mVisibleMessages == null) {
+            return;
+        }
+        int index = mVisibleMessages.indexOf(message);
+        if (index >= 0) {
+            mAdapter.notifyContentChanged(index);
+            scrollToBottom();
+        }
+    }
+
     /**
      * 查找最后一条助手消息在可见消息列表中的索引
      */
@@ -347,56 +360,6 @@ public final class ChatFragment extends TitleBarFragment<HomeActivity> implement
         return -1;
     }
 
-    /**
-     * 流式更新最后一条AI消息
-     */
-    private void updateLastAIMessageStreaming(String content) {
-        try {
-            int lastVisibleAssistantIndex = findLastAssistantVisibleMessageIndex();
-            System.out.println("ChatFragment: 准备更新AI消息，可见索引: " + lastVisibleAssistantIndex + ", 内容长度: " + content.length());
-
-            if (lastVisibleAssistantIndex >= 0 && mAdapter != null && mVisibleMessages != null) {
-                ChatMessage lastMessage = mVisibleMessages.get(lastVisibleAssistantIndex);
-                if (lastMessage != null) {
-                    String oldContent = lastMessage.getContent();
-                    lastMessage.setContent(content);
-
-                    // 同时更新完整消息列表中对应的消息
-                    updateMessageInFullList(lastMessage, content);
-
-                    System.out.println("ChatFragment: 内容更新 - 旧长度: " + (oldContent != null ? oldContent.length() : 0) +
-                            ", 新长度: " + content.length());
-
-                    mAdapter.notifyItemChanged(lastVisibleAssistantIndex);
-                    System.out.println("ChatFragment: 已通知适配器更新位置: " + lastVisibleAssistantIndex);
-
-                    scrollToBottom();
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("ChatFragment: 更新AI消息异常: " + e.getMessage());
-        }
-    }
-
-    /**
-     * 在完整消息列表中更新对应的消息
-     */
-    private void updateMessageInFullList(ChatMessage visibleMessage, String content) {
-        try {
-            if (mMessages != null) {
-                for (ChatMessage msg : mMessages) {
-                    if (msg == visibleMessage) {
-                        msg.setContent(content);
-                        break;
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
-
     @SingleClick
     @Override
     public void onClick(View view) {
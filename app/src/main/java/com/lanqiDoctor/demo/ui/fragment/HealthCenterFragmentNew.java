@@ -391,35 +391,36 @@ public class HealthCenterFragmentNew extends BaseFragment {
      * 流式请求
      */
     private void sendStreamRequest() {
-        final int[] aiVisibleMessageIndex = {-1};
-        llmUtil.sendStreamRequest(prepareMessagesForApi(), new ChatLlmUtil.LlmCallback() {
+        final ChatMessage[] aiMessage = {null};
+        llmUtil.sendStreamRequest(prepareMessagesForApi(), new ChatLlmUtil.StreamCallback() {
             @Override
-            public void onAssistantMessage(String content) {
-                updateLastAIMessageStreaming(content);
+            public void onStreamDelta(String delta) {
+                if (aiMessage[0] == null) {
+                    addMessage("assistant", "");
+                    aiMessage[0] = visibleMessages.get(findLastAssistantVisibleMessageIndex());
+                }
+                // 片段追加到消息上，只重新渲染最后一段
+                aiMessage[0].appendContent(delta);
+                refreshStreamingMessage(aiMessage[0]);
             }
 
             @Override
             public void onError(String errorMsg) {
-                if (aiVisibleMessageIndex[0] == -1) {
+                if (aiMessage[0] == null) {
                     addMessage("assistant", errorMsg);
                 } else {
-                    updateLastAIMessageStreaming(errorMsg);
+                    aiMessage[0].setContent(errorMsg);
                 }
             }
 
             @Override
             public void onComplete() {
-                scrollToBottom();
-            }
-
-            @Override
-            public void onStreamUpdate(String content) {
-                if (aiVisibleMessageIndex[0] == -1) {
-                    addMessage("assistant", content);
-                    aiVisibleMessageIndex[0] = findLastAssistantVisibleMessageIndex();
-                } else {
-                    updateLastAIMessageStreaming(content);
+                if (aiMessage[0] != null) {
+                    // 结束流式接收，整体重新渲染最终内容
+                    aiMessage[0].finishStreaming();
+                    refreshStreamingMessage(aiMessage[0]);
                 }
+                scrollToBottom();
             }
         });
     }
@@ -437,31 +438,16 @@ public class HealthCenterFragmentNew extends BaseFragment {
     }
 
     /**
-     * 更新最后一条AI消息（流式）
+     * 刷新流式接收中的AI消息（消息已被移出历史时忽略）
      */
-    private void updateLastAIMessageStreaming(String content) {
-        int lastVisibleAssistantIndex = findLastAssistantVisibleMessageIndex();
-        if (lastVisibleAssistantIndex >= 0) {
-            ChatMessage lastMessage = visibleMessages.get(lastVisibleAssistantIndex);
-            lastMessage.setContent(content);
-            updateMessageInFullList(lastMessage, content);
-            chatAdapter.notifyItemChanged(lastVisibleAssistantIndex);
+    private void refreshStreamingMessage(ChatMessage message) {
+        int index = visibleMessages.indexOf(message);
+        if (index >= 0) {
+            chatAdapter.notifyContentChanged(index);
             scrollToBottom();
         }
     }
 
-    /**
-     * 在完整消息列表中更新对应的消息
-     */
-    private void updateMessageInFullList(ChatMessage visibleMessage, String content) {
-        for (ChatMessage msg : messages) {
-            if (msg == visibleMessage) {
-                msg.setContent(content);
-                break;
-            }
-        }
-    }
-
     /**
      * 处理返回键
      * @return true表示已处理，false表示未处理
@@ -36,6 +36,16 @@ public class ChatLlmUtil {
         void onStreamUpdate(String content);
     }
 
+    /**
+     * 按片段回调的流式对话回调，全部在主线程执行
+     */
+    public interface StreamCallback {
+        /** 新的文本片段，同一帧内到达的多个片段合并为一次回调 */
+        void onStreamDelta(String delta);
+        void onError(String errorMsg);
+        void onComplete();
+    }
+
     public ChatLlmUtil(Handler mainHandler, LifecycleOwner lifecycleOwner) {
         this.mExecutor = Executors.newSingleThreadExecutor();
         this.mMainHandler = mainHandler;
@@ -151,10 +161,20 @@ public class ChatLlmUtil {
     }
     /**
      * 发送流式对话请求
+     *
+     * 片段只追加到待回调的缓冲区，同一帧内到达的片段合并成一次 onStreamDelta，
+     * 调用方把片段追加到消息上（ChatMessage.appendContent），不需要每次复制完整内容
      */
-    public void sendStreamRequest(List<ChatMessage> messages, LlmCallback callback) {
+    public void sendStreamRequest(List<ChatMessage> messages, StreamCallback callback) {
         mExecutor.execute(() -> {
-            final StringBuilder responseBuilder = new StringBuilder();
+            final StringBuilder pending = new StringBuilder();
+            final FrameCoalescer updater = new FrameCoalescer(() -> {
+                if (pending.length() > 0) {
+                    String delta = pending.toString();
+                    pending.setLength(0);
+                    callback.onStreamDelta(delta);
+                }
+            });
 
             AiService.sendStreamChatRequest(messages, new AiService.StreamResponseCallback() {
                 @Override
@@ -164,8 +184,8 @@ public class ChatLlmUtil {
                             AiChatApi.Bean.Choice choice = deltaBean.getChoices().get(0);
                             ChatMessage delta = choice.getDelta();
                             if (delta != null && delta.getContent() != null && !delta.getContent().isEmpty()) {
-                                responseBuilder.append(delta.getContent());
-                                callback.onStreamUpdate(responseBuilder.toString());
+                                pending.append(delta.getContent());
+                                updater.schedule();
                             }
                         }
                     });
@@ -173,12 +193,16 @@ public class ChatLlmUtil {
 
                 @Override
                 public void onComplete(AiChatApi.Bean completeBean) {
-                    mMainHandler.post(callback::onComplete);
+                    mMainHandler.post(() -> {
+                        updater.flush();
+                        callback.onComplete();
+                    });
                 }
 
                 @Override
                 public void onError(String error) {
                     mMainHandler.post(() -> {
+                        updater.flush();
                         ToastUtils.show("请求失败: " + error);
                         callback.onError("抱歉，我暂时无法回答您的问题，请稍后再试。");
                         callback.onComplete();
@@ -188,6 +212,30 @@ public class ChatLlmUtil {
         });
     }
 
+    /**
+     * 发送流式对话请求，onStreamUpdate 每帧最多回调一次截至当前的完整内容，供需要完整内容的调用方使用
+     */
+    public void sendStreamRequest(List<ChatMessage> messages, LlmCallback callback) {
+        final StringBuilder responseBuilder = new StringBuilder();
+        sendStreamRequest(messages, new StreamCallback() {
+            @Override
+            public void onStreamDelta(String delta) {
+                responseBuilder.append(delta);
+                callback.onStreamUpdate(responseBuilder.toString());
+            }
+
+            @Override
+            public void onError(String errorMsg) {
+                callback.onError(errorMsg);
+            }
+
+            @Override
+            public void onComplete() {
+                callback.onComplete();
+            }
+        });
+    }
+
     public void shutdown() {
         mExecutor.shutdown();
     }
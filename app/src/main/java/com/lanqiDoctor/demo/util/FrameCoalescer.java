@@ -0,0 +1,65 @@
+package com.lanqiDoctor.demo.util;
+
+import android.view.Choreographer;
+
+/**
+ * 按帧合并界面刷新
+ *
+ * 流式回答的片段到达频率可能远高于屏幕刷新率，每个片段都刷新列表只会浪费主线程时间：
+ * 1. schedule() 在下一次垂直同步时执行刷新，同一帧内多次调用只执行一次
+ * 2. flush() 立即执行还没执行的刷新，流结束或出错时调用，保证最终内容马上显示
+ * 3. cancel() 丢弃还没执行的刷新，界面销毁时调用
+ *
+ * 只能在主线程使用
+ *
+ * @author 蓝岐医童开发团队
+ * @version 1.0
+ */
+public final class FrameCoalescer implements Choreographer.FrameCallback {
+
+    private final Runnable action;
+    private boolean scheduled;
+
+    public FrameCoalescer(Runnable action) {
+        this.action = action;
+    }
+
+    /**
+     * 安排在下一帧刷新
+     */
+    public void schedule() {
+        if (scheduled) {
+            return;
+        }
+        scheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * 有待执行的刷新时立即执行
+     */
+    public void flush() {
+        if (!scheduled) {
+            return;
+        }
+        Choreographer.getInstance().removeFrameCallback(this);
+        scheduled = false;
+        action.run();
+    }
+
+    /**
+     * 丢弃待执行的刷新
+     */
+    public void cancel() {
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            scheduled = false;
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        action.run();
+    }
+}